@@ -0,0 +1,117 @@
+package simon.app.quoridor.Core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+import okhttp3.Call;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Game server reached over HTTP with OkHttp. Requests are multipart forms posted to the endpoints
+ * of the API, and callbacks run on the threads of the OkHttp dispatcher
+ */
+public class OkHttpGameServer implements GameServer {
+	/**
+	 * Base URL of the quoridor API of the course
+	 */
+	public static final String DEFAULT_BASE_URL = "https://python.gel.ulaval.ca/quoridor/api/";
+
+	/**
+	 * Suffix to the base url to play a move
+	 */
+	private static final String MAKE_MOVE_SUFFIX = "jouer/";
+
+	/**
+	 * Suffix to the base url to begin a game
+	 */
+	private static final String BEGIN_GAME_SUFFIX = "d\u00e9buter/";
+
+	/**
+	 * Status codes of the refusals of the API: invalid request or move, and unknown game. Other
+	 * 4xx codes (timeouts, rate limits, captive portals) are failures worth retrying
+	 */
+	private static final int BAD_REQUEST = 400;
+	private static final int NOT_FOUND = 404;
+
+	private final OkHttpClient mHttpClient;
+	private final String mBaseUrl;
+
+	/**
+	 * Creates a server reached at DEFAULT_BASE_URL
+	 */
+	public OkHttpGameServer() {
+		this(new OkHttpClient(), DEFAULT_BASE_URL);
+	}
+
+	/**
+	 * @param httpClient The client sending the requests
+	 * @param baseUrl The base URL of the API, ending with a slash
+	 */
+	public OkHttpGameServer(OkHttpClient httpClient, String baseUrl) {
+		mHttpClient = httpClient;
+		mBaseUrl = baseUrl;
+	}
+
+	@Override
+	public void beginGame(String idul, Callback callback) {
+		RequestBody body = new MultipartBody.Builder().setType(MultipartBody.FORM)
+				.addFormDataPart("idul", idul)
+				.build();
+		post(BEGIN_GAME_SUFFIX, body, callback);
+	}
+
+	@Override
+	public void makeMove(String gameID, String moveType, String position, Callback callback) {
+		RequestBody body = new MultipartBody.Builder().setType(MultipartBody.FORM)
+				.addFormDataPart("id", gameID)
+				.addFormDataPart("type", moveType)
+				.addFormDataPart("pos", position)
+				.build();
+		post(MAKE_MOVE_SUFFIX, body, callback);
+	}
+
+	@Override
+	public void shutdown() {
+		mHttpClient.dispatcher().executorService().shutdown();
+		mHttpClient.connectionPool().evictAll();
+	}
+
+	private void post(String suffix, RequestBody body, final Callback callback) {
+		Request request = new Request.Builder()
+				.url(mBaseUrl + suffix)
+				.method("POST", body)
+				.build();
+
+		mHttpClient.newCall(request)
+				.enqueue(new okhttp3.Callback() {
+					@Override
+					public void onFailure(@NotNull Call call, @NotNull IOException e) {
+						callback.onFailure(e);
+					}
+
+					@Override
+					public void onResponse(@NotNull Call call, @NotNull Response response) {
+						String data;
+						try (ResponseBody responseBody = response.body()) {
+							if (response.code() == BAD_REQUEST || response.code() == NOT_FOUND) {
+								throw new RefusedRequestException("Error : " + response);
+							}
+							if (!response.isSuccessful() || responseBody == null) {
+								throw new IOException("Error : " + response);
+							}
+							data = responseBody.string();
+						} catch (IOException e) {
+							callback.onFailure(e);
+							return;
+						}
+						callback.onResponse(data);
+					}
+				});
+	}
+}
@@ -0,0 +1,119 @@
+package simon.app.quoridor.Core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the game state of a Quoridor game in the JSON format of the server:
+ * {"joueurs": [{"nom", "murs", "pos"}, ...], "murs": {"horizontaux": [...], "verticaux": [...]}}.
+ * Kept out of Quoridor so that the rules do not depend on org.json.
+ */
+public class QuoridorJSON {
+
+	private QuoridorJSON() {
+
+	}
+
+	/**
+	 * @param quoridor A game
+	 * @return JSONObject corresponding to the current game state
+	 * @throws JSONException if the state cannot be represented
+	 */
+	public static JSONObject getGameStateJSON(Quoridor quoridor) throws JSONException {
+		JSONObject gameStateJSON = new JSONObject();
+
+		// Players
+		JSONArray players = new JSONArray();
+		players.put(getPlayerJSON(quoridor.mPlayerOneName, quoridor.mPlayerOneWallsLeft, quoridor.mPlayerOnePosition));
+		players.put(getPlayerJSON(quoridor.mPlayerTwoName, quoridor.mPlayerTwoWallsLeft, quoridor.mPlayerTwoPosition));
+
+		// Walls
+		JSONObject walls = new JSONObject();
+		walls.put("horizontaux", getCoordinatesJSON(quoridor.mHorizontalWalls));
+		walls.put("verticaux", getCoordinatesJSON(quoridor.mVerticalWalls));
+
+		// Total
+		gameStateJSON.put("joueurs", players);
+		gameStateJSON.put("murs", walls);
+		return gameStateJSON;
+	}
+
+	/**
+	 * Creates a game from a game state
+	 * @param gameID The ID of the game
+	 * @param gameState The JSONObject corresponding to the game state
+	 * @return The game
+	 * @throws JSONException if the game state is malformed
+	 */
+	public static Quoridor newGame(String gameID, JSONObject gameState) throws JSONException {
+		Quoridor quoridor = new Quoridor();
+		quoridor.setGameID(gameID);
+		putGameState(quoridor, gameState);
+		return quoridor;
+	}
+
+	/**
+	 * Parses a game state and modifies a game to match it. The game is left unchanged if the game
+	 * state is malformed
+	 * @param quoridor The game to modify
+	 * @param gameState A JSONObject to be injected
+	 * @throws JSONException if the game state is malformed
+	 */
+	public static void putGameState(Quoridor quoridor, JSONObject gameState) throws JSONException {
+		// Players
+		JSONArray players = gameState.getJSONArray("joueurs");
+		JSONObject playerOne = players.getJSONObject(0);
+		JSONObject playerTwo = players.getJSONObject(1);
+
+		// Walls
+		JSONObject walls = gameState.getJSONObject("murs");
+		List<int[]> horizontalWalls = getCoordinatesList(walls.getJSONArray("horizontaux"));
+		List<int[]> verticalWalls = getCoordinatesList(walls.getJSONArray("verticaux"));
+
+		int[] playerOnePosition = getCoordinates(playerOne.getJSONArray("pos"));
+		int[] playerTwoPosition = getCoordinates(playerTwo.getJSONArray("pos"));
+		quoridor.mPlayerOneName = playerOne.getString("nom");
+		quoridor.mPlayerTwoName = playerTwo.getString("nom");
+		quoridor.setGameState(playerOnePosition, playerOne.getInt("murs"),
+				playerTwoPosition, playerTwo.getInt("murs"), horizontalWalls, verticalWalls);
+	}
+
+	private static JSONObject getPlayerJSON(String name, int wallsLeft, int[] position) throws JSONException {
+		JSONObject player = new JSONObject();
+		player.put("nom", name);
+		player.put("murs", wallsLeft);
+		player.put("pos", getCoordinatesJSON(position));
+		return player;
+	}
+
+	private static JSONArray getCoordinatesJSON(int[] coordinates) {
+		JSONArray coordinatesJSON = new JSONArray();
+		coordinatesJSON.put(coordinates[0]);
+		coordinatesJSON.put(coordinates[1]);
+		return coordinatesJSON;
+	}
+
+	private static JSONArray getCoordinatesJSON(List<int[]> coordinatesList) {
+		JSONArray coordinatesListJSON = new JSONArray();
+		for (int[] coordinates : coordinatesList) {
+			coordinatesListJSON.put(getCoordinatesJSON(coordinates));
+		}
+		return coordinatesListJSON;
+	}
+
+	private static int[] getCoordinates(JSONArray coordinatesJSON) throws JSONException {
+		return new int[]{coordinatesJSON.getInt(0), coordinatesJSON.getInt(1)};
+	}
+
+	private static List<int[]> getCoordinatesList(JSONArray coordinatesListJSON) throws JSONException {
+		List<int[]> coordinatesList = new ArrayList<>(coordinatesListJSON.length());
+		for (int i = 0; i < coordinatesListJSON.length(); i++) {
+			coordinatesList.add(getCoordinates(coordinatesListJSON.getJSONArray(i)));
+		}
+		return coordinatesList;
+	}
+}
@@ -4,10 +4,15 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+import simon.app.quoridor.Core.Bitboard;
 import simon.app.quoridor.Core.GParent;
+import simon.app.quoridor.Core.PathFinder;
+import simon.app.quoridor.Core.QuoridorState;
+import simon.app.quoridor.Core.ReplyPrefetcher;
 import simon.app.quoridor.WindowViews.GameView;
 import simon.app.quoridor.Core.Quoridor;
 
@@ -16,11 +21,35 @@ public class GQuoridorView extends GView {
 
 	private boolean drawPath = false;
 
-	// Linked quoridorGame
+	// Linked quoridorGame, for the legality checks of the input thread
 	private Quoridor mQuoridor;
 
-	// Hover cells and blinking
-	private List<int[]> hoverPositions = new ArrayList<>();
+	// Everything published by the game for a frame, never modified once published
+	private static final class Snapshot {
+		final QuoridorState mState;
+		final List<int[]> mHoverCells;
+		// Frame prepared by a ReplyPrefetcher for the state, whose path is not searched again
+		final ReplyPrefetcher.Frame mFrame;
+
+		Snapshot(QuoridorState state, List<int[]> hoverCells, ReplyPrefetcher.Frame frame) {
+			mState = state;
+			mHoverCells = hoverCells;
+			mFrame = frame;
+		}
+	}
+
+	// Last snapshot published, the only one drawn. Swapped as a whole by the threads modifying the
+	// game and read once per frame by the game thread, so frames never see a half-updated game
+	private final AtomicReference<Snapshot> mSnapshot = new AtomicReference<>();
+
+	// Shortest path of player 1, recomputed on the game thread when the drawn state changes
+	private QuoridorState mPathState;
+	private final Bitboard mPathBoard = new Bitboard();
+	private final PathFinder mPathFinder = new PathFinder();
+	private final int[] mPath = new int[Bitboard.SQUARE_COUNT];
+	private int mPathLength;
+
+	// Hover blinking
 	private boolean drawHover = false; // If true, hover is drawn (used for blinking)
 	private final int blinkDelay = 30;
 	private int blinkTimer = 0;
@@ -78,7 +107,7 @@ public class GQuoridorView extends GView {
 	// TODO: Implement flexibility in constructor
 	public GQuoridorView(GParent parent, Quoridor quoridor, int x, int y, int width) {
 		super(parent, x, y, true);
-		mQuoridor = quoridor;
+		linkQuoridorGame(quoridor);
 		cellSize = (int) ((width - (gridMargin*2 + wrapperWidth*2 + cellBorderWidth*10)) / 9.0);
 	}
 
@@ -94,6 +123,9 @@ public class GQuoridorView extends GView {
 
 	@Override
 	public void draw(Canvas canvas) {
+		Snapshot snapshot = mSnapshot.get();
+		QuoridorState state = snapshot.mState;
+
 		// Background
 		Paint backgroundPaint = new Paint();
 		backgroundPaint.setColor(backgroundColor);
@@ -136,10 +168,10 @@ public class GQuoridorView extends GView {
 		playerTwoInfoPaint.setTextSize(48);
 		playerTwoInfoPaint.setTextAlign(Paint.Align.RIGHT);
 
-		canvas.drawText("Player 1: " + mQuoridor.mPlayerOneName, getLeft() + 24, getTop() + 64, playerOneInfoPaint);
-		canvas.drawText("Player 2: " + mQuoridor.mPlayerTwoName, getRight() - 24, getTop() + 64, playerTwoInfoPaint);
-		canvas.drawText("Walls left: " + mQuoridor.mPlayerOneWallsLeft, getLeft() + 24, getTop() + 128, playerOneInfoPaint);
-		canvas.drawText("Walls left: " + mQuoridor.mPlayerTwoWallsLeft, getRight() - 24, getTop() + 128, playerTwoInfoPaint);
+		canvas.drawText("Player 1: " + state.getPlayerName(1), getLeft() + 24, getTop() + 64, playerOneInfoPaint);
+		canvas.drawText("Player 2: " + state.getPlayerName(2), getRight() - 24, getTop() + 64, playerTwoInfoPaint);
+		canvas.drawText("Walls left: " + state.getWallsLeft(1), getLeft() + 24, getTop() + 128, playerOneInfoPaint);
+		canvas.drawText("Walls left: " + state.getWallsLeft(2), getRight() - 24, getTop() + 128, playerTwoInfoPaint);
 
 		Paint consolePaint = new Paint();
 		consolePaint.setColor(consoleMessageColor);
@@ -173,13 +205,13 @@ public class GQuoridorView extends GView {
 		}
 
 		// Players
-		drawPlayer(canvas, 1, mQuoridor.mPlayerOnePosition[0], mQuoridor.mPlayerOnePosition[1]);
-		drawPlayer(canvas, 2, mQuoridor.mPlayerTwoPosition[0], mQuoridor.mPlayerTwoPosition[1]);
+		drawPlayer(canvas, 1, state.getPlayerX(1), state.getPlayerY(1));
+		drawPlayer(canvas, 2, state.getPlayerX(2), state.getPlayerY(2));
 
 		// Hover cells
 		if (blink) {
 			if (drawHover) {
-				for (int[] coordinates : hoverPositions) {
+				for (int[] coordinates : snapshot.mHoverCells) {
 					drawHover(canvas, coordinates[0], coordinates[1], hoverColor, 80);
 				}
 			}
@@ -191,12 +223,10 @@ public class GQuoridorView extends GView {
 		}
 
 		if (drawPath) {
-			List<int[]> pathCoordinates = mQuoridor.getShortestPathToVictory(1);
-			pathCoordinates.remove(0);
-			for (int[] coordinates : pathCoordinates) {
-
-				drawHover(canvas, coordinates[0], coordinates[1], Color.WHITE, 30);
-
+			updatePath(snapshot);
+			// The first square of the path is the pawn itself
+			for (int i = 1; i < mPathLength; i++) {
+				drawHover(canvas, Bitboard.squareX(mPath[i]), Bitboard.squareY(mPath[i]), Color.WHITE, 30);
 			}
 		}
 
@@ -204,8 +234,8 @@ public class GQuoridorView extends GView {
 		drawGrid(canvas);
 
 		// Walls
-		drawWalls(canvas, mQuoridor.mHorizontalWalls, Quoridor.HORIZONTAL);
-		drawWalls(canvas, mQuoridor.mVerticalWalls, Quoridor.VERTICAL);
+		drawWalls(canvas, state.getWalls(Quoridor.HORIZONTAL), Quoridor.HORIZONTAL);
+		drawWalls(canvas, state.getWalls(Quoridor.VERTICAL), Quoridor.VERTICAL);
 
 		// Wall preview
 		if (verticalWallPreview != null) {
@@ -249,23 +279,6 @@ public class GQuoridorView extends GView {
 		mConsoleMessageBlinkMessage = message;
 	}
 
-	public void hoverCells(List<int[]> positions) {
-		for (int[] coordinates : positions) {
-			addHoverPosition(coordinates[0],coordinates[1]);
-		}
-	}
-
-	public void addHoverPosition(int x, int y) {
-		int[] coordinates = new int[2];
-		coordinates[0] = x;
-		coordinates[1] = y;
-		hoverPositions.add(coordinates);
-	}
-
-	public void resetHoverPositions() {
-		hoverPositions.clear();
-	}
-
 	private void drawHover(Canvas canvas, int x, int y, int color, int alpha) {
 		Paint hoverPaint = new Paint();
 		hoverPaint.setColor(color);
@@ -448,22 +461,16 @@ public class GQuoridorView extends GView {
 	}
 
 	public boolean isWallPreviewInvalid() {
-		// Temporary game state to perform check
-		Quoridor tempQuoridorGame = new Quoridor(mQuoridor); // Copy constructor
 		if (horizontalWallPreview != null) {
-			if (Quoridor.positionIncluded(horizontalWallPreview, tempQuoridorGame.getInvalidWallCoordinates(Quoridor.HORIZONTAL))) return true;
-			tempQuoridorGame.placeWall(1, Quoridor.HORIZONTAL, horizontalWallPreview[0], horizontalWallPreview[1]);
+			return !mQuoridor.isWallLegal(Quoridor.HORIZONTAL, horizontalWallPreview[0], horizontalWallPreview[1]);
 		} else if (verticalWallPreview != null) {
-			if (Quoridor.positionIncluded(verticalWallPreview, tempQuoridorGame.getInvalidWallCoordinates(Quoridor.VERTICAL))) return true;
-			tempQuoridorGame.placeWall(1, Quoridor.VERTICAL, verticalWallPreview[0], verticalWallPreview[1]);
+			return !mQuoridor.isWallLegal(Quoridor.VERTICAL, verticalWallPreview[0], verticalWallPreview[1]);
 		} else {
 			return true;
 		}
-
-		if (tempQuoridorGame.getShortestPathToVictory(1) == null) return true;
-		return tempQuoridorGame.getShortestPathToVictory(2) == null;
 	}
 
+
 	public int[] getCellCorrespondingToTouch(int x, int y) {
 		float beginX = getLeft() + gridMargin;
 		float beginY = getTop() + headerHeight;
@@ -514,8 +521,78 @@ public class GQuoridorView extends GView {
 		wallPreviewColor = color;
 	}
 
+	/**
+	 * Links the game whose moves are checked, and publishes its current state
+	 * @param quoridor The game
+	 */
 	public void linkQuoridorGame(Quoridor quoridor) {
 		mQuoridor = quoridor;
+		publishState(quoridor.getState(), quoridor.getPossibleNextCoordinates(1, false, null));
+	}
+
+	/**
+	 * Makes a state the one drawn from the next frame on, keeping the hover cells. Called by the
+	 * thread modifying the game after every change
+	 * @param state The state to draw
+	 */
+	public void publishState(QuoridorState state) {
+		Snapshot snapshot;
+		do {
+			snapshot = mSnapshot.get();
+		} while (!mSnapshot.compareAndSet(snapshot, new Snapshot(state, getHoverCells(snapshot), null)));
+	}
+
+	/**
+	 * Makes a state and its hover cells the ones drawn from the next frame on, in a single swap
+	 * @param state The state to draw
+	 * @param hoverCells The coordinates (size-2 arrays) to blink. Not copied, must not be modified
+	 */
+	public void publishState(QuoridorState state, List<int[]> hoverCells) {
+		mSnapshot.set(new Snapshot(state, hoverCells, null));
+	}
+
+	/**
+	 * Makes the state and hover cells of a prefetched frame the ones drawn from the next frame on,
+	 * with its path already found
+	 * @param frame The frame, whose state is the one of the game
+	 */
+	public void publishFrame(ReplyPrefetcher.Frame frame) {
+		mSnapshot.set(new Snapshot(frame.getState(), frame.getHoverCells(), frame));
+	}
+
+	/**
+	 * Replaces the hover cells drawn from the next frame on, keeping the state
+	 * @param hoverCells The coordinates (size-2 arrays) to blink. Not copied, must not be modified
+	 */
+	public void setHoverCells(List<int[]> hoverCells) {
+		Snapshot snapshot;
+		do {
+			snapshot = mSnapshot.get();
+		} while (!mSnapshot.compareAndSet(snapshot, new Snapshot(snapshot == null ? null : snapshot.mState, hoverCells,
+				snapshot == null ? null : snapshot.mFrame)));
+	}
+
+	private static List<int[]> getHoverCells(Snapshot snapshot) {
+		return snapshot == null ? Collections.<int[]>emptyList() : snapshot.mHoverCells;
+	}
+
+	/**
+	 * Recomputes the path of player 1 if the drawn state changed since the last frame
+	 */
+	private void updatePath(Snapshot snapshot) {
+		QuoridorState state = snapshot.mState;
+		if (state == mPathState) return;
+		mPathState = state;
+		ReplyPrefetcher.Frame frame = snapshot.mFrame;
+		if (frame != null) {
+			mPathLength = frame.getPath(mPath);
+			return;
+		}
+		state.copyTo(mPathBoard);
+		if (state.getPlayerSquare(1) != Bitboard.NONE && mPathFinder.search(mPathBoard, 1) != PathFinder.NO_PATH)
+			mPathLength = mPathFinder.getPath(mPath);
+		else
+			mPathLength = 0;
 	}
 
 }
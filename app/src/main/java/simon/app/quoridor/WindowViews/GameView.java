@@ -10,24 +10,20 @@ import android.util.Log;
 import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 
-
-import org.jetbrains.annotations.NotNull;
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import java.io.File;
 import java.io.IOException;
-import java.util.Objects;
-
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MultipartBody;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
+import java.text.ParseException;
+import java.util.concurrent.CountDownLatch;
+
 import simon.app.quoridor.Core.AppView;
+import simon.app.quoridor.Core.GameServer;
+import simon.app.quoridor.Core.GameStateCodec;
+import simon.app.quoridor.Core.MoveQueue;
+import simon.app.quoridor.Core.OkHttpGameServer;
+import simon.app.quoridor.Core.OutOfSyncException;
 import simon.app.quoridor.Core.Quoridor;
 import simon.app.quoridor.Core.QuoridorException;
+import simon.app.quoridor.Core.ReplyPrefetcher;
 import simon.app.quoridor.Utils.Annotations.Asynchronous;
 import simon.app.quoridor.CustomViews.GButton;
 import simon.app.quoridor.CustomViews.GTitleView;
@@ -48,24 +44,15 @@ public class GameView extends WindowView {
 	private static final String TAG = "GameView";
 
 	/**
-	 * Base URL for the quoridor APi. Used by the OKHttp client
-	 */
-	private static final String API_BASE_URL = "https://python.gel.ulaval.ca/quoridor/api/";
-
-	/**
-	 * Suffix to the base url to play a move
-	 */
-	private static final String API_MAKE_MOVE_SUFFIX = "jouer/";
-
-	/**
-	 * Suffix to the base url to begin a game
+	 * Used as identification for the quoridor api
 	 */
-	private static final String API_BEGIN_GAME_SUFFIX = "débuter/";
+	private static final String IDUL = "simar86";
 
 	/**
-	 * Used as identification for the quoridor api
+	 * Name of the write-ahead log of the moves not answered by the server yet, in the files of the
+	 * app
 	 */
-	private static final String IDUL = "simar86";
+	private static final String MOVE_LOG_FILE_NAME = "moves.log";
 
 	/**
 	 * In a wall placement, how far the finger has to move on the screen to move the wall by one
@@ -84,9 +71,28 @@ public class GameView extends WindowView {
 	public static Typeface DEFAULT_TYPEFACE;
 
 	/**
-	 * Client used for server requests
+	 * Server playing against the user, reached through a queue that logs the moves and sends them
+	 * again until the server answers
+	 */
+	private final MoveQueue mServer;
+
+	/**
+	 * Last response of the server with the state of the game, to go back to if a move is refused
+	 * the first time it is sent
+	 */
+	private volatile String mLastServerResponse;
+
+	/**
+	 * Reads the game states of the server responses. Responses arrive on the threads of
+	 * mServer, so it is used under its own lock
+	 */
+	private final GameStateCodec mStateCodec = new GameStateCodec();
+
+	/**
+	 * Prepares the board after the likely replies of the server while a move of the user is on its
+	 * way, so that the reply is shown as soon as it arrives
 	 */
-	private final OkHttpClient httpClient = new OkHttpClient();
+	private final ReplyPrefetcher mPrefetcher = new ReplyPrefetcher();
 
 	/**
 	 * Logical implementation of Quoridor. The game that is drawn to the canvas
@@ -134,7 +140,12 @@ public class GameView extends WindowView {
 	 * the user placing a wall. Has to be linked to mGame.
 	 * @see GQuoridorView#linkQuoridorGame(Quoridor quoridor)
 	 */
-	public GQuoridorView mGQuoridorView;
+	public volatile GQuoridorView mGQuoridorView;
+
+	/**
+	 * Opened once setUpViews has run, for the responses of the server arriving before the views
+	 */
+	private final CountDownLatch mViewsSetUp = new CountDownLatch(1);
 
 	// Buttons
 	/**
@@ -250,9 +261,10 @@ public class GameView extends WindowView {
 	public boolean placingWall = false;
 
 	/**
-	 * Whether or not the game is "paused". Used while waiting for server response.
+	 * Whether or not the game is "paused". Used while waiting for server response, the first game
+	 * included.
 	 */
-	public boolean gamePaused = false;
+	public boolean gamePaused = true;
 
 	private long timePaused;
 	private long MINIMUM_PAUSE_DELAY = 750;
@@ -262,12 +274,31 @@ public class GameView extends WindowView {
 	// Constructors
 	//==============================================================================================
 	public GameView(AppView appView) {
+		this(appView, new OkHttpGameServer());
+	}
+
+	/**
+	 * @param appView The app view
+	 * @param server The server to play against, for instance a LocalGameServer to play offline
+	 */
+	public GameView(AppView appView, GameServer server) {
 		super(appView);
+		mServer = new MoveQueue(server, new File(appView.getContext().getFilesDir(), MOVE_LOG_FILE_NAME));
 
 		DEFAULT_TYPEFACE = Typeface.createFromAsset(appView.getContext().getAssets(), "fonts/8_bit_style.ttf");
 
 		mGame = new Quoridor();
-		fetchNewGameFromServer(API_BASE_URL + API_BEGIN_GAME_SUFFIX, IDUL);
+		// The log of the moves is read back off the UI thread
+		mServer.whenRecovered(new Runnable() {
+			@Override
+			public void run() {
+				String pendingGameID = mServer.getPendingGameID();
+				if (pendingGameID != null)
+					resumeGame(pendingGameID);
+				else
+					fetchNewGameFromServer(IDUL);
+			}
+		});
 
 		setUpAudio();
 	}
@@ -447,7 +478,7 @@ public class GameView extends WindowView {
 		});
 
 		refreshHover();
-
+		mViewsSetUp.countDown();
 	}
 
 	/**
@@ -491,6 +522,7 @@ public class GameView extends WindowView {
 	public void onActivate() {
 		super.onActivate();
 		setUpViews();
+		mServer.retryNow();
 		if (mMusicPref) {
 			mBackgroundMusicPlayer.start();
 		}
@@ -580,9 +612,11 @@ public class GameView extends WindowView {
 	public void tryToMovePlayer(int playerNumber, int x, int y) {
 		try {
 			mGame.requestPlayerMovement(playerNumber, x, y);
+			mGQuoridorView.publishState(mGame.getState());
+			mPrefetcher.prefetch(mGame);
 			playSound(mPawnMoveSoundId, 0.5f);
 			gamePaused = true;
-			postMoveAndGetNewState(API_BASE_URL + API_MAKE_MOVE_SUFFIX, mGame.mGameID, mGame.mLastMoveType, mGame.mLastMoveCoordinates);
+			postMoveAndGetNewState(mGame.mGameID, mGame.mLastMoveType, mGame.mLastMoveCoordinates);
 		} catch (QuoridorException e) {
 			Log.i(TAG, "tryToMovePlayer: QuoridorException");
 		}
@@ -599,9 +633,7 @@ public class GameView extends WindowView {
 	public void tryToPlaceWall(int playerNumber, int wallType, int x, int y) throws QuoridorException {
 
 		mGame.requestWallPlacement(playerNumber, wallType, x, y);
-
-		mGQuoridorView.resetHoverPositions();
-		mGQuoridorView.hoverCells(mGame.getPossibleNextCoordinates(1, false, null));
+		mGQuoridorView.publishState(mGame.getState(), mGame.getPossibleNextCoordinates(1, false, null));
 	}
 
 	/**
@@ -630,9 +662,10 @@ public class GameView extends WindowView {
 		// TODO: Make this concise and avoid state check redundancy
 		try {
 			tryToPlaceWall(1, mWallPreviewType,coordinates[0], coordinates[1]);
+			mPrefetcher.prefetch(mGame);
 			playSound(mWallPlaceSoundId, 0.8f);
 			gamePaused = true;
-			postMoveAndGetNewState(API_BASE_URL + API_MAKE_MOVE_SUFFIX, mGame.mGameID, mGame.mLastMoveType, mGame.mLastMoveCoordinates);
+			postMoveAndGetNewState(mGame.mGameID, mGame.mLastMoveType, mGame.mLastMoveCoordinates);
 		} catch (QuoridorException e) {
 			throw new QuoridorException("Could not place wall!");
 		}
@@ -652,40 +685,48 @@ public class GameView extends WindowView {
 	/**
 	 * Creates new game according to the server response passed as argument
 	 * @param serverResponse The string containing JSON of the game state and gameID
+	 * @param gameID The game ID if the response has none, else null
 	 */
-	private void setNewGame(String serverResponse) {
-		JSONObject serverResponseJSON;
-		JSONObject state;
-		String gameID;
+	private void setNewGame(String serverResponse, String gameID) {
+		Quoridor game = new Quoridor();
 		try {
-			serverResponseJSON = new JSONObject(serverResponse);
-			gameID = serverResponseJSON.getString("id");
-			state = serverResponseJSON.getJSONObject("état");
-		} catch (JSONException e) {
+			synchronized (mStateCodec) {
+				String responseGameID = mStateCodec.readResponse(serverResponse, game);
+				if (responseGameID != null) gameID = responseGameID;
+				if (gameID == null) throw new ParseException("No game ID", 0);
+				game.setGameID(gameID);
+			}
+		} catch (ParseException e) {
 			e.printStackTrace();
 			return;
 		}
+		mGame = game;
+		mLastServerResponse = serverResponse;
 
-		mGame = new Quoridor(gameID, state);
 		mGQuoridorView.linkQuoridorGame(mGame);
 	}
 
 	/**
-	 * Changes mGame according to the game sate passed as argument
+	 * Changes mGame according to the game sate passed as argument, and shows it with the frame
+	 * prepared by mPrefetcher if the reply of the server was among its guesses
 	 * @param serverResponse The string containing JSON of the game state
 	 */
 	private void setGameState(String serverResponse) {
-		JSONObject serverResponseJSON;
-		JSONObject state;
 		try {
-			serverResponseJSON = new JSONObject(serverResponse);
-			state = serverResponseJSON.getJSONObject("état");
-		} catch (JSONException e) {
+			synchronized (mStateCodec) {
+				mStateCodec.readResponse(serverResponse, mGame);
+			}
+			mLastServerResponse = serverResponse;
+		} catch (ParseException e) {
 			e.printStackTrace();
+			mPrefetcher.cancel();
 			return;
 		}
-
-		mGame.putGameState(state);
+		ReplyPrefetcher.Frame frame = mPrefetcher.take(mGame.getKey());
+		if (frame != null)
+			mGQuoridorView.publishFrame(frame);
+		else
+			mGQuoridorView.publishState(mGame.getState(), mGame.getPossibleNextCoordinates(1, false, null));
 	}
 
 	/**
@@ -729,7 +770,8 @@ public class GameView extends WindowView {
 	 */
 	public void startNewGame() {
 
-		fetchNewGameFromServer(API_BASE_URL + API_BEGIN_GAME_SUFFIX, IDUL);
+		mPrefetcher.cancel();
+		fetchNewGameFromServer(IDUL);
 		mAbandonButton.setVisible(true);
 		mGQuoridorView.setConsoleMessage("");
 	}
@@ -739,99 +781,115 @@ public class GameView extends WindowView {
 	//==============================================================================================
 
 	/**
-	 * Queues a post request to the server to start a new game.
-	 * @param targetURL The URL to make the request to
+	 * Queues a request to the server to start a new game.
 	 * @param idul The identifier used for the server
 	 * @callback Starts a new game
 	 */
 	@Asynchronous
-	public void fetchNewGameFromServer(String targetURL, String idul) {
-
-		RequestBody body = new MultipartBody.Builder().setType(MultipartBody.FORM)
-				.addFormDataPart("idul", idul)
-				.build();
-
-		final Request request = new Request.Builder()
-				.url(targetURL)
-				.method("POST", body)
-				.build();
-
-
-		httpClient.newCall(request)
-				.enqueue(new Callback() {
-					@Override
-					public void onFailure(@NotNull Call call, @NotNull IOException e) {
-						e.printStackTrace();
-					}
+	public void fetchNewGameFromServer(String idul) {
+		gamePaused = true;
+		mServer.beginGame(idul, new GameServer.Callback() {
+			@Override
+			public void onFailure(IOException e) {
+				e.printStackTrace();
+			}
 
-					@Override
-					public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
-						if (!response.isSuccessful()) {
-							throw new IOException("Error : " + response);
-						}
-						String data =  Objects.requireNonNull(response.body()).string();
-						// Wait for mGQuoridorView to be initialised
-						try {
-							while (true) {
-								if (mGQuoridorView != null) {
-									setNewGame(data);
-									break;
-								}
-							}
-						} catch (Exception e) {
-							e.printStackTrace();
-						}
-						gamePaused = false;
-						refreshHover();
-					}
-				});
+			@Override
+			public void onResponse(String data) {
+				if (!awaitViews()) return;
+				try {
+					setNewGame(data, null);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				gamePaused = false;
+				refreshHover();
+			}
+		});
 	}
 
 
 	/**
-	 * Queues a post request to the server to make a move and get a new state
-	 * @param targetURL The URL to make the request to
+	 * Queues a request to the server to make a move and get a new state
 	 * @param gameID The gameID associated with the current game
 	 * @param moveType The type of move ('D' for move, 'MH' for horizontal wall, 'MV' for vertical wall)
 	 * @param position The position (x, y) of the move.
-	 * @callback Updates mGame with the new game state
+	 * @callback Updates mGame with the new game state, or starts a new game if the server may be ahead
 	 */
 	@Asynchronous
-	public void postMoveAndGetNewState(String targetURL, String gameID, String moveType, String position) {
+	public void postMoveAndGetNewState(String gameID, String moveType, String position) {
 		// Temp
 		mGQuoridorView.setDrawPath(false);
 
-		RequestBody body = new MultipartBody.Builder().setType(MultipartBody.FORM)
-				.addFormDataPart("id", gameID)
-				.addFormDataPart("type", moveType)
-				.addFormDataPart("pos", position)
-				.build();
-		Request request = new Request.Builder()
-				.url(targetURL)
-				.method("POST", body)
-				.build();
+		mServer.makeMove(gameID, moveType, position, new GameServer.Callback() {
+			@Override
+			public void onFailure(IOException e) {
+				e.printStackTrace();
+				mGQuoridorView.setDrawPath(mDrawPathPref);
+				if (e instanceof OutOfSyncException) {
+					// The server may have played the move already: its state is unknown
+					mGQuoridorView.setCustomMessageBlink("Game out of sync!", Color.RED, 64, 5, 3);
+					startNewGame();
+					return;
+				}
+				mGQuoridorView.setCustomMessageBlink("Move refused!", Color.RED, 64, 5, 3);
+				String lastServerResponse = mLastServerResponse;
+				// No game received yet to go back to: the one on its way unpauses the game
+				if (lastServerResponse == null) return;
+				// The move was refused before reaching the game: back to the last state of the server
+				setGameState(lastServerResponse);
+				gamePaused = false;
+			}
 
-		httpClient.newCall(request)
-				.enqueue(new Callback() {
-					@Override
-					public void onFailure(@NotNull Call call, @NotNull IOException e) {
-						e.printStackTrace();
-					}
+			@Override
+			public void onResponse(String data) {
+				setGameState(data);
+				gamePaused = false;
+				mGQuoridorView.setDrawPath(mDrawPathPref);
+				checkForWin();
+			}
+		});
+	}
 
-					@Override
-					public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
-						if (!response.isSuccessful()) {
-							throw new IOException("Error : " + response);
-						}
-
-						String data =  Objects.requireNonNull(response.body()).string();
-						setGameState(data);
-						gamePaused = false;
-						mGQuoridorView.setDrawPath(mDrawPathPref);
-						refreshHover();
-						checkForWin();
-					}
-				});
+	/**
+	 * Replays the moves the server had not answered when the app last stopped, and continues their
+	 * game from the state the server answers
+	 * @param gameID The ID of the game of the moves
+	 * @callback Continues the game, or starts a new one if the server refused the moves
+	 */
+	@Asynchronous
+	public void resumeGame(final String gameID) {
+		gamePaused = true;
+		mServer.resume(new GameServer.Callback() {
+			@Override
+			public void onFailure(IOException e) {
+				e.printStackTrace();
+				fetchNewGameFromServer(IDUL);
+			}
+
+			@Override
+			public void onResponse(String data) {
+				if (!awaitViews()) return;
+				setNewGame(data, gameID);
+				gamePaused = false;
+				refreshHover();
+				checkForWin();
+			}
+		});
+	}
+
+	/**
+	 * Blocks the thread of a server response until mGQuoridorView is set up
+	 * @return False if the thread was interrupted first, the response then being dropped
+	 */
+	private boolean awaitViews() {
+		try {
+			mViewsSetUp.await();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
 	}
 
 	//==============================================================================================
@@ -853,8 +911,7 @@ public class GameView extends WindowView {
 	 * Refreshes the blinking cells representing possible moves according to the current game state
 	 */
 	public void refreshHover() {
-		mGQuoridorView.resetHoverPositions();
-		mGQuoridorView.hoverCells(mGame.getPossibleNextCoordinates(1, false, null));
+		mGQuoridorView.setHoverCells(mGame.getPossibleNextCoordinates(1, false, null));
 	}
 
 }
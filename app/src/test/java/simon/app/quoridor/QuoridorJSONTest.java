@@ -0,0 +1,65 @@
+package simon.app.quoridor;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.text.ParseException;
+
+import simon.app.quoridor.Core.GameStateCodec;
+import simon.app.quoridor.Core.Quoridor;
+import simon.app.quoridor.Core.QuoridorJSON;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the JSON game state of the server
+ */
+public class QuoridorJSONTest {
+
+	@Test
+	public void stateSurvivesJSONRoundTrip() throws JSONException {
+		Quoridor quoridor = new Quoridor();
+		quoridor.movePlayer(1, 5, 1);
+		quoridor.movePlayer(2, 5, 9);
+		quoridor.placeWall(1, Quoridor.VERTICAL, 5, 1);
+		Quoridor copy = QuoridorJSON.newGame("id", QuoridorJSON.getGameStateJSON(quoridor));
+
+		assertEquals(2, copy.getPossibleNextCoordinates(1, false, null).size());
+		assertEquals(9, copy.mPlayerOneWallsLeft);
+		assertEquals(quoridor.getKey(), copy.getKey());
+	}
+
+	@Test
+	public void malformedStateLeavesGameUnchanged() {
+		Quoridor quoridor = new Quoridor();
+		quoridor.movePlayer(1, 5, 1);
+		quoridor.movePlayer(2, 5, 9);
+		long key = quoridor.getKey();
+		try {
+			QuoridorJSON.putGameState(quoridor, new JSONObject("{\"joueurs\": [], \"murs\": {}}"));
+			fail("Expected JSONException");
+		} catch (JSONException e) {
+			assertEquals(key, quoridor.getKey());
+		}
+	}
+
+	@Test
+	public void streamingCodecReadsAndWritesTheSameJSON() throws JSONException, ParseException {
+		Quoridor quoridor = new Quoridor();
+		quoridor.mPlayerOneName = "\u00e9";
+		quoridor.movePlayer(1, 5, 1);
+		quoridor.movePlayer(2, 5, 9);
+		quoridor.placeWall(1, Quoridor.HORIZONTAL, 2, 3);
+		GameStateCodec codec = new GameStateCodec();
+
+		Quoridor streamed = new Quoridor();
+		codec.read(QuoridorJSON.getGameStateJSON(quoridor).toString(), streamed);
+		assertEquals(quoridor.getKey(), streamed.getKey());
+		assertEquals("\u00e9", streamed.mPlayerOneName);
+
+		Quoridor parsed = QuoridorJSON.newGame("id", new JSONObject(codec.write(quoridor).toString()));
+		assertEquals(quoridor.getKey(), parsed.getKey());
+		assertEquals("\u00e9", parsed.mPlayerOneName);
+	}
+}
@@ -2,29 +2,310 @@ package simon.app.quoridor;
 
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import simon.app.quoridor.Core.AlphaBetaEngine;
+import simon.app.quoridor.Core.GameServer;
+import simon.app.quoridor.Core.GameStateCodec;
+import simon.app.quoridor.Core.LocalGameServer;
+import simon.app.quoridor.Core.MoveQueue;
+import simon.app.quoridor.Core.OutOfSyncException;
+import simon.app.quoridor.Core.Quoridor;
+import simon.app.quoridor.Core.RefusedRequestException;
 
 import static org.junit.Assert.*;
 
 /**
- * Example local unit test, which will execute on the development machine (host).
- *
- * @see <a href="http://d.android.com/tools/testing">Testing documentation</a>
+ * Local unit tests for the server API, played against the in-process server
  */
-
 public class ServerApiTest {
+
+	@Test
+	public void beginGameRequest() throws ParseException {
+		LocalGameServer server = new LocalGameServer(new AlphaBetaEngine(50));
+		try {
+			Quoridor quoridor = new Quoridor();
+			String gameID = new GameStateCodec().readResponse(server.beginGame("simar86"), quoridor);
+
+			assertNotNull(gameID);
+			assertEquals("simar86", quoridor.mPlayerOneName);
+			assertArrayEquals(new int[]{5, 1}, quoridor.mPlayerOnePosition);
+			assertArrayEquals(new int[]{5, 9}, quoridor.mPlayerTwoPosition);
+			assertEquals(10, quoridor.mPlayerTwoWallsLeft);
+		} finally {
+			server.shutdown();
+		}
+	}
+
+	@Test
+	public void makeMoveRequest() throws Exception {
+		LocalGameServer server = new LocalGameServer(new AlphaBetaEngine(50));
+		try {
+			GameStateCodec codec = new GameStateCodec();
+			Quoridor quoridor = new Quoridor();
+			String gameID = codec.readResponse(server.beginGame("simar86"), quoridor);
+
+			String response = await(server, gameID, "MH", "(4, 4)");
+			assertNull(codec.readResponse(response, quoridor));
+			assertEquals(9, quoridor.mPlayerOneWallsLeft);
+			assertTrue(Quoridor.positionIncluded(new int[]{4, 4}, quoridor.mHorizontalWalls));
+			// The server answered with a move of its own
+			assertTrue(quoridor.mPlayerTwoWallsLeft == 9 || quoridor.mPlayerTwoPosition[1] != 9
+					|| quoridor.mPlayerTwoPosition[0] != 5);
+			assertEquals(quoridor.getKey(), server.getGame(gameID).getKey());
+		} finally {
+			server.shutdown();
+		}
+	}
+
+	@Test
+	public void invalidMoveIsRefused() throws Exception {
+		LocalGameServer server = new LocalGameServer(new AlphaBetaEngine(50));
+		try {
+			Quoridor quoridor = new Quoridor();
+			String gameID = new GameStateCodec().readResponse(server.beginGame("simar86"), quoridor);
+			long key = server.getGame(gameID).getKey();
+
+			try {
+				await(server, gameID, "D", "(5, 3)");
+				fail("Expected IOException");
+			} catch (IOException e) {
+				assertEquals(key, server.getGame(gameID).getKey());
+			}
+			try {
+				await(server, "unknown", "D", "(5, 2)");
+				fail("Expected IOException");
+			} catch (IOException e) {
+				// Expected
+			}
+		} finally {
+			server.shutdown();
+		}
+	}
+
 	@Test
-	public void beginGameRequest() {
-		ServerAPI serverAPI = new ServerAPI();
+	public void queuedMoveSurvivesLostConnection() throws Exception {
+		LocalGameServer server = new LocalGameServer(new AlphaBetaEngine(50));
+		FlakyGameServer flakyServer = new FlakyGameServer(server, 3);
+		File log = newLogFile();
+		MoveQueue queue = new MoveQueue(flakyServer, log, 10, 40);
+		try {
+			String gameID = new GameStateCodec().readResponse(server.beginGame("simar86"), new Quoridor());
 
-		// assertNotNull(serverAPI.beginGame(ServerAPI.apiBaseUrl + "débuter/", "simar86"));
+			Quoridor quoridor = new Quoridor();
+			new GameStateCodec().readResponse(await(queue, gameID, "D", "(5, 2)"), quoridor);
+			assertEquals(4, flakyServer.mAttempts.get());
+			assertEquals(server.getGame(gameID).getKey(), quoridor.getKey());
+			assertEquals(0, queue.getPendingMoveCount());
+
+			try {
+				await(queue, gameID, "D", "(5, 4)");
+				fail("Expected RefusedRequestException");
+			} catch (RefusedRequestException e) {
+				// Refusals are not retried, and the move never reached the game
+				assertFalse(e instanceof OutOfSyncException);
+				assertEquals(5, flakyServer.mAttempts.get());
+			}
+
+			// Written once the queued records are
+			queue.shutdown();
+			assertEquals(0, log.length());
+		} finally {
+			queue.shutdown();
+			log.delete();
+		}
+	}
+
+	@Test
+	public void unwritableLogKeepsMovesInMemory() throws Exception {
+		LocalGameServer server = new LocalGameServer(new AlphaBetaEngine(50));
+		File log = new File(newLogFile(), "missing/moves.log");
+		MoveQueue queue = new MoveQueue(server, log, 10, 40);
+		try {
+			String gameID = new GameStateCodec().readResponse(server.beginGame("simar86"), new Quoridor());
+			Quoridor quoridor = new Quoridor();
+			new GameStateCodec().readResponse(await(queue, gameID, "D", "(5, 2)"), quoridor);
+			assertArrayEquals(new int[]{5, 2}, quoridor.mPlayerOnePosition);
+			assertFalse(log.exists());
+		} finally {
+			queue.shutdown();
+		}
+	}
 
+	@Test
+	public void moveRefusedAfterLostResponseIsOutOfSync() throws Exception {
+		LocalGameServer server = new LocalGameServer(new AlphaBetaEngine(50));
+		File log = newLogFile();
+		MoveQueue queue = new MoveQueue(new FlakyGameServer(server, 1, true), log, 10, 40);
+		try {
+			String gameID = new GameStateCodec().readResponse(server.beginGame("simar86"), new Quoridor());
+			try {
+				await(queue, gameID, "D", "(5, 2)");
+				fail("Expected OutOfSyncException");
+			} catch (OutOfSyncException e) {
+				// The server played the move the first time, then refused it
+				assertArrayEquals(new int[]{5, 2}, server.getGame(gameID).mPlayerOnePosition);
+				assertEquals(0, queue.getPendingMoveCount());
+			}
+		} finally {
+			queue.shutdown();
+			log.delete();
+		}
 	}
 
 	@Test
-	public void makeMoveRequest() {
-		ServerAPI serverAPI = new ServerAPI();
-		assertNotNull(serverAPI.makeMove(ServerAPI.apiBaseUrl + "jouer/",
-				"4cd7a0e3-256a-4245-b88e-62e250e11754", "MH", "(4, 4)"));
+	public void pendingMovesAreReplayedAfterRestart() throws Exception {
+		LocalGameServer server = new LocalGameServer(new AlphaBetaEngine(50));
+		File log = newLogFile();
+		String gameID = new GameStateCodec().readResponse(server.beginGame("simar86"), new Quoridor());
+
+		// The app stops while the server cannot be reached
+		MoveQueue offlineQueue = new MoveQueue(new FlakyGameServer(server, Integer.MAX_VALUE), log, 10, 40);
+		offlineQueue.makeMove(gameID, "D", "(5, 2)", new GameServer.Callback() {
+			@Override
+			public void onResponse(String response) {
+				fail("The server cannot be reached");
+			}
+
+			@Override
+			public void onFailure(IOException e) {
+				fail("Moves are retried");
+			}
+		});
+		offlineQueue.shutdown();
+
+		final MoveQueue queue = new MoveQueue(server, log, 10, 40);
+		try {
+			final CountDownLatch recovered = new CountDownLatch(1);
+			final AtomicReference<String> pendingGameID = new AtomicReference<>();
+			queue.whenRecovered(new Runnable() {
+				@Override
+				public void run() {
+					pendingGameID.set(queue.getPendingGameID());
+					recovered.countDown();
+				}
+			});
+			assertTrue(recovered.await(10, TimeUnit.SECONDS));
+			assertEquals(gameID, pendingGameID.get());
+			final CountDownLatch done = new CountDownLatch(1);
+			final AtomicReference<String> response = new AtomicReference<>();
+			assertTrue(queue.resume(new GameServer.Callback() {
+				@Override
+				public void onResponse(String data) {
+					response.set(data);
+					done.countDown();
+				}
+
+				@Override
+				public void onFailure(IOException e) {
+					done.countDown();
+				}
+			}));
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+
+			Quoridor quoridor = new Quoridor();
+			new GameStateCodec().readResponse(response.get(), quoridor);
+			assertArrayEquals(new int[]{5, 2}, quoridor.mPlayerOnePosition);
+			assertEquals(server.getGame(gameID).getKey(), quoridor.getKey());
+			assertNull(queue.getPendingGameID());
+			queue.shutdown();
+			assertEquals(0, log.length());
+		} finally {
+			queue.shutdown();
+			log.delete();
+		}
+	}
+
+	/**
+	 * Server failing the first moves as if it could not be reached, or as if their responses were
+	 * lost
+	 */
+	private static class FlakyGameServer implements GameServer {
+		private final GameServer mServer;
+		private final int mFailureCount;
+		private final boolean mPlayed;
+		private final AtomicInteger mAttempts = new AtomicInteger();
+
+		FlakyGameServer(GameServer server, int failureCount) {
+			this(server, failureCount, false);
+		}
+
+		/**
+		 * @param played Whether the failed moves reach the server, only their responses being lost
+		 */
+		FlakyGameServer(GameServer server, int failureCount, boolean played) {
+			mServer = server;
+			mFailureCount = failureCount;
+			mPlayed = played;
+		}
+
+		@Override
+		public void beginGame(String idul, Callback callback) {
+			mServer.beginGame(idul, callback);
+		}
+
+		@Override
+		public void makeMove(String gameID, String moveType, String position, final Callback callback) {
+			if (mAttempts.incrementAndGet() > mFailureCount) {
+				mServer.makeMove(gameID, moveType, position, callback);
+			} else if (mPlayed) {
+				mServer.makeMove(gameID, moveType, position, new Callback() {
+					@Override
+					public void onResponse(String response) {
+						callback.onFailure(new IOException("Response lost"));
+					}
+
+					@Override
+					public void onFailure(IOException e) {
+						callback.onFailure(new IOException("Response lost"));
+					}
+				});
+			} else {
+				callback.onFailure(new IOException("Unreachable"));
+			}
+		}
+
+		@Override
+		public void shutdown() {
+			// The wrapped server outlives the queues of the tests
+		}
+	}
+
+	private static File newLogFile() throws IOException {
+		File log = File.createTempFile("moves", ".log");
+		log.delete();
+		return log;
+	}
+
+	/**
+	 * Makes a move through the asynchronous API and waits for its response
+	 */
+	private static String await(GameServer server, String gameID, String moveType, String position)
+			throws IOException, InterruptedException {
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicReference<String> response = new AtomicReference<>();
+		final AtomicReference<IOException> failure = new AtomicReference<>();
+		server.makeMove(gameID, moveType, position, new GameServer.Callback() {
+			@Override
+			public void onResponse(String data) {
+				response.set(data);
+				done.countDown();
+			}
+
+			@Override
+			public void onFailure(IOException e) {
+				failure.set(e);
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		if (failure.get() != null) throw failure.get();
+		return response.get();
 	}
 }
@@ -0,0 +1,141 @@
+package simon.app.quoridor.Benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import simon.app.quoridor.Core.Bitboard;
+import simon.app.quoridor.Core.Quoridor;
+
+/**
+ * Reproducible game positions the benchmarks run over, so that numbers before and after a change
+ * are measured on the same work. Each corpus holds several positions, cycled through by the
+ * benchmarks so that the JIT does not specialize on one of them.
+ */
+public class PositionCorpus {
+	/**
+	 * Corpus names
+	 */
+	public static final String OPENING = "opening";
+	public static final String MIDGAME = "midgame";
+	public static final String MAZE = "maze";
+
+	/**
+	 * Number of positions in each corpus
+	 */
+	public static final int SIZE = 8;
+
+	/**
+	 * Minimum number of walls of the midgame positions
+	 */
+	private static final int MIDGAME_WALLS = 12;
+
+	private PositionCorpus() {
+
+	}
+
+	/**
+	 * @param name OPENING, MIDGAME or MAZE
+	 * @return The positions of the corpus, always the same ones
+	 * @throws IllegalArgumentException if the name is unknown
+	 */
+	public static List<Quoridor> create(String name) {
+		List<Quoridor> positions = new ArrayList<>(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			switch (name) {
+				case OPENING:
+					positions.add(createOpening(i));
+					break;
+				case MIDGAME:
+					positions.add(createMidgame(i));
+					break;
+				case MAZE:
+					positions.add(createMaze(i));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown corpus " + name);
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * @return The starting position, followed by index plies of both pawns walking to each other
+	 */
+	private static Quoridor createOpening(int index) {
+		Quoridor quoridor = newGame();
+		for (int ply = 0; ply < index; ply++) {
+			stepTowardVictory(quoridor, ply % 2 + 1);
+		}
+		return quoridor;
+	}
+
+	/**
+	 * @return A position where both players mostly walked their shortest path and dropped at least
+	 * MIDGAME_WALLS random walls
+	 */
+	private static Quoridor createMidgame(int index) {
+		Random random = new Random(1000 + index);
+		Quoridor quoridor = newGame();
+		int player = 1;
+		int wallCount = 0;
+		while (wallCount < MIDGAME_WALLS) {
+			int wallsLeft = player == 1 ? quoridor.mPlayerOneWallsLeft : quoridor.mPlayerTwoWallsLeft;
+			if (wallsLeft > 0 && random.nextInt(3) > 0 && placeRandomWall(quoridor, player, random)) {
+				wallCount++;
+			} else {
+				stepTowardVictory(quoridor, player);
+			}
+			player = 3 - player;
+		}
+		return quoridor;
+	}
+
+	/**
+	 * @return A serpentine of four horizontal barriers leaving one gap at alternating ends, with
+	 * vertical walls around the starting squares and every wall placed, the pawns index steps into
+	 * it
+	 */
+	private static Quoridor createMaze(int index) {
+		Quoridor quoridor = newGame();
+		int player = 1;
+		for (int y = 2; y <= 8; y += 2) {
+			int firstX = y % 4 == 2 ? 1 : 2;
+			for (int x = firstX; x <= 8; x += 2) {
+				quoridor.placeWall(player, Quoridor.HORIZONTAL, x, y);
+				player = 3 - player;
+			}
+		}
+		quoridor.placeWall(1, Quoridor.VERTICAL, 3, 1);
+		quoridor.placeWall(2, Quoridor.VERTICAL, 5, 1);
+		quoridor.placeWall(1, Quoridor.VERTICAL, 6, 8);
+		quoridor.placeWall(2, Quoridor.VERTICAL, 8, 8);
+		for (int ply = 0; ply < index; ply++) {
+			stepTowardVictory(quoridor, ply % 2 + 1);
+		}
+		return quoridor;
+	}
+
+	private static Quoridor newGame() {
+		Quoridor quoridor = new Quoridor();
+		quoridor.movePlayer(1, 5, 1);
+		quoridor.movePlayer(2, 5, 9);
+		return quoridor;
+	}
+
+	private static void stepTowardVictory(Quoridor quoridor, int playerNumber) {
+		List<int[]> path = quoridor.getShortestPathToVictory(playerNumber);
+		if (path != null && path.size() > 2) quoridor.movePlayer(playerNumber, path.get(1)[0], path.get(1)[1]);
+	}
+
+	private static boolean placeRandomWall(Quoridor quoridor, int playerNumber, Random random) {
+		int wallType = random.nextBoolean() ? Quoridor.HORIZONTAL : Quoridor.VERTICAL;
+		long legal = quoridor.getLegalWallMask(wallType);
+		if (legal == 0) return false;
+		int skip = random.nextInt(Long.bitCount(legal));
+		for (int i = 0; i < skip; i++) legal &= legal - 1;
+		int slot = Long.numberOfTrailingZeros(legal);
+		quoridor.placeWall(playerNumber, wallType, Bitboard.slotX(wallType, slot), Bitboard.slotY(wallType, slot));
+		return true;
+	}
+}
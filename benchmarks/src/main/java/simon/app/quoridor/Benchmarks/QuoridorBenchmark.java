@@ -0,0 +1,158 @@
+package simon.app.quoridor.Benchmarks;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import simon.app.quoridor.Core.Bitboard;
+import simon.app.quoridor.Core.GameStateCodec;
+import simon.app.quoridor.Core.Move;
+import simon.app.quoridor.Core.Position;
+import simon.app.quoridor.Core.Quoridor;
+import simon.app.quoridor.Core.QuoridorJSON;
+
+/**
+ * Throughput of the rules hot paths of Quoridor, over each PositionCorpus. Every invocation works
+ * on the next position of the corpus. Run with the gc profiler (./gradlew :benchmarks:jmh) to get
+ * the allocation rate next to the throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuoridorBenchmark {
+	@Param({PositionCorpus.OPENING, PositionCorpus.MIDGAME, PositionCorpus.MAZE})
+	public String corpus;
+
+	private Quoridor[] mPositions;
+	private JSONObject[] mGameStates;
+	private String[] mGameStateTexts;
+	private final GameStateCodec mCodec = new GameStateCodec();
+	private ByteBuffer mBinaryStates;
+	private final Position mTargetPosition = new Position();
+	private int[] mMoves;
+	private Quoridor mTarget;
+	private int mIndex;
+
+	@Setup
+	public void setUp() throws JSONException {
+		List<Quoridor> positions = PositionCorpus.create(corpus);
+		mPositions = positions.toArray(new Quoridor[0]);
+		mGameStates = new JSONObject[mPositions.length];
+		mGameStateTexts = new String[mPositions.length];
+		for (int i = 0; i < mPositions.length; i++) {
+			mGameStates[i] = QuoridorJSON.getGameStateJSON(mPositions[i]);
+			mGameStateTexts[i] = mGameStates[i].toString();
+		}
+		mBinaryStates = ByteBuffer.allocateDirect(mPositions.length * Position.BINARY_SIZE);
+		for (Quoridor position : mPositions) {
+			position.writeTo(mBinaryStates);
+		}
+		mTarget = new Quoridor();
+
+		// A wall for player 1 where there is one, else a pawn move
+		mMoves = new int[mPositions.length];
+		int[] squares = new int[Bitboard.MAX_PAWN_MOVES];
+		for (int i = 0; i < mPositions.length; i++) {
+			long walls = mPositions[i].getLegalWallMask(Quoridor.HORIZONTAL);
+			if (walls != 0 && mPositions[i].mPlayerOneWallsLeft > 0) {
+				mMoves[i] = Move.wall(Quoridor.HORIZONTAL, Long.numberOfTrailingZeros(walls));
+			} else {
+				mPositions[i].getPosition().generatePawnMoves(1, squares, 0);
+				mMoves[i] = Move.pawn(squares[0]);
+			}
+		}
+	}
+
+	private int nextIndex() {
+		mIndex = (mIndex + 1) % mPositions.length;
+		return mIndex;
+	}
+
+	@Benchmark
+	public List<int[]> possibleNextCoordinates() {
+		return mPositions[nextIndex()].getPossibleNextCoordinates(mIndex % 2 + 1, false, null);
+	}
+
+	@Benchmark
+	public List<int[]> invalidWallCoordinates() {
+		return mPositions[nextIndex()].getInvalidWallCoordinates(mIndex % 2 + 1);
+	}
+
+	@Benchmark
+	public List<int[]> shortestPathToVictory() {
+		return mPositions[nextIndex()].getShortestPathToVictory(mIndex % 2 + 1);
+	}
+
+	@Benchmark
+	public Quoridor fork() {
+		return mPositions[nextIndex()].fork();
+	}
+
+	@Benchmark
+	public Quoridor makeAndUnmakeMove() {
+		Quoridor position = mPositions[nextIndex()];
+		position.makeMove(1, mMoves[mIndex]);
+		position.unmakeMove();
+		return position;
+	}
+
+	@Benchmark
+	public JSONObject getGameStateJSON() throws JSONException {
+		return QuoridorJSON.getGameStateJSON(mPositions[nextIndex()]);
+	}
+
+	@Benchmark
+	public Quoridor putGameState() throws JSONException {
+		QuoridorJSON.putGameState(mTarget, mGameStates[nextIndex()]);
+		return mTarget;
+	}
+
+	@Benchmark
+	public Quoridor parseAndPutGameState() throws JSONException {
+		QuoridorJSON.putGameState(mTarget, new JSONObject(mGameStateTexts[nextIndex()]));
+		return mTarget;
+	}
+
+	@Benchmark
+	public StringBuilder writeGameState() {
+		return mCodec.write(mPositions[nextIndex()]);
+	}
+
+	@Benchmark
+	public Quoridor readGameState() throws ParseException {
+		mCodec.read(mGameStateTexts[nextIndex()], mTarget);
+		return mTarget;
+	}
+
+	@Benchmark
+	public ByteBuffer writeBinary() {
+		int index = nextIndex();
+		mBinaryStates.position(index * Position.BINARY_SIZE);
+		mPositions[index].writeTo(mBinaryStates);
+		return mBinaryStates;
+	}
+
+	@Benchmark
+	public Position readBinary() {
+		mTargetPosition.readFrom(mBinaryStates, nextIndex() * Position.BINARY_SIZE);
+		return mTargetPosition;
+	}
+}
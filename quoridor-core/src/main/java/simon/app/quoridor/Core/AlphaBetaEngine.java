@@ -0,0 +1,483 @@
+package simon.app.quoridor.Core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * On-device opponent. Picks a move with an iterative deepening negamax alpha-beta search under a
+ * time budget, searching pawn moves and the walls that lengthen the opponent's shortest path.
+ *
+ * Positions are evaluated from the side to move as the difference between the opponent's and the
+ * player's shortest path to victory (read from the incrementally repaired distance fields of
+ * Position), with the difference in walls left as a tie-breaker. When the budget runs out, the best
+ * move of the last completed iteration is returned.
+ *
+ * Searched positions are stored in a transposition table, which gives the move to try first when a
+ * position is searched again and cuts the search when the stored result is deep enough. The table
+ * can be shared with other searches.
+ *
+ * Once neither player has walls left, the game is a pawn race which EndgameSolver solves exactly:
+ * the move is then read from the solution without searching, and the search stops at the positions
+ * where the last wall was placed.
+ *
+ * Instances are not thread safe.
+ */
+public class AlphaBetaEngine implements Engine {
+	/**
+	 * Time budget per move used by the default constructor
+	 */
+	public static final long DEFAULT_TIME_BUDGET_MILLIS = 1000;
+
+	/**
+	 * Time budget for searches limited by depth only. With it, a search is deterministic
+	 * @see #setMaxDepth(int)
+	 */
+	public static final long NO_TIME_LIMIT = Long.MAX_VALUE;
+
+	/**
+	 * Size of the transposition table created by the constructors that do not take one
+	 */
+	public static final int DEFAULT_TABLE_MEGABYTES = 4;
+
+	/**
+	 * Deepest iteration searched, in plies
+	 */
+	public static final int MAX_DEPTH = 32;
+
+	/**
+	 * Score of a won position at the root. Wins found deeper score lower, so that the shortest win
+	 * is preferred
+	 */
+	public static final int WIN_SCORE = 100000;
+
+	/**
+	 * Scores beyond this are wins or losses. The endgame solver proves wins far deeper than MAX_DEPTH
+	 */
+	private static final int WIN_THRESHOLD = WIN_SCORE / 2;
+
+	/**
+	 * Remaining depth from which a position without walls left is solved even if the solver has to
+	 * be prepared for its walls, which costs about as much as a few plies of search
+	 */
+	private static final int ENDGAME_SOLVE_DEPTH = 3;
+
+	private static final int INFINITY = WIN_SCORE + 1;
+	private static final int PATH_WEIGHT = 10;
+	private static final int MAX_MOVES = Bitboard.MAX_PAWN_MOVES + 2 * Bitboard.WALL_SLOT_COUNT;
+
+	/**
+	 * Number of nodes between two clock checks. Nodes are slow enough, because of the wall legality
+	 * checks, that a larger interval overruns short budgets
+	 */
+	private static final int NODES_PER_TIME_CHECK = 64;
+
+	private long mTimeBudgetMillis;
+	private final TranspositionTable mTable;
+	private int mMaxDepth = MAX_DEPTH;
+	private OpeningBook mOpeningBook;
+
+	/**
+	 * Set by ParallelAlphaBetaEngine to stop its helpers. Null for a standalone engine, which then
+	 * starts a new table generation with each search
+	 */
+	private final AtomicBoolean mAbort;
+
+	/**
+	 * 0 for a standalone engine or the main thread of a parallel search, else the index of the
+	 * helper thread, used to vary the order in which the helpers search
+	 */
+	private final int mHelperIndex;
+
+	// Search state
+	private final Position mPosition = new Position();
+	private final int[][] mMoves = new int[MAX_DEPTH + 1][MAX_MOVES];
+	private final int[] mRootScores = new int[MAX_MOVES];
+	private final EndgameSolver mEndgameSolver = new EndgameSolver();
+	private long mDeadline;
+	private boolean mStopped;
+	private long mNodeCount;
+
+	// Result of the last search
+	private int mLastDepth;
+	private int mLastScore;
+
+	/**
+	 * Creates an engine with the default time budget
+	 */
+	public AlphaBetaEngine() {
+		this(DEFAULT_TIME_BUDGET_MILLIS);
+	}
+
+	/**
+	 * @param timeBudgetMillis The time, in milliseconds, the engine may think for each move
+	 */
+	public AlphaBetaEngine(long timeBudgetMillis) {
+		this(timeBudgetMillis, new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+	}
+
+	/**
+	 * @param timeBudgetMillis The time, in milliseconds, the engine may think for each move
+	 * @param table The transposition table to use, which may be shared
+	 */
+	public AlphaBetaEngine(long timeBudgetMillis, TranspositionTable table) {
+		this(timeBudgetMillis, table, null, 0);
+	}
+
+	/**
+	 * Constructor for the threads of a parallel search
+	 * @param abort Stops the search when set
+	 * @param helperIndex 0 for the main thread, else the index of the helper thread
+	 */
+	AlphaBetaEngine(long timeBudgetMillis, TranspositionTable table, AtomicBoolean abort, int helperIndex) {
+		mTimeBudgetMillis = timeBudgetMillis;
+		mTable = table;
+		mAbort = abort;
+		mHelperIndex = helperIndex;
+	}
+
+	/**
+	 * Limits the depth of the searches. Combined with NO_TIME_LIMIT, searches are deterministic
+	 * @param maxDepth The deepest iteration searched, 1 to MAX_DEPTH
+	 */
+	public void setMaxDepth(int maxDepth) {
+		mMaxDepth = Math.max(1, Math.min(maxDepth, MAX_DEPTH));
+	}
+
+	/**
+	 * @param timeBudgetMillis The time, in milliseconds, the engine may think for the next moves,
+	 *                         or NO_TIME_LIMIT
+	 */
+	@Override
+	public void setTimeBudget(long timeBudgetMillis) {
+		mTimeBudgetMillis = timeBudgetMillis;
+	}
+
+	@Override
+	public void setOpeningBook(OpeningBook openingBook) {
+		mOpeningBook = openingBook;
+	}
+
+	/**
+	 * Finds the move to play in a game
+	 * @param quoridor The game. It is not modified
+	 * @param playerNumber The player to move (1 or 2)
+	 * @return The move, or Move.NONE if the player has no move
+	 * @see Quoridor#playMove(int, int)
+	 */
+	public int findBestMove(Quoridor quoridor, int playerNumber) {
+		return findBestMove(quoridor.getPosition(), playerNumber);
+	}
+
+	/**
+	 * Finds the move to play in a position
+	 * @param position The position. It is not modified
+	 * @param playerNumber The player to move (1 or 2)
+	 * @return The move, or Move.NONE if the player has no move
+	 */
+	@Override
+	public int findBestMove(Position position, int playerNumber) {
+		long now = System.currentTimeMillis();
+		mDeadline = mTimeBudgetMillis >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + mTimeBudgetMillis;
+		mStopped = false;
+		mNodeCount = 0;
+		mLastDepth = 0;
+		mLastScore = 0;
+		mPosition.copyFrom(position);
+		if (mOpeningBook != null) {
+			int bookMove = mOpeningBook.getMove(mPosition, playerNumber);
+			if (bookMove != Move.NONE) return bookMove;
+		}
+		if (EndgameSolver.isApplicable(mPosition)) {
+			int result = mEndgameSolver.solve(mPosition, playerNumber);
+			if (mEndgameSolver.getBestMove() != Move.NONE) {
+				mLastScore = endgameScore(result, 0);
+				return mEndgameSolver.getBestMove();
+			}
+		}
+		if (mAbort == null) mTable.newSearch();
+
+		int[] rootMoves = mMoves[0];
+		int moveCount = generateMoves(playerNumber, rootMoves);
+		if (moveCount == 0) return Move.NONE;
+		int bestMove = rootMoves[0];
+
+		// Helpers start with a different move order, and half of them skip the first iteration, so
+		// that they fill the shared table with other positions than the main thread
+		int firstDepth = 1;
+		if (mHelperIndex > 0) {
+			rotateMoves(rootMoves, moveCount, mHelperIndex % moveCount);
+			firstDepth += mHelperIndex % 2;
+		}
+
+		for (int depth = firstDepth; depth <= mMaxDepth; depth++) {
+			int alpha = -INFINITY;
+			int iterationBestMove = Move.NONE;
+			for (int i = 0; i < moveCount; i++) {
+				int move = rootMoves[i];
+				int previousSquare = mPosition.playMove(playerNumber, move);
+				int score = -search(3 - playerNumber, depth - 1, 1, -INFINITY, -alpha);
+				mPosition.undoMove(playerNumber, move, previousSquare);
+				if (mStopped) break;
+
+				mRootScores[i] = score;
+				if (score > alpha) {
+					alpha = score;
+					iterationBestMove = move;
+				}
+			}
+			// A partial iteration is discarded
+			if (mStopped) break;
+
+			bestMove = iterationBestMove;
+			mLastDepth = depth;
+			mLastScore = alpha;
+			if (alpha >= WIN_THRESHOLD || alpha <= -WIN_THRESHOLD) break;
+			sortMoves(rootMoves, mRootScores, moveCount);
+		}
+		return bestMove;
+	}
+
+	/**
+	 * @return The depth, in plies, of the last completed iteration of the last search, 0 if the move
+	 * came from the opening book or the endgame solver
+	 */
+	public int getLastDepth() {
+		return mLastDepth;
+	}
+
+	/**
+	 * @return The score of the last completed iteration of the last search, from the point of view
+	 * of the player to move
+	 */
+	public int getLastScore() {
+		return mLastScore;
+	}
+
+	/**
+	 * @return The number of positions visited by the last search
+	 */
+	public long getNodeCount() {
+		return mNodeCount;
+	}
+
+	/**
+	 * Nothing to stop: the search runs in the caller's thread
+	 */
+	@Override
+	public void shutdown() {
+
+	}
+
+	//==============================================================================================
+	// Search
+	//==============================================================================================
+
+	/**
+	 * Negamax alpha-beta
+	 * @param playerNumber The player to move
+	 * @param depth The remaining depth
+	 * @param ply The distance from the root
+	 * @return The score of the position from the point of view of the player to move
+	 */
+	private int search(int playerNumber, int depth, int ply, int alpha, int beta) {
+		// The first iteration always completes, so that there is a move to return
+		mNodeCount++;
+		if ((mNodeCount % NODES_PER_TIME_CHECK) == 0) {
+			if (mLastDepth > 0 && System.currentTimeMillis() >= mDeadline) mStopped = true;
+			if (mAbort != null && mAbort.get()) mStopped = true;
+		}
+		if (mStopped) return 0;
+
+		int winner = mPosition.getWinner();
+		if (winner != 0) return winner == playerNumber ? WIN_SCORE - ply : -(WIN_SCORE - ply);
+		if (EndgameSolver.isApplicable(mPosition)
+				&& (depth >= ENDGAME_SOLVE_DEPTH || mEndgameSolver.isSolved(mPosition.getBoard()))) {
+			return endgameScore(mEndgameSolver.solve(mPosition, playerNumber), ply);
+		}
+		if (depth == 0 || ply == MAX_DEPTH) return evaluate(playerNumber);
+
+		long key = mPosition.getKey() ^ Zobrist.sideToMove(playerNumber);
+		int hashMove = Move.NONE;
+		long entry = mTable.probe(key);
+		if (entry != TranspositionTable.NO_ENTRY) {
+			hashMove = TranspositionTable.getMove(entry);
+			if (TranspositionTable.getDepth(entry) >= depth) {
+				int score = scoreFromTable(TranspositionTable.getScore(entry), ply);
+				int bound = TranspositionTable.getBound(entry);
+				if (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+						|| (bound == TranspositionTable.UPPER_BOUND && score <= alpha))
+					return score;
+			}
+		}
+
+		int[] moves = mMoves[ply];
+		int moveCount = generateMoves(playerNumber, moves);
+		moveToFront(moves, moveCount, hashMove);
+
+		int originalAlpha = alpha;
+		int best = -INFINITY;
+		int bestMove = Move.NONE;
+		for (int i = 0; i < moveCount; i++) {
+			int move = moves[i];
+			int previousSquare = mPosition.playMove(playerNumber, move);
+			int score = -search(3 - playerNumber, depth - 1, ply + 1, -beta, -alpha);
+			mPosition.undoMove(playerNumber, move, previousSquare);
+			if (mStopped) return 0;
+
+			if (score > best) {
+				best = score;
+				bestMove = move;
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) break;
+				}
+			}
+		}
+
+		int bound;
+		if (best <= originalAlpha)
+			bound = TranspositionTable.UPPER_BOUND;
+		else if (best >= beta)
+			bound = TranspositionTable.LOWER_BOUND;
+		else
+			bound = TranspositionTable.EXACT;
+		mTable.store(key, depth, bound, scoreToTable(best, ply), bound == TranspositionTable.UPPER_BOUND ? Move.NONE : bestMove);
+		return best;
+	}
+
+	/**
+	 * Converts the last result of the endgame solver into a search score
+	 * @param result WIN, LOSS or DRAW for the player to move
+	 * @param ply The distance from the root
+	 */
+	private int endgameScore(int result, int ply) {
+		if (result == EndgameSolver.DRAW) return 0;
+		int score = WIN_SCORE - ply - mEndgameSolver.getDistance();
+		return result == EndgameSolver.WIN ? score : -score;
+	}
+
+	/**
+	 * Win scores depend on the distance from the root. They are stored relative to the position
+	 * instead, so that they stay valid when the position is reached at another ply
+	 */
+	private static int scoreToTable(int score, int ply) {
+		if (score >= WIN_THRESHOLD) return score + ply;
+		if (score <= -WIN_THRESHOLD) return score - ply;
+		return score;
+	}
+
+	/**
+	 * @see #scoreToTable(int, int)
+	 */
+	private static int scoreFromTable(int score, int ply) {
+		if (score >= WIN_THRESHOLD) return score - ply;
+		if (score <= -WIN_THRESHOLD) return score + ply;
+		return score;
+	}
+
+	/**
+	 * @param playerNumber The player to move
+	 * @return The static score of the position from the point of view of the player to move
+	 */
+	private int evaluate(int playerNumber) {
+		int otherPlayerNumber = 3 - playerNumber;
+		int pathDifference = mPosition.getDistanceToVictory(otherPlayerNumber) - mPosition.getDistanceToVictory(playerNumber);
+		int wallDifference = mPosition.getWallsLeft(playerNumber) - mPosition.getWallsLeft(otherPlayerNumber);
+		return PATH_WEIGHT * pathDifference + wallDifference;
+	}
+
+	//==============================================================================================
+	// Move generation
+	//==============================================================================================
+
+	/**
+	 * Generates the moves searched for a player: pawn moves, closest to the victory line first,
+	 * then the legal walls cutting the opponent's shortest path
+	 * @param playerNumber The player to move
+	 * @param moves The buffer to write into, of size MAX_MOVES
+	 * @return The number of moves written
+	 */
+	private int generateMoves(int playerNumber, int[] moves) {
+		DistanceMap distances = mPosition.getDistanceMap(playerNumber);
+		int count = mPosition.generatePawnMoves(playerNumber, moves, 0);
+		for (int i = 1; i < count; i++) {
+			int move = moves[i];
+			int distance = distances.getDistance(move);
+			int j = i - 1;
+			while (j >= 0 && distances.getDistance(moves[j]) > distance) {
+				moves[j + 1] = moves[j];
+				j--;
+			}
+			moves[j + 1] = move;
+		}
+
+		if (mPosition.getWallsLeft(playerNumber) > 0) {
+			count = generateWalls(playerNumber, Quoridor.HORIZONTAL, moves, count);
+			count = generateWalls(playerNumber, Quoridor.VERTICAL, moves, count);
+		}
+		return count;
+	}
+
+	/**
+	 * Appends the legal walls of one type that cut an edge of the opponent's shortest path. Walls
+	 * elsewhere do not lengthen it and are not searched
+	 * @return The new number of moves
+	 */
+	private int generateWalls(int playerNumber, int wallType, int[] moves, int count) {
+		Bitboard board = mPosition.getBoard();
+		long candidates = mPosition.getShortestPathSlots(3 - playerNumber, wallType) & ~board.getOverlapMask(wallType);
+		while (candidates != 0) {
+			int slot = Long.numberOfTrailingZeros(candidates);
+			candidates &= candidates - 1;
+
+			mPosition.placeWall(playerNumber, wallType, slot);
+			boolean legal = !mPosition.isPlayerCutOff(1) && !mPosition.isPlayerCutOff(2);
+			mPosition.removeWall(playerNumber, wallType, slot);
+			if (legal) moves[count++] = Move.wall(wallType, slot);
+		}
+		return count;
+	}
+
+	/**
+	 * Moves a move to the front of a list, if it is in it, keeping the order of the others
+	 */
+	private static void moveToFront(int[] moves, int count, int move) {
+		if (move == Move.NONE) return;
+		for (int i = 0; i < count; i++) {
+			if (moves[i] == move) {
+				System.arraycopy(moves, 0, moves, 1, i);
+				moves[0] = move;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Rotates a list of moves to the left
+	 */
+	private static void rotateMoves(int[] moves, int count, int distance) {
+		for (int i = 0; i < distance; i++) {
+			int first = moves[0];
+			System.arraycopy(moves, 1, moves, 0, count - 1);
+			moves[count - 1] = first;
+		}
+	}
+
+	/**
+	 * Sorts moves by decreasing score, keeping the order of equal scores
+	 */
+	private static void sortMoves(int[] moves, int[] scores, int count) {
+		for (int i = 1; i < count; i++) {
+			int move = moves[i];
+			int score = scores[i];
+			int j = i - 1;
+			while (j >= 0 && scores[j] < score) {
+				moves[j + 1] = moves[j];
+				scores[j + 1] = scores[j];
+				j--;
+			}
+			moves[j + 1] = move;
+			scores[j + 1] = score;
+		}
+	}
+}
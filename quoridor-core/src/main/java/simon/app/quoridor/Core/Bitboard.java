@@ -0,0 +1,408 @@
+package simon.app.quoridor.Core;
+
+/**
+ * Compact bitboard representation of a Quoridor position. Squares are packed into a single int
+ * ((x - 1) + (y - 1) * 9, so 0 to 80) and each wall orientation is a 64-bit mask with one bit per
+ * wall slot. Wall lookups and pawn steps are single bit tests against precomputed tables.
+ */
+public class Bitboard {
+	//==============================================================================================
+	// Constants
+	//==============================================================================================
+
+	/**
+	 * Number of cells on each side of the board
+	 */
+	public static final int SIZE = 9;
+
+	/**
+	 * Number of cells on the board
+	 */
+	public static final int SQUARE_COUNT = SIZE * SIZE;
+
+	/**
+	 * Number of wall slots for each orientation (8 x 8)
+	 */
+	public static final int WALL_SLOT_COUNT = 64;
+
+	/**
+	 * Maximum number of squares a pawn can move to from any position (three steps plus two
+	 * diagonal jumps)
+	 */
+	public static final int MAX_PAWN_MOVES = 5;
+
+	/**
+	 * Returned by the square and slot helpers when the coordinates are off the board
+	 */
+	public static final int NONE = -1;
+
+	// Directions, in the order the moves have always been generated
+	public static final int UP = 0;
+	public static final int DOWN = 1;
+	public static final int LEFT = 2;
+	public static final int RIGHT = 3;
+
+	/**
+	 * Wall slots in the first and last column of the 8 x 8 slot grid
+	 */
+	private static final long FIRST_SLOT_COLUMN = 0x0101010101010101L;
+	private static final long LAST_SLOT_COLUMN = 0x8080808080808080L;
+
+	/**
+	 * NEIGHBOURS[direction][square] is the adjacent square in that direction, or NONE at the edge
+	 */
+	static final int[][] NEIGHBOURS = new int[4][SQUARE_COUNT];
+
+	/**
+	 * BLOCKERS[direction][square] is the mask of wall slots that block a step in that direction.
+	 * UP and DOWN are tested against the horizontal mask, LEFT and RIGHT against the vertical one.
+	 */
+	static final long[][] BLOCKERS = new long[4][SQUARE_COUNT];
+
+	static {
+		for (int square = 0; square < SQUARE_COUNT; square++) {
+			int x = squareX(square);
+			int y = squareY(square);
+
+			NEIGHBOURS[UP][square] = square(x, y + 1);
+			NEIGHBOURS[DOWN][square] = square(x, y - 1);
+			NEIGHBOURS[LEFT][square] = square(x - 1, y);
+			NEIGHBOURS[RIGHT][square] = square(x + 1, y);
+
+			BLOCKERS[UP][square] = slotBit(horizontalSlot(x - 1, y + 1)) | slotBit(horizontalSlot(x, y + 1));
+			BLOCKERS[DOWN][square] = slotBit(horizontalSlot(x - 1, y)) | slotBit(horizontalSlot(x, y));
+			BLOCKERS[LEFT][square] = slotBit(verticalSlot(x, y)) | slotBit(verticalSlot(x, y - 1));
+			BLOCKERS[RIGHT][square] = slotBit(verticalSlot(x + 1, y)) | slotBit(verticalSlot(x + 1, y - 1));
+		}
+	}
+
+	//==============================================================================================
+	// State
+	//==============================================================================================
+
+	/**
+	 * One bit per horizontal wall slot
+	 * @see #horizontalSlot(int, int)
+	 */
+	public long mHorizontalWalls;
+
+	/**
+	 * One bit per vertical wall slot
+	 * @see #verticalSlot(int, int)
+	 */
+	public long mVerticalWalls;
+
+	/**
+	 * Packed square of player 1, or NONE if unknown
+	 */
+	public int mPlayerOneSquare = NONE;
+
+	/**
+	 * Packed square of player 2, or NONE if unknown
+	 */
+	public int mPlayerTwoSquare = NONE;
+
+	//==============================================================================================
+	// Constructors
+	//==============================================================================================
+
+	/**
+	 * Default constructor. Initialises an empty board with no pawns
+	 */
+	public Bitboard() {
+
+	}
+
+	/**
+	 * Copy constructor
+	 * @param board The board to copy from
+	 */
+	public Bitboard(Bitboard board) {
+		copyFrom(board);
+	}
+
+	/**
+	 * Overwrites this board with the content of another one
+	 * @param board The board to copy from
+	 */
+	public void copyFrom(Bitboard board) {
+		mHorizontalWalls = board.mHorizontalWalls;
+		mVerticalWalls = board.mVerticalWalls;
+		mPlayerOneSquare = board.mPlayerOneSquare;
+		mPlayerTwoSquare = board.mPlayerTwoSquare;
+	}
+
+	/**
+	 * Removes all walls and pawns
+	 */
+	public void clear() {
+		mHorizontalWalls = 0;
+		mVerticalWalls = 0;
+		mPlayerOneSquare = NONE;
+		mPlayerTwoSquare = NONE;
+	}
+
+	//==============================================================================================
+	// Coordinates
+	//==============================================================================================
+
+	/**
+	 * @param x The x coordinate (1 to 9)
+	 * @param y The y coordinate (1 to 9)
+	 * @return The packed square, or NONE if the coordinates are off the board
+	 */
+	public static int square(int x, int y) {
+		if (x < 1 || x > SIZE || y < 1 || y > SIZE) return NONE;
+		return (x - 1) + (y - 1) * SIZE;
+	}
+
+	/**
+	 * @param square A packed square
+	 * @return The x coordinate of the square (1 to 9)
+	 */
+	public static int squareX(int square) {
+		return square % SIZE + 1;
+	}
+
+	/**
+	 * @param square A packed square
+	 * @return The y coordinate of the square (1 to 9)
+	 */
+	public static int squareY(int square) {
+		return square / SIZE + 1;
+	}
+
+	/**
+	 * @param x The x coordinate of a horizontal wall (1 to 8)
+	 * @param y The y coordinate of a horizontal wall (2 to 9)
+	 * @return The slot index of the wall (0 to 63), or NONE if the wall is off the board
+	 */
+	public static int horizontalSlot(int x, int y) {
+		if (x < 1 || x > 8 || y < 2 || y > 9) return NONE;
+		return (x - 1) + (y - 2) * 8;
+	}
+
+	/**
+	 * @param x The x coordinate of a vertical wall (2 to 9)
+	 * @param y The y coordinate of a vertical wall (1 to 8)
+	 * @return The slot index of the wall (0 to 63), or NONE if the wall is off the board
+	 */
+	public static int verticalSlot(int x, int y) {
+		if (x < 2 || x > 9 || y < 1 || y > 8) return NONE;
+		return (x - 2) + (y - 1) * 8;
+	}
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param x The x coordinate of the wall
+	 * @param y The y coordinate of the wall
+	 * @return The slot index of the wall, or NONE if the wall is off the board
+	 */
+	public static int slot(int wallType, int x, int y) {
+		return wallType == Quoridor.HORIZONTAL ? horizontalSlot(x, y) : verticalSlot(x, y);
+	}
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot A slot index (0 to 63)
+	 * @return The x coordinate of the wall in that slot
+	 */
+	public static int slotX(int wallType, int slot) {
+		return wallType == Quoridor.HORIZONTAL ? slot % 8 + 1 : slot % 8 + 2;
+	}
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot A slot index (0 to 63)
+	 * @return The y coordinate of the wall in that slot
+	 */
+	public static int slotY(int wallType, int slot) {
+		return wallType == Quoridor.HORIZONTAL ? slot / 8 + 2 : slot / 8 + 1;
+	}
+
+	/**
+	 * @param slot A slot index, or NONE
+	 * @return The mask with only that slot set, or 0 for NONE
+	 */
+	static long slotBit(int slot) {
+		return slot == NONE ? 0L : 1L << slot;
+	}
+
+	//==============================================================================================
+	// Walls
+	//==============================================================================================
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @return The wall mask for that orientation
+	 */
+	public long getWalls(int wallType) {
+		return wallType == Quoridor.HORIZONTAL ? mHorizontalWalls : mVerticalWalls;
+	}
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @return True if there is a wall of that type at the location, false if not
+	 */
+	public boolean isWall(int wallType, int x, int y) {
+		int slot = slot(wallType, x, y);
+		return slot != NONE && (getWalls(wallType) & (1L << slot)) != 0;
+	}
+
+	/**
+	 * Sets the bit of a wall slot. Does not check the placement for overlaps
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot The slot index of the wall
+	 */
+	public void placeWall(int wallType, int slot) {
+		if (wallType == Quoridor.HORIZONTAL)
+			mHorizontalWalls |= 1L << slot;
+		else
+			mVerticalWalls |= 1L << slot;
+	}
+
+	/**
+	 * Clears the bit of a wall slot
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot The slot index of the wall
+	 */
+	public void removeWall(int wallType, int slot) {
+		if (wallType == Quoridor.HORIZONTAL)
+			mHorizontalWalls &= ~(1L << slot);
+		else
+			mVerticalWalls &= ~(1L << slot);
+	}
+
+	/**
+	 * Computes the slots where a wall cannot be placed because it would overlap or cross an
+	 * existing wall. A horizontal wall at slot s overlaps horizontal walls at s - 1, s and s + 1
+	 * (same row) and crosses the vertical wall at s, and symmetrically for vertical walls with
+	 * s - 8, s and s + 8 (same column).
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @return The mask of occupied slots for that wall type
+	 */
+	public long getOverlapMask(int wallType) {
+		if (wallType == Quoridor.HORIZONTAL) {
+			return mHorizontalWalls
+					| ((mHorizontalWalls << 1) & ~FIRST_SLOT_COLUMN)
+					| ((mHorizontalWalls >>> 1) & ~LAST_SLOT_COLUMN)
+					| mVerticalWalls;
+		} else {
+			return mVerticalWalls
+					| (mVerticalWalls << 8)
+					| (mVerticalWalls >>> 8)
+					| mHorizontalWalls;
+		}
+	}
+
+	/**
+	 * @param horizontalWalls The mask of horizontal wall slots
+	 * @param verticalWalls The mask of vertical wall slots
+	 * @return True if two of the walls overlap or cross, which placeWall never checks
+	 * @see #getOverlapMask(int)
+	 */
+	static boolean hasOverlaps(long horizontalWalls, long verticalWalls) {
+		return (horizontalWalls & verticalWalls) != 0
+				|| (horizontalWalls & (horizontalWalls << 1) & ~FIRST_SLOT_COLUMN) != 0
+				|| (verticalWalls & (verticalWalls << 8)) != 0;
+	}
+
+	//==============================================================================================
+	// Pawns
+	//==============================================================================================
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return The packed square of that player's pawn, or NONE
+	 */
+	public int getPlayerSquare(int playerNumber) {
+		return playerNumber == 1 ? mPlayerOneSquare : mPlayerTwoSquare;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @param square The new packed square of that player's pawn
+	 */
+	public void setPlayerSquare(int playerNumber, int square) {
+		if (playerNumber == 1)
+			mPlayerOneSquare = square;
+		else
+			mPlayerTwoSquare = square;
+	}
+
+	/**
+	 * Checks whether a pawn standing on a square can step to the adjacent square in a direction,
+	 * ignoring the other pawn
+	 * @param square The packed square to step from
+	 * @param direction UP, DOWN, LEFT or RIGHT
+	 * @return True if the adjacent square exists and no wall is in the way
+	 */
+	public boolean canStep(int square, int direction) {
+		if (NEIGHBOURS[direction][square] == NONE) return false;
+		long walls = direction <= DOWN ? mHorizontalWalls : mVerticalWalls;
+		return (walls & BLOCKERS[direction][square]) == 0;
+	}
+
+	/**
+	 * @param square A packed square
+	 * @param direction UP, DOWN, LEFT or RIGHT
+	 * @return The adjacent square in that direction, or NONE at the edge of the board
+	 */
+	public static int neighbour(int square, int direction) {
+		return NEIGHBOURS[direction][square];
+	}
+
+	/**
+	 * Generates the squares a pawn can move to, including the jumps over the other pawn, without
+	 * allocating. Squares are written in the order up, down, left, right.
+	 * @param square The packed square of the pawn to move
+	 * @param otherSquare The packed square of the other pawn, or NONE
+	 * @param ignoreOtherPlayerJump Whether to ignore the option to jump over the other pawn
+	 * @param squares The buffer to write the packed squares into. Must have room for
+	 *                MAX_PAWN_MOVES squares after offset
+	 * @param offset The index of squares at which to start writing
+	 * @return The number of squares written
+	 */
+	public int generatePawnMoves(int square, int otherSquare, boolean ignoreOtherPlayerJump, int[] squares, int offset) {
+		if (square == NONE) return 0;
+		int count = 0;
+
+		for (int direction = UP; direction <= RIGHT; direction++) {
+			if (!canStep(square, direction)) continue;
+
+			int nextSquare = NEIGHBOURS[direction][square];
+			if (nextSquare != otherSquare) {
+				// Other pawn is not there
+				squares[offset + count++] = nextSquare;
+			} else if (!ignoreOtherPlayerJump) {
+				// Other pawn is there: jump straight over it if possible, else to its sides
+				if (canStep(otherSquare, direction)) {
+					squares[offset + count++] = NEIGHBOURS[direction][otherSquare];
+				} else {
+					for (int sideDirection = UP; sideDirection <= RIGHT; sideDirection++) {
+						int sideSquare = NEIGHBOURS[sideDirection][otherSquare];
+						if (sideSquare != square && canStep(otherSquare, sideDirection))
+							squares[offset + count++] = sideSquare;
+					}
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Generates the squares a player can move to from their current square
+	 * @param playerNumber The player to move (1 or 2)
+	 * @param squares The buffer to write the packed squares into
+	 * @param offset The index of squares at which to start writing
+	 * @return The number of squares written
+	 * @see #generatePawnMoves(int, int, boolean, int[], int)
+	 */
+	public int generatePawnMoves(int playerNumber, int[] squares, int offset) {
+		return generatePawnMoves(getPlayerSquare(playerNumber), getPlayerSquare(playerNumber == 1 ? 2 : 1),
+				false, squares, offset);
+	}
+}
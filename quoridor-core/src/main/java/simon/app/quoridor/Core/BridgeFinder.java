@@ -0,0 +1,160 @@
+package simon.app.quoridor.Core;
+
+/**
+ * Finds, for one player, the wall slots that can matter for that player's connectivity to the
+ * victory line, so that legal wall enumeration only runs a full connectivity test where needed.
+ *
+ * A depth-first search is run from a virtual goal node linked to every square of the victory line.
+ * The tree path from the pawn back to the goal is one path to victory: a wall that cuts none of
+ * its edges leaves it intact and can never cut the player off. Among those edges, the bridges
+ * (cut-edges, found with Tarjan's low-link values) are crossed by every path, so a wall cutting
+ * one of them always cuts the player off. Only the remaining walls on the path need a test.
+ *
+ * Instances are not thread safe.
+ */
+public class BridgeFinder {
+	/**
+	 * Index of the virtual goal node
+	 */
+	private static final int GOAL = Bitboard.SQUARE_COUNT;
+	private static final int NODE_COUNT = Bitboard.SQUARE_COUNT + 1;
+
+	// Depth-first search state
+	private final int[] mDiscovery = new int[NODE_COUNT];
+	private final int[] mLow = new int[NODE_COUNT];
+	private final int[] mParent = new int[NODE_COUNT];
+	private final int[] mNextNeighbour = new int[NODE_COUNT];
+	private final int[] mStack = new int[NODE_COUNT];
+
+	// Result of the last computation
+	private long mHorizontalPathSlots;
+	private long mVerticalPathSlots;
+	private long mHorizontalBridgeSlots;
+	private long mVerticalBridgeSlots;
+
+	/**
+	 * Computes the path and bridge slots of a player
+	 * @param board The board to analyse
+	 * @param playerNumber The player (1 or 2)
+	 * @return False if the player's pawn cannot reach its victory line (or is not on the board),
+	 * in which case the slot masks are empty
+	 */
+	public boolean compute(Bitboard board, int playerNumber) {
+		mHorizontalPathSlots = 0;
+		mVerticalPathSlots = 0;
+		mHorizontalBridgeSlots = 0;
+		mVerticalBridgeSlots = 0;
+
+		int pawnSquare = board.getPlayerSquare(playerNumber);
+		if (pawnSquare == Bitboard.NONE) return false;
+
+		search(board, playerNumber);
+		if (mDiscovery[pawnSquare] == -1) return false;
+
+		// Walk the tree path from the pawn to the goal
+		int child = pawnSquare;
+		int parent = mParent[child];
+		while (parent != GOAL) {
+			long horizontal = 0;
+			long vertical = 0;
+			if (parent == child + Bitboard.SIZE)
+				horizontal = Bitboard.BLOCKERS[Bitboard.UP][child];
+			else if (parent == child - Bitboard.SIZE)
+				horizontal = Bitboard.BLOCKERS[Bitboard.DOWN][child];
+			else if (parent == child - 1)
+				vertical = Bitboard.BLOCKERS[Bitboard.LEFT][child];
+			else
+				vertical = Bitboard.BLOCKERS[Bitboard.RIGHT][child];
+
+			mHorizontalPathSlots |= horizontal;
+			mVerticalPathSlots |= vertical;
+			if (mLow[child] > mDiscovery[parent]) {
+				mHorizontalBridgeSlots |= horizontal;
+				mVerticalBridgeSlots |= vertical;
+			}
+
+			child = parent;
+			parent = mParent[child];
+		}
+		return true;
+	}
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @return The slots of that type whose wall would cut an edge of the path found by the last
+	 * computation
+	 */
+	public long getPathSlots(int wallType) {
+		return wallType == Quoridor.HORIZONTAL ? mHorizontalPathSlots : mVerticalPathSlots;
+	}
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @return The slots of that type whose wall would cut a bridge between the pawn and the victory
+	 * line, found by the last computation
+	 */
+	public long getBridgeSlots(int wallType) {
+		return wallType == Quoridor.HORIZONTAL ? mHorizontalBridgeSlots : mVerticalBridgeSlots;
+	}
+
+	/**
+	 * Iterative depth-first search from the goal node, filling discovery times, low-links and
+	 * parents of every reachable node
+	 */
+	private void search(Bitboard board, int playerNumber) {
+		for (int i = 0; i < NODE_COUNT; i++) {
+			mDiscovery[i] = -1;
+		}
+
+		int time = 0;
+		int stackSize = 0;
+		mDiscovery[GOAL] = time;
+		mLow[GOAL] = time++;
+		mParent[GOAL] = Bitboard.NONE;
+		mNextNeighbour[GOAL] = 0;
+		mStack[stackSize++] = GOAL;
+
+		while (stackSize > 0) {
+			int node = mStack[stackSize - 1];
+			int next = nextNeighbour(board, playerNumber, node);
+
+			if (next == Bitboard.NONE) {
+				stackSize--;
+				int parent = mParent[node];
+				if (parent != Bitboard.NONE && mLow[node] < mLow[parent]) mLow[parent] = mLow[node];
+			} else if (mDiscovery[next] == -1) {
+				mParent[next] = node;
+				mDiscovery[next] = time;
+				mLow[next] = time++;
+				mNextNeighbour[next] = 0;
+				mStack[stackSize++] = next;
+			} else if (next != mParent[node] && mDiscovery[next] < mLow[node]) {
+				mLow[node] = mDiscovery[next];
+			}
+		}
+	}
+
+	/**
+	 * Returns the next neighbour of a node to visit and advances its iterator. The goal node is
+	 * linked to the squares of the victory line; squares are linked through open steps, and to the
+	 * goal node if they are on the victory line.
+	 * @return The neighbour, or Bitboard.NONE once all of them were returned
+	 */
+	private int nextNeighbour(Bitboard board, int playerNumber, int node) {
+		if (node == GOAL) {
+			int x = ++mNextNeighbour[GOAL];
+			if (x > Bitboard.SIZE) return Bitboard.NONE;
+			return Bitboard.square(x, playerNumber == 1 ? Bitboard.SIZE : 1);
+		}
+
+		while (mNextNeighbour[node] <= Bitboard.RIGHT) {
+			int direction = mNextNeighbour[node]++;
+			if (board.canStep(node, direction)) return Bitboard.neighbour(node, direction);
+		}
+		if (mNextNeighbour[node] == Bitboard.RIGHT + 1) {
+			mNextNeighbour[node]++;
+			if (PathFinder.isGoal(playerNumber, node)) return GOAL;
+		}
+		return Bitboard.NONE;
+	}
+}
@@ -0,0 +1,95 @@
+package simon.app.quoridor.Core;
+
+/**
+ * Monotone priority queue of small integer items (squares) with small integer priorities. Each
+ * priority has a bucket holding a doubly linked list of items, so push, remove and decrease-key
+ * are constant time and pop only scans forward from the lowest non-empty bucket. An item can be
+ * in the queue at most once.
+ */
+class BucketQueue {
+	private final int[] mBucketHeads;
+	private final int[] mNext;
+	private final int[] mPrevious;
+	private final int[] mBucket;
+	private int mLowestBucket;
+
+	/**
+	 * @param itemCount Items are in [0, itemCount)
+	 * @param bucketCount Priorities are in [0, bucketCount)
+	 */
+	BucketQueue(int itemCount, int bucketCount) {
+		mBucketHeads = new int[bucketCount];
+		mNext = new int[itemCount];
+		mPrevious = new int[itemCount];
+		mBucket = new int[itemCount];
+		for (int i = 0; i < bucketCount; i++) {
+			mBucketHeads[i] = Bitboard.NONE;
+		}
+		for (int i = 0; i < itemCount; i++) {
+			mBucket[i] = Bitboard.NONE;
+		}
+		mLowestBucket = bucketCount;
+	}
+
+	/**
+	 * Adds an item, or moves it to a new priority if it is already queued
+	 * @param item The item to add
+	 * @param priority Its priority
+	 */
+	void push(int item, int priority) {
+		if (mBucket[item] != Bitboard.NONE) remove(item);
+		int head = mBucketHeads[priority];
+		mNext[item] = head;
+		mPrevious[item] = Bitboard.NONE;
+		if (head != Bitboard.NONE) mPrevious[head] = item;
+		mBucketHeads[priority] = item;
+		mBucket[item] = priority;
+		if (priority < mLowestBucket) mLowestBucket = priority;
+	}
+
+	/**
+	 * Removes a queued item
+	 * @param item The item to remove
+	 */
+	void remove(int item) {
+		int next = mNext[item];
+		int previous = mPrevious[item];
+		if (previous != Bitboard.NONE)
+			mNext[previous] = next;
+		else
+			mBucketHeads[mBucket[item]] = next;
+		if (next != Bitboard.NONE) mPrevious[next] = previous;
+		mBucket[item] = Bitboard.NONE;
+	}
+
+	/**
+	 * @param item An item
+	 * @return True if the item is queued
+	 */
+	boolean contains(int item) {
+		return mBucket[item] != Bitboard.NONE;
+	}
+
+	/**
+	 * Removes and returns an item with the lowest priority
+	 * @return The item, or Bitboard.NONE if the queue is empty
+	 */
+	int pop() {
+		while (mLowestBucket < mBucketHeads.length && mBucketHeads[mLowestBucket] == Bitboard.NONE) {
+			mLowestBucket++;
+		}
+		if (mLowestBucket == mBucketHeads.length) return Bitboard.NONE;
+		int item = mBucketHeads[mLowestBucket];
+		remove(item);
+		return item;
+	}
+
+	/**
+	 * Removes all the items
+	 */
+	void clear() {
+		while (pop() != Bitboard.NONE) {
+			// Drain
+		}
+	}
+}
@@ -0,0 +1,275 @@
+package simon.app.quoridor.Core;
+
+/**
+ * Distance, in steps, from every square of the board to a player's victory line, considering
+ * walls only (pawns are ignored, as in the rule that a wall may not cut a player from its goal).
+ *
+ * The field is built once with a breadth-first search from the victory line, then repaired
+ * incrementally when a wall is placed or removed. Placing a wall can only increase distances: the
+ * squares that lose every neighbour one step closer to the goal are collected in order of their
+ * old distance, and only that region is relaxed again from its unaffected border. Removing a wall
+ * can only decrease distances, which are propagated outwards from the reopened edges.
+ *
+ * Instances are not thread safe.
+ */
+public class DistanceMap {
+	/**
+	 * Distance of squares from which the victory line cannot be reached
+	 */
+	public static final int UNREACHABLE = Bitboard.SQUARE_COUNT;
+
+	private final int mPlayerNumber;
+	private final int[] mDistances = new int[Bitboard.SQUARE_COUNT];
+
+	// Repair buffers, created by the first repair so that copies only read stay small
+	private BucketQueue mQueue;
+	private int[] mAffectedSquares;
+	private long mAffectedLow;
+	private long mAffectedHigh;
+	private final int[] mEdges = new int[4];
+
+	/**
+	 * Creates the distance field of a player on an empty board
+	 * @param playerNumber The player (1 or 2) whose victory line the distances lead to
+	 */
+	public DistanceMap(int playerNumber) {
+		mPlayerNumber = playerNumber;
+		for (int square = 0; square < Bitboard.SQUARE_COUNT; square++) {
+			mDistances[square] = PathFinder.rowsToGoal(playerNumber, square);
+		}
+	}
+
+	/**
+	 * Copy constructor
+	 * @param distanceMap The distance field to copy from
+	 */
+	public DistanceMap(DistanceMap distanceMap) {
+		mPlayerNumber = distanceMap.mPlayerNumber;
+		copyFrom(distanceMap);
+	}
+
+	/**
+	 * Overwrites the distances with those of another field of the same player
+	 * @param distanceMap The distance field to copy from
+	 */
+	public void copyFrom(DistanceMap distanceMap) {
+		System.arraycopy(distanceMap.mDistances, 0, mDistances, 0, Bitboard.SQUARE_COUNT);
+	}
+
+	/**
+	 * @return The player whose victory line the distances lead to
+	 */
+	public int getPlayerNumber() {
+		return mPlayerNumber;
+	}
+
+	/**
+	 * @param square A packed square
+	 * @return The number of steps from that square to the victory line, or UNREACHABLE
+	 */
+	public int getDistance(int square) {
+		return mDistances[square];
+	}
+
+	/**
+	 * @param square A packed square
+	 * @param board The board the distances were computed for
+	 * @return An adjacent square one step closer to the victory line, or Bitboard.NONE if the
+	 * square is on the victory line or cannot reach it
+	 */
+	public int getNextStep(int square, Bitboard board) {
+		int distance = mDistances[square];
+		if (distance == 0 || distance == UNREACHABLE) return Bitboard.NONE;
+		for (int direction = Bitboard.UP; direction <= Bitboard.RIGHT; direction++) {
+			if (board.canStep(square, direction) && mDistances[Bitboard.neighbour(square, direction)] == distance - 1)
+				return Bitboard.neighbour(square, direction);
+		}
+		return Bitboard.NONE;
+	}
+
+	/**
+	 * Recomputes the whole field with a breadth-first search from the victory line
+	 * @param board The board to compute the distances for
+	 */
+	public void rebuild(Bitboard board) {
+		createRepairBuffers();
+		int goalY = mPlayerNumber == 1 ? Bitboard.SIZE : 1;
+		for (int square = 0; square < Bitboard.SQUARE_COUNT; square++) {
+			mDistances[square] = UNREACHABLE;
+		}
+		for (int x = 1; x <= Bitboard.SIZE; x++) {
+			int square = Bitboard.square(x, goalY);
+			mDistances[square] = 0;
+			mQueue.push(square, 0);
+		}
+		relax(board);
+	}
+
+	/**
+	 * Repairs the distances after a wall was placed
+	 * @param board The board, already containing the new wall
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot The slot of the new wall
+	 */
+	public void onWallPlaced(Bitboard board, int wallType, int slot) {
+		createRepairBuffers();
+		int edgeCount = getCutEdges(wallType, slot, mEdges);
+
+		// Squares whose shortest route went through a cut edge may have lost their support
+		for (int i = 0; i < edgeCount; i += 2) {
+			int a = mEdges[i];
+			int b = mEdges[i + 1];
+			if (mDistances[b] != UNREACHABLE && mDistances[a] == mDistances[b] + 1)
+				mQueue.push(a, mDistances[a]);
+			else if (mDistances[a] != UNREACHABLE && mDistances[b] == mDistances[a] + 1)
+				mQueue.push(b, mDistances[b]);
+		}
+
+		// Collect the affected region in order of old distance, so that a square is only checked
+		// once every square closer to the goal is settled
+		int affectedCount = 0;
+		mAffectedLow = 0;
+		mAffectedHigh = 0;
+		int square;
+		while ((square = mQueue.pop()) != Bitboard.NONE) {
+			if (hasSupport(board, square)) continue;
+
+			markAffected(square);
+			mAffectedSquares[affectedCount++] = square;
+			for (int direction = Bitboard.UP; direction <= Bitboard.RIGHT; direction++) {
+				if (!board.canStep(square, direction)) continue;
+				int child = Bitboard.neighbour(square, direction);
+				if (mDistances[child] == mDistances[square] + 1 && !isAffected(child))
+					mQueue.push(child, mDistances[child]);
+			}
+		}
+
+		// Seed the affected region from its unaffected border, then relax inside it
+		for (int i = 0; i < affectedCount; i++) {
+			mDistances[mAffectedSquares[i]] = UNREACHABLE;
+		}
+		for (int i = 0; i < affectedCount; i++) {
+			int affected = mAffectedSquares[i];
+			int distance = UNREACHABLE;
+			for (int direction = Bitboard.UP; direction <= Bitboard.RIGHT; direction++) {
+				if (!board.canStep(affected, direction)) continue;
+				int neighbour = Bitboard.neighbour(affected, direction);
+				if (!isAffected(neighbour) && mDistances[neighbour] + 1 < distance)
+					distance = mDistances[neighbour] + 1;
+			}
+			if (distance < UNREACHABLE) {
+				mDistances[affected] = distance;
+				mQueue.push(affected, distance);
+			}
+		}
+		relax(board);
+	}
+
+	/**
+	 * Repairs the distances after a wall was removed
+	 * @param board The board, already without the wall
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot The slot of the removed wall
+	 */
+	public void onWallRemoved(Bitboard board, int wallType, int slot) {
+		createRepairBuffers();
+		int edgeCount = getCutEdges(wallType, slot, mEdges);
+		int direction = wallType == Quoridor.HORIZONTAL ? Bitboard.UP : Bitboard.RIGHT;
+		for (int i = 0; i < edgeCount; i += 2) {
+			int a = mEdges[i];
+			int b = mEdges[i + 1];
+			// An overlapping wall may still cut the edge
+			if (!board.canStep(a, direction)) continue;
+
+			if (mDistances[b] + 1 < mDistances[a]) {
+				mDistances[a] = mDistances[b] + 1;
+				mQueue.push(a, mDistances[a]);
+			} else if (mDistances[a] + 1 < mDistances[b]) {
+				mDistances[b] = mDistances[a] + 1;
+				mQueue.push(b, mDistances[b]);
+			}
+		}
+		relax(board);
+	}
+
+	/**
+	 * Allocates the queue and buffer of the repairs on the first one
+	 */
+	private void createRepairBuffers() {
+		if (mQueue != null) return;
+		mQueue = new BucketQueue(Bitboard.SQUARE_COUNT, UNREACHABLE + 1);
+		mAffectedSquares = new int[Bitboard.SQUARE_COUNT];
+	}
+
+	/**
+	 * Dijkstra with unit weights over the queued squares, lowering the distance of their
+	 * neighbours until the queue is empty
+	 */
+	private void relax(Bitboard board) {
+		int square;
+		while ((square = mQueue.pop()) != Bitboard.NONE) {
+			int distance = mDistances[square] + 1;
+			for (int direction = Bitboard.UP; direction <= Bitboard.RIGHT; direction++) {
+				if (!board.canStep(square, direction)) continue;
+				int neighbour = Bitboard.neighbour(square, direction);
+				if (distance < mDistances[neighbour]) {
+					mDistances[neighbour] = distance;
+					mQueue.push(neighbour, distance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return True if the square is on the victory line or has an open, unaffected neighbour one
+	 * step closer to it
+	 */
+	private boolean hasSupport(Bitboard board, int square) {
+		int distance = mDistances[square];
+		if (distance == 0) return true;
+		for (int direction = Bitboard.UP; direction <= Bitboard.RIGHT; direction++) {
+			if (!board.canStep(square, direction)) continue;
+			int neighbour = Bitboard.neighbour(square, direction);
+			if (mDistances[neighbour] == distance - 1 && !isAffected(neighbour)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Writes the two edges a wall cuts, as pairs of adjacent squares. The second square of each
+	 * pair is above (horizontal wall) or right of (vertical wall) the first one
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot The slot of the wall
+	 * @param edges Buffer of size 4 receiving (a, b, c, d) for edges a-b and c-d
+	 * @return The number of squares written (always 4)
+	 */
+	static int getCutEdges(int wallType, int slot, int[] edges) {
+		int x = Bitboard.slotX(wallType, slot);
+		int y = Bitboard.slotY(wallType, slot);
+		if (wallType == Quoridor.HORIZONTAL) {
+			// Between rows y - 1 and y, for columns x and x + 1
+			edges[0] = Bitboard.square(x, y - 1);
+			edges[1] = Bitboard.square(x, y);
+			edges[2] = Bitboard.square(x + 1, y - 1);
+			edges[3] = Bitboard.square(x + 1, y);
+		} else {
+			// Between columns x - 1 and x, for rows y and y + 1
+			edges[0] = Bitboard.square(x - 1, y);
+			edges[1] = Bitboard.square(x, y);
+			edges[2] = Bitboard.square(x - 1, y + 1);
+			edges[3] = Bitboard.square(x, y + 1);
+		}
+		return 4;
+	}
+
+	private boolean isAffected(int square) {
+		return square < 64 ? (mAffectedLow & (1L << square)) != 0 : (mAffectedHigh & (1L << (square - 64))) != 0;
+	}
+
+	private void markAffected(int square) {
+		if (square < 64)
+			mAffectedLow |= 1L << square;
+		else
+			mAffectedHigh |= 1L << (square - 64);
+	}
+}
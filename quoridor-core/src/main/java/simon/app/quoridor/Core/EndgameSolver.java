@@ -0,0 +1,262 @@
+package simon.app.quoridor.Core;
+
+/**
+ * Exact solver for the pawn race left once both players have placed all their walls. The walls
+ * are then fixed, so the game is played on a graph of 2 x 81 x 81 states (player to move and both
+ * pawn squares), with the jump rules of Bitboard#generatePawnMoves.
+ *
+ * The whole graph is solved by retrograde analysis from the finished games: a state is won if a
+ * move leads to a lost state, and lost once all its moves lead to won states. States never reached
+ * this way are draws (both players can keep each other from finishing forever). Solving takes about
+ * a millisecond and is done again only when the walls change; a query is then a table lookup.
+ *
+ * Results are from the point of view of the player to move. Instances are not thread safe.
+ */
+public class EndgameSolver {
+	/**
+	 * Results
+	 */
+	public static final int WIN = 1;
+	public static final int LOSS = 2;
+	public static final int DRAW = 3;
+
+	private static final int UNKNOWN = 0;
+	private static final int STATE_COUNT = 2 * Bitboard.SQUARE_COUNT * Bitboard.SQUARE_COUNT;
+
+	// Solution, by state
+	private final byte[] mResults = new byte[STATE_COUNT];
+	private final short[] mDistances = new short[STATE_COUNT];
+
+	// Retrograde analysis buffers: predecessor lists in compressed rows, and moves left to refute
+	private final int[] mPredecessorStarts = new int[STATE_COUNT + 1];
+	private final int[] mPredecessors = new int[STATE_COUNT * Bitboard.MAX_PAWN_MOVES];
+	private final int[] mMovesLeft = new int[STATE_COUNT];
+	private final int[] mQueue = new int[STATE_COUNT];
+	private final int[] mMoveBuffer = new int[Bitboard.MAX_PAWN_MOVES];
+
+	// Walls of the current solution
+	private boolean mSolved = false;
+	private long mHorizontalWalls;
+	private long mVerticalWalls;
+
+	// Result of the last query
+	private int mDistance;
+	private int mBestMove = Move.NONE;
+
+	/**
+	 * @param position A position
+	 * @return True if neither player can place a wall anymore, so the solver applies
+	 */
+	public static boolean isApplicable(Position position) {
+		return position.getWallsLeft(1) <= 0 && position.getWallsLeft(2) <= 0;
+	}
+
+	/**
+	 * Solves a position. The solution of the walls is computed if they changed since the last call
+	 * @param position A position where isApplicable is true
+	 * @param playerNumber The player to move (1 or 2)
+	 * @return WIN, LOSS or DRAW, with optimal play from both players
+	 */
+	public int solve(Position position, int playerNumber) {
+		Bitboard board = position.getBoard();
+		prepare(board);
+
+		int state = state(playerNumber, board.mPlayerOneSquare, board.mPlayerTwoSquare);
+		int result = mResults[state];
+		mDistance = result == DRAW ? -1 : mDistances[state];
+		mBestMove = findBestMove(board, playerNumber, result);
+		return result;
+	}
+
+	/**
+	 * @param board A board
+	 * @return True if the solution of the walls of the board is already computed, so that solving
+	 * a position with them is only a lookup
+	 */
+	public boolean isSolved(Bitboard board) {
+		return mSolved && board.getWalls(Quoridor.HORIZONTAL) == mHorizontalWalls
+				&& board.getWalls(Quoridor.VERTICAL) == mVerticalWalls;
+	}
+
+	/**
+	 * @return The number of plies until the end of the game in the last position solved,
+	 * with the winner finishing as fast as possible and the loser resisting as long as possible,
+	 * or -1 for a draw
+	 */
+	public int getDistance() {
+		return mDistance;
+	}
+
+	/**
+	 * @return The optimal move in the last position solved, or Move.NONE if the game is over
+	 */
+	public int getBestMove() {
+		return mBestMove;
+	}
+
+	//==============================================================================================
+	// Retrograde analysis
+	//==============================================================================================
+
+	/**
+	 * Solves every state for the walls of a board, unless they are those of the current solution
+	 */
+	private void prepare(Bitboard board) {
+		if (isSolved(board)) return;
+
+		buildPredecessors(board);
+
+		// Finished games
+		int queueEnd = 0;
+		for (int state = 0; state < STATE_COUNT; state++) {
+			mResults[state] = UNKNOWN;
+			int playerNumber = statePlayer(state);
+			int playerOneSquare = statePlayerOneSquare(state);
+			int playerTwoSquare = statePlayerTwoSquare(state);
+			if (playerOneSquare == playerTwoSquare) continue;
+
+			int opponent = 3 - playerNumber;
+			int playerSquare = playerNumber == 1 ? playerOneSquare : playerTwoSquare;
+			int opponentSquare = playerNumber == 1 ? playerTwoSquare : playerOneSquare;
+			if (PathFinder.isGoal(opponent, opponentSquare)) {
+				mResults[state] = LOSS;
+			} else if (PathFinder.isGoal(playerNumber, playerSquare)) {
+				mResults[state] = WIN;
+			} else {
+				continue;
+			}
+			mDistances[state] = 0;
+			mQueue[queueEnd++] = state;
+		}
+
+		// Breadth-first from the finished games, so that distances are optimal
+		for (int queueStart = 0; queueStart < queueEnd; queueStart++) {
+			int state = mQueue[queueStart];
+			boolean lost = mResults[state] == LOSS;
+			int distance = mDistances[state] + 1;
+			for (int i = mPredecessorStarts[state]; i < mPredecessorStarts[state + 1]; i++) {
+				int predecessor = mPredecessors[i];
+				if (mResults[predecessor] != UNKNOWN) continue;
+				if (lost) {
+					mResults[predecessor] = WIN;
+				} else if (--mMovesLeft[predecessor] == 0) {
+					mResults[predecessor] = LOSS;
+				} else {
+					continue;
+				}
+				mDistances[predecessor] = (short) distance;
+				mQueue[queueEnd++] = predecessor;
+			}
+		}
+
+		for (int state = 0; state < STATE_COUNT; state++) {
+			if (mResults[state] == UNKNOWN) mResults[state] = DRAW;
+		}
+		mHorizontalWalls = board.getWalls(Quoridor.HORIZONTAL);
+		mVerticalWalls = board.getWalls(Quoridor.VERTICAL);
+		mSolved = true;
+	}
+
+	/**
+	 * Generates the moves of every unfinished state and stores them reversed, as predecessor lists
+	 */
+	private void buildPredecessors(Bitboard board) {
+		for (int state = 0; state <= STATE_COUNT; state++) {
+			mPredecessorStarts[state] = 0;
+		}
+
+		// Count the predecessors of each state
+		for (int state = 0; state < STATE_COUNT; state++) {
+			int count = generateSuccessors(board, state);
+			mMovesLeft[state] = count;
+			for (int i = 0; i < count; i++) {
+				mPredecessorStarts[mMoveBuffer[i]]++;
+			}
+		}
+
+		// Turn the counts into the ends of the lists, then fill each list backwards to its start
+		for (int state = 1; state <= STATE_COUNT; state++) {
+			mPredecessorStarts[state] += mPredecessorStarts[state - 1];
+		}
+		for (int state = 0; state < STATE_COUNT; state++) {
+			int count = generateSuccessors(board, state);
+			for (int i = 0; i < count; i++) {
+				mPredecessors[--mPredecessorStarts[mMoveBuffer[i]]] = state;
+			}
+		}
+	}
+
+	/**
+	 * Writes the successor states of a state into mMoveBuffer
+	 * @return The number of successors, 0 if the game is over or the state impossible
+	 */
+	private int generateSuccessors(Bitboard board, int state) {
+		int playerNumber = statePlayer(state);
+		int playerOneSquare = statePlayerOneSquare(state);
+		int playerTwoSquare = statePlayerTwoSquare(state);
+		if (playerOneSquare == playerTwoSquare
+				|| PathFinder.isGoal(1, playerOneSquare) || PathFinder.isGoal(2, playerTwoSquare))
+			return 0;
+
+		int playerSquare = playerNumber == 1 ? playerOneSquare : playerTwoSquare;
+		int opponentSquare = playerNumber == 1 ? playerTwoSquare : playerOneSquare;
+		int count = board.generatePawnMoves(playerSquare, opponentSquare, false, mMoveBuffer, 0);
+		for (int i = 0; i < count; i++) {
+			mMoveBuffer[i] = playerNumber == 1
+					? state(2, mMoveBuffer[i], playerTwoSquare)
+					: state(1, playerOneSquare, mMoveBuffer[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * Picks the move keeping the result: the fastest win, the slowest loss, or a move to a drawn
+	 * state
+	 */
+	private int findBestMove(Bitboard board, int playerNumber, int result) {
+		int playerSquare = board.getPlayerSquare(playerNumber);
+		int opponentSquare = board.getPlayerSquare(3 - playerNumber);
+		if (PathFinder.isGoal(1, board.mPlayerOneSquare) || PathFinder.isGoal(2, board.mPlayerTwoSquare))
+			return Move.NONE;
+
+		int count = board.generatePawnMoves(playerSquare, opponentSquare, false, mMoveBuffer, 0);
+		int bestMove = Move.NONE;
+		int bestDistance = 0;
+		for (int i = 0; i < count; i++) {
+			int square = mMoveBuffer[i];
+			int child = playerNumber == 1
+					? state(2, square, board.mPlayerTwoSquare)
+					: state(1, board.mPlayerOneSquare, square);
+			int childResult = mResults[child];
+			int childDistance = mDistances[child];
+			boolean better;
+			if (result == WIN)
+				better = childResult == LOSS && (bestMove == Move.NONE || childDistance < bestDistance);
+			else if (result == LOSS)
+				better = childResult == WIN && (bestMove == Move.NONE || childDistance > bestDistance);
+			else
+				better = childResult == DRAW && bestMove == Move.NONE;
+			if (better) {
+				bestMove = Move.pawn(square);
+				bestDistance = childDistance;
+			}
+		}
+		return bestMove;
+	}
+
+	private static int state(int playerNumber, int playerOneSquare, int playerTwoSquare) {
+		return ((playerNumber - 1) * Bitboard.SQUARE_COUNT + playerOneSquare) * Bitboard.SQUARE_COUNT + playerTwoSquare;
+	}
+
+	private static int statePlayer(int state) {
+		return state / (Bitboard.SQUARE_COUNT * Bitboard.SQUARE_COUNT) + 1;
+	}
+
+	private static int statePlayerOneSquare(int state) {
+		return state / Bitboard.SQUARE_COUNT % Bitboard.SQUARE_COUNT;
+	}
+
+	private static int statePlayerTwoSquare(int state) {
+		return state % Bitboard.SQUARE_COUNT;
+	}
+}
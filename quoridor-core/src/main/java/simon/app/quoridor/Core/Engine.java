@@ -0,0 +1,32 @@
+package simon.app.quoridor.Core;
+
+/**
+ * A computer player, so that engines can be swapped in the game and pitted against each other
+ */
+public interface Engine {
+
+	/**
+	 * Finds the move to play in a position
+	 * @param position The position. It is not modified while the search runs
+	 * @param playerNumber The player to move (1 or 2)
+	 * @return The move, or Move.NONE if the player has no move
+	 * @see Move
+	 */
+	int findBestMove(Position position, int playerNumber);
+
+	/**
+	 * @param timeBudgetMillis The time, in milliseconds, the engine may think for the next moves,
+	 *                         or AlphaBetaEngine.NO_TIME_LIMIT
+	 */
+	void setTimeBudget(long timeBudgetMillis);
+
+	/**
+	 * @param openingBook The book to play from while the position is in it, or null
+	 */
+	void setOpeningBook(OpeningBook openingBook);
+
+	/**
+	 * Stops the threads of the engine, if any. The engine must not be used afterwards
+	 */
+	void shutdown();
+}
@@ -0,0 +1,52 @@
+package simon.app.quoridor.Core;
+
+import java.io.IOException;
+
+/**
+ * Transport to a Quoridor server, which plays player 2 against the user. Requests are asynchronous
+ * and their responses are the JSON texts of the server API, read with GameStateCodec.readResponse:
+ * the ID and state of the game to begin a game, and the state of the game after a move.
+ *
+ * Implementations can talk to the remote API or run the games in the process, so the game and the
+ * load tests do not depend on the network.
+ */
+public interface GameServer {
+
+	/**
+	 * Receives the response to a request, on a thread of the server
+	 */
+	interface Callback {
+
+		/**
+		 * @param response The JSON text of the response
+		 */
+		void onResponse(String response);
+
+		/**
+		 * @param e Why the request failed: the server could not be reached, or refused the request
+		 *          with a RefusedRequestException
+		 */
+		void onFailure(IOException e);
+	}
+
+	/**
+	 * Begins a new game, the user being player 1
+	 * @param idul The identifier of the user
+	 * @param callback Receives the ID and state of the game
+	 */
+	void beginGame(String idul, Callback callback);
+
+	/**
+	 * Plays a move of the user, to which the server answers with its own
+	 * @param gameID The ID of the game
+	 * @param moveType The type of move ('D' for move, 'MH' for horizontal wall, 'MV' for vertical wall)
+	 * @param position The position (x, y) of the move
+	 * @param callback Receives the state of the game after the move of the server
+	 */
+	void makeMove(String gameID, String moveType, String position, Callback callback);
+
+	/**
+	 * Releases the threads and connections of the server. It must not be used afterwards
+	 */
+	void shutdown();
+}
@@ -0,0 +1,522 @@
+package simon.app.quoridor.Core;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.List;
+
+/**
+ * Streaming reader and writer of the server's JSON game state:
+ * {"joueurs": [{"nom", "murs", "pos"}, ...], "murs": {"horizontaux": [...], "verticaux": [...]}}.
+ *
+ * Unlike QuoridorJSON, no JSON tree is built. The reader walks the text once, keeping what it reads
+ * in scratch arrays, and only then applies it to the game, so a malformed state leaves the game
+ * unchanged. The writer appends to a reused StringBuilder. Once warmed up, a state read after a
+ * move allocates only its new wall, and a write allocates nothing.
+ *
+ * Not thread safe: use one codec per thread.
+ */
+public class GameStateCodec {
+	private static final String KEY_PLAYERS = "joueurs";
+	private static final String KEY_NAME = "nom";
+	private static final String KEY_WALLS = "murs";
+	private static final String KEY_POSITION = "pos";
+	private static final String KEY_HORIZONTAL_WALLS = "horizontaux";
+	private static final String KEY_VERTICAL_WALLS = "verticaux";
+	private static final String KEY_ID = "id";
+	private static final String KEY_STATE = "\u00e9tat";
+	private static final String KEY_MESSAGE = "message";
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Output of write(Quoridor), reused by every call
+	 */
+	private final StringBuilder mOutput = new StringBuilder(512);
+
+	/**
+	 * Text being read and index of the next character
+	 */
+	private CharSequence mInput;
+	private int mIndex;
+
+	/**
+	 * Last string or key read
+	 */
+	private final StringBuilder mString = new StringBuilder(32);
+
+	/**
+	 * State read, applied to the game once the whole text is read
+	 */
+	private final StringBuilder[] mNames = {new StringBuilder(16), new StringBuilder(16)};
+	private final int[] mWallsLeft = new int[2];
+	private final int[] mPositions = new int[4];
+	private final int[] mHorizontalWalls = new int[2 * Bitboard.WALL_SLOT_COUNT];
+	private final int[] mVerticalWalls = new int[2 * Bitboard.WALL_SLOT_COUNT];
+	private int mHorizontalWallCount;
+	private int mVerticalWallCount;
+
+	//==============================================================================================
+	// Reading
+	//==============================================================================================
+
+	/**
+	 * Parses a game state and modifies a game to match it. Keys other than those of the game state
+	 * are skipped
+	 * @param gameState The game state
+	 * @param quoridor The game to modify. Left unchanged if the game state is malformed
+	 * @throws ParseException if the game state is malformed
+	 */
+	public void read(CharSequence gameState, Quoridor quoridor) throws ParseException {
+		begin(gameState);
+		try {
+			readState();
+			end();
+		} finally {
+			mInput = null;
+		}
+		apply(quoridor);
+	}
+
+	/**
+	 * Parses a server response, an object with the game ID under "id" and the game state under
+	 * "etat" with an acute accent, and modifies a game to match its game state. Other keys are
+	 * skipped
+	 * @param response The server response
+	 * @param quoridor The game to modify. Left unchanged if the response is malformed
+	 * @return The game ID of the response, or null if it has none
+	 * @throws ParseException if the response is malformed or has no game state
+	 */
+	public String readResponse(CharSequence response, Quoridor quoridor) throws ParseException {
+		String gameID = null;
+		boolean hasState = false;
+		begin(response);
+		try {
+			expect('{');
+			if (!consume('}')) {
+				do {
+					readKey();
+					if (KEY_ID.contentEquals(mString)) {
+						readString(mString);
+						gameID = mString.toString();
+					} else if (KEY_STATE.contentEquals(mString)) {
+						readState();
+						hasState = true;
+					} else {
+						skipValue();
+					}
+				} while (consume(','));
+				expect('}');
+			}
+			end();
+			if (!hasState) throw error("No " + KEY_STATE);
+		} finally {
+			mInput = null;
+		}
+		apply(quoridor);
+		return gameID;
+	}
+
+	private void apply(Quoridor quoridor) {
+		if (!quoridor.mPlayerOneName.contentEquals(mNames[0])) quoridor.mPlayerOneName = mNames[0].toString();
+		if (!quoridor.mPlayerTwoName.contentEquals(mNames[1])) quoridor.mPlayerTwoName = mNames[1].toString();
+		quoridor.setGameState(mPositions[0], mPositions[1], mWallsLeft[0], mPositions[2], mPositions[3], mWallsLeft[1],
+				mHorizontalWalls, mHorizontalWallCount, mVerticalWalls, mVerticalWallCount);
+	}
+
+	private void readState() throws ParseException {
+		boolean hasPlayers = false;
+		boolean hasWalls = false;
+		expect('{');
+		if (!consume('}')) {
+			do {
+				readKey();
+				if (KEY_PLAYERS.contentEquals(mString)) {
+					readPlayers();
+					hasPlayers = true;
+				} else if (KEY_WALLS.contentEquals(mString)) {
+					readWalls();
+					hasWalls = true;
+				} else {
+					skipValue();
+				}
+			} while (consume(','));
+			expect('}');
+		}
+		if (!hasPlayers || !hasWalls) throw error("Game state needs " + KEY_PLAYERS + " and " + KEY_WALLS);
+	}
+
+	private void readPlayers() throws ParseException {
+		int playerCount = 0;
+		expect('[');
+		if (!consume(']')) {
+			do {
+				if (playerCount < 2) readPlayer(playerCount);
+				else skipValue();
+				playerCount++;
+			} while (consume(','));
+			expect(']');
+		}
+		if (playerCount < 2) throw error("Two players are needed");
+	}
+
+	private void readPlayer(int index) throws ParseException {
+		boolean hasName = false;
+		boolean hasWallsLeft = false;
+		boolean hasPosition = false;
+		expect('{');
+		if (!consume('}')) {
+			do {
+				readKey();
+				if (KEY_NAME.contentEquals(mString)) {
+					readString(mNames[index]);
+					hasName = true;
+				} else if (KEY_WALLS.contentEquals(mString)) {
+					mWallsLeft[index] = readInt();
+					hasWallsLeft = true;
+				} else if (KEY_POSITION.contentEquals(mString)) {
+					readCoordinates(mPositions, 2 * index);
+					hasPosition = true;
+				} else {
+					skipValue();
+				}
+			} while (consume(','));
+			expect('}');
+		}
+		if (!hasName || !hasWallsLeft || !hasPosition)
+			throw error("Player needs " + KEY_NAME + ", " + KEY_WALLS + " and " + KEY_POSITION);
+	}
+
+	private void readWalls() throws ParseException {
+		boolean hasHorizontalWalls = false;
+		boolean hasVerticalWalls = false;
+		expect('{');
+		if (!consume('}')) {
+			do {
+				readKey();
+				if (KEY_HORIZONTAL_WALLS.contentEquals(mString)) {
+					mHorizontalWallCount = readCoordinatesList(mHorizontalWalls);
+					hasHorizontalWalls = true;
+				} else if (KEY_VERTICAL_WALLS.contentEquals(mString)) {
+					mVerticalWallCount = readCoordinatesList(mVerticalWalls);
+					hasVerticalWalls = true;
+				} else {
+					skipValue();
+				}
+			} while (consume(','));
+			expect('}');
+		}
+		if (!hasHorizontalWalls || !hasVerticalWalls)
+			throw error("Walls need " + KEY_HORIZONTAL_WALLS + " and " + KEY_VERTICAL_WALLS);
+	}
+
+	/**
+	 * @return The number of coordinates read into coordinates, one (x, y) pair after the other
+	 */
+	private int readCoordinatesList(int[] coordinates) throws ParseException {
+		int count = 0;
+		expect('[');
+		if (!consume(']')) {
+			do {
+				if (2 * count == coordinates.length) throw error("Too many walls");
+				readCoordinates(coordinates, 2 * count++);
+			} while (consume(','));
+			expect(']');
+		}
+		return count;
+	}
+
+	private void readCoordinates(int[] coordinates, int offset) throws ParseException {
+		expect('[');
+		coordinates[offset] = readInt();
+		expect(',');
+		coordinates[offset + 1] = readInt();
+		expect(']');
+	}
+
+	//==============================================================================================
+	// Tokens
+	//==============================================================================================
+
+	private void begin(CharSequence input) {
+		mInput = input;
+		mIndex = 0;
+	}
+
+	private void end() throws ParseException {
+		skipWhitespace();
+		if (mIndex != mInput.length()) throw error("Unexpected character");
+	}
+
+	private void skipWhitespace() {
+		while (mIndex < mInput.length()) {
+			char c = mInput.charAt(mIndex);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return;
+			mIndex++;
+		}
+	}
+
+	/**
+	 * Skips whitespace then the character c if it is next
+	 * @return True if c was next
+	 */
+	private boolean consume(char c) {
+		skipWhitespace();
+		if (mIndex < mInput.length() && mInput.charAt(mIndex) == c) {
+			mIndex++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(char c) throws ParseException {
+		if (!consume(c)) throw error("Expected '" + c + "'");
+	}
+
+	/**
+	 * Reads an object key and its colon into mString
+	 */
+	private void readKey() throws ParseException {
+		readString(mString);
+		expect(':');
+	}
+
+	private void readString(StringBuilder out) throws ParseException {
+		expect('"');
+		out.setLength(0);
+		while (mIndex < mInput.length()) {
+			char c = mInput.charAt(mIndex++);
+			if (c == '"') return;
+			if (c != '\\') {
+				out.append(c);
+				continue;
+			}
+			if (mIndex == mInput.length()) break;
+			char escaped = mInput.charAt(mIndex++);
+			switch (escaped) {
+				case '"':
+				case '\\':
+				case '/':
+					out.append(escaped);
+					break;
+				case 'b':
+					out.append('\b');
+					break;
+				case 'f':
+					out.append('\f');
+					break;
+				case 'n':
+					out.append('\n');
+					break;
+				case 'r':
+					out.append('\r');
+					break;
+				case 't':
+					out.append('\t');
+					break;
+				case 'u':
+					out.append(readHexChar());
+					break;
+				default:
+					throw error("Invalid escape");
+			}
+		}
+		throw error("Unterminated string");
+	}
+
+	private char readHexChar() throws ParseException {
+		if (mIndex + 4 > mInput.length()) throw error("Invalid escape");
+		int value = 0;
+		for (int i = 0; i < 4; i++) {
+			int digit = Character.digit(mInput.charAt(mIndex++), 16);
+			if (digit < 0) throw error("Invalid escape");
+			value = value << 4 | digit;
+		}
+		return (char) value;
+	}
+
+	/**
+	 * Reads a number, which must be an integer
+	 */
+	private int readInt() throws ParseException {
+		skipWhitespace();
+		boolean negative = mIndex < mInput.length() && mInput.charAt(mIndex) == '-';
+		if (negative) mIndex++;
+		int start = mIndex;
+		long value = 0;
+		while (mIndex < mInput.length()) {
+			char c = mInput.charAt(mIndex);
+			if (c < '0' || c > '9') break;
+			value = value * 10 + (c - '0');
+			if (value > Integer.MAX_VALUE) throw error("Number too large");
+			mIndex++;
+		}
+		if (mIndex == start) throw error("Expected a number");
+		if (mIndex < mInput.length()) {
+			char c = mInput.charAt(mIndex);
+			if (c == '.' || c == 'e' || c == 'E') throw error("Expected an integer");
+		}
+		return (int) (negative ? -value : value);
+	}
+
+	/**
+	 * Skips a value of any type
+	 */
+	private void skipValue() throws ParseException {
+		skipWhitespace();
+		if (mIndex == mInput.length()) throw error("Expected a value");
+		char c = mInput.charAt(mIndex);
+		if (c == '"') {
+			readString(mString);
+		} else if (c == '{') {
+			mIndex++;
+			if (!consume('}')) {
+				do {
+					readKey();
+					skipValue();
+				} while (consume(','));
+				expect('}');
+			}
+		} else if (c == '[') {
+			mIndex++;
+			if (!consume(']')) {
+				do {
+					skipValue();
+				} while (consume(','));
+				expect(']');
+			}
+		} else {
+			// Number, true, false or null
+			int start = mIndex;
+			while (mIndex < mInput.length() && isLiteralChar(mInput.charAt(mIndex))) {
+				mIndex++;
+			}
+			if (mIndex == start) throw error("Expected a value");
+		}
+	}
+
+	private static boolean isLiteralChar(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || c == '-' || c == '+' || c == '.' || c == 'E';
+	}
+
+	private ParseException error(String message) {
+		return new ParseException(message + " at index " + mIndex, mIndex);
+	}
+
+	//==============================================================================================
+	// Writing
+	//==============================================================================================
+
+	/**
+	 * @param quoridor A game
+	 * @return The game state, in a builder reused by the next call
+	 */
+	public StringBuilder write(Quoridor quoridor) {
+		mOutput.setLength(0);
+		write(quoridor, mOutput);
+		return mOutput;
+	}
+
+	/**
+	 * Appends the game state. Characters outside of printable ASCII are escaped, so the text is
+	 * also valid ASCII and UTF-8
+	 * @param quoridor A game
+	 * @param out The builder to append to
+	 */
+	public void write(Quoridor quoridor, StringBuilder out) {
+		out.append("{\"").append(KEY_PLAYERS).append("\":[");
+		appendPlayer(out, quoridor.mPlayerOneName, quoridor.mPlayerOneWallsLeft, quoridor.mPlayerOnePosition);
+		out.append(',');
+		appendPlayer(out, quoridor.mPlayerTwoName, quoridor.mPlayerTwoWallsLeft, quoridor.mPlayerTwoPosition);
+		out.append("],\"").append(KEY_WALLS).append("\":{\"").append(KEY_HORIZONTAL_WALLS).append("\":");
+		appendCoordinatesList(out, quoridor.mHorizontalWalls);
+		out.append(",\"").append(KEY_VERTICAL_WALLS).append("\":");
+		appendCoordinatesList(out, quoridor.mVerticalWalls);
+		out.append("}}");
+	}
+
+	/**
+	 * Writes a server response, as read by readResponse
+	 * @param gameID The game ID, or null to leave it out
+	 * @param quoridor A game
+	 * @return The response, in a builder reused by the next call
+	 */
+	public StringBuilder writeResponse(String gameID, Quoridor quoridor) {
+		mOutput.setLength(0);
+		mOutput.append('{');
+		if (gameID != null) {
+			appendString(mOutput.append('"').append(KEY_ID).append("\":"), gameID);
+			mOutput.append(',');
+		}
+		appendString(mOutput, KEY_STATE);
+		mOutput.append(':');
+		write(quoridor, mOutput);
+		mOutput.append('}');
+		return mOutput;
+	}
+
+	/**
+	 * Writes the response of a server refusing a request
+	 * @param message Why the request was refused
+	 * @return The response, {"message": ...}, in a builder reused by the next call
+	 */
+	public StringBuilder writeError(String message) {
+		mOutput.setLength(0);
+		appendString(mOutput.append("{\"").append(KEY_MESSAGE).append("\":"), message);
+		mOutput.append('}');
+		return mOutput;
+	}
+
+	/**
+	 * Writes the game state as ASCII bytes
+	 * @param quoridor A game
+	 * @param out The buffer to write to, from its position
+	 * @throws BufferOverflowException if the buffer has not enough room, in which case nothing is
+	 * written
+	 */
+	public void write(Quoridor quoridor, ByteBuffer out) {
+		StringBuilder text = write(quoridor);
+		if (out.remaining() < text.length()) throw new BufferOverflowException();
+		for (int i = 0; i < text.length(); i++) {
+			out.put((byte) text.charAt(i));
+		}
+	}
+
+	private static void appendPlayer(StringBuilder out, String name, int wallsLeft, int[] position) {
+		out.append("{\"").append(KEY_NAME).append("\":");
+		appendString(out, name);
+		out.append(",\"").append(KEY_WALLS).append("\":").append(wallsLeft);
+		out.append(",\"").append(KEY_POSITION).append("\":");
+		appendCoordinates(out, position);
+		out.append('}');
+	}
+
+	private static void appendCoordinatesList(StringBuilder out, List<int[]> coordinatesList) {
+		out.append('[');
+		for (int i = 0; i < coordinatesList.size(); i++) {
+			if (i > 0) out.append(',');
+			appendCoordinates(out, coordinatesList.get(i));
+		}
+		out.append(']');
+	}
+
+	private static void appendCoordinates(StringBuilder out, int[] coordinates) {
+		out.append('[').append(coordinates[0]).append(',').append(coordinates[1]).append(']');
+	}
+
+	private static void appendString(StringBuilder out, String text) {
+		out.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				out.append('\\').append(c);
+			} else if (c < 0x20 || c > 0x7e) {
+				out.append("\\u").append(HEX_DIGITS[c >> 12]).append(HEX_DIGITS[(c >> 8) & 0xf])
+						.append(HEX_DIGITS[(c >> 4) & 0xf]).append(HEX_DIGITS[c & 0xf]);
+			} else {
+				out.append(c);
+			}
+		}
+		out.append('"');
+	}
+}
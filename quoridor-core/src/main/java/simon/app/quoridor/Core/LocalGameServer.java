@@ -0,0 +1,203 @@
+package simon.app.quoridor.Core;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Game server running in the process, with an engine as the opponent. Answers like the remote API
+ * without its network latency, for offline games and for load tests.
+ *
+ * Requests are served one at a time on a thread of the server, in the order they were made, since
+ * the engine and the codec are not thread safe.
+ */
+public class LocalGameServer implements GameServer {
+	/**
+	 * Name of the server player
+	 */
+	public static final String SERVER_PLAYER_NAME = "robot";
+
+	/**
+	 * Time the default engine thinks for each move, in milliseconds
+	 */
+	public static final long DEFAULT_TIME_BUDGET = 500;
+
+	private final Engine mEngine;
+	private final GameStateCodec mCodec = new GameStateCodec();
+	private final Map<String, Quoridor> mGames = new ConcurrentHashMap<>();
+	private final ExecutorService mExecutor;
+
+	/**
+	 * Creates a server playing with an AlphaBetaEngine thinking DEFAULT_TIME_BUDGET per move
+	 */
+	public LocalGameServer() {
+		this((OpeningBook) null);
+	}
+
+	/**
+	 * Creates a server playing with an AlphaBetaEngine thinking DEFAULT_TIME_BUDGET per move
+	 * @param openingBook The book the engine plays the first plies from, or null
+	 */
+	public LocalGameServer(OpeningBook openingBook) {
+		this(newEngine(openingBook));
+	}
+
+	/**
+	 * @param engine The engine playing the moves of the server. Shut down with the server
+	 */
+	public LocalGameServer(Engine engine) {
+		mEngine = engine;
+		mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "local-game-server");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private static Engine newEngine(OpeningBook openingBook) {
+		Engine engine = new AlphaBetaEngine(DEFAULT_TIME_BUDGET);
+		engine.setOpeningBook(openingBook);
+		return engine;
+	}
+
+	@Override
+	public void beginGame(final String idul, final Callback callback) {
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				callback.onResponse(beginGame(idul));
+			}
+		});
+	}
+
+	@Override
+	public void makeMove(final String gameID, final String moveType, final String position, final Callback callback) {
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				String response;
+				try {
+					response = makeMove(gameID, moveType, position);
+				} catch (IOException e) {
+					callback.onFailure(e);
+					return;
+				}
+				callback.onResponse(response);
+			}
+		});
+	}
+
+	@Override
+	public void shutdown() {
+		mExecutor.shutdownNow();
+		mEngine.shutdown();
+	}
+
+	//==============================================================================================
+	// Synchronous requests
+	//==============================================================================================
+
+	/**
+	 * Begins a new game, the user being player 1
+	 * @param idul The identifier of the user
+	 * @return The response of the server, with the ID and state of the game
+	 */
+	public synchronized String beginGame(String idul) {
+		Quoridor quoridor = newGame(idul);
+		mGames.put(quoridor.mGameID, quoridor);
+		return mCodec.writeResponse(quoridor.mGameID, quoridor).toString();
+	}
+
+	/**
+	 * Plays a move of the user then, unless the user won, a move of the engine
+	 * @param gameID The ID of the game
+	 * @param moveType The type of move ('D' for move, 'MH' for horizontal wall, 'MV' for vertical wall)
+	 * @param position The position (x, y) of the move
+	 * @return The response of the server, with the state of the game after both moves
+	 * @throws RefusedRequestException if there is no such game, it is over or the move is invalid.
+	 * The game is then unchanged
+	 */
+	public synchronized String makeMove(String gameID, String moveType, String position) throws IOException {
+		Quoridor quoridor = gameID == null ? null : mGames.get(gameID);
+		if (quoridor == null) throw new RefusedRequestException("Unknown game " + gameID);
+		playTurn(quoridor, moveType, position, mEngine);
+		return mCodec.writeResponse(null, quoridor).toString();
+	}
+
+	/**
+	 * @param gameID The ID of a game
+	 * @return The game, or null if there is no such game. Must not be modified
+	 */
+	public Quoridor getGame(String gameID) {
+		return mGames.get(gameID);
+	}
+
+	//==============================================================================================
+	// Game rules of the server
+	//==============================================================================================
+
+	/**
+	 * Creates a game as the server begins it, with a new random ID
+	 * @param idul The identifier of the user, player 1
+	 * @return The game
+	 */
+	public static Quoridor newGame(String idul) {
+		Quoridor quoridor = new Quoridor();
+		quoridor.setGameID(UUID.randomUUID().toString());
+		quoridor.mPlayerOneName = idul;
+		quoridor.mPlayerTwoName = SERVER_PLAYER_NAME;
+		quoridor.movePlayer(1, 5, 1);
+		quoridor.movePlayer(2, 5, 9);
+		return quoridor;
+	}
+
+	/**
+	 * Plays a move of the user then, unless the user won, a move of the engine
+	 * @param quoridor The game
+	 * @param moveType The type of move ('D' for move, 'MH' for horizontal wall, 'MV' for vertical wall)
+	 * @param position The position (x, y) of the move
+	 * @param engine The engine playing for the server
+	 * @throws RefusedRequestException if the game is over or the move is invalid. The game is then
+	 * unchanged
+	 */
+	public static void playTurn(Quoridor quoridor, String moveType, String position, Engine engine) throws IOException {
+		playUserMove(quoridor, moveType, position);
+		playServerMove(quoridor, engine);
+	}
+
+	/**
+	 * Plays a move of the user, the cheap half of a turn
+	 * @param quoridor The game
+	 * @param moveType The type of move ('D' for move, 'MH' for horizontal wall, 'MV' for vertical wall)
+	 * @param position The position (x, y) of the move
+	 * @throws RefusedRequestException if the game is over or the move is invalid. The game is then
+	 * unchanged
+	 */
+	public static void playUserMove(Quoridor quoridor, String moveType, String position) throws IOException {
+		if (quoridor.getWinnerPlayerNumberOrZero() != 0) throw new RefusedRequestException("Game " + quoridor.mGameID + " is over");
+		try {
+			quoridor.requestMove(1, Move.parse(moveType, position));
+		} catch (QuoridorException e) {
+			throw new RefusedRequestException(e.getMessage() + ": " + moveType + " " + position);
+		}
+	}
+
+	/**
+	 * Plays the move of the engine after the one of the user, unless the user won
+	 * @param quoridor The game, with the server to move
+	 * @param engine The engine playing for the server
+	 */
+	public static void playServerMove(Quoridor quoridor, Engine engine) {
+		if (quoridor.getWinnerPlayerNumberOrZero() == 0) {
+			int serverMove = engine.findBestMove(quoridor.getPosition(), 2);
+			if (serverMove != Move.NONE) quoridor.playMove(2, serverMove);
+		}
+	}
+}
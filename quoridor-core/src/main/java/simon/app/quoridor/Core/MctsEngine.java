@@ -0,0 +1,603 @@
+package simon.app.quoridor.Core;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Monte Carlo tree search engine, an alternative to AlphaBetaEngine that copes better with the
+ * large number of wall moves.
+ *
+ * The tree is stored in preallocated parallel arrays, children of a node being contiguous. A leaf
+ * is expanded with all its legal moves once it has had a few rollouts. Children
+ * are selected with UCT, or with PUCT using priors that favour pawn moves toward the goal and walls
+ * on the opponent's shortest path. Each iteration runs a batch of rollouts from the selected leaf,
+ * in which players mostly step along their distance field and sometimes drop a wall on the
+ * opponent's shortest path; a rollout that is too long is scored on the path difference.
+ *
+ * Several threads can grow the same tree. Statistics are atomic, a node is expanded by the first
+ * thread claiming it, and virtual losses on the path being searched steer the other threads
+ * elsewhere. Each thread has its own positions, buffers and random generator, so the search does
+ * not allocate.
+ *
+ * Between moves, the subtree of the new position is kept if it was part of the previous tree. Nodes
+ * are not reclaimed: the tree is cleared when more than half of the node capacity is used, and
+ * leaves stop being expanded if the capacity runs out during a search.
+ *
+ * Instances are not thread safe: findBestMove must not be called concurrently.
+ */
+public class MctsEngine implements Engine {
+	/**
+	 * Selection rules
+	 */
+	public static final int UCT = 0;
+	public static final int PUCT = 1;
+
+	/**
+	 * Defaults used by the constructors that do not take them
+	 */
+	public static final int DEFAULT_NODE_CAPACITY = 1 << 18;
+	public static final int DEFAULT_BATCH_SIZE = 4;
+
+	private static final double UCT_EXPLORATION = 1.4;
+	private static final double PUCT_EXPLORATION = 2.5;
+	private static final double FIRST_PLAY_URGENCY = 0.5;
+	private static final int VIRTUAL_LOSS = 3;
+
+	/**
+	 * Number of rollouts a leaf needs before it is expanded, since a node has up to 133 children
+	 */
+	private static final int EXPANSION_VISITS = 8;
+
+	private static final int MAX_ROLLOUT_PLIES = 160;
+	private static final int ROLLOUT_WALL_PERCENT = 15;
+	private static final int MAX_MOVES = Bitboard.MAX_PAWN_MOVES + 2 * Bitboard.WALL_SLOT_COUNT;
+	private static final int MAX_TREE_DEPTH = 256;
+	private static final int NONE = -1;
+
+	// Expansion states
+	private static final int LEAF = 0;
+	private static final int EXPANDING = 1;
+	private static final int EXPANDED = 2;
+	private static final int CAPACITY_REACHED = 3;
+
+	// Configuration
+	private long mTimeBudgetMillis;
+	private final int mSelection;
+	private final int mBatchSize;
+	private final int mNodeCapacity;
+	private int mMaxIterations = Integer.MAX_VALUE;
+	private OpeningBook mOpeningBook;
+	private final EndgameSolver mEndgameSolver = new EndgameSolver();
+
+	// Tree. The arrays of a node are written before its parent is published as EXPANDED
+	private final int[] mMove;
+	private final byte[] mMover;
+	private final float[] mPrior;
+	private final long[] mKey;
+	private final int[] mFirstChild;
+	private final int[] mChildCount;
+	private final AtomicIntegerArray mExpansionState;
+	private final AtomicIntegerArray mVisits;
+	private final AtomicIntegerArray mHalfPoints;
+	private final AtomicIntegerArray mVirtualLosses;
+	private final AtomicInteger mNodeCount = new AtomicInteger();
+	private int mRoot = NONE;
+
+	// Search
+	private final Position mRootPosition = new Position();
+	private int mRootPlayer;
+	private final AtomicInteger mIterationCount = new AtomicInteger();
+	private volatile boolean mStopped;
+	private long mDeadline;
+	private final Worker[] mWorkers;
+	private final Future<?>[] mHelperFutures;
+	private final ExecutorService mExecutor;
+
+	/**
+	 * Creates a single-threaded PUCT engine
+	 * @param timeBudgetMillis The time, in milliseconds, the engine may think for each move
+	 */
+	public MctsEngine(long timeBudgetMillis) {
+		this(timeBudgetMillis, PUCT, 1, DEFAULT_BATCH_SIZE, DEFAULT_NODE_CAPACITY);
+	}
+
+	/**
+	 * @param timeBudgetMillis The time, in milliseconds, the engine may think for each move
+	 * @param selection UCT or PUCT
+	 * @param threadCount The number of search threads, including the caller's
+	 * @param batchSize The number of rollouts run from each selected leaf
+	 * @param nodeCapacity The maximum number of nodes of the tree
+	 */
+	public MctsEngine(long timeBudgetMillis, int selection, int threadCount, int batchSize, int nodeCapacity) {
+		mTimeBudgetMillis = timeBudgetMillis;
+		mSelection = selection;
+		mBatchSize = Math.max(1, batchSize);
+		mNodeCapacity = Math.max(nodeCapacity, 1 + MAX_MOVES);
+
+		mMove = new int[mNodeCapacity];
+		mMover = new byte[mNodeCapacity];
+		mPrior = new float[mNodeCapacity];
+		mKey = new long[mNodeCapacity];
+		mFirstChild = new int[mNodeCapacity];
+		mChildCount = new int[mNodeCapacity];
+		mExpansionState = new AtomicIntegerArray(mNodeCapacity);
+		mVisits = new AtomicIntegerArray(mNodeCapacity);
+		mHalfPoints = new AtomicIntegerArray(mNodeCapacity);
+		mVirtualLosses = new AtomicIntegerArray(mNodeCapacity);
+
+		threadCount = Math.max(1, threadCount);
+		mWorkers = new Worker[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			mWorkers[i] = new Worker(i);
+		}
+		mHelperFutures = new Future<?>[threadCount];
+		mExecutor = threadCount == 1 ? null : Executors.newFixedThreadPool(threadCount - 1, new ThreadFactory() {
+			private int mCount = 0;
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "mcts-helper-" + (++mCount));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Limits the number of iterations of each search. With a single thread and no time limit, the
+	 * search is then deterministic
+	 * @param maxIterations The maximum number of iterations, each running a batch of rollouts
+	 * @see AlphaBetaEngine#NO_TIME_LIMIT
+	 */
+	public void setMaxIterations(int maxIterations) {
+		mMaxIterations = Math.max(1, maxIterations);
+	}
+
+	/**
+	 * @param timeBudgetMillis The time, in milliseconds, the engine may think for the next moves,
+	 *                         or AlphaBetaEngine.NO_TIME_LIMIT
+	 */
+	@Override
+	public void setTimeBudget(long timeBudgetMillis) {
+		mTimeBudgetMillis = timeBudgetMillis;
+	}
+
+	@Override
+	public void setOpeningBook(OpeningBook openingBook) {
+		mOpeningBook = openingBook;
+	}
+
+	/**
+	 * Finds the move to play in a game
+	 * @param quoridor The game. It is not modified
+	 * @param playerNumber The player to move (1 or 2)
+	 * @return The move, or Move.NONE if the player has no move
+	 * @see Quoridor#playMove(int, int)
+	 */
+	public int findBestMove(Quoridor quoridor, int playerNumber) {
+		return findBestMove(quoridor.getPosition(), playerNumber);
+	}
+
+	/**
+	 * Finds the move to play in a position, reusing the tree of the previous search if the position
+	 * was in it
+	 * @param position The position. It is not modified while the search runs
+	 * @param playerNumber The player to move (1 or 2)
+	 * @return The most visited move, or Move.NONE if the player has no move
+	 */
+	@Override
+	public int findBestMove(Position position, int playerNumber) {
+		long now = System.currentTimeMillis();
+		mDeadline = mTimeBudgetMillis >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + mTimeBudgetMillis;
+		mStopped = false;
+		mIterationCount.set(0);
+		mRootPosition.copyFrom(position);
+		mRootPlayer = playerNumber;
+		if (mOpeningBook != null) {
+			int bookMove = mOpeningBook.getMove(mRootPosition, playerNumber);
+			if (bookMove != Move.NONE) return bookMove;
+		}
+		if (EndgameSolver.isApplicable(mRootPosition)) {
+			mEndgameSolver.solve(mRootPosition, playerNumber);
+			if (mEndgameSolver.getBestMove() != Move.NONE) return mEndgameSolver.getBestMove();
+		}
+		setRoot(position.getKey() ^ Zobrist.sideToMove(playerNumber), playerNumber);
+
+		for (int i = 1; i < mWorkers.length; i++) {
+			mHelperFutures[i] = mExecutor.submit(mWorkers[i]);
+		}
+		mWorkers[0].run();
+		mStopped = true;
+		for (int i = 1; i < mWorkers.length; i++) {
+			try {
+				mHelperFutures[i].get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+
+		int child = getMostVisitedChild(mRoot);
+		return child == NONE ? Move.NONE : mMove[child];
+	}
+
+	/**
+	 * @return The number of iterations of the last search
+	 */
+	public int getIterationCount() {
+		return Math.min(mIterationCount.get(), mMaxIterations);
+	}
+
+	/**
+	 * @return The number of nodes of the tree
+	 */
+	public int getNodeCount() {
+		return Math.min(mNodeCount.get(), mNodeCapacity);
+	}
+
+	/**
+	 * @return The number of rollouts backed up to the root, including those of a reused tree
+	 */
+	public int getRootVisits() {
+		return mRoot == NONE ? 0 : mVisits.get(mRoot);
+	}
+
+	/**
+	 * Stops the helper threads. The engine must not be used afterwards
+	 */
+	@Override
+	public void shutdown() {
+		if (mExecutor != null) mExecutor.shutdownNow();
+	}
+
+	//==============================================================================================
+	// Tree
+	//==============================================================================================
+
+	/**
+	 * Makes the node of a position the root, looking for it among the previous root and its
+	 * descendants two plies deep (the engine's move and the opponent's answer), or starts a new
+	 * tree
+	 */
+	private void setRoot(long key, int playerNumber) {
+		int root = NONE;
+		if (mRoot != NONE && mNodeCount.get() <= mNodeCapacity / 2) root = findNode(mRoot, key, 2);
+
+		if (root == NONE) {
+			root = 0;
+			mNodeCount.set(1);
+			initNode(root, Move.NONE, 3 - playerNumber, 1, key);
+		}
+		mRoot = root;
+	}
+
+	/**
+	 * @return The node with the key among a node and its expanded descendants, or NONE
+	 */
+	private int findNode(int node, long key, int depth) {
+		if (mKey[node] == key) return node;
+		if (depth == 0 || mExpansionState.get(node) != EXPANDED) return NONE;
+		int end = mFirstChild[node] + mChildCount[node];
+		for (int child = mFirstChild[node]; child < end; child++) {
+			int found = findNode(child, key, depth - 1);
+			if (found != NONE) return found;
+		}
+		return NONE;
+	}
+
+	private void initNode(int node, int move, int mover, float prior, long key) {
+		mMove[node] = move;
+		mMover[node] = (byte) mover;
+		mPrior[node] = prior;
+		mKey[node] = key;
+		mVisits.set(node, 0);
+		mHalfPoints.set(node, 0);
+		mVirtualLosses.set(node, 0);
+		mExpansionState.set(node, LEAF);
+	}
+
+	/**
+	 * Picks the child to descend into from the point of view of the player to move at the node
+	 */
+	private int select(int node) {
+		int first = mFirstChild[node];
+		int end = first + mChildCount[node];
+		int parentVisits = mVisits.get(node) + VIRTUAL_LOSS * mVirtualLosses.get(node);
+		double explorationTerm = mSelection == UCT
+				? UCT_EXPLORATION * Math.sqrt(Math.log(parentVisits + 1))
+				: PUCT_EXPLORATION * Math.sqrt(parentVisits + 1);
+
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < end; child++) {
+			int visits = mVisits.get(child) + VIRTUAL_LOSS * mVirtualLosses.get(child);
+			double value;
+			if (mSelection == UCT) {
+				// Children are ordered by prior, so the first unvisited one is the most promising
+				if (visits == 0) return child;
+				value = mHalfPoints.get(child) / (2.0 * visits) + explorationTerm / Math.sqrt(visits);
+			} else {
+				double meanValue = visits == 0 ? FIRST_PLAY_URGENCY : mHalfPoints.get(child) / (2.0 * visits);
+				value = meanValue + explorationTerm * mPrior[child] / (1 + visits);
+			}
+			if (value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return The child of a node with the most visits, or NONE if it has no children
+	 */
+	private int getMostVisitedChild(int node) {
+		if (node == NONE || mExpansionState.get(node) != EXPANDED) return NONE;
+		int first = mFirstChild[node];
+		int end = first + mChildCount[node];
+		int best = NONE;
+		for (int child = first; child < end; child++) {
+			if (best == NONE || mVisits.get(child) > mVisits.get(best)
+					|| (mVisits.get(child) == mVisits.get(best) && mHalfPoints.get(child) > mHalfPoints.get(best)))
+				best = child;
+		}
+		return best;
+	}
+
+	//==============================================================================================
+	// Worker
+	//==============================================================================================
+
+	/**
+	 * Search thread state. All the buffers are allocated once
+	 */
+	private class Worker implements Runnable {
+		private final Position mPosition = new Position();
+		private final Position mRolloutPosition = new Position();
+		private final int[] mPath = new int[MAX_TREE_DEPTH + 1];
+		private final int[] mMoves = new int[MAX_MOVES];
+		private final float[] mWeights = new float[MAX_MOVES];
+		private final long[] mWallMasks = new long[2];
+		private long mRandomState;
+
+		Worker(int index) {
+			mRandomState = 0x2545F4914F6CDD1DL * (index + 1);
+		}
+
+		@Override
+		public void run() {
+			while (!mStopped) {
+				if (mIterationCount.incrementAndGet() > mMaxIterations) break;
+				iterate();
+				if (System.currentTimeMillis() >= mDeadline) break;
+			}
+			mStopped = true;
+		}
+
+		/**
+		 * Selects a leaf, expands it, runs a batch of rollouts from it and backs the result up
+		 */
+		private void iterate() {
+			Position position = mPosition;
+			position.copyFrom(mRootPosition);
+			int player = mRootPlayer;
+			int node = mRoot;
+			int depth = 0;
+			mPath[depth++] = node;
+			mVirtualLosses.incrementAndGet(node);
+
+			while (position.getWinner() == 0 && depth <= MAX_TREE_DEPTH) {
+				int state = mExpansionState.get(node);
+				boolean expandable = node == mRoot || mVisits.get(node) >= EXPANSION_VISITS;
+				if (state == LEAF && expandable && mExpansionState.compareAndSet(node, LEAF, EXPANDING)) {
+					if (!expand(node, player)) break;
+				} else if (state != EXPANDED) {
+					break;
+				}
+
+				int child = select(node);
+				position.playMove(player, mMove[child]);
+				player = 3 - player;
+				node = child;
+				mPath[depth++] = node;
+				mVirtualLosses.incrementAndGet(node);
+				if (state != EXPANDED) break;
+			}
+
+			int playerOneHalfPoints = 0;
+			for (int i = 0; i < mBatchSize; i++) {
+				playerOneHalfPoints += rollout(player);
+			}
+
+			for (int i = 0; i < depth; i++) {
+				int pathNode = mPath[i];
+				int halfPoints = mMover[pathNode] == 1 ? playerOneHalfPoints : 2 * mBatchSize - playerOneHalfPoints;
+				mHalfPoints.addAndGet(pathNode, halfPoints);
+				mVisits.addAndGet(pathNode, mBatchSize);
+				mVirtualLosses.decrementAndGet(pathNode);
+			}
+		}
+
+		/**
+		 * Creates the children of a node claimed by this thread, with their priors
+		 * @return False if the node capacity is reached, in which case the node stays a leaf
+		 */
+		private boolean expand(int node, int player) {
+			Position position = mPosition;
+			int count = position.generatePawnMoves(player, mMoves, 0);
+			int pawnMoveCount = count;
+			if (position.getWallsLeft(player) > 0) {
+				position.getLegalWallMasks(mWallMasks);
+				count = appendWalls(Quoridor.HORIZONTAL, mWallMasks[0], mMoves, count);
+				count = appendWalls(Quoridor.VERTICAL, mWallMasks[1], mMoves, count);
+			}
+
+			if (count == 0 || mNodeCount.get() + count > mNodeCapacity) {
+				mExpansionState.set(node, count == 0 ? LEAF : CAPACITY_REACHED);
+				return false;
+			}
+			int first = mNodeCount.getAndAdd(count);
+			if (first + count > mNodeCapacity) {
+				mExpansionState.set(node, CAPACITY_REACHED);
+				return false;
+			}
+
+			computePriors(player, count, pawnMoveCount);
+			sortByWeight(count);
+			for (int i = 0; i < count; i++) {
+				int move = mMoves[i];
+				long key = position.getKeyAfter(player, move) ^ Zobrist.sideToMove(3 - player);
+				initNode(first + i, move, player, mWeights[i], key);
+			}
+			mFirstChild[node] = first;
+			mChildCount[node] = count;
+			mExpansionState.set(node, EXPANDED);
+			return true;
+		}
+
+		private int appendWalls(int wallType, long slots, int[] moves, int count) {
+			while (slots != 0) {
+				moves[count++] = Move.wall(wallType, Long.numberOfTrailingZeros(slots));
+				slots &= slots - 1;
+			}
+			return count;
+		}
+
+		/**
+		 * Writes normalised priors into mWeights: pawn moves shortening the player's path weigh most,
+		 * then walls on the opponent's shortest path, then the other moves
+		 */
+		private void computePriors(int player, int count, int pawnMoveCount) {
+			Position position = mPosition;
+			DistanceMap distances = position.getDistanceMap(player);
+			int distance = position.getDistanceToVictory(player);
+			int opponent = 3 - player;
+			long horizontalPathSlots = position.getShortestPathSlots(opponent, Quoridor.HORIZONTAL);
+			long verticalPathSlots = position.getShortestPathSlots(opponent, Quoridor.VERTICAL);
+
+			float total = 0;
+			for (int i = 0; i < count; i++) {
+				int move = mMoves[i];
+				float weight;
+				if (i < pawnMoveCount) {
+					int newDistance = distances.getDistance(Move.getSquare(move));
+					weight = newDistance < distance ? 8 : newDistance == distance ? 1 : 0.5f;
+				} else {
+					long pathSlots = Move.getWallType(move) == Quoridor.HORIZONTAL ? horizontalPathSlots : verticalPathSlots;
+					weight = (pathSlots & (1L << Move.getSlot(move))) != 0 ? 2 : 0.05f;
+				}
+				mWeights[i] = weight;
+				total += weight;
+			}
+			for (int i = 0; i < count; i++) {
+				mWeights[i] /= total;
+			}
+		}
+
+		/**
+		 * Sorts mMoves and mWeights by decreasing weight, keeping the order of equal weights
+		 */
+		private void sortByWeight(int count) {
+			for (int i = 1; i < count; i++) {
+				int move = mMoves[i];
+				float weight = mWeights[i];
+				int j = i - 1;
+				while (j >= 0 && mWeights[j] < weight) {
+					mMoves[j + 1] = mMoves[j];
+					mWeights[j + 1] = mWeights[j];
+					j--;
+				}
+				mMoves[j + 1] = move;
+				mWeights[j + 1] = weight;
+			}
+		}
+
+		/**
+		 * Plays a game out from the selected leaf
+		 * @param player The player to move at the leaf
+		 * @return The half points of player 1: 2 for a win, 1 for a draw, 0 for a loss
+		 */
+		private int rollout(int player) {
+			Position position = mRolloutPosition;
+			position.copyFrom(mPosition);
+
+			for (int ply = 0; ply < MAX_ROLLOUT_PLIES; ply++) {
+				int winner = position.getWinner();
+				if (winner != 0) return winner == 1 ? 2 : 0;
+
+				if (position.getWallsLeft(player) > 0 && nextInt(100) < ROLLOUT_WALL_PERCENT && placeRandomWall(position, player)) {
+					player = 3 - player;
+					continue;
+				}
+
+				// Step toward the goal, choosing at random among equally good moves
+				DistanceMap distances = position.getDistanceMap(player);
+				int count = position.generatePawnMoves(player, mMoves, 0);
+				int bestSquare = Bitboard.NONE;
+				int bestDistance = Integer.MAX_VALUE;
+				int ties = 0;
+				for (int i = 0; i < count; i++) {
+					int distance = distances.getDistance(mMoves[i]);
+					if (distance < bestDistance) {
+						bestDistance = distance;
+						bestSquare = mMoves[i];
+						ties = 1;
+					} else if (distance == bestDistance && nextInt(++ties) == 0) {
+						bestSquare = mMoves[i];
+					}
+				}
+				if (bestSquare == Bitboard.NONE) break;
+				position.movePawn(player, bestSquare);
+				player = 3 - player;
+			}
+
+			// Unfinished: the player to move wins ties
+			int playerOneDistance = position.getDistanceToVictory(1) - (player == 1 ? 1 : 0);
+			int playerTwoDistance = position.getDistanceToVictory(2) - (player == 2 ? 1 : 0);
+			if (playerOneDistance < playerTwoDistance) return 2;
+			if (playerTwoDistance < playerOneDistance) return 0;
+			return 1;
+		}
+
+		/**
+		 * Places a wall at random on the opponent's shortest path, if one is legal
+		 * @return True if a wall was placed
+		 */
+		private boolean placeRandomWall(Position position, int player) {
+			int wallType = nextInt(2) == 0 ? Quoridor.HORIZONTAL : Quoridor.VERTICAL;
+			long candidates = position.getShortestPathSlots(3 - player, wallType) & ~position.getBoard().getOverlapMask(wallType);
+			int candidateCount = Long.bitCount(candidates);
+			if (candidateCount == 0) return false;
+
+			for (int skip = nextInt(candidateCount); skip > 0; skip--) {
+				candidates &= candidates - 1;
+			}
+			int slot = Long.numberOfTrailingZeros(candidates);
+			position.placeWall(player, wallType, slot);
+			if (position.isPlayerCutOff(1) || position.isPlayerCutOff(2)) {
+				position.removeWall(player, wallType, slot);
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * xorshift64* generator
+		 * @return A pseudo-random integer from 0 to bound - 1
+		 */
+		private int nextInt(int bound) {
+			mRandomState ^= mRandomState >>> 12;
+			mRandomState ^= mRandomState << 25;
+			mRandomState ^= mRandomState >>> 27;
+			long random = (mRandomState * 0x2545F4914F6CDD1DL) >>> 33;
+			return (int) (random % bound);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package simon.app.quoridor.Core;
+
+/**
+ * Static helpers for moves packed into a single int, as used by the engines:
+ * 0 to 80 are pawn moves to that packed square, 81 to 144 horizontal walls (81 + slot) and
+ * 145 to 208 vertical walls (145 + slot).
+ */
+public final class Move {
+	/**
+	 * Absence of a move
+	 */
+	public static final int NONE = -1;
+
+	/**
+	 * Number of distinct moves
+	 */
+	public static final int COUNT = Bitboard.SQUARE_COUNT + 2 * Bitboard.WALL_SLOT_COUNT;
+
+	private static final int HORIZONTAL_OFFSET = Bitboard.SQUARE_COUNT;
+	private static final int VERTICAL_OFFSET = Bitboard.SQUARE_COUNT + Bitboard.WALL_SLOT_COUNT;
+
+	private Move() {
+
+	}
+
+	/**
+	 * @param square The packed square to move the pawn to
+	 * @return The pawn move
+	 */
+	public static int pawn(int square) {
+		return square;
+	}
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot The slot of the wall
+	 * @return The wall move
+	 */
+	public static int wall(int wallType, int slot) {
+		return (wallType == Quoridor.HORIZONTAL ? HORIZONTAL_OFFSET : VERTICAL_OFFSET) + slot;
+	}
+
+	/**
+	 * @param move A move
+	 * @return True if it places a wall, false if it moves the pawn
+	 */
+	public static boolean isWall(int move) {
+		return move >= HORIZONTAL_OFFSET;
+	}
+
+	/**
+	 * @param move A pawn move
+	 * @return The packed square the pawn moves to
+	 */
+	public static int getSquare(int move) {
+		return move;
+	}
+
+	/**
+	 * @param move A wall move
+	 * @return HORIZONTAL or VERTICAL
+	 */
+	public static int getWallType(int move) {
+		return move < VERTICAL_OFFSET ? Quoridor.HORIZONTAL : Quoridor.VERTICAL;
+	}
+
+	/**
+	 * @param move A wall move
+	 * @return The slot of the wall
+	 */
+	public static int getSlot(int move) {
+		return move < VERTICAL_OFFSET ? move - HORIZONTAL_OFFSET : move - VERTICAL_OFFSET;
+	}
+
+	/**
+	 * @param move A move
+	 * @return The x coordinate of the move, as sent to the server
+	 */
+	public static int getX(int move) {
+		return isWall(move) ? Bitboard.slotX(getWallType(move), getSlot(move)) : Bitboard.squareX(move);
+	}
+
+	/**
+	 * @param move A move
+	 * @return The y coordinate of the move, as sent to the server
+	 */
+	public static int getY(int move) {
+		return isWall(move) ? Bitboard.slotY(getWallType(move), getSlot(move)) : Bitboard.squareY(move);
+	}
+
+	/**
+	 * @param move A move
+	 * @return The move type as sent to the server ("D" for a pawn move, "MH" or "MV" for a wall)
+	 */
+	public static String getType(int move) {
+		if (!isWall(move)) return "D";
+		return getWallType(move) == Quoridor.HORIZONTAL ? "MH" : "MV";
+	}
+
+	/**
+	 * @param move A move
+	 * @return The move position as sent to the server, "(x, y)"
+	 */
+	public static String getCoordinates(int move) {
+		return "(" + getX(move) + ", " + getY(move) + ")";
+	}
+
+	/**
+	 * Parses a move from its server representation
+	 * @param type "D", "MH" or "MV"
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @return The move, or NONE if the type or coordinates are invalid
+	 */
+	public static int parse(String type, int x, int y) {
+		int index;
+		switch (type) {
+			case "D":
+				return Bitboard.square(x, y);
+			case "MH":
+				index = Bitboard.horizontalSlot(x, y);
+				return index == Bitboard.NONE ? NONE : wall(Quoridor.HORIZONTAL, index);
+			case "MV":
+				index = Bitboard.verticalSlot(x, y);
+				return index == Bitboard.NONE ? NONE : wall(Quoridor.VERTICAL, index);
+			default:
+				return NONE;
+		}
+	}
+
+	/**
+	 * Parses a move from its server representation
+	 * @param type "D", "MH" or "MV"
+	 * @param position The position, "(x, y)"
+	 * @return The move, or NONE if the type or position are invalid
+	 */
+	public static int parse(String type, String position) {
+		if (type == null || position == null) return NONE;
+		String text = position.trim();
+		int comma = text.indexOf(',');
+		if (!text.startsWith("(") || !text.endsWith(")") || comma < 0) return NONE;
+		try {
+			return parse(type, Integer.parseInt(text.substring(1, comma).trim()),
+					Integer.parseInt(text.substring(comma + 1, text.length() - 1).trim()));
+		} catch (NumberFormatException e) {
+			return NONE;
+		}
+	}
+
+	/**
+	 * @param move A move
+	 * @return A readable representation of the move, for instance "MH (4, 5)"
+	 */
+	public static String toString(int move) {
+		if (move == NONE) return "none";
+		return getType(move) + " " + getCoordinates(move);
+	}
+}
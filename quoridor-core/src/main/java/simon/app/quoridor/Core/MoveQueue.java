@@ -0,0 +1,547 @@
+package simon.app.quoridor.Core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Game server sending the moves of the user through a queue that survives lost connections and
+ * restarts of the app. Every move is appended to a write-ahead log on disk before it is sent, and
+ * acknowledged in it once the server answered; the moves are sent one at a time, in order, and
+ * those that could not reach the server are sent again with an exponential backoff.
+ *
+ * Moves left unacknowledged in the log when the app stopped are read back and held until the game
+ * is resumed, then replayed in order; the response to the last one is the state of the game on the
+ * server. A move the server refuses is not sent again, and neither are the later moves of its game,
+ * since they follow a state the server does not have. A move refused the first time it is sent
+ * never reached the game, so the caller can go back to the last state it had from the server. A
+ * move refused when sent again, or replayed from the log, may have been played with its response
+ * lost; the API has no request for the state of a game, so it is reported as an
+ * OutOfSyncException and the game cannot go on.
+ *
+ * The log is text, a record per line: "M seq gameID type position" for a move and "A seq" for its
+ * acknowledgement, separated by tabs. A record torn by a crash, without its newline, is ignored.
+ * The log is truncated whenever the queue is empty, so it stays a few records long. It is read,
+ * written and synced on the thread of the queue, a move being sent once its record is on the
+ * disk, so the callers never wait for the disk.
+ */
+public class MoveQueue implements GameServer {
+	/**
+	 * Delay before the first retry, in milliseconds
+	 */
+	public static final long DEFAULT_INITIAL_RETRY_DELAY = 500;
+
+	/**
+	 * Longest delay between retries, in milliseconds
+	 */
+	public static final long DEFAULT_MAX_RETRY_DELAY = 30000;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String MOVE_RECORD = "M";
+	private static final String ACK_RECORD = "A";
+	private static final String SEPARATOR = "\t";
+
+	/**
+	 * Longest time shutdown waits for the records already queued to be written, in milliseconds
+	 */
+	private static final long SHUTDOWN_TIMEOUT = 5000;
+
+	/**
+	 * A move of the queue, sent again until the server answers it
+	 */
+	private static class PendingMove {
+		private final String mGameID;
+		private final String mMoveType;
+		private final String mPosition;
+		private Callback mCallback;
+		// Assigned when the move is logged, on the thread of the queue
+		private long mSequence;
+		// Whether the record of the move was handled, and whether the move may have reached the
+		// server already. Guarded by the queue
+		private boolean mLogged;
+		private boolean mSent;
+
+		private PendingMove(String gameID, String moveType, String position, Callback callback) {
+			mGameID = gameID;
+			mMoveType = moveType;
+			mPosition = position;
+			mCallback = callback;
+		}
+	}
+
+	private final GameServer mServer;
+	private final File mLogFile;
+	private final long mInitialRetryDelay;
+	private final long mMaxRetryDelay;
+	private final ScheduledThreadPoolExecutor mScheduler;
+
+	// Guarded by this
+	private final Deque<PendingMove> mPending = new ArrayDeque<>();
+	private boolean mSending;
+	private boolean mHeld;
+	private boolean mShutdown;
+	private long mRetryDelay;
+	private ScheduledFuture<?> mRetry;
+
+	// Only used on the thread of mScheduler
+	private FileOutputStream mLog;
+	private boolean mLogFailed;
+	private long mNextSequence;
+
+	private final Runnable mSendNext = new Runnable() {
+		@Override
+		public void run() {
+			sendNext();
+		}
+	};
+
+	/**
+	 * Creates a queue retrying after DEFAULT_INITIAL_RETRY_DELAY, up to DEFAULT_MAX_RETRY_DELAY
+	 * apart
+	 * @param server The server the moves are sent to. Shut down with the queue
+	 * @param logFile The write-ahead log, created if needed, or null to keep the moves in memory only.
+	 *                They are kept in memory only as well if the log cannot be read or written.
+	 *                It is read back in the background, see whenRecovered
+	 */
+	public MoveQueue(GameServer server, File logFile) {
+		this(server, logFile, DEFAULT_INITIAL_RETRY_DELAY, DEFAULT_MAX_RETRY_DELAY);
+	}
+
+	/**
+	 * @param server The server the moves are sent to. Shut down with the queue
+	 * @param logFile The write-ahead log, created if needed, or null to keep the moves in memory only.
+	 *                They are kept in memory only as well if the log cannot be read or written.
+	 *                It is read back in the background, see whenRecovered
+	 * @param initialRetryDelay The delay before the first retry, in milliseconds, doubled after each
+	 *                          failure
+	 * @param maxRetryDelay The longest delay between retries, in milliseconds
+	 */
+	public MoveQueue(GameServer server, File logFile, long initialRetryDelay, long maxRetryDelay) {
+		mServer = server;
+		mLogFile = logFile;
+		mInitialRetryDelay = initialRetryDelay;
+		mMaxRetryDelay = maxRetryDelay;
+		mRetryDelay = initialRetryDelay;
+		mScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "move-queue");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// Retries still waiting at shutdown are dropped, the records to write are not
+		mScheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		if (logFile != null) {
+			// The first task of the thread: the log is read back before any record is written
+			mScheduler.execute(new Runnable() {
+				@Override
+				public void run() {
+					recover();
+				}
+			});
+		}
+	}
+
+	@Override
+	public void beginGame(String idul, Callback callback) {
+		beginGame(idul, callback, mInitialRetryDelay);
+	}
+
+	/**
+	 * Begins a game, trying again with a longer delay while the server cannot be reached. Nothing
+	 * is logged: a game not begun has no state to lose
+	 */
+	private void beginGame(final String idul, final Callback callback, final long retryDelay) {
+		mServer.beginGame(idul, new Callback() {
+			@Override
+			public void onResponse(String response) {
+				callback.onResponse(response);
+			}
+
+			@Override
+			public void onFailure(IOException e) {
+				synchronized (MoveQueue.this) {
+					if (!(e instanceof RefusedRequestException) && !mShutdown) {
+						mScheduler.schedule(new Runnable() {
+							@Override
+							public void run() {
+								beginGame(idul, callback, Math.min(2 * retryDelay, mMaxRetryDelay));
+							}
+						}, retryDelay, TimeUnit.MILLISECONDS);
+						return;
+					}
+				}
+				callback.onFailure(e);
+			}
+		});
+	}
+
+	/**
+	 * Logs the move, then sends it once the moves before it are answered. The callback gets the
+	 * response, or a RefusedRequestException if the server refused the move or an earlier one of
+	 * the game, an OutOfSyncException if the refused move had been sent before; a server that
+	 * cannot be reached is tried again until it answers
+	 */
+	@Override
+	public synchronized void makeMove(String gameID, String moveType, String position, Callback callback) {
+		final PendingMove move = new PendingMove(gameID, moveType, position, callback);
+		mPending.add(move);
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				logMove(move);
+				sendNext();
+			}
+		});
+	}
+
+	/**
+	 * Runs a task on the thread of the queue once the log is read back, for instance to check
+	 * getPendingGameID then. The task must not block
+	 * @param task The task
+	 */
+	public synchronized void whenRecovered(Runnable task) {
+		execute(task);
+	}
+
+	/**
+	 * @return The ID of the game of the moves read back from the log, held until resume is called,
+	 * or null if there are none or the log is not read back yet
+	 * @see #whenRecovered(Runnable)
+	 */
+	public synchronized String getPendingGameID() {
+		return mHeld ? mPending.getLast().mGameID : null;
+	}
+
+	/**
+	 * Replays the moves read back from the log
+	 * @param callback Receives the response to the last of them, the state of the game on the
+	 *                 server, or an OutOfSyncException if the server refused them
+	 * @return False if there were no such moves
+	 */
+	public boolean resume(Callback callback) {
+		synchronized (this) {
+			if (!mHeld) return false;
+			mHeld = false;
+			mPending.getLast().mCallback = callback;
+		}
+		sendNext();
+		return true;
+	}
+
+	/**
+	 * Sends the waiting moves at once rather than after the backoff delay, for instance when the
+	 * connection is back
+	 */
+	public void retryNow() {
+		synchronized (this) {
+			if (mRetry != null) mRetry.cancel(false);
+			mRetryDelay = mInitialRetryDelay;
+		}
+		sendNext();
+	}
+
+	/**
+	 * @return The number of moves not answered by the server yet
+	 */
+	public synchronized int getPendingMoveCount() {
+		return mPending.size();
+	}
+
+	/**
+	 * Stops the retries and closes the log once the records already queued are written, keeping the
+	 * moves not answered in it for the next start. Shuts down the server
+	 */
+	@Override
+	public void shutdown() {
+		synchronized (this) {
+			if (mShutdown) return;
+			if (mRetry != null) mRetry.cancel(false);
+			mScheduler.execute(new Runnable() {
+				@Override
+				public void run() {
+					closeLog();
+				}
+			});
+			mShutdown = true;
+			mScheduler.shutdown();
+		}
+		try {
+			mScheduler.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		mServer.shutdown();
+	}
+
+	//==============================================================================================
+	// Sending
+	//==============================================================================================
+
+	private void sendNext() {
+		final PendingMove move;
+		final boolean resent;
+		synchronized (this) {
+			if (mSending || mHeld || mShutdown || mPending.isEmpty()) return;
+			// Not on the disk yet: its record is written, then it is sent
+			if (!mPending.getFirst().mLogged) return;
+			mSending = true;
+			move = mPending.getFirst();
+			resent = move.mSent;
+			move.mSent = true;
+		}
+
+		mServer.makeMove(move.mGameID, move.mMoveType, move.mPosition, new Callback() {
+			@Override
+			public void onResponse(String response) {
+				acknowledge(move);
+				if (move.mCallback != null) move.mCallback.onResponse(response);
+				sendNext();
+			}
+
+			@Override
+			public void onFailure(IOException e) {
+				if (!(e instanceof RefusedRequestException)) {
+					retryLater();
+					return;
+				}
+				IOException failure = resent
+						? new OutOfSyncException("Refused when sent again: " + e.getMessage(), (RefusedRequestException) e)
+						: e;
+				for (PendingMove refused : refuse(move)) {
+					if (refused.mCallback != null) refused.mCallback.onFailure(failure);
+				}
+				sendNext();
+			}
+		});
+	}
+
+	private synchronized void retryLater() {
+		mSending = false;
+		if (mShutdown) return;
+		mRetry = mScheduler.schedule(mSendNext, mRetryDelay, TimeUnit.MILLISECONDS);
+		mRetryDelay = Math.min(2 * mRetryDelay, mMaxRetryDelay);
+	}
+
+	private synchronized void acknowledge(PendingMove move) {
+		mSending = false;
+		mRetryDelay = mInitialRetryDelay;
+		remove(move);
+	}
+
+	/**
+	 * Drops a refused move and the later moves of its game
+	 * @return The moves dropped
+	 */
+	private synchronized List<PendingMove> refuse(PendingMove move) {
+		mSending = false;
+		mRetryDelay = mInitialRetryDelay;
+		List<PendingMove> refused = new ArrayList<>();
+		for (PendingMove pending : mPending) {
+			if (pending.mGameID.equals(move.mGameID)) refused.add(pending);
+		}
+		for (PendingMove pending : refused) {
+			remove(pending);
+		}
+		return refused;
+	}
+
+	/**
+	 * Removes a move answered by the server from the queue and acknowledges it in the log. Called
+	 * with the lock held, so the log is written in the order the queue changed
+	 */
+	private void remove(final PendingMove move) {
+		mPending.remove(move);
+		final boolean empty = mPending.isEmpty();
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				if (empty)
+					truncateLog();
+				else
+					append(ACK_RECORD, move.mSequence);
+			}
+		});
+	}
+
+	/**
+	 * Runs a task on the thread of the queue, unless it is shut down. Called with the lock held
+	 */
+	private void execute(Runnable task) {
+		if (!mShutdown) mScheduler.execute(task);
+	}
+
+	//==============================================================================================
+	// Write-ahead log
+	//==============================================================================================
+
+	/**
+	 * Assigns the move its sequence number and logs it. Its record may be missing from the log if
+	 * it could not be written, the move then being kept in memory only
+	 */
+	private void logMove(PendingMove move) {
+		move.mSequence = mNextSequence++;
+		append(MOVE_RECORD, move.mSequence, move.mGameID, move.mMoveType, move.mPosition);
+		synchronized (this) {
+			move.mLogged = true;
+		}
+	}
+
+	/**
+	 * Appends a record to the log and waits until it is on the disk. A record that cannot be
+	 * written is skipped
+	 */
+	private void append(String type, long sequence, String... fields) {
+		FileOutputStream log = openLog();
+		if (log == null) return;
+		String record = formatRecord(type, sequence, fields);
+		if (record == null) return;
+		try {
+			log.write(record.getBytes(UTF_8));
+			log.getFD().sync();
+		} catch (IOException e) {
+			failLog(e);
+		}
+	}
+
+	/**
+	 * @return The record as a line, or null if a field cannot be logged
+	 */
+	private static String formatRecord(String type, long sequence, String... fields) {
+		StringBuilder record = new StringBuilder(type).append(SEPARATOR).append(sequence);
+		for (String field : fields) {
+			if (field == null || field.contains(SEPARATOR) || field.contains("\n")) {
+				System.err.println("Cannot log " + field);
+				return null;
+			}
+			record.append(SEPARATOR).append(field);
+		}
+		return record.append('\n').toString();
+	}
+
+	private void truncateLog() {
+		FileOutputStream log = openLog();
+		if (log == null) return;
+		try {
+			log.getChannel().truncate(0);
+		} catch (IOException e) {
+			failLog(e);
+		}
+	}
+
+	/**
+	 * @return The log, opened for appending if needed, or null if the moves are kept in memory only
+	 */
+	private FileOutputStream openLog() {
+		if (mLog == null && mLogFile != null && !mLogFailed) {
+			try {
+				mLog = new FileOutputStream(mLogFile, true);
+			} catch (IOException e) {
+				failLog(e);
+			}
+		}
+		return mLog;
+	}
+
+	private void closeLog() {
+		try {
+			if (mLog != null) mLog.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		mLog = null;
+	}
+
+	/**
+	 * Keeps the moves in memory only from now on. The log is deleted, since it no longer follows
+	 * the queue and would replay moves already answered after a restart
+	 */
+	private void failLog(IOException e) {
+		e.printStackTrace();
+		closeLog();
+		mLogFailed = true;
+		if (!mLogFile.delete() && mLogFile.exists()) System.err.println("Cannot delete " + mLogFile);
+	}
+
+	/**
+	 * Reads back the moves not acknowledged in the log, rewrites it with only them, and holds them
+	 * until resume is called
+	 */
+	private void recover() {
+		List<PendingMove> recovered = new ArrayList<>();
+		try {
+			if (mLogFile.exists()) {
+				String[] lines = new String(readFully(mLogFile), UTF_8).split("\n", -1);
+				// The last element follows the last newline: empty, or a torn record
+				for (int i = 0; i < lines.length - 1; i++) {
+					String[] fields = lines[i].split(SEPARATOR, -1);
+					try {
+						long sequence = Long.parseLong(fields[1]);
+						mNextSequence = Math.max(mNextSequence, sequence + 1);
+						if (fields[0].equals(MOVE_RECORD) && fields.length == 5) {
+							PendingMove move = new PendingMove(fields[2], fields[3], fields[4], null);
+							move.mSequence = sequence;
+							move.mLogged = true;
+							// Sent or not before the app stopped, there is no telling
+							move.mSent = true;
+							recovered.add(move);
+						} else if (fields[0].equals(ACK_RECORD)) {
+							for (Iterator<PendingMove> moves = recovered.iterator(); moves.hasNext(); ) {
+								if (moves.next().mSequence == sequence) moves.remove();
+							}
+						}
+					} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+						// Not a record of this log
+					}
+				}
+			}
+
+			// Compaction: a new log with only the moves still to send, swapped in atomically
+			File compacted = new File(mLogFile.getPath() + ".tmp");
+			try (FileOutputStream out = new FileOutputStream(compacted)) {
+				for (PendingMove move : recovered) {
+					out.write(formatRecord(MOVE_RECORD, move.mSequence, move.mGameID, move.mMoveType, move.mPosition).getBytes(UTF_8));
+				}
+				out.getFD().sync();
+			}
+			if (!compacted.renameTo(mLogFile)) throw new IOException("Cannot replace " + mLogFile);
+		} catch (IOException e) {
+			failLog(e);
+			return;
+		}
+
+		synchronized (this) {
+			// Moves made meanwhile come after the ones of the last run
+			for (int i = recovered.size() - 1; i >= 0; i--) {
+				mPending.addFirst(recovered.get(i));
+			}
+			mHeld = !recovered.isEmpty();
+		}
+	}
+
+	private static byte[] readFully(File file) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		try (InputStream in = new FileInputStream(file)) {
+			int count;
+			while ((count = in.read(buffer)) >= 0) {
+				bytes.write(buffer, 0, count);
+			}
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,152 @@
+package simon.app.quoridor.Core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only opening book: the best known move and its statistics for positions of the first plies,
+ * generated offline by OpeningBookBuilder.
+ *
+ * The file is a 16-byte header (magic, version, entry count, entry size) followed by entries sorted
+ * by key, all big-endian. An entry is the position key combined with the player to move (8 bytes),
+ * the move (2 bytes), the ply at which the position was first met (2 bytes), the number of games
+ * through the entry (4 bytes) and the half points the player to move scored in them (4 bytes).
+ *
+ * The file is memory-mapped and looked up by binary search with absolute reads, so lookups do not
+ * parse or allocate. Instances can be shared between threads.
+ */
+public class OpeningBook {
+	/**
+	 * File format identification
+	 */
+	static final int MAGIC = 0x51424F4B;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int ENTRY_SIZE = 20;
+
+	/**
+	 * Returned by find when the position is not in the book
+	 */
+	public static final int NOT_FOUND = -1;
+
+	private final ByteBuffer mBuffer;
+	private final int mEntryCount;
+
+	/**
+	 * Wraps a book already in memory
+	 * @param buffer The content of a book file, from its position to its limit. Not modified
+	 * @throws IOException if the content is not a book
+	 */
+	public OpeningBook(ByteBuffer buffer) throws IOException {
+		mBuffer = buffer.slice();
+		if (mBuffer.remaining() < HEADER_SIZE || mBuffer.getInt(0) != MAGIC)
+			throw new IOException("Not an opening book");
+		if (mBuffer.getInt(4) != VERSION || mBuffer.getInt(12) != ENTRY_SIZE)
+			throw new IOException("Unsupported opening book version " + mBuffer.getInt(4));
+		mEntryCount = mBuffer.getInt(8);
+		if (mBuffer.remaining() < HEADER_SIZE + (long) mEntryCount * ENTRY_SIZE)
+			throw new IOException("Truncated opening book");
+	}
+
+	/**
+	 * Memory-maps a book file
+	 * @param file The book file
+	 * @return The book
+	 * @throws IOException if the file cannot be read or is not a book
+	 */
+	public static OpeningBook open(File file) throws IOException {
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+			 FileChannel channel = randomAccessFile.getChannel()) {
+			// The mapping stays valid once the channel is closed
+			return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * @return The number of positions in the book
+	 */
+	public int getEntryCount() {
+		return mEntryCount;
+	}
+
+	/**
+	 * Looks up the book move of a position, checking that it is legal there
+	 * @param position The position
+	 * @param playerNumber The player to move (1 or 2)
+	 * @return The move, or Move.NONE if the position is not in the book
+	 */
+	public int getMove(Position position, int playerNumber) {
+		int entry = find(position.getKey() ^ Zobrist.sideToMove(playerNumber));
+		if (entry == NOT_FOUND) return Move.NONE;
+		int move = getMove(entry);
+		// Guards against key collisions
+		return position.isMoveLegal(playerNumber, move) ? move : Move.NONE;
+	}
+
+	/**
+	 * @param key The key of a position combined with Zobrist.sideToMove
+	 * @return The index of the entry of the position, or NOT_FOUND
+	 */
+	public int find(long key) {
+		int low = 0;
+		int high = mEntryCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long middleKey = getKey(middle);
+			if (middleKey < key)
+				low = middle + 1;
+			else if (middleKey > key)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * @param entry The index of an entry
+	 * @return The key of the entry
+	 */
+	public long getKey(int entry) {
+		return mBuffer.getLong(offset(entry));
+	}
+
+	/**
+	 * @param entry The index of an entry
+	 * @return The best move of the entry
+	 */
+	public int getMove(int entry) {
+		return mBuffer.getShort(offset(entry) + 8);
+	}
+
+	/**
+	 * @param entry The index of an entry
+	 * @return The ply at which the position was first met during generation
+	 */
+	public int getPly(int entry) {
+		return mBuffer.getShort(offset(entry) + 10);
+	}
+
+	/**
+	 * @param entry The index of an entry
+	 * @return The number of self-play games in which the move was played in the position
+	 */
+	public int getGameCount(int entry) {
+		return mBuffer.getInt(offset(entry) + 12);
+	}
+
+	/**
+	 * @param entry The index of an entry
+	 * @return The half points (2 for a win, 1 for a draw) the player to move scored in those games
+	 */
+	public int getHalfPoints(int entry) {
+		return mBuffer.getInt(offset(entry) + 16);
+	}
+
+	private static int offset(int entry) {
+		return HEADER_SIZE + entry * ENTRY_SIZE;
+	}
+}
@@ -0,0 +1,188 @@
+package simon.app.quoridor.Core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates an OpeningBook offline. Games, from self-play or any other source, are added move by
+ * move; for every position of their first plies, the builder counts the games and points of each
+ * move played. When written, each position keeps the move with the best score among those played
+ * often enough, or else the most played one.
+ *
+ * Not meant to run on the device: it allocates freely and self-play takes a while.
+ */
+public class OpeningBookBuilder {
+	/**
+	 * Games longer than this are scored as draws
+	 */
+	public static final int MAX_GAME_PLIES = 200;
+
+	/**
+	 * A move needs this many games to be chosen on its score rather than its popularity
+	 */
+	private static final int MIN_GAMES_FOR_SCORE = 4;
+
+	private final int mMaxPly;
+
+	/**
+	 * Statistics of every move played in every position, indexed by position key then move
+	 */
+	private final Map<Long, Map<Integer, MoveStats>> mPositions = new HashMap<>();
+
+	/**
+	 * @param maxPly The number of plies from the start of the game stored in the book
+	 */
+	public OpeningBookBuilder(int maxPly) {
+		mMaxPly = maxPly;
+	}
+
+	/**
+	 * @return The number of positions that will be written
+	 */
+	public int getPositionCount() {
+		return mPositions.size();
+	}
+
+	/**
+	 * Adds a game played from the starting position, player 1 moving first
+	 * @param moves The moves of the game
+	 * @param moveCount The number of moves
+	 * @param winner The winner (1 or 2), or 0 for a draw
+	 */
+	public void addGame(int[] moves, int moveCount, int winner) {
+		Position position = new Position();
+		position.setInitial();
+		int player = 1;
+		for (int ply = 0; ply < Math.min(moveCount, mMaxPly); ply++) {
+			long key = position.getKey() ^ Zobrist.sideToMove(player);
+			Map<Integer, MoveStats> moveStats = mPositions.get(key);
+			if (moveStats == null) {
+				moveStats = new HashMap<>();
+				mPositions.put(key, moveStats);
+			}
+			MoveStats stats = moveStats.get(moves[ply]);
+			if (stats == null) {
+				stats = new MoveStats(ply);
+				moveStats.put(moves[ply], stats);
+			}
+			stats.mGameCount++;
+			stats.mHalfPoints += winner == player ? 2 : winner == 0 ? 1 : 0;
+
+			position.playMove(player, moves[ply]);
+			player = 3 - player;
+		}
+	}
+
+	/**
+	 * Plays games of an engine against itself and adds them. To vary the games, during the plies
+	 * stored in the book a random pawn move is sometimes played instead of the engine's move
+	 * @param gameCount The number of games
+	 * @param maxDepth The search depth of the engine, which keeps the games reproducible
+	 * @param randomMovePercent The chance, in percent, of a random move during the book plies
+	 * @param seed The seed of the random moves
+	 */
+	public void playSelfPlayGames(int gameCount, int maxDepth, int randomMovePercent, long seed) {
+		AlphaBetaEngine engine = new AlphaBetaEngine(AlphaBetaEngine.NO_TIME_LIMIT);
+		engine.setMaxDepth(maxDepth);
+		Random random = new Random(seed);
+		int[] moves = new int[MAX_GAME_PLIES];
+		int[] pawnMoves = new int[Bitboard.MAX_PAWN_MOVES];
+		Position position = new Position();
+
+		for (int game = 0; game < gameCount; game++) {
+			position.setInitial();
+			int player = 1;
+			int ply = 0;
+			while (ply < MAX_GAME_PLIES && position.getWinner() == 0) {
+				int move;
+				if (ply < mMaxPly && random.nextInt(100) < randomMovePercent) {
+					int count = position.generatePawnMoves(player, pawnMoves, 0);
+					move = Move.pawn(pawnMoves[random.nextInt(count)]);
+				} else {
+					move = engine.findBestMove(position, player);
+				}
+				position.playMove(player, move);
+				moves[ply++] = move;
+				player = 3 - player;
+			}
+			addGame(moves, ply, position.getWinner());
+		}
+	}
+
+	/**
+	 * Writes the book
+	 * @param file The file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(File file) throws IOException {
+		try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+			write(outputStream);
+		}
+	}
+
+	/**
+	 * Writes the book
+	 * @param outputStream The stream to write to. Not closed
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void write(OutputStream outputStream) throws IOException {
+		List<Long> keys = new ArrayList<>(mPositions.keySet());
+		Collections.sort(keys);
+
+		DataOutputStream output = new DataOutputStream(outputStream);
+		output.writeInt(OpeningBook.MAGIC);
+		output.writeInt(OpeningBook.VERSION);
+		output.writeInt(keys.size());
+		output.writeInt(OpeningBook.ENTRY_SIZE);
+		for (long key : keys) {
+			int bestMove = Move.NONE;
+			MoveStats best = null;
+			for (Map.Entry<Integer, MoveStats> entry : mPositions.get(key).entrySet()) {
+				if (best == null || entry.getValue().isBetterThan(best)) {
+					bestMove = entry.getKey();
+					best = entry.getValue();
+				}
+			}
+			output.writeLong(key);
+			output.writeShort(bestMove);
+			output.writeShort(best.mPly);
+			output.writeInt(best.mGameCount);
+			output.writeInt(best.mHalfPoints);
+		}
+		output.flush();
+	}
+
+	/**
+	 * Games and points of a move in a position
+	 */
+	private static class MoveStats {
+		final int mPly;
+		int mGameCount;
+		int mHalfPoints;
+
+		MoveStats(int ply) {
+			mPly = ply;
+		}
+
+		boolean isBetterThan(MoveStats other) {
+			boolean reliable = mGameCount >= MIN_GAMES_FOR_SCORE;
+			boolean otherReliable = other.mGameCount >= MIN_GAMES_FOR_SCORE;
+			if (reliable != otherReliable) return reliable;
+			if (!reliable) return mGameCount > other.mGameCount;
+			// Compare mean scores without dividing
+			long score = (long) mHalfPoints * other.mGameCount;
+			long otherScore = (long) other.mHalfPoints * mGameCount;
+			return score > otherScore || (score == otherScore && mGameCount > other.mGameCount);
+		}
+	}
+}
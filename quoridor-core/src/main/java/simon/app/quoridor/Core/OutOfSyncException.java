@@ -0,0 +1,13 @@
+package simon.app.quoridor.Core;
+
+/**
+ * A move refused by the server after it was already sent once without an answer. The server may
+ * have played it and replied, so its game can be ahead of the last state the client received
+ */
+public class OutOfSyncException extends RefusedRequestException {
+
+	public OutOfSyncException(String message, RefusedRequestException cause) {
+		super(message);
+		initCause(cause);
+	}
+}
@@ -0,0 +1,213 @@
+package simon.app.quoridor.Core;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Multi-threaded alpha-beta search using lazy SMP: every thread runs its own AlphaBetaEngine on a
+ * private copy of the position, and all of them share one transposition table. The helper threads
+ * search with a different move order, so the results they store let the main thread cut whole
+ * subtrees and reach deeper iterations.
+ *
+ * The main thread runs in the caller's thread and decides when the search ends; the helpers are
+ * then stopped. The move returned is the one of the thread that completed the deepest iteration,
+ * the main thread winning ties. With a single thread, no helper is started and the search is
+ * exactly the one of AlphaBetaEngine, so it is deterministic when limited by depth only and
+ * started from the same table content.
+ *
+ * Instances are not thread safe: findBestMove must not be called concurrently.
+ */
+public class ParallelAlphaBetaEngine implements Engine {
+	/**
+	 * Size of the transposition table created by the constructors that do not take one
+	 */
+	public static final int DEFAULT_TABLE_MEGABYTES = 64;
+
+	private final TranspositionTable mTable;
+	private final AtomicBoolean mAbort = new AtomicBoolean();
+	private final AlphaBetaEngine[] mEngines;
+	private final Future<?>[] mHelperFutures;
+	private final ExecutorService mExecutor;
+	private OpeningBook mOpeningBook;
+	private final Position mBookPosition = new Position();
+
+	/**
+	 * Creates an engine using every available processor
+	 * @param timeBudgetMillis The time, in milliseconds, the engine may think for each move
+	 */
+	public ParallelAlphaBetaEngine(long timeBudgetMillis) {
+		this(timeBudgetMillis, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param timeBudgetMillis The time, in milliseconds, the engine may think for each move
+	 * @param threadCount The number of search threads, including the caller's
+	 */
+	public ParallelAlphaBetaEngine(long timeBudgetMillis, int threadCount) {
+		this(timeBudgetMillis, threadCount, new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+	}
+
+	/**
+	 * @param timeBudgetMillis The time, in milliseconds, the engine may think for each move
+	 * @param threadCount The number of search threads, including the caller's
+	 * @param table The transposition table shared by the threads, and possibly other searches
+	 */
+	public ParallelAlphaBetaEngine(long timeBudgetMillis, int threadCount, TranspositionTable table) {
+		threadCount = Math.max(1, threadCount);
+		mTable = table;
+		mEngines = new AlphaBetaEngine[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			mEngines[i] = new AlphaBetaEngine(timeBudgetMillis, table, mAbort, i);
+		}
+		mHelperFutures = new Future<?>[threadCount];
+		mExecutor = threadCount == 1 ? null : Executors.newFixedThreadPool(threadCount - 1, new ThreadFactory() {
+			private int mCount = 0;
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "search-helper-" + (++mCount));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @return The number of search threads, including the caller's
+	 */
+	public int getThreadCount() {
+		return mEngines.length;
+	}
+
+	/**
+	 * @return The transposition table shared by the threads
+	 */
+	public TranspositionTable getTable() {
+		return mTable;
+	}
+
+	/**
+	 * Limits the depth of the searches of every thread
+	 * @param maxDepth The deepest iteration searched, 1 to AlphaBetaEngine.MAX_DEPTH
+	 * @see AlphaBetaEngine#setMaxDepth(int)
+	 */
+	public void setMaxDepth(int maxDepth) {
+		for (AlphaBetaEngine engine : mEngines) {
+			engine.setMaxDepth(maxDepth);
+		}
+	}
+
+	/**
+	 * @param timeBudgetMillis The time, in milliseconds, the engine may think for the next moves,
+	 *                         or AlphaBetaEngine.NO_TIME_LIMIT
+	 */
+	@Override
+	public void setTimeBudget(long timeBudgetMillis) {
+		for (AlphaBetaEngine engine : mEngines) {
+			engine.setTimeBudget(timeBudgetMillis);
+		}
+	}
+
+	@Override
+	public void setOpeningBook(OpeningBook openingBook) {
+		mOpeningBook = openingBook;
+	}
+
+	/**
+	 * Finds the move to play in a game
+	 * @param quoridor The game. It is not modified
+	 * @param playerNumber The player to move (1 or 2)
+	 * @return The move, or Move.NONE if the player has no move
+	 * @see Quoridor#playMove(int, int)
+	 */
+	public int findBestMove(Quoridor quoridor, int playerNumber) {
+		return findBestMove(quoridor.getPosition(), playerNumber);
+	}
+
+	/**
+	 * Finds the move to play in a position
+	 * @param position The position. It is not modified while the search runs
+	 * @param playerNumber The player to move (1 or 2)
+	 * @return The move, or Move.NONE if the player has no move
+	 */
+	@Override
+	public int findBestMove(final Position position, final int playerNumber) {
+		if (mOpeningBook != null) {
+			mBookPosition.copyFrom(position);
+			int bookMove = mOpeningBook.getMove(mBookPosition, playerNumber);
+			if (bookMove != Move.NONE) return bookMove;
+		}
+
+		// Solved exactly, helpers would not help
+		if (EndgameSolver.isApplicable(position)) return mEngines[0].findBestMove(position, playerNumber);
+
+		final int[] helperMoves = new int[mEngines.length];
+		mAbort.set(false);
+		// New generation before the helpers start storing
+		mTable.newSearch();
+		for (int i = 1; i < mEngines.length; i++) {
+			final int index = i;
+			mHelperFutures[i] = mExecutor.submit(new Runnable() {
+				@Override
+				public void run() {
+					helperMoves[index] = mEngines[index].findBestMove(position, playerNumber);
+				}
+			});
+		}
+
+		AlphaBetaEngine mainEngine = mEngines[0];
+		int bestMove = mainEngine.findBestMove(position, playerNumber);
+		int bestDepth = mainEngine.getLastDepth();
+
+		mAbort.set(true);
+		for (int i = 1; i < mEngines.length; i++) {
+			try {
+				mHelperFutures[i].get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return bestMove;
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+			if (mEngines[i].getLastDepth() > bestDepth && helperMoves[i] != Move.NONE) {
+				bestMove = helperMoves[i];
+				bestDepth = mEngines[i].getLastDepth();
+			}
+		}
+		return bestMove;
+	}
+
+	/**
+	 * @return The deepest iteration completed by a thread during the last search
+	 */
+	public int getLastDepth() {
+		int depth = 0;
+		for (AlphaBetaEngine engine : mEngines) {
+			depth = Math.max(depth, engine.getLastDepth());
+		}
+		return depth;
+	}
+
+	/**
+	 * @return The number of positions visited by all the threads during the last search
+	 */
+	public long getNodeCount() {
+		long nodeCount = 0;
+		for (AlphaBetaEngine engine : mEngines) {
+			nodeCount += engine.getNodeCount();
+		}
+		return nodeCount;
+	}
+
+	/**
+	 * Stops the helper threads. The engine must not be used afterwards
+	 */
+	@Override
+	public void shutdown() {
+		if (mExecutor != null) mExecutor.shutdownNow();
+	}
+}
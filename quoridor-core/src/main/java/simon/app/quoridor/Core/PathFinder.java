@@ -0,0 +1,202 @@
+package simon.app.quoridor.Core;
+
+/**
+ * A star pathfinder over a Bitboard. The open set is a bucket queue indexed by f (f is bounded by
+ * the number of squares plus the height of the board) and the closed set is an 81-bit set held in
+ * two longs. All the buffers are allocated once, so a search does not allocate.
+ *
+ * Moves are generated with Bitboard#generatePawnMoves, so the other pawn is considered to stand
+ * still and jumps over it are taken into account. Since a jump can advance two rows in one move,
+ * the heuristic is half the number of rows left (rounded up), which keeps it consistent and the
+ * returned paths shortest.
+ *
+ * Instances are not thread safe. Use one per thread.
+ */
+public class PathFinder {
+	/**
+	 * Returned by search when no path to the victory line exists
+	 */
+	public static final int NO_PATH = -1;
+
+	/**
+	 * Number of f buckets. g is at most the number of squares and h at most half the board height
+	 */
+	private static final int BUCKET_COUNT = Bitboard.SQUARE_COUNT + Bitboard.SIZE;
+
+	// Open set, indexed by f
+	private final BucketQueue mOpenSquares = new BucketQueue(Bitboard.SQUARE_COUNT, BUCKET_COUNT);
+
+	// Node data, only meaningful for squares in the seen set
+	private final int[] mG = new int[Bitboard.SQUARE_COUNT];
+	private final int[] mParent = new int[Bitboard.SQUARE_COUNT];
+
+	// Seen and closed sets, bit i of the low word for squares 0 to 63, bit i - 64 of the high one
+	private long mSeenLow;
+	private long mSeenHigh;
+	private long mClosedLow;
+	private long mClosedHigh;
+
+	private final int[] mMoveBuffer = new int[Bitboard.MAX_PAWN_MOVES];
+
+	// Result of the last search
+	private int mGoalSquare = Bitboard.NONE;
+	private int mPathLength = NO_PATH;
+
+	/**
+	 * Default constructor
+	 */
+	public PathFinder() {
+
+	}
+
+	/**
+	 * Finds the shortest path from a player's square to its victory line
+	 * @param board The board to search
+	 * @param playerNumber The player (1 or 2) for which to find the path
+	 * @return The number of moves of the shortest path, or NO_PATH
+	 */
+	public int search(Bitboard board, int playerNumber) {
+		return search(board, playerNumber, board.getPlayerSquare(playerNumber));
+	}
+
+	/**
+	 * Finds the shortest path from a square to a player's victory line, with the other player's
+	 * pawn on its current square
+	 * @param board The board to search
+	 * @param playerNumber The player (1 or 2) for which to find the path
+	 * @param fromSquare The packed square to start from
+	 * @return The number of moves of the shortest path, or NO_PATH
+	 */
+	public int search(Bitboard board, int playerNumber, int fromSquare) {
+		mGoalSquare = Bitboard.NONE;
+		mPathLength = NO_PATH;
+		if (fromSquare == Bitboard.NONE) return NO_PATH;
+
+		int otherSquare = board.getPlayerSquare(playerNumber == 1 ? 2 : 1);
+
+		mSeenLow = 0;
+		mSeenHigh = 0;
+		mClosedLow = 0;
+		mClosedHigh = 0;
+
+		mG[fromSquare] = 0;
+		mParent[fromSquare] = Bitboard.NONE;
+		markSeen(fromSquare);
+		mOpenSquares.push(fromSquare, heuristic(playerNumber, fromSquare));
+
+		int square;
+		while ((square = mOpenSquares.pop()) != Bitboard.NONE) {
+			if (isGoal(playerNumber, square)) {
+				mOpenSquares.clear();
+				mGoalSquare = square;
+				mPathLength = mG[square];
+				return mPathLength;
+			}
+			markClosed(square);
+
+			int g = mG[square] + 1;
+			int count = board.generatePawnMoves(square, otherSquare, false, mMoveBuffer, 0);
+			for (int i = 0; i < count; i++) {
+				int successor = mMoveBuffer[i];
+				if (isClosed(successor)) continue;
+
+				if (!isSeen(successor)) {
+					markSeen(successor);
+				} else if (mG[successor] <= g) {
+					continue;
+				}
+
+				mG[successor] = g;
+				mParent[successor] = square;
+				mOpenSquares.push(successor, g + heuristic(playerNumber, successor));
+			}
+		}
+
+		return NO_PATH;
+	}
+
+	/**
+	 * @return The number of moves of the path found by the last search, or NO_PATH
+	 */
+	public int getPathLength() {
+		return mPathLength;
+	}
+
+	/**
+	 * Writes the path found by the last search, from the starting square to the square on the
+	 * victory line (both included)
+	 * @param squares The buffer to write the packed squares into. Must have room for
+	 *                getPathLength() + 1 squares
+	 * @return The number of squares written, 0 if the last search found no path
+	 */
+	public int getPath(int[] squares) {
+		if (mPathLength == NO_PATH) return 0;
+		int square = mGoalSquare;
+		for (int i = mPathLength; i >= 0; i--) {
+			squares[i] = square;
+			square = mParent[square];
+		}
+		return mPathLength + 1;
+	}
+
+	/**
+	 * @return The first square to move to on the path found by the last search, or Bitboard.NONE if
+	 * there is none (no path, or the search started on the victory line)
+	 */
+	public int getFirstStep() {
+		if (mPathLength < 1) return Bitboard.NONE;
+		int square = mGoalSquare;
+		while (mG[square] > 1) {
+			square = mParent[square];
+		}
+		return square;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @param square A packed square
+	 * @return True if the square is on the player's victory line
+	 */
+	public static boolean isGoal(int playerNumber, int square) {
+		return playerNumber == 1 ? Bitboard.squareY(square) == Bitboard.SIZE : Bitboard.squareY(square) == 1;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @param square A packed square
+	 * @return The number of rows between the square and the player's victory line
+	 */
+	public static int rowsToGoal(int playerNumber, int square) {
+		return playerNumber == 1 ? Bitboard.SIZE - Bitboard.squareY(square) : Bitboard.squareY(square) - 1;
+	}
+
+	private static int heuristic(int playerNumber, int square) {
+		return (rowsToGoal(playerNumber, square) + 1) / 2;
+	}
+
+	//==============================================================================================
+	// Sets
+	//==============================================================================================
+
+	private boolean isSeen(int square) {
+		return square < 64 ? (mSeenLow & (1L << square)) != 0 : (mSeenHigh & (1L << (square - 64))) != 0;
+	}
+
+	private void markSeen(int square) {
+		if (square < 64)
+			mSeenLow |= 1L << square;
+		else
+			mSeenHigh |= 1L << (square - 64);
+	}
+
+	private boolean isClosed(int square) {
+		return square < 64 ? (mClosedLow & (1L << square)) != 0 : (mClosedHigh & (1L << (square - 64))) != 0;
+	}
+
+	private void markClosed(int square) {
+		if (square < 64)
+			mClosedLow |= 1L << square;
+		else
+			mClosedHigh |= 1L << (square - 64);
+	}
+}
@@ -0,0 +1,197 @@
+package simon.app.quoridor.Core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the legal move sequences of a given length from a position: every pawn move and, while the
+ * player has walls left, every legal wall. Games that are won stop there and count no further.
+ *
+ * The counts only depend on the rules, so they make a correctness oracle for move generation and
+ * wall legality (any change must keep them) and a throughput benchmark of the rules in nodes per
+ * second.
+ */
+public class Perft {
+	/**
+	 * The parallel mode forks a task per move over this many plies from the root, enough tasks to
+	 * balance the load without copying a position for every node
+	 */
+	private static final int SPLIT_PLIES = 2;
+
+	private static final int MAX_MOVES = Bitboard.MAX_PAWN_MOVES + 2 * Bitboard.WALL_SLOT_COUNT;
+
+	private final Position mPosition;
+	private int[][] mMoves = new int[0][];
+	private final long[] mWallMasks = new long[2];
+
+	/**
+	 * @param position The position to count from. It is copied
+	 */
+	public Perft(Position position) {
+		mPosition = new Position(position);
+	}
+
+	/**
+	 * @param playerNumber The player to move (1 or 2)
+	 * @param depth The number of plies
+	 * @return The number of legal move sequences of that many plies
+	 */
+	public long perft(int playerNumber, int depth) {
+		ensureDepth(depth);
+		return count(playerNumber, depth, 0);
+	}
+
+	/**
+	 * Counts the sequences starting with each legal move, which narrows down a wrong total to the
+	 * move whose subtree is wrong
+	 * @param playerNumber The player to move (1 or 2)
+	 * @param depth The number of plies, at least 1
+	 * @return The count of every legal move, in generation order
+	 */
+	public List<MoveCount> divide(int playerNumber, int depth) {
+		ensureDepth(depth);
+		List<MoveCount> counts = new ArrayList<>();
+		if (depth < 1 || mPosition.getWinner() != 0) return counts;
+
+		int[] moves = mMoves[0];
+		int moveCount = generateMoves(playerNumber, moves);
+		for (int i = 0; i < moveCount; i++) {
+			int previousSquare = mPosition.playMove(playerNumber, moves[i]);
+			counts.add(new MoveCount(moves[i], count(3 - playerNumber, depth - 1, 1)));
+			mPosition.undoMove(playerNumber, moves[i], previousSquare);
+		}
+		return counts;
+	}
+
+	/**
+	 * Same as perft, with the subtrees counted in parallel on a fork-join pool
+	 * @param position The position to count from. It is not modified
+	 * @param playerNumber The player to move (1 or 2)
+	 * @param depth The number of plies
+	 * @param pool The pool running the tasks
+	 * @return The number of legal move sequences of that many plies
+	 */
+	public static long parallelPerft(Position position, int playerNumber, int depth, ForkJoinPool pool) {
+		return pool.invoke(new PerftTask(new Position(position), playerNumber, depth, SPLIT_PLIES));
+	}
+
+	//==============================================================================================
+	// Counting
+	//==============================================================================================
+
+	private long count(int playerNumber, int depth, int ply) {
+		if (depth == 0) return 1;
+		if (mPosition.getWinner() != 0) return 0;
+
+		int[] moves = mMoves[ply];
+		int moveCount = generateMoves(playerNumber, moves);
+		if (depth == 1) return moveCount;
+
+		long total = 0;
+		for (int i = 0; i < moveCount; i++) {
+			int previousSquare = mPosition.playMove(playerNumber, moves[i]);
+			total += count(3 - playerNumber, depth - 1, ply + 1);
+			mPosition.undoMove(playerNumber, moves[i], previousSquare);
+		}
+		return total;
+	}
+
+	/**
+	 * @return The number of legal moves written into moves: pawn moves first, then horizontal and
+	 * vertical walls by slot
+	 */
+	private int generateMoves(int playerNumber, int[] moves) {
+		return generateMoves(mPosition, playerNumber, moves, mWallMasks);
+	}
+
+	static int generateMoves(Position position, int playerNumber, int[] moves, long[] wallMasks) {
+		int count = position.generatePawnMoves(playerNumber, moves, 0);
+		for (int i = 0; i < count; i++) {
+			moves[i] = Move.pawn(moves[i]);
+		}
+		if (position.getWallsLeft(playerNumber) <= 0) return count;
+
+		position.getLegalWallMasks(wallMasks);
+		for (int wallType = 0; wallType < 2; wallType++) {
+			int type = wallType == 0 ? Quoridor.HORIZONTAL : Quoridor.VERTICAL;
+			for (long mask = wallMasks[wallType]; mask != 0; mask &= mask - 1) {
+				moves[count++] = Move.wall(type, Long.numberOfTrailingZeros(mask));
+			}
+		}
+		return count;
+	}
+
+	private void ensureDepth(int depth) {
+		if (mMoves.length >= depth) return;
+		mMoves = new int[depth][MAX_MOVES];
+	}
+
+	//==============================================================================================
+	// Parallel mode
+	//==============================================================================================
+
+	/**
+	 * Counts a subtree: near the root by forking a task per move on a copy of the position, else
+	 * directly
+	 */
+	private static class PerftTask extends RecursiveTask<Long> {
+		private final Position mPosition;
+		private final int mPlayerNumber;
+		private final int mDepth;
+		private final int mSplitPlies;
+
+		PerftTask(Position position, int playerNumber, int depth, int splitPlies) {
+			mPosition = position;
+			mPlayerNumber = playerNumber;
+			mDepth = depth;
+			mSplitPlies = splitPlies;
+		}
+
+		@Override
+		protected Long compute() {
+			if (mSplitPlies == 0 || mDepth <= 2 || mPosition.getWinner() != 0) {
+				return new Perft(mPosition).perft(mPlayerNumber, mDepth);
+			}
+
+			int[] moves = new int[MAX_MOVES];
+			int moveCount = generateMoves(mPosition, mPlayerNumber, moves, new long[2]);
+			List<PerftTask> tasks = new ArrayList<>(moveCount);
+			for (int i = 0; i < moveCount; i++) {
+				Position child = new Position(mPosition);
+				child.playMove(mPlayerNumber, moves[i]);
+				tasks.add(new PerftTask(child, 3 - mPlayerNumber, mDepth - 1, mSplitPlies - 1));
+			}
+			invokeAll(tasks);
+
+			long total = 0;
+			for (PerftTask task : tasks) {
+				total += task.join();
+			}
+			return total;
+		}
+	}
+
+	//==============================================================================================
+	// Divide output
+	//==============================================================================================
+
+	/**
+	 * The number of sequences starting with a move
+	 */
+	public static class MoveCount {
+		public final int mMove;
+		public final long mCount;
+
+		MoveCount(int move, long count) {
+			mMove = move;
+			mCount = count;
+		}
+
+		@Override
+		public String toString() {
+			return Move.toString(mMove) + ": " + mCount;
+		}
+	}
+}
@@ -0,0 +1,510 @@
+package simon.app.quoridor.Core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Rules state of a Quoridor game without any of the presentation or server data: the bitboard,
+ * the number of walls left and the distance fields of both players, kept in sync by every method
+ * that modifies the position. Moves can be played and taken back, which is what the engines
+ * search with, and a position is cheap to copy.
+ *
+ * Instances are not thread safe.
+ */
+public class Position {
+	/**
+	 * Number of walls each player starts with
+	 */
+	public static final int INITIAL_WALLS = 10;
+
+	/**
+	 * Size in bytes of a position written with writeTo
+	 */
+	public static final int BINARY_SIZE = 20;
+
+	/**
+	 * Written instead of the square of a pawn that is not on the board
+	 */
+	private static final int NO_SQUARE = 0xFF;
+
+	final Bitboard mBoard = new Bitboard();
+	int mPlayerOneWallsLeft = INITIAL_WALLS;
+	int mPlayerTwoWallsLeft = INITIAL_WALLS;
+
+	/**
+	 * Zobrist key of the pawns, walls and walls left, updated with every change
+	 */
+	long mKey = Zobrist.compute(mBoard, INITIAL_WALLS, INITIAL_WALLS);
+
+	/**
+	 * Distance from every square to each player's victory line
+	 */
+	final DistanceMap mPlayerOneDistances = new DistanceMap(1);
+	final DistanceMap mPlayerTwoDistances = new DistanceMap(2);
+
+	/**
+	 * Used to restrict the connectivity tests of legal wall enumeration. Scratch, not copied, and
+	 * created by the first enumeration so that copies only searched with moves stay small
+	 */
+	private BridgeFinder mPlayerOneBridges;
+	private BridgeFinder mPlayerTwoBridges;
+	private final int[] mMoveBuffer = new int[Bitboard.MAX_PAWN_MOVES];
+
+	/**
+	 * Default constructor. Initialises an empty board with no pawns
+	 */
+	public Position() {
+
+	}
+
+	/**
+	 * Copy constructor
+	 * @param position The position to copy from
+	 */
+	public Position(Position position) {
+		copyFrom(position);
+	}
+
+	/**
+	 * Overwrites this position with the content of another one
+	 * @param position The position to copy from
+	 */
+	public void copyFrom(Position position) {
+		mBoard.copyFrom(position.mBoard);
+		mPlayerOneWallsLeft = position.mPlayerOneWallsLeft;
+		mPlayerTwoWallsLeft = position.mPlayerTwoWallsLeft;
+		mKey = position.mKey;
+		mPlayerOneDistances.copyFrom(position.mPlayerOneDistances);
+		mPlayerTwoDistances.copyFrom(position.mPlayerTwoDistances);
+	}
+
+	/**
+	 * Sets the position from a board and wall counts, rebuilding the distance fields
+	 * @param board The board to copy
+	 * @param playerOneWallsLeft The number of walls player 1 can still place
+	 * @param playerTwoWallsLeft The number of walls player 2 can still place
+	 */
+	public void set(Bitboard board, int playerOneWallsLeft, int playerTwoWallsLeft) {
+		mBoard.copyFrom(board);
+		mPlayerOneWallsLeft = playerOneWallsLeft;
+		mPlayerTwoWallsLeft = playerTwoWallsLeft;
+		rebuild();
+	}
+
+	/**
+	 * Recomputes the key and the distance fields after mBoard and the walls left were overwritten
+	 */
+	private void rebuild() {
+		mKey = Zobrist.compute(mBoard, mPlayerOneWallsLeft, mPlayerTwoWallsLeft);
+		mPlayerOneDistances.rebuild(mBoard);
+		mPlayerTwoDistances.rebuild(mBoard);
+	}
+
+	/**
+	 * Sets the starting position: pawns in the middle of their first row, no walls
+	 */
+	public void setInitial() {
+		Bitboard board = new Bitboard();
+		board.mPlayerOneSquare = Bitboard.square(5, 1);
+		board.mPlayerTwoSquare = Bitboard.square(5, Bitboard.SIZE);
+		set(board, INITIAL_WALLS, INITIAL_WALLS);
+	}
+
+	//==============================================================================================
+	// Accessors
+	//==============================================================================================
+
+	/**
+	 * @return The bitboard of this position. Must not be modified directly
+	 */
+	public Bitboard getBoard() {
+		return mBoard;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return The number of walls the player can still place
+	 */
+	public int getWallsLeft(int playerNumber) {
+		return playerNumber == 1 ? mPlayerOneWallsLeft : mPlayerTwoWallsLeft;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @param wallsLeft The number of walls the player can still place
+	 */
+	public void setWallsLeft(int playerNumber, int wallsLeft) {
+		mKey ^= Zobrist.wallsLeft(playerNumber, getWallsLeft(playerNumber)) ^ Zobrist.wallsLeft(playerNumber, wallsLeft);
+		if (playerNumber == 1)
+			mPlayerOneWallsLeft = wallsLeft;
+		else
+			mPlayerTwoWallsLeft = wallsLeft;
+	}
+
+	/**
+	 * @return The Zobrist key of the position. Equal positions have equal keys whatever the order
+	 * of the moves leading to them
+	 * @see Zobrist#sideToMove(int)
+	 */
+	public long getKey() {
+		return mKey;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return The distance field leading to that player's victory line
+	 */
+	public DistanceMap getDistanceMap(int playerNumber) {
+		return playerNumber == 1 ? mPlayerOneDistances : mPlayerTwoDistances;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return The number of steps the player needs to reach the victory line considering walls
+	 * only, or DistanceMap.UNREACHABLE
+	 */
+	public int getDistanceToVictory(int playerNumber) {
+		int square = mBoard.getPlayerSquare(playerNumber);
+		if (square == Bitboard.NONE) return DistanceMap.UNREACHABLE;
+		return getDistanceMap(playerNumber).getDistance(square);
+	}
+
+	/**
+	 * Follows the distance field of a player from its pawn to the victory line
+	 * @param playerNumber The player (1 or 2)
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @return The slots of walls of that type cutting a step of that shortest path
+	 */
+	public long getShortestPathSlots(int playerNumber, int wallType) {
+		DistanceMap distances = getDistanceMap(playerNumber);
+		long slots = 0;
+		int square = mBoard.getPlayerSquare(playerNumber);
+		if (square == Bitboard.NONE) return 0;
+		int next;
+		while ((next = distances.getNextStep(square, mBoard)) != Bitboard.NONE) {
+			int direction;
+			if (next == square + Bitboard.SIZE)
+				direction = Bitboard.UP;
+			else if (next == square - Bitboard.SIZE)
+				direction = Bitboard.DOWN;
+			else if (next == square - 1)
+				direction = Bitboard.LEFT;
+			else
+				direction = Bitboard.RIGHT;
+
+			boolean horizontalStep = direction == Bitboard.UP || direction == Bitboard.DOWN;
+			if (horizontalStep == (wallType == Quoridor.HORIZONTAL))
+				slots |= Bitboard.BLOCKERS[direction][square];
+			square = next;
+		}
+		return slots;
+	}
+
+	/**
+	 * @return The number of the player (1 or 2) standing on its victory line, else 0
+	 */
+	public int getWinner() {
+		if (mBoard.mPlayerOneSquare != Bitboard.NONE && PathFinder.isGoal(1, mBoard.mPlayerOneSquare)) return 1;
+		if (mBoard.mPlayerTwoSquare != Bitboard.NONE && PathFinder.isGoal(2, mBoard.mPlayerTwoSquare)) return 2;
+		return 0;
+	}
+
+	//==============================================================================================
+	// Binary format
+	//==============================================================================================
+
+	/**
+	 * Writes the position in BINARY_SIZE bytes: the horizontal then vertical wall masks (8 bytes
+	 * each), the squares of both pawns (1 byte each, 0xFF when off the board) and the walls left of
+	 * both players (1 byte each). Multi-byte values follow the byte order of the buffer, big-endian
+	 * unless changed
+	 * @param buffer The buffer to write to at its position, which is advanced. Can be direct or
+	 *               memory-mapped
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		writeTo(buffer, buffer.position());
+		buffer.position(buffer.position() + BINARY_SIZE);
+	}
+
+	/**
+	 * Writes the position like writeTo(ByteBuffer), at an absolute index, without changing the
+	 * position of the buffer
+	 * @param buffer The buffer to write to
+	 * @param index The index of the first byte
+	 */
+	public void writeTo(ByteBuffer buffer, int index) {
+		buffer.putLong(index, mBoard.mHorizontalWalls);
+		buffer.putLong(index + 8, mBoard.mVerticalWalls);
+		buffer.put(index + 16, (byte) (mBoard.mPlayerOneSquare == Bitboard.NONE ? NO_SQUARE : mBoard.mPlayerOneSquare));
+		buffer.put(index + 17, (byte) (mBoard.mPlayerTwoSquare == Bitboard.NONE ? NO_SQUARE : mBoard.mPlayerTwoSquare));
+		buffer.put(index + 18, (byte) mPlayerOneWallsLeft);
+		buffer.put(index + 19, (byte) mPlayerTwoWallsLeft);
+	}
+
+	/**
+	 * Overwrites this position with one written by writeTo, rebuilding the distance fields
+	 * @param buffer The buffer to read from at its position, which is advanced
+	 * @throws IllegalArgumentException if a pawn square is out of the board, two walls overlap or a
+	 * player has more than INITIAL_WALLS walls left, in which case this position is unchanged
+	 */
+	public void readFrom(ByteBuffer buffer) {
+		readFrom(buffer, buffer.position());
+		buffer.position(buffer.position() + BINARY_SIZE);
+	}
+
+	/**
+	 * Overwrites this position like readFrom(ByteBuffer), from an absolute index, without changing
+	 * the position of the buffer. Several threads can read from the same buffer this way
+	 * @param buffer The buffer to read from
+	 * @param index The index of the first byte
+	 * @throws IllegalArgumentException if a pawn square is out of the board, two walls overlap or a
+	 * player has more than INITIAL_WALLS walls left, in which case this position is unchanged
+	 */
+	public void readFrom(ByteBuffer buffer, int index) {
+		int playerOneSquare = readSquare(buffer, index + 16);
+		int playerTwoSquare = readSquare(buffer, index + 17);
+		long horizontalWalls = buffer.getLong(index);
+		long verticalWalls = buffer.getLong(index + 8);
+		if (Bitboard.hasOverlaps(horizontalWalls, verticalWalls))
+			throw new IllegalArgumentException("Overlapping walls " + Long.toHexString(horizontalWalls) + " " + Long.toHexString(verticalWalls));
+		int playerOneWallsLeft = readWallsLeft(buffer, index + 18);
+		int playerTwoWallsLeft = readWallsLeft(buffer, index + 19);
+		mBoard.mHorizontalWalls = horizontalWalls;
+		mBoard.mVerticalWalls = verticalWalls;
+		mBoard.mPlayerOneSquare = playerOneSquare;
+		mBoard.mPlayerTwoSquare = playerTwoSquare;
+		mPlayerOneWallsLeft = playerOneWallsLeft;
+		mPlayerTwoWallsLeft = playerTwoWallsLeft;
+		rebuild();
+	}
+
+	private static int readSquare(ByteBuffer buffer, int index) {
+		int square = buffer.get(index) & 0xFF;
+		if (square == NO_SQUARE) return Bitboard.NONE;
+		if (square >= Bitboard.SQUARE_COUNT) throw new IllegalArgumentException("Invalid square " + square);
+		return square;
+	}
+
+	private static int readWallsLeft(ByteBuffer buffer, int index) {
+		int wallsLeft = buffer.get(index) & 0xFF;
+		if (wallsLeft > INITIAL_WALLS) throw new IllegalArgumentException("Invalid walls left " + wallsLeft);
+		return wallsLeft;
+	}
+
+	//==============================================================================================
+	// Moves
+	//==============================================================================================
+
+	/**
+	 * Computes the key the position would have after a move, without playing it
+	 * @param playerNumber The player playing (1 or 2)
+	 * @param move The move
+	 * @return The key after the move
+	 * @see #getKey()
+	 */
+	public long getKeyAfter(int playerNumber, int move) {
+		if (Move.isWall(move)) {
+			int wallsLeft = getWallsLeft(playerNumber);
+			return mKey ^ Zobrist.wall(Move.getWallType(move), Move.getSlot(move))
+					^ Zobrist.wallsLeft(playerNumber, wallsLeft) ^ Zobrist.wallsLeft(playerNumber, wallsLeft - 1);
+		}
+		return mKey ^ Zobrist.pawn(playerNumber, mBoard.getPlayerSquare(playerNumber)) ^ Zobrist.pawn(playerNumber, Move.getSquare(move));
+	}
+
+	/**
+	 * Moves a pawn. Does not check the move
+	 * @param playerNumber The player (1 or 2)
+	 * @param square The packed square to move to
+	 */
+	public void movePawn(int playerNumber, int square) {
+		mKey ^= Zobrist.pawn(playerNumber, mBoard.getPlayerSquare(playerNumber)) ^ Zobrist.pawn(playerNumber, square);
+		mBoard.setPlayerSquare(playerNumber, square);
+	}
+
+	/**
+	 * Places a wall, repairs the distance fields and decrements the walls left of the player.
+	 * Does not check the placement
+	 * @param playerNumber The player placing the wall (1 or 2)
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot The slot of the wall
+	 */
+	public void placeWall(int playerNumber, int wallType, int slot) {
+		mBoard.placeWall(wallType, slot);
+		mPlayerOneDistances.onWallPlaced(mBoard, wallType, slot);
+		mPlayerTwoDistances.onWallPlaced(mBoard, wallType, slot);
+		mKey ^= Zobrist.wall(wallType, slot);
+		if (playerNumber == 1 || playerNumber == 2)
+			setWallsLeft(playerNumber, getWallsLeft(playerNumber) - 1);
+	}
+
+	/**
+	 * Takes back a wall placed with placeWall
+	 * @param playerNumber The player who placed the wall (1 or 2)
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot The slot of the wall
+	 */
+	public void removeWall(int playerNumber, int wallType, int slot) {
+		mBoard.removeWall(wallType, slot);
+		mPlayerOneDistances.onWallRemoved(mBoard, wallType, slot);
+		mPlayerTwoDistances.onWallRemoved(mBoard, wallType, slot);
+		mKey ^= Zobrist.wall(wallType, slot);
+		if (playerNumber == 1 || playerNumber == 2)
+			setWallsLeft(playerNumber, getWallsLeft(playerNumber) + 1);
+	}
+
+	/**
+	 * Plays a packed move. Does not check the move
+	 * @param playerNumber The player playing (1 or 2)
+	 * @param move The move
+	 * @return The square the player's pawn was on, to pass to undoMove
+	 * @see Move
+	 */
+	public int playMove(int playerNumber, int move) {
+		int previousSquare = mBoard.getPlayerSquare(playerNumber);
+		if (Move.isWall(move))
+			placeWall(playerNumber, Move.getWallType(move), Move.getSlot(move));
+		else
+			movePawn(playerNumber, Move.getSquare(move));
+		return previousSquare;
+	}
+
+	/**
+	 * Takes back a move played with playMove
+	 * @param playerNumber The player who played (1 or 2)
+	 * @param move The move
+	 * @param previousSquare The value returned by playMove
+	 */
+	public void undoMove(int playerNumber, int move, int previousSquare) {
+		if (Move.isWall(move))
+			removeWall(playerNumber, Move.getWallType(move), Move.getSlot(move));
+		else
+			movePawn(playerNumber, previousSquare);
+	}
+
+	/**
+	 * Generates the squares a player can move its pawn to
+	 * @param playerNumber The player (1 or 2)
+	 * @param squares The buffer to write into, with room for Bitboard.MAX_PAWN_MOVES squares after offset
+	 * @param offset The index of squares at which to start writing
+	 * @return The number of squares written
+	 */
+	public int generatePawnMoves(int playerNumber, int[] squares, int offset) {
+		return mBoard.generatePawnMoves(playerNumber, squares, offset);
+	}
+
+	/**
+	 * Checks a packed move, for instance one read from a file or received from another process
+	 * @param playerNumber The player playing (1 or 2)
+	 * @param move The move
+	 * @return True if the player may play the move in this position
+	 */
+	public boolean isMoveLegal(int playerNumber, int move) {
+		if (move < 0 || move >= Move.COUNT) return false;
+		if (Move.isWall(move))
+			return getWallsLeft(playerNumber) > 0 && isWallLegal(Move.getWallType(move), Move.getSlot(move));
+
+		int count = generatePawnMoves(playerNumber, mMoveBuffer, 0);
+		for (int i = 0; i < count; i++) {
+			if (mMoveBuffer[i] == Move.getSquare(move)) return true;
+		}
+		return false;
+	}
+
+	//==============================================================================================
+	// Wall legality
+	//==============================================================================================
+
+	/**
+	 * Checks if a wall can be placed: the slot must be free, must not overlap or cross an existing
+	 * wall and must leave both players a path to their victory line. The number of walls left is
+	 * not checked.
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot The slot of the wall
+	 * @return True if the wall can be placed
+	 */
+	public boolean isWallLegal(int wallType, int slot) {
+		if ((mBoard.getOverlapMask(wallType) & (1L << slot)) != 0) return false;
+		return !isWallBlocking(wallType, slot);
+	}
+
+	/**
+	 * Computes every legal wall placement for both wall types in one pass
+	 * @param masks Array of size 2 receiving the mask of legal horizontal slots at index 0 and of
+	 *              legal vertical slots at index 1
+	 */
+	public void getLegalWallMasks(long[] masks) {
+		if (!computeBridges()) {
+			masks[0] = 0;
+			masks[1] = 0;
+			return;
+		}
+		masks[0] = getLegalWallMaskFromBridges(Quoridor.HORIZONTAL);
+		masks[1] = getLegalWallMaskFromBridges(Quoridor.VERTICAL);
+	}
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @return The mask of slots where a wall of that type can legally be placed
+	 */
+	public long getLegalWallMask(int wallType) {
+		if (!computeBridges()) return 0;
+		return getLegalWallMaskFromBridges(wallType);
+	}
+
+	/**
+	 * Runs both players' bridge finders
+	 * @return False if a player on the board is already cut off, in which case no wall is legal
+	 */
+	private boolean computeBridges() {
+		if (mPlayerOneBridges == null) {
+			mPlayerOneBridges = new BridgeFinder();
+			mPlayerTwoBridges = new BridgeFinder();
+		}
+		boolean playerOneConnected = mPlayerOneBridges.compute(mBoard, 1) || mBoard.mPlayerOneSquare == Bitboard.NONE;
+		boolean playerTwoConnected = mPlayerTwoBridges.compute(mBoard, 2) || mBoard.mPlayerTwoSquare == Bitboard.NONE;
+		return playerOneConnected && playerTwoConnected;
+	}
+
+	/**
+	 * Free slots away from both players' paths are legal, slots cutting a bridge are not, and only
+	 * the other slots on a path get a full connectivity test
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @return The mask of legal slots, using the result of the last computeBridges
+	 */
+	private long getLegalWallMaskFromBridges(int wallType) {
+		long free = ~mBoard.getOverlapMask(wallType);
+		long onPath = mPlayerOneBridges.getPathSlots(wallType) | mPlayerTwoBridges.getPathSlots(wallType);
+		long onBridge = mPlayerOneBridges.getBridgeSlots(wallType) | mPlayerTwoBridges.getBridgeSlots(wallType);
+
+		long legal = free & ~onPath;
+		long candidates = free & onPath & ~onBridge;
+		while (candidates != 0) {
+			int slot = Long.numberOfTrailingZeros(candidates);
+			candidates &= candidates - 1;
+			if (!isWallBlocking(wallType, slot)) legal |= 1L << slot;
+		}
+		return legal;
+	}
+
+	/**
+	 * Tentatively places a wall, checks through the distance fields whether a player is cut off
+	 * from its victory line, then undoes the placement
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot The slot of the wall, which must be free
+	 * @return True if the wall would leave a player without a path
+	 */
+	private boolean isWallBlocking(int wallType, int slot) {
+		placeWall(0, wallType, slot);
+		boolean blocking = isPlayerCutOff(1) || isPlayerCutOff(2);
+		removeWall(0, wallType, slot);
+		return blocking;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return True if the player is on the board and cannot reach its victory line
+	 */
+	public boolean isPlayerCutOff(int playerNumber) {
+		int square = mBoard.getPlayerSquare(playerNumber);
+		return square != Bitboard.NONE && getDistanceMap(playerNumber).getDistance(square) == DistanceMap.UNREACHABLE;
+	}
+}
@@ -0,0 +1,159 @@
+package simon.app.quoridor.Core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Fixed-size array of positions in the binary format of Position, for storing and shipping large
+ * sets of positions for analysis.
+ *
+ * The file is a 16-byte header (magic, version, position count, position size) followed by the
+ * positions, all big-endian. Positions are read and written in place with absolute accesses, so a
+ * memory-mapped file is never parsed as a whole and a lookup does not allocate. Reads can be shared
+ * between threads; writes to the same index cannot.
+ *
+ * A buffer is limited to 2 GB, about 100 million positions.
+ */
+public class PositionFile {
+	/**
+	 * File format identification
+	 */
+	static final int MAGIC = 0x51504F53;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+
+	private final ByteBuffer mBuffer;
+	private final int mPositionCount;
+
+	/**
+	 * Wraps positions already in memory
+	 * @param buffer The content of a position file, from its position to its limit. Not copied
+	 * @throws IOException if the content is not a position file
+	 */
+	public PositionFile(ByteBuffer buffer) throws IOException {
+		mBuffer = buffer.slice();
+		if (mBuffer.remaining() < HEADER_SIZE || mBuffer.getInt(0) != MAGIC)
+			throw new IOException("Not a position file");
+		if (mBuffer.getInt(4) != VERSION || mBuffer.getInt(12) != Position.BINARY_SIZE)
+			throw new IOException("Unsupported position file version " + mBuffer.getInt(4));
+		mPositionCount = mBuffer.getInt(8);
+		if (mPositionCount < 0 || mBuffer.remaining() < getSize(mPositionCount))
+			throw new IOException("Truncated position file");
+	}
+
+	/**
+	 * Allocates positions in a direct buffer, outside of the heap
+	 * @param positionCount The number of positions, all starting positions at first
+	 * @return The positions
+	 */
+	public static PositionFile allocateDirect(int positionCount) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(checkedSize(positionCount));
+		writeHeader(buffer, positionCount);
+		writeInitialPositions(buffer, positionCount);
+		try {
+			return new PositionFile(buffer);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Memory-maps a position file for reading
+	 * @param file The position file
+	 * @return The positions, read-only
+	 * @throws IOException if the file cannot be read or is not a position file
+	 */
+	public static PositionFile open(File file) throws IOException {
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+			 FileChannel channel = randomAccessFile.getChannel()) {
+			// The mapping stays valid once the channel is closed
+			return new PositionFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Creates a position file, replacing any existing one, and memory-maps it for writing. The
+	 * positions written are flushed to the file by the operating system
+	 * @param file The file to create
+	 * @param positionCount The number of positions, all starting positions at first
+	 * @return The positions
+	 * @throws IOException if the file cannot be written
+	 */
+	public static PositionFile create(File file, int positionCount) throws IOException {
+		int size = checkedSize(positionCount);
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			 FileChannel channel = randomAccessFile.getChannel()) {
+			channel.truncate(0);
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			writeHeader(buffer, positionCount);
+			writeInitialPositions(buffer, positionCount);
+			return new PositionFile(buffer);
+		}
+	}
+
+	/**
+	 * @return The number of positions
+	 */
+	public int getPositionCount() {
+		return mPositionCount;
+	}
+
+	/**
+	 * Reads a position
+	 * @param index The index of the position
+	 * @param position The position to overwrite
+	 * @throws IndexOutOfBoundsException if there is no position at that index
+	 * @throws IllegalArgumentException if the stored position is invalid
+	 */
+	public void get(int index, Position position) {
+		position.readFrom(mBuffer, getOffset(index));
+	}
+
+	/**
+	 * Writes a position
+	 * @param index The index of the position
+	 * @param position The position to write
+	 * @throws IndexOutOfBoundsException if there is no position at that index
+	 * @throws java.nio.ReadOnlyBufferException if the positions were opened read-only
+	 */
+	public void set(int index, Position position) {
+		position.writeTo(mBuffer, getOffset(index));
+	}
+
+	private int getOffset(int index) {
+		if (index < 0 || index >= mPositionCount) throw new IndexOutOfBoundsException("Position " + index);
+		return HEADER_SIZE + index * Position.BINARY_SIZE;
+	}
+
+	private static long getSize(int positionCount) {
+		return HEADER_SIZE + (long) positionCount * Position.BINARY_SIZE;
+	}
+
+	private static int checkedSize(int positionCount) {
+		long size = getSize(positionCount);
+		if (positionCount < 0 || size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid position count " + positionCount);
+		return (int) size;
+	}
+
+	private static void writeHeader(ByteBuffer buffer, int positionCount) {
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, positionCount);
+		buffer.putInt(12, Position.BINARY_SIZE);
+	}
+
+	/**
+	 * Zeroed bytes would read as both pawns on the first square with no walls left
+	 */
+	private static void writeInitialPositions(ByteBuffer buffer, int positionCount) {
+		Position position = new Position();
+		position.setInitial();
+		for (int i = 0; i < positionCount; i++) {
+			position.writeTo(buffer, HEADER_SIZE + i * Position.BINARY_SIZE);
+		}
+	}
+}
@@ -0,0 +1,731 @@
+package simon.app.quoridor.Core;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Logical implementation of the Quoridor game. Plain Java, so that it also runs outside Android;
+ * the app reads and writes the server's JSON game state with QuoridorJSON
+ */
+public class Quoridor {
+	// Constant
+	public static final int HORIZONTAL = 1;
+	public static final int VERTICAL = 2;
+
+	// Logic & api
+	public String mGameID = "";
+	public int[] mPlayerOnePosition = new int[2];
+	public int mPlayerOneWallsLeft = 10;
+	public String mPlayerOneName = "";
+	public int[] mPlayerTwoPosition = new int[2];
+	public int mPlayerTwoWallsLeft = 10;
+	public String mPlayerTwoName = "";
+	public List<int[]> mHorizontalWalls = new ArrayList<>();
+	public List<int[]> mVerticalWalls = new ArrayList<>();
+	public String mLastMoveType = "";
+	public String mLastMoveCoordinates = "";
+
+	/**
+	 * Rules state mirroring the positions, wall lists and walls left above, used for constant time
+	 * wall lookups, move generation and legality checks. Kept in sync by every method that modifies
+	 * the game state.
+	 */
+	final Position mPosition = new Position();
+
+	/**
+	 * Bitboard of mPosition
+	 */
+	final Bitboard mBoard = mPosition.mBoard;
+
+	/**
+	 * Scratch buffer for move generation, so the list and IntBuffer wrappers do not allocate one
+	 */
+	private final int[] mMoveBuffer = new int[Bitboard.MAX_PAWN_MOVES];
+
+	/**
+	 * Pathfinder and its output buffer, reused by every path query. Created by the first one, so that
+	 * forks stay small
+	 */
+	private PathFinder mPathFinder;
+	private int[] mPathBuffer;
+
+	/**
+	 * True while the wall lists may be shared with a copy or a QuoridorState, in which case they
+	 * are copied before being modified. The position arrays and the wall coordinates in the lists
+	 * are never modified in place, so they can always be shared
+	 */
+	private boolean mWallListsShared;
+
+	/**
+	 * Undo stack of makeMove: for every move, the player, the move and the square the pawn of the
+	 * player was on, then the previous mLastMoveType and mLastMoveCoordinates
+	 */
+	private int[] mUndoMoves = new int[0];
+	private String[] mUndoLastMoves = new String[0];
+	private int mUndoCount;
+
+	/**
+	 * Default constructor. Initialises an empty game
+	 */
+	public Quoridor() {
+
+	}
+
+	/**
+	 * Copy constructor. The copy shares the position arrays and wall lists of the game, which are
+	 * copied by whichever of the two modifies its wall lists first. The undo history is not copied
+	 * @param quoridor The quoridor game to copy from
+	 * @see #fork()
+	 */
+	public Quoridor(Quoridor quoridor) {
+		mGameID = quoridor.mGameID;
+		mPlayerOnePosition = quoridor.mPlayerOnePosition;
+		mPlayerOneWallsLeft = quoridor.mPlayerOneWallsLeft;
+		mPlayerOneName = quoridor.mPlayerOneName;
+		mPlayerTwoPosition = quoridor.mPlayerTwoPosition;
+		mPlayerTwoWallsLeft = quoridor.mPlayerTwoWallsLeft;
+		mPlayerTwoName = quoridor.mPlayerTwoName;
+		mHorizontalWalls = quoridor.mHorizontalWalls;
+		mVerticalWalls = quoridor.mVerticalWalls;
+		mWallListsShared = true;
+		quoridor.mWallListsShared = true;
+		mLastMoveType = quoridor.mLastMoveType;
+		mLastMoveCoordinates = quoridor.mLastMoveCoordinates;
+		mPosition.copyFrom(quoridor.mPosition);
+	}
+
+	/**
+	 * Takes an immutable snapshot of the game state, to publish to threads that only read it. Must
+	 * be called on the thread modifying the game. The wall lists are shared with the snapshot and
+	 * copied by the next wall change of this game
+	 * @return The snapshot
+	 */
+	public QuoridorState getState() {
+		mWallListsShared = true;
+		return new QuoridorState(this);
+	}
+
+	/**
+	 * Branches the game, for instance to analyse a move without playing it. Costs a copy of the
+	 * rules state; the coordinates are shared until modified
+	 * @return An independent game with the same state
+	 */
+	public Quoridor fork() {
+		return new Quoridor(this);
+	}
+
+	/**
+	 * Sets the game ID
+	 * @param gameID String corresponding to the game ID
+	 */
+	public void setGameID(String gameID) {
+		mGameID = gameID;
+	}
+
+	/**
+	 * Changes coordinates of a player, and updates mLastMoveType and mLastMoveCoordinates
+	 * accordingly
+	 * @param playerNumber The number of the player to change position (1 or 2)
+	 * @param x The new x coordinate
+	 * @param y The new y coordinate
+	 */
+	public void movePlayer(int playerNumber, int x, int y) {
+		if (playerNumber == 1)
+			mPlayerOnePosition = new int[]{x, y};
+		else
+			mPlayerTwoPosition = new int[]{x, y};
+		mPosition.movePawn(playerNumber, Bitboard.square(x, y));
+		mLastMoveType = "D";
+		mLastMoveCoordinates = "(" + x + ", " + y + ")";
+	}
+
+	/**
+	 * Adds a wall to the horizontal or vertical wall list and subtract 1 to the number of walls left
+	 * for the player who places the wall
+	 * @param player The player who places the wall (1 or 2)
+	 * @param type The type of wall to place (constant HORIZONTAL or VERTICAL)
+	 * @param x The x coordinate of the wall
+	 * @param y The y coordinate of the wall
+	 */
+	public void placeWall(int player, int type, int x, int y) {
+		ownWallLists();
+		if (type == HORIZONTAL) {
+			int[] wallCoordinates = new int[2];
+			wallCoordinates[0] = x;
+			wallCoordinates[1] = y;
+			mHorizontalWalls.add(wallCoordinates);
+		} else if (type == VERTICAL) {
+			int[] wallCoordinates = new int[2];
+			wallCoordinates[0] = x;
+			wallCoordinates[1] = y;
+			mVerticalWalls.add(wallCoordinates);
+		}
+		int slot = Bitboard.slot(type, x, y);
+		if (slot != Bitboard.NONE) mPosition.placeWall(player, type, slot);
+		if (player == 1) {
+			mPlayerOneWallsLeft--;
+		} else if (player == 2) {
+			mPlayerTwoWallsLeft--;
+		}
+		if (type == HORIZONTAL)
+			mLastMoveType = "MH";
+		else
+			mLastMoveType = "MV";
+		mLastMoveCoordinates = "(" + x + ", " + y + ")";
+
+	}
+
+	/**
+	 * Replaces the whole game state, such as one received from the server
+	 * @param playerOnePosition The (x, y) coordinates of player 1
+	 * @param playerOneWallsLeft The number of walls player 1 can still place
+	 * @param playerTwoPosition The (x, y) coordinates of player 2
+	 * @param playerTwoWallsLeft The number of walls player 2 can still place
+	 * @param horizontalWalls The (x, y) coordinates of the horizontal walls
+	 * @param verticalWalls The (x, y) coordinates of the vertical walls
+	 */
+	public void setGameState(int[] playerOnePosition, int playerOneWallsLeft,
+							 int[] playerTwoPosition, int playerTwoWallsLeft,
+							 List<int[]> horizontalWalls, List<int[]> verticalWalls) {
+		mPlayerOnePosition = playerOnePosition;
+		mPlayerOneWallsLeft = playerOneWallsLeft;
+		mPlayerTwoPosition = playerTwoPosition;
+		mPlayerTwoWallsLeft = playerTwoWallsLeft;
+		ownWallLists();
+		mHorizontalWalls.clear();
+		mHorizontalWalls.addAll(horizontalWalls);
+		mVerticalWalls.clear();
+		mVerticalWalls.addAll(verticalWalls);
+		syncBoard();
+	}
+
+	/**
+	 * Replaces the whole game state from flat coordinates. The position arrays and the wall entries
+	 * that did not change are kept, so that a state received after a move only allocates its new
+	 * wall
+	 * @param playerOneX The x coordinate of player 1
+	 * @param playerOneY The y coordinate of player 1
+	 * @param playerOneWallsLeft The number of walls player 1 can still place
+	 * @param playerTwoX The x coordinate of player 2
+	 * @param playerTwoY The y coordinate of player 2
+	 * @param playerTwoWallsLeft The number of walls player 2 can still place
+	 * @param horizontalWalls The (x, y) coordinates of the horizontal walls, one pair after the other
+	 * @param horizontalWallCount The number of horizontal walls
+	 * @param verticalWalls The (x, y) coordinates of the vertical walls, one pair after the other
+	 * @param verticalWallCount The number of vertical walls
+	 */
+	public void setGameState(int playerOneX, int playerOneY, int playerOneWallsLeft,
+							 int playerTwoX, int playerTwoY, int playerTwoWallsLeft,
+							 int[] horizontalWalls, int horizontalWallCount,
+							 int[] verticalWalls, int verticalWallCount) {
+		if (mPlayerOnePosition[0] != playerOneX || mPlayerOnePosition[1] != playerOneY)
+			mPlayerOnePosition = new int[]{playerOneX, playerOneY};
+		if (mPlayerTwoPosition[0] != playerTwoX || mPlayerTwoPosition[1] != playerTwoY)
+			mPlayerTwoPosition = new int[]{playerTwoX, playerTwoY};
+		mPlayerOneWallsLeft = playerOneWallsLeft;
+		mPlayerTwoWallsLeft = playerTwoWallsLeft;
+		ownWallLists();
+		setWalls(mHorizontalWalls, horizontalWalls, horizontalWallCount);
+		setWalls(mVerticalWalls, verticalWalls, verticalWallCount);
+		syncBoard();
+	}
+
+	/**
+	 * Makes a wall list match flat coordinates, keeping the entries already equal
+	 */
+	private static void setWalls(List<int[]> walls, int[] coordinates, int count) {
+		for (int i = 0; i < count; i++) {
+			int x = coordinates[2 * i];
+			int y = coordinates[2 * i + 1];
+			if (i == walls.size())
+				walls.add(new int[]{x, y});
+			else if (walls.get(i)[0] != x || walls.get(i)[1] != y)
+				walls.set(i, new int[]{x, y});
+		}
+		while (walls.size() > count) {
+			walls.remove(walls.size() - 1);
+		}
+	}
+
+	/**
+	 * Rebuilds mPosition from the player positions, wall lists and walls left
+	 */
+	private void syncBoard() {
+		Bitboard board = new Bitboard();
+		board.mPlayerOneSquare = Bitboard.square(mPlayerOnePosition[0], mPlayerOnePosition[1]);
+		board.mPlayerTwoSquare = Bitboard.square(mPlayerTwoPosition[0], mPlayerTwoPosition[1]);
+		for (int[] wall : mHorizontalWalls) {
+			int slot = Bitboard.horizontalSlot(wall[0], wall[1]);
+			if (slot != Bitboard.NONE) board.placeWall(HORIZONTAL, slot);
+		}
+		for (int[] wall : mVerticalWalls) {
+			int slot = Bitboard.verticalSlot(wall[0], wall[1]);
+			if (slot != Bitboard.NONE) board.placeWall(VERTICAL, slot);
+		}
+		mPosition.set(board, mPlayerOneWallsLeft, mPlayerTwoWallsLeft);
+		clearUndoHistory();
+	}
+
+	/**
+	 * Copies the wall lists if they are shared with a copy of the game
+	 */
+	private void ownWallLists() {
+		if (!mWallListsShared) return;
+		mHorizontalWalls = new ArrayList<>(mHorizontalWalls);
+		mVerticalWalls = new ArrayList<>(mVerticalWalls);
+		mWallListsShared = false;
+	}
+
+	/**
+	 * Moves player at specified position if the move is valid and legal, else throws a QuoridorException
+	 * @param playerNumber The player to move to the position (1 or 2)
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @throws QuoridorException if the move is invalid
+	 */
+	public void requestPlayerMovement(int playerNumber, int x, int y) throws QuoridorException {
+		int square = Bitboard.square(x, y);
+		int count = getPossibleNextSquares(playerNumber, Bitboard.NONE, mMoveBuffer);
+		for (int i = 0; i < count; i++) {
+			if (mMoveBuffer[i] == square) {
+				movePlayer(playerNumber, x, y);
+				return;
+			}
+		}
+		throw new QuoridorException("Invalid movement request at (" + x + ", " + y + ")");
+
+	}
+
+	/**
+	 * Places wall at specified position if it is valid, else throws a QuoridorException.
+	 * @param playerNumber The player placing the wall (1 or 2)
+	 * @param wallType The type of wall to place (constant HORIZONTAL or VERTICAL)
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @throws QuoridorException if the move is invalid
+	 */
+	public void requestWallPlacement(int playerNumber, int wallType, int x, int y) throws QuoridorException {
+		if (isWallLegal(wallType, x, y)) {
+			placeWall(playerNumber, wallType, x, y);
+		} else {
+			throw new QuoridorException("Invalid wall placement request");
+		}
+	}
+
+	/**
+	 * Plays a packed move if it is legal for the player, else throws a QuoridorException
+	 * @param playerNumber The player playing (1 or 2)
+	 * @param move The move
+	 * @throws QuoridorException if the move is illegal or the player has no walls left
+	 * @see Move
+	 */
+	public void requestMove(int playerNumber, int move) throws QuoridorException {
+		if (move == Move.NONE) throw new QuoridorException("Invalid move");
+		if (!Move.isWall(move)) {
+			requestPlayerMovement(playerNumber, Move.getX(move), Move.getY(move));
+			return;
+		}
+		int wallsLeft = playerNumber == 1 ? mPlayerOneWallsLeft : mPlayerTwoWallsLeft;
+		if (wallsLeft == 0) throw new QuoridorException("No walls left");
+		requestWallPlacement(playerNumber, Move.getWallType(move), Move.getX(move), Move.getY(move));
+	}
+
+	/**
+	 * Checks if a wall can be placed in the current game state: it has to be on the board, must
+	 * not overlap or cross an existing wall and must leave both players a path to their victory
+	 * line. The game is not copied; the wall is tried in place and removed afterwards.
+	 * @param wallType The type of wall (HORIZONTAL or VERTICAL)
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @return True if the wall can be placed
+	 */
+	public boolean isWallLegal(int wallType, int x, int y) {
+		int slot = Bitboard.slot(wallType, x, y);
+		return slot != Bitboard.NONE && mPosition.isWallLegal(wallType, slot);
+	}
+
+	/**
+	 * Computes every legal wall placement for both wall types in one pass
+	 * @param masks Array of size 2 receiving the mask of legal horizontal slots at index 0 and of
+	 *              legal vertical slots at index 1
+	 * @see Bitboard#horizontalSlot(int, int)
+	 * @see Bitboard#verticalSlot(int, int)
+	 */
+	public void getLegalWallMasks(long[] masks) {
+		mPosition.getLegalWallMasks(masks);
+	}
+
+	/**
+	 * @param wallType The type of wall (HORIZONTAL or VERTICAL)
+	 * @return The mask of slots where a wall of that type can legally be placed
+	 * @see #isWallLegal(int, int, int)
+	 */
+	public long getLegalWallMask(int wallType) {
+		return mPosition.getLegalWallMask(wallType);
+	}
+
+	/**
+	 * Retrieves a list of invalid wall coordinates depending on the current game state for the specified wall type
+	 * @param wallType The wall type for which to get the list of invalid positions (HORIZONTAL or VERTICAL)
+	 * @return A list containing arrays of size 2 (x, y), the invalid coordinates for the wall placement.
+	 * Includes the walls overlapping an existing wall and the walls that would cut a player off.
+	 * @see #getLegalWallMask(int)
+	 */
+	public List<int[]> getInvalidWallCoordinates(int wallType) {
+		long invalid = ~getLegalWallMask(wallType);
+		List<int[]> invalidWallCoordinates = new ArrayList<>(Long.bitCount(invalid));
+
+		while (invalid != 0) {
+			int slot = Long.numberOfTrailingZeros(invalid);
+			invalid &= invalid - 1;
+			invalidWallCoordinates.add(new int[]{Bitboard.slotX(wallType, slot), Bitboard.slotY(wallType, slot)});
+		}
+
+		return invalidWallCoordinates;
+	}
+
+	/**
+	 * Retrieves the possible coordinates a player can move to
+	 * @param playerNumber The player for which to retrieve the next possible coordinates
+	 * @param ignoreOtherPlayerJump Whether to ignore the option to jump over the other player
+	 *                              (used in recursion to analyze the jump over the other player).
+	 *                           	Should be false if called from outside the method
+	 * @param virtualPosition If not null, the player is considered to be at that position (x, y).
+	 *                        Used for analysing different scenarios
+	 * @return A list containing all the coordinates the player can move to (size-2 arrays)
+	 */
+	public List<int[]> getPossibleNextCoordinates(int playerNumber, boolean ignoreOtherPlayerJump, int[] virtualPosition) {
+		int playerSquare;
+		if (virtualPosition != null)
+			playerSquare = Bitboard.square(virtualPosition[0], virtualPosition[1]);
+		else
+			playerSquare = mBoard.getPlayerSquare(playerNumber);
+		int otherPlayerSquare = mBoard.getPlayerSquare(playerNumber == 1 ? 2 : 1);
+
+		int count = mBoard.generatePawnMoves(playerSquare, otherPlayerSquare, ignoreOtherPlayerJump, mMoveBuffer, 0);
+		List<int[]> possibleNextCoordinates = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			possibleNextCoordinates.add(new int[]{Bitboard.squareX(mMoveBuffer[i]), Bitboard.squareY(mMoveBuffer[i])});
+		}
+
+		return possibleNextCoordinates;
+	}
+
+	/**
+	 * Allocation-free version of getPossibleNextCoordinates. Writes the packed squares
+	 * ((x - 1) + (y - 1) * 9) the player can move to in the same order.
+	 * @param playerNumber The player for which to retrieve the next possible squares
+	 * @param fromSquare The packed square the player is considered to be at, or Bitboard.NONE to
+	 *                   use the player's current square
+	 * @param squares The buffer to write into. Must have room for Bitboard.MAX_PAWN_MOVES squares
+	 * @return The number of squares written at the beginning of squares
+	 * @see Bitboard#square(int, int)
+	 */
+	public int getPossibleNextSquares(int playerNumber, int fromSquare, int[] squares) {
+		return getPossibleNextSquares(playerNumber, fromSquare, squares, 0);
+	}
+
+	/**
+	 * Allocation-free version of getPossibleNextCoordinates that appends packed squares at the
+	 * position of an IntBuffer, advancing it.
+	 * @param playerNumber The player for which to retrieve the next possible squares
+	 * @param fromSquare The packed square the player is considered to be at, or Bitboard.NONE to
+	 *                   use the player's current square
+	 * @param squares The buffer to write into. Must have Bitboard.MAX_PAWN_MOVES remaining
+	 * @return The number of squares written
+	 */
+	public int getPossibleNextSquares(int playerNumber, int fromSquare, IntBuffer squares) {
+		if (squares.hasArray()) {
+			int start = squares.arrayOffset() + squares.position();
+			int count = getPossibleNextSquares(playerNumber, fromSquare, squares.array(), start);
+			squares.position(squares.position() + count);
+			return count;
+		}
+
+		int count = getPossibleNextSquares(playerNumber, fromSquare, mMoveBuffer, 0);
+		for (int i = 0; i < count; i++) {
+			squares.put(mMoveBuffer[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * @see #getPossibleNextSquares(int, int, int[])
+	 */
+	private int getPossibleNextSquares(int playerNumber, int fromSquare, int[] squares, int offset) {
+		if (fromSquare == Bitboard.NONE) fromSquare = mBoard.getPlayerSquare(playerNumber);
+		return mBoard.generatePawnMoves(fromSquare, mBoard.getPlayerSquare(playerNumber == 1 ? 2 : 1), false, squares, offset);
+	}
+
+	/**
+	 * Utility method to check if a position is included in a List. The function assumes that the
+	 * positions are arrays of size 2, both in the list and for the first parameter
+	 * @param position An array of size 2 corresponding to a position (x, y)
+	 * @param positionArrayList The list to search in
+	 * @return True if the position is found in the list, else false
+	 */
+	public static boolean positionIncluded(int[] position, List<int[]> positionArrayList) {
+		boolean included = false;
+
+		for (int[] positionInArray : positionArrayList) {
+			if (position[0] == positionInArray[0] && position[1] == positionInArray[1]) {
+				included = true;
+				break;
+			}
+		}
+
+		return included;
+	}
+
+	/**
+	 * Check if a player has won the game
+	 * @return The number corresponding to the winner (1 or 2) if someone has won, else 0
+	 */
+	public int getWinnerPlayerNumberOrZero() {
+		if (mPlayerOnePosition[1] == 9) return 1;
+		if (mPlayerTwoPosition[1] == 1) return 2;
+		return 0;
+	}
+
+	/**
+	 * Finds the shortest path a player has to get to the victory line
+	 * @param playerNumber The player number (1 or 2) for which to find the path
+	 * @return A list containing coordinates (arrays of size 2) to the victory or null if not path
+	 * is possible. The first element of the list is the starting position and the last one is the
+	 * position reached on the victory line.
+	 * @see PathFinder
+	 */
+	public List<int[]> getShortestPathToVictory(int playerNumber) { // null if none
+		if (getPathFinder().search(mBoard, playerNumber) == PathFinder.NO_PATH) return null;
+
+		int count = mPathFinder.getPath(mPathBuffer);
+		List<int[]> path = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			path.add(new int[]{Bitboard.squareX(mPathBuffer[i]), Bitboard.squareY(mPathBuffer[i])});
+		}
+		return path;
+	}
+
+	/**
+	 * Allocation-free version of getShortestPathToVictory
+	 * @param playerNumber The player number (1 or 2) for which to find the path
+	 * @return The number of moves the player needs to reach the victory line, or PathFinder.NO_PATH
+	 */
+	public int getShortestPathLength(int playerNumber) {
+		return getPathFinder().search(mBoard, playerNumber);
+	}
+
+	private PathFinder getPathFinder() {
+		if (mPathFinder == null) {
+			mPathFinder = new PathFinder();
+			mPathBuffer = new int[Bitboard.SQUARE_COUNT];
+		}
+		return mPathFinder;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return The distance field leading to that player's victory line
+	 */
+	DistanceMap getDistanceMap(int playerNumber) {
+		return mPosition.getDistanceMap(playerNumber);
+	}
+
+	/**
+	 * Number of steps a player needs to reach the victory line considering walls only. Unlike
+	 * getShortestPathLength, the other pawn is ignored (no blocking, no jumps). This is a lookup
+	 * in a distance field kept up to date by placeWall.
+	 * @param playerNumber The player (1 or 2)
+	 * @return The number of steps, or DistanceMap.UNREACHABLE if the walls cut the player off
+	 */
+	public int getDistanceToVictory(int playerNumber) {
+		return mPosition.getDistanceToVictory(playerNumber);
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return True if the walls leave the player a path to the victory line
+	 */
+	public boolean isPathToVictoryPossible(int playerNumber) {
+		return getDistanceToVictory(playerNumber) != DistanceMap.UNREACHABLE;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return The (x, y) coordinates of an adjacent cell one step closer to the victory line
+	 * considering walls only, or null if the player is on it or cut off from it
+	 */
+	public int[] getNextStepToVictory(int playerNumber) {
+		int square = mBoard.getPlayerSquare(playerNumber);
+		if (square == Bitboard.NONE) return null;
+		int nextSquare = getDistanceMap(playerNumber).getNextStep(square, mBoard);
+		if (nextSquare == Bitboard.NONE) return null;
+		return new int[]{Bitboard.squareX(nextSquare), Bitboard.squareY(nextSquare)};
+	}
+
+	/**
+	 * @param playerNumber The number of the player for which to get the position
+	 * @return A 2-sized array containing the player's position
+	 */
+	public int[] getPlayerPosition(int playerNumber) {
+		if (playerNumber == 1)
+			return mPlayerOnePosition;
+		else
+			return mPlayerTwoPosition;
+	}
+
+	/**
+	 * @return The rules state of the game, as searched by the engines. Must not be modified
+	 */
+	public Position getPosition() {
+		return mPosition;
+	}
+
+	/**
+	 * @return The 64-bit Zobrist key of the game state, maintained by movePlayer and placeWall.
+	 * Equal states have equal keys
+	 * @see Zobrist
+	 */
+	public long getKey() {
+		return mPosition.getKey();
+	}
+
+	/**
+	 * Plays a packed move, such as one returned by an engine. Does not check the move
+	 * @param playerNumber The player playing (1 or 2)
+	 * @param move The move
+	 * @see Move
+	 */
+	public void playMove(int playerNumber, int move) {
+		if (Move.isWall(move))
+			placeWall(playerNumber, Move.getWallType(move), Move.getX(move), Move.getY(move));
+		else
+			movePlayer(playerNumber, Move.getX(move), Move.getY(move));
+	}
+
+	/**
+	 * Plays a packed move that can be taken back with unmakeMove. Does not check the move
+	 * @param playerNumber The player playing (1 or 2)
+	 * @param move The move
+	 * @see Move
+	 */
+	public void makeMove(int playerNumber, int move) {
+		if (3 * mUndoCount == mUndoMoves.length) {
+			int capacity = Math.max(16, 2 * mUndoCount);
+			mUndoMoves = Arrays.copyOf(mUndoMoves, 3 * capacity);
+			mUndoLastMoves = Arrays.copyOf(mUndoLastMoves, 2 * capacity);
+		}
+		mUndoMoves[3 * mUndoCount] = playerNumber;
+		mUndoMoves[3 * mUndoCount + 1] = move;
+		mUndoMoves[3 * mUndoCount + 2] = mBoard.getPlayerSquare(playerNumber);
+		mUndoLastMoves[2 * mUndoCount] = mLastMoveType;
+		mUndoLastMoves[2 * mUndoCount + 1] = mLastMoveCoordinates;
+		mUndoCount++;
+		playMove(playerNumber, move);
+	}
+
+	/**
+	 * Takes back the last move played with makeMove
+	 * @throws IllegalStateException if there is no move to take back, including after the game
+	 * state was replaced
+	 */
+	public void unmakeMove() {
+		if (mUndoCount == 0) throw new IllegalStateException("No move to take back");
+		mUndoCount--;
+		int playerNumber = mUndoMoves[3 * mUndoCount];
+		int move = mUndoMoves[3 * mUndoCount + 1];
+		if (Move.isWall(move)) {
+			removeWall(playerNumber, Move.getWallType(move), Move.getSlot(move));
+		} else {
+			int previousSquare = mUndoMoves[3 * mUndoCount + 2];
+			if (playerNumber == 1)
+				mPlayerOnePosition = getCoordinates(previousSquare);
+			else
+				mPlayerTwoPosition = getCoordinates(previousSquare);
+			mPosition.movePawn(playerNumber, previousSquare);
+		}
+		mLastMoveType = mUndoLastMoves[2 * mUndoCount];
+		mLastMoveCoordinates = mUndoLastMoves[2 * mUndoCount + 1];
+		mUndoLastMoves[2 * mUndoCount] = null;
+		mUndoLastMoves[2 * mUndoCount + 1] = null;
+	}
+
+	/**
+	 * @return The number of moves that unmakeMove can take back
+	 */
+	public int getUndoCount() {
+		return mUndoCount;
+	}
+
+	/**
+	 * Takes back placeWall
+	 */
+	private void removeWall(int playerNumber, int wallType, int slot) {
+		ownWallLists();
+		List<int[]> walls = wallType == HORIZONTAL ? mHorizontalWalls : mVerticalWalls;
+		int x = Bitboard.slotX(wallType, slot);
+		int y = Bitboard.slotY(wallType, slot);
+		for (int i = walls.size() - 1; i >= 0; i--) {
+			if (walls.get(i)[0] == x && walls.get(i)[1] == y) {
+				walls.remove(i);
+				break;
+			}
+		}
+		mPosition.removeWall(playerNumber, wallType, slot);
+		if (playerNumber == 1)
+			mPlayerOneWallsLeft++;
+		else if (playerNumber == 2)
+			mPlayerTwoWallsLeft++;
+	}
+
+	private void clearUndoHistory() {
+		Arrays.fill(mUndoLastMoves, 0, 2 * mUndoCount, null);
+		mUndoCount = 0;
+	}
+
+	/**
+	 * Writes the rules state of the game in Position.BINARY_SIZE bytes. Names, game ID and the
+	 * order in which walls were placed are not written
+	 * @param buffer The buffer to write to at its position, which is advanced
+	 * @see Position#writeTo(ByteBuffer)
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		mPosition.writeTo(buffer);
+	}
+
+	/**
+	 * Replaces the game state with one written by writeTo. The walls are listed by slot
+	 * @param buffer The buffer to read from at its position, which is advanced
+	 * @throws IllegalArgumentException if a pawn square is out of the board, two walls overlap or a
+	 * player has more than INITIAL_WALLS walls left, in which case the game is unchanged
+	 * @see Position#readFrom(ByteBuffer)
+	 */
+	public void readFrom(ByteBuffer buffer) {
+		mPosition.readFrom(buffer);
+		clearUndoHistory();
+		mPlayerOnePosition = getCoordinates(mBoard.mPlayerOneSquare);
+		mPlayerTwoPosition = getCoordinates(mBoard.mPlayerTwoSquare);
+		mPlayerOneWallsLeft = mPosition.getWallsLeft(1);
+		mPlayerTwoWallsLeft = mPosition.getWallsLeft(2);
+		ownWallLists();
+		getWallCoordinates(HORIZONTAL, mBoard.mHorizontalWalls, mHorizontalWalls);
+		getWallCoordinates(VERTICAL, mBoard.mVerticalWalls, mVerticalWalls);
+	}
+
+	private static int[] getCoordinates(int square) {
+		if (square == Bitboard.NONE) return new int[2];
+		return new int[]{Bitboard.squareX(square), Bitboard.squareY(square)};
+	}
+
+	private static void getWallCoordinates(int wallType, long slots, List<int[]> walls) {
+		walls.clear();
+		for (; slots != 0; slots &= slots - 1) {
+			int slot = Long.numberOfTrailingZeros(slots);
+			walls.add(new int[]{Bitboard.slotX(wallType, slot), Bitboard.slotY(wallType, slot)});
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package simon.app.quoridor.Core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a game, for threads that only read it such as the renderer. Taken with
+ * Quoridor.getState on the thread modifying the game and published through an AtomicReference, it
+ * always gives readers a consistent state without locks.
+ *
+ * Snapshots are cheap: the wall lists are shared with the game, which copies them before its next
+ * wall change, and everything else is a value.
+ */
+public final class QuoridorState {
+	private final String mGameID;
+	private final String mPlayerOneName;
+	private final String mPlayerTwoName;
+	private final int mPlayerOneSquare;
+	private final int mPlayerTwoSquare;
+	private final int mPlayerOneWallsLeft;
+	private final int mPlayerTwoWallsLeft;
+	private final List<int[]> mHorizontalWalls;
+	private final List<int[]> mVerticalWalls;
+	private final long mHorizontalWallMask;
+	private final long mVerticalWallMask;
+
+	/**
+	 * Takes a snapshot. The wall lists of the game must be marked as shared
+	 * @param quoridor The game
+	 */
+	QuoridorState(Quoridor quoridor) {
+		mGameID = quoridor.mGameID;
+		mPlayerOneName = quoridor.mPlayerOneName;
+		mPlayerTwoName = quoridor.mPlayerTwoName;
+		mPlayerOneSquare = quoridor.mBoard.mPlayerOneSquare;
+		mPlayerTwoSquare = quoridor.mBoard.mPlayerTwoSquare;
+		mPlayerOneWallsLeft = quoridor.mPlayerOneWallsLeft;
+		mPlayerTwoWallsLeft = quoridor.mPlayerTwoWallsLeft;
+		mHorizontalWalls = Collections.unmodifiableList(quoridor.mHorizontalWalls);
+		mVerticalWalls = Collections.unmodifiableList(quoridor.mVerticalWalls);
+		mHorizontalWallMask = quoridor.mBoard.mHorizontalWalls;
+		mVerticalWallMask = quoridor.mBoard.mVerticalWalls;
+	}
+
+	/**
+	 * @return The ID of the game
+	 */
+	public String getGameID() {
+		return mGameID;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return The name of the player
+	 */
+	public String getPlayerName(int playerNumber) {
+		return playerNumber == 1 ? mPlayerOneName : mPlayerTwoName;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return The packed square of the player's pawn, or Bitboard.NONE if it is not on the board
+	 */
+	public int getPlayerSquare(int playerNumber) {
+		return playerNumber == 1 ? mPlayerOneSquare : mPlayerTwoSquare;
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return The x coordinate of the player's pawn, or 0 if it is not on the board
+	 */
+	public int getPlayerX(int playerNumber) {
+		int square = getPlayerSquare(playerNumber);
+		return square == Bitboard.NONE ? 0 : Bitboard.squareX(square);
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return The y coordinate of the player's pawn, or 0 if it is not on the board
+	 */
+	public int getPlayerY(int playerNumber) {
+		int square = getPlayerSquare(playerNumber);
+		return square == Bitboard.NONE ? 0 : Bitboard.squareY(square);
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @return The number of walls the player can still place
+	 */
+	public int getWallsLeft(int playerNumber) {
+		return playerNumber == 1 ? mPlayerOneWallsLeft : mPlayerTwoWallsLeft;
+	}
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @return The (x, y) coordinates of the walls of that type, in the order they were placed.
+	 * Neither the list nor its coordinates may be modified
+	 */
+	public List<int[]> getWalls(int wallType) {
+		return wallType == Quoridor.HORIZONTAL ? mHorizontalWalls : mVerticalWalls;
+	}
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @return The slots of the walls of that type
+	 * @see Bitboard#slot(int, int, int)
+	 */
+	public long getWallMask(int wallType) {
+		return wallType == Quoridor.HORIZONTAL ? mHorizontalWallMask : mVerticalWallMask;
+	}
+
+	/**
+	 * Overwrites a board with the pawns and walls of this state, for instance to search it with a
+	 * PathFinder owned by the reading thread
+	 * @param board The board to overwrite
+	 */
+	public void copyTo(Bitboard board) {
+		board.mPlayerOneSquare = mPlayerOneSquare;
+		board.mPlayerTwoSquare = mPlayerTwoSquare;
+		board.mHorizontalWalls = mHorizontalWallMask;
+		board.mVerticalWalls = mVerticalWallMask;
+	}
+}
@@ -0,0 +1,14 @@
+package simon.app.quoridor.Core;
+
+import java.io.IOException;
+
+/**
+ * A request the server answered but refused, such as an invalid move or an unknown game. Sending
+ * it again gets the same answer, unlike the other IOExceptions of a GameServer
+ */
+public class RefusedRequestException extends IOException {
+
+	public RefusedRequestException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,281 @@
+package simon.app.quoridor.Core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Speculates on the reply of the server while a move of the user is on its way to it. The likely
+ * replies are played on forks of the game in the background, and everything the board draws after
+ * them (state, hover cells, path of player 1) is prepared as a Frame. When the real state arrives,
+ * the frame with the same Zobrist key is shown at once instead of being computed then.
+ *
+ * The replies are ranked cheaply first (the race to the victory lines after each reply), then the
+ * move the engine would play is added, so the likeliest frames are ready within milliseconds.
+ */
+public class ReplyPrefetcher {
+	/**
+	 * Number of replies prepared after each move of the user
+	 */
+	public static final int DEFAULT_REPLY_COUNT = 8;
+
+	/**
+	 * Time the default engine thinks for its guess, in milliseconds. Well under a round trip
+	 */
+	public static final long DEFAULT_TIME_BUDGET = 150;
+
+	private static final int TABLE_MEGABYTES = 1;
+	private static final int MAX_MOVES = Bitboard.MAX_PAWN_MOVES + 2 * Bitboard.WALL_SLOT_COUNT;
+
+	/**
+	 * Everything drawn after a reply, immutable so that any thread can show it
+	 */
+	public static final class Frame {
+		private final int mReply;
+		private final long mKey;
+		private final QuoridorState mState;
+		private final List<int[]> mHoverCells;
+		private final int[] mPath;
+
+		private Frame(int reply, long key, QuoridorState state, List<int[]> hoverCells, int[] path) {
+			mReply = reply;
+			mKey = key;
+			mState = state;
+			mHoverCells = hoverCells;
+			mPath = path;
+		}
+
+		/**
+		 * @return The reply of player 2 the frame follows
+		 * @see Move
+		 */
+		public int getReply() {
+			return mReply;
+		}
+
+		/**
+		 * @return The Zobrist key of the game after the reply
+		 */
+		public long getKey() {
+			return mKey;
+		}
+
+		/**
+		 * @return The state of the game after the reply
+		 */
+		public QuoridorState getState() {
+			return mState;
+		}
+
+		/**
+		 * @return The coordinates (size-2 arrays) player 1 can move to after the reply. Must not be
+		 * modified
+		 */
+		public List<int[]> getHoverCells() {
+			return mHoverCells;
+		}
+
+		/**
+		 * @param squares The buffer to write into. Must have room for Bitboard.SQUARE_COUNT squares
+		 * @return The number of packed squares of the shortest path of player 1 written, from its
+		 * square to the victory line, 0 if there is none
+		 */
+		public int getPath(int[] squares) {
+			System.arraycopy(mPath, 0, squares, 0, mPath.length);
+			return mPath.length;
+		}
+	}
+
+	/**
+	 * Frames published by a speculation, replaced as a whole when one is added. Each cancel starts
+	 * a new instance, so a frame of an outdated speculation can never be added to a later one
+	 */
+	private static final class Speculation {
+		private final int mGeneration;
+		private final Frame[] mFrames;
+
+		private Speculation(int generation, Frame[] frames) {
+			mGeneration = generation;
+			mFrames = frames;
+		}
+	}
+
+	private final Engine mEngine;
+	private final int mReplyCount;
+	private final ExecutorService mExecutor;
+
+	// The current speculation, whose generation is bumped by cancel so that an outdated one stops
+	// and publishes nothing more
+	private final AtomicReference<Speculation> mSpeculation = new AtomicReference<>(new Speculation(0, new Frame[0]));
+	private Future<?> mTask;
+
+	// Buffers of the speculating thread
+	private final Position mPosition = new Position();
+	private final int[] mMoves = new int[MAX_MOVES];
+	private final int[] mScores = new int[MAX_MOVES];
+	private final long[] mWallMasks = new long[2];
+	private final Bitboard mBoard = new Bitboard();
+	private final PathFinder mPathFinder = new PathFinder();
+	private final int[] mPath = new int[Bitboard.SQUARE_COUNT];
+
+	/**
+	 * Creates a prefetcher guessing with an AlphaBetaEngine thinking DEFAULT_TIME_BUDGET, and
+	 * preparing DEFAULT_REPLY_COUNT replies
+	 */
+	public ReplyPrefetcher() {
+		this(new AlphaBetaEngine(DEFAULT_TIME_BUDGET, new TranspositionTable(TABLE_MEGABYTES)), DEFAULT_REPLY_COUNT);
+	}
+
+	/**
+	 * @param engine The engine guessing the reply of the server. Shut down with the prefetcher
+	 * @param replyCount The number of replies to prepare, the guess of the engine included
+	 */
+	public ReplyPrefetcher(Engine engine, int replyCount) {
+		mEngine = engine;
+		mReplyCount = replyCount;
+		mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "reply-prefetcher");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Starts preparing the replies to the game in the background, dropping the previous
+	 * speculation. Must be called on the thread modifying the game, right after the move of player 1
+	 * @param quoridor The game, with player 2 to move. It is forked, not kept
+	 */
+	public synchronized void prefetch(Quoridor quoridor) {
+		cancel();
+		final Quoridor game = quoridor.fork();
+		final int generation = mSpeculation.get().mGeneration;
+		mTask = mExecutor.submit(new Runnable() {
+			@Override
+			public void run() {
+				speculate(game, generation);
+			}
+		});
+	}
+
+	/**
+	 * Ends the current speculation
+	 * @param key The Zobrist key of the game once the reply arrived
+	 * @return The frame prepared for that game, or null if the reply was not among the guesses or
+	 * not ready yet
+	 */
+	public synchronized Frame take(long key) {
+		Speculation speculation = mSpeculation.get();
+		cancel();
+		for (Frame frame : speculation.mFrames) {
+			if (frame.mKey == key) return frame;
+		}
+		return null;
+	}
+
+	/**
+	 * Drops the current speculation, if any. A search already running ends without publishing
+	 */
+	public synchronized void cancel() {
+		mSpeculation.set(new Speculation(mSpeculation.get().mGeneration + 1, new Frame[0]));
+		if (mTask != null) {
+			mTask.cancel(false);
+			mTask = null;
+		}
+	}
+
+	/**
+	 * Stops the thread of the prefetcher and its engine. It must not be used afterwards
+	 */
+	public void shutdown() {
+		cancel();
+		mExecutor.shutdownNow();
+		mEngine.shutdown();
+	}
+
+	/**
+	 * Prepares the replies to a game on the calling thread. Must not be called while a prefetch
+	 * runs
+	 * @param quoridor The game, with player 2 to move. It is forked, not modified
+	 * @return The frames, the cheapest guesses first and the one of the engine last
+	 */
+	public Frame[] computeFrames(Quoridor quoridor) {
+		cancel();
+		int generation = mSpeculation.get().mGeneration;
+		speculate(quoridor.fork(), generation);
+		return mSpeculation.get().mFrames;
+	}
+
+	/**
+	 * Plays the likeliest replies on forks of the game, publishing a frame after each until the
+	 * speculation is outdated
+	 */
+	private void speculate(Quoridor game, int generation) {
+		mPosition.copyFrom(game.getPosition());
+		if (mPosition.getWinner() != 0) return;
+
+		// Race to the victory lines after each reply, from the point of view of player 2
+		int count = Perft.generateMoves(mPosition, 2, mMoves, mWallMasks);
+		for (int i = 0; i < count; i++) {
+			int previousSquare = mPosition.playMove(2, mMoves[i]);
+			mScores[i] = mPosition.getDistanceToVictory(1) - mPosition.getDistanceToVictory(2);
+			mPosition.undoMove(2, mMoves[i], previousSquare);
+		}
+
+		int heuristicCount = Math.min(count, mReplyCount - 1);
+		for (int i = 0; i < heuristicCount; i++) {
+			// Selection of the next best reply, only as far as needed
+			int best = i;
+			for (int j = i + 1; j < count; j++) {
+				if (mScores[j] > mScores[best]) best = j;
+			}
+			swap(i, best);
+			if (!publish(game, mMoves[i], generation)) return;
+		}
+
+		if (mSpeculation.get().mGeneration != generation) return;
+		int guess = mEngine.findBestMove(mPosition, 2);
+		if (guess == Move.NONE) return;
+		for (int i = 0; i < heuristicCount; i++) {
+			if (mMoves[i] == guess) return;
+		}
+		publish(game, guess, generation);
+	}
+
+	/**
+	 * @return False if the speculation is outdated
+	 */
+	private boolean publish(Quoridor game, int reply, int generation) {
+		Quoridor replied = game.fork();
+		replied.playMove(2, reply);
+		QuoridorState state = replied.getState();
+		state.copyTo(mBoard);
+		int pathLength = mPathFinder.search(mBoard, 1) != PathFinder.NO_PATH ? mPathFinder.getPath(mPath) : 0;
+		Frame frame = new Frame(reply, replied.getKey(), state,
+				replied.getPossibleNextCoordinates(1, false, null), Arrays.copyOf(mPath, pathLength));
+
+		while (true) {
+			Speculation speculation = mSpeculation.get();
+			if (speculation.mGeneration != generation) return false;
+			Frame[] added = Arrays.copyOf(speculation.mFrames, speculation.mFrames.length + 1);
+			added[speculation.mFrames.length] = frame;
+			if (mSpeculation.compareAndSet(speculation, new Speculation(generation, added))) return true;
+		}
+	}
+
+	private void swap(int i, int j) {
+		int move = mMoves[i];
+		mMoves[i] = mMoves[j];
+		mMoves[j] = move;
+		int score = mScores[i];
+		mScores[i] = mScores[j];
+		mScores[j] = score;
+	}
+}
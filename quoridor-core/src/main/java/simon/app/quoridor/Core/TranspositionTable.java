@@ -0,0 +1,151 @@
+package simon.app.quoridor.Core;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of searched positions, shared by searches and analysis code, possibly
+ * running on several threads.
+ *
+ * Each entry is two longs in one array: the position key exclusive-ored with the data, and the
+ * data itself (score, depth, bound, best move and generation). The table takes no lock. Two
+ * threads writing the same entry at once can leave it with halves from different stores, but then
+ * the key check fails on probe and the entry reads as a miss.
+ *
+ * Entries are replaced when the new search is at least as deep, or when they were stored by an
+ * earlier search (see newSearch).
+ */
+public class TranspositionTable {
+	/**
+	 * Returned by probe on a miss. No stored entry is ever equal to it
+	 */
+	public static final long NO_ENTRY = 0;
+
+	/**
+	 * Bound types
+	 */
+	public static final int EXACT = 1;
+	public static final int LOWER_BOUND = 2;
+	public static final int UPPER_BOUND = 3;
+
+	// Data layout: score (32 bits) | generation (8) | move + 1 (8) | depth (8) | unused (6) | bound (2)
+	private static final int BOUND_SHIFT = 0;
+	private static final int DEPTH_SHIFT = 8;
+	private static final int MOVE_SHIFT = 16;
+	private static final int GENERATION_SHIFT = 24;
+	private static final int SCORE_SHIFT = 32;
+	private static final long BYTE_MASK = 0xFF;
+
+	private final long[] mEntries;
+	private final int mIndexMask;
+	private volatile int mGeneration;
+
+	/**
+	 * @param megabytes The size of the table. Rounded down to a power of two number of entries
+	 */
+	public TranspositionTable(int megabytes) {
+		long entryCount = Long.highestOneBit(Math.max(1, (long) megabytes * 1024 * 1024 / 16));
+		entryCount = Math.min(entryCount, 1 << 29);
+		mEntries = new long[(int) entryCount * 2];
+		mIndexMask = (int) entryCount - 1;
+	}
+
+	/**
+	 * @return The number of entries of the table
+	 */
+	public int getCapacity() {
+		return mIndexMask + 1;
+	}
+
+	/**
+	 * Starts a new search: entries stored before can be replaced by shallower ones
+	 */
+	public void newSearch() {
+		mGeneration = (mGeneration + 1) & (int) BYTE_MASK;
+	}
+
+	/**
+	 * Empties the table
+	 */
+	public void clear() {
+		Arrays.fill(mEntries, 0);
+	}
+
+	/**
+	 * @param key The key of the position
+	 * @return The data stored for the position, to read with the static getters, or NO_ENTRY
+	 */
+	public long probe(long key) {
+		int index = index(key);
+		long data = mEntries[index + 1];
+		if (data == NO_ENTRY || (mEntries[index] ^ data) != key) return NO_ENTRY;
+		return data;
+	}
+
+	/**
+	 * Stores the result of a search, unless the entry holds a deeper result for another position
+	 * from the current search
+	 * @param key The key of the position
+	 * @param depth The depth searched, 0 to 255
+	 * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param score The score found
+	 * @param move The best move found, or Move.NONE
+	 */
+	public void store(long key, int depth, int bound, int score, int move) {
+		int index = index(key);
+		long oldData = mEntries[index + 1];
+		long oldKey = mEntries[index] ^ oldData;
+		if (oldData != NO_ENTRY && oldKey != key && getGeneration(oldData) == mGeneration && getDepth(oldData) > depth)
+			return;
+
+		// Keep the known best move when the new result has none
+		if (move == Move.NONE && oldData != NO_ENTRY && oldKey == key) move = getMove(oldData);
+
+		long data = ((long) score << SCORE_SHIFT)
+				| ((long) mGeneration << GENERATION_SHIFT)
+				| ((long) (move + 1) << MOVE_SHIFT)
+				| ((depth & BYTE_MASK) << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT);
+		mEntries[index] = key ^ data;
+		mEntries[index + 1] = data;
+	}
+
+	/**
+	 * @param data Data returned by probe
+	 * @return The stored depth
+	 */
+	public static int getDepth(long data) {
+		return (int) ((data >>> DEPTH_SHIFT) & BYTE_MASK);
+	}
+
+	/**
+	 * @param data Data returned by probe
+	 * @return EXACT, LOWER_BOUND or UPPER_BOUND
+	 */
+	public static int getBound(long data) {
+		return (int) ((data >>> BOUND_SHIFT) & 3);
+	}
+
+	/**
+	 * @param data Data returned by probe
+	 * @return The stored score
+	 */
+	public static int getScore(long data) {
+		return (int) (data >> SCORE_SHIFT);
+	}
+
+	/**
+	 * @param data Data returned by probe
+	 * @return The stored best move, or Move.NONE
+	 */
+	public static int getMove(long data) {
+		return (int) ((data >>> MOVE_SHIFT) & BYTE_MASK) - 1;
+	}
+
+	private static int getGeneration(long data) {
+		return (int) ((data >>> GENERATION_SHIFT) & BYTE_MASK);
+	}
+
+	private int index(long key) {
+		return ((int) (key ^ (key >>> 32)) & mIndexMask) << 1;
+	}
+}
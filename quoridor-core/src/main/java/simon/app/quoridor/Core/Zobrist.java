@@ -0,0 +1,116 @@
+package simon.app.quoridor.Core;
+
+/**
+ * Zobrist hashing of Quoridor positions. Every pawn square, wall slot and wall count has a random
+ * 64-bit key, and the key of a position is the exclusive or of the keys of its features, so it can
+ * be updated in constant time when a pawn moves or a wall is placed or removed.
+ *
+ * The keys are generated from a fixed seed, so they are the same on every run and every device.
+ */
+public final class Zobrist {
+	/**
+	 * Wall counts are hashed modulo this number
+	 */
+	private static final int WALL_COUNT_KEYS = 16;
+
+	private static final long SEED = 0x5155_4f52_4944_4f52L;
+
+	private static final long[][] PAWN_KEYS = new long[2][Bitboard.SQUARE_COUNT];
+	private static final long[][] WALL_KEYS = new long[2][Bitboard.WALL_SLOT_COUNT];
+	private static final long[][] WALLS_LEFT_KEYS = new long[2][WALL_COUNT_KEYS];
+	private static final long PLAYER_TWO_TO_MOVE_KEY;
+
+	static {
+		long state = SEED;
+		for (int player = 0; player < 2; player++) {
+			for (int square = 0; square < Bitboard.SQUARE_COUNT; square++) {
+				state += 0x9E3779B97F4A7C15L;
+				PAWN_KEYS[player][square] = mix(state);
+			}
+		}
+		for (int type = 0; type < 2; type++) {
+			for (int slot = 0; slot < Bitboard.WALL_SLOT_COUNT; slot++) {
+				state += 0x9E3779B97F4A7C15L;
+				WALL_KEYS[type][slot] = mix(state);
+			}
+		}
+		for (int player = 0; player < 2; player++) {
+			for (int count = 0; count < WALL_COUNT_KEYS; count++) {
+				state += 0x9E3779B97F4A7C15L;
+				WALLS_LEFT_KEYS[player][count] = mix(state);
+			}
+		}
+		state += 0x9E3779B97F4A7C15L;
+		PLAYER_TWO_TO_MOVE_KEY = mix(state);
+	}
+
+	private Zobrist() {
+
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @param square A packed square, or Bitboard.NONE
+	 * @return The key of the player's pawn standing on the square (0 for Bitboard.NONE)
+	 */
+	public static long pawn(int playerNumber, int square) {
+		return square == Bitboard.NONE ? 0 : PAWN_KEYS[playerNumber - 1][square];
+	}
+
+	/**
+	 * @param wallType HORIZONTAL or VERTICAL
+	 * @param slot The slot of the wall
+	 * @return The key of the wall
+	 */
+	public static long wall(int wallType, int slot) {
+		return WALL_KEYS[wallType - 1][slot];
+	}
+
+	/**
+	 * @param playerNumber The player (1 or 2)
+	 * @param wallsLeft The number of walls the player can still place
+	 * @return The key of the wall count
+	 */
+	public static long wallsLeft(int playerNumber, int wallsLeft) {
+		return WALLS_LEFT_KEYS[playerNumber - 1][wallsLeft & (WALL_COUNT_KEYS - 1)];
+	}
+
+	/**
+	 * Positions do not record whose turn it is. Searches combine this key with the position key to
+	 * tell apart the same position with a different player to move.
+	 * @param playerNumber The player to move (1 or 2)
+	 * @return The key of the player to move
+	 */
+	public static long sideToMove(int playerNumber) {
+		return playerNumber == 2 ? PLAYER_TWO_TO_MOVE_KEY : 0;
+	}
+
+	/**
+	 * Computes the key of a position from scratch
+	 * @param board The board
+	 * @param playerOneWallsLeft The number of walls player 1 can still place
+	 * @param playerTwoWallsLeft The number of walls player 2 can still place
+	 * @return The key
+	 */
+	public static long compute(Bitboard board, int playerOneWallsLeft, int playerTwoWallsLeft) {
+		long key = pawn(1, board.mPlayerOneSquare) ^ pawn(2, board.mPlayerTwoSquare)
+				^ wallsLeft(1, playerOneWallsLeft) ^ wallsLeft(2, playerTwoWallsLeft);
+		for (int type = Quoridor.HORIZONTAL; type <= Quoridor.VERTICAL; type++) {
+			long walls = board.getWalls(type);
+			while (walls != 0) {
+				key ^= wall(type, Long.numberOfTrailingZeros(walls));
+				walls &= walls - 1;
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * SplitMix64 finaliser
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,55 @@
+package simon.app.quoridor;
+
+import org.junit.Test;
+
+import simon.app.quoridor.Core.Bitboard;
+import simon.app.quoridor.Core.BridgeFinder;
+import simon.app.quoridor.Core.PathFinder;
+import simon.app.quoridor.Core.Quoridor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the bridges between a pawn and its victory line
+ */
+public class BridgeFinderTest {
+
+	@Test
+	public void openBoardHasNoBridge() {
+		Bitboard board = new Bitboard();
+		board.setPlayerSquare(1, Bitboard.square(5, 1));
+		BridgeFinder bridgeFinder = new BridgeFinder();
+
+		// Every step of the path is on a cycle of the open board
+		assertTrue(bridgeFinder.compute(board, 1));
+		assertNotEquals(0, bridgeFinder.getPathSlots(Quoridor.HORIZONTAL));
+		assertEquals(0, bridgeFinder.getBridgeSlots(Quoridor.HORIZONTAL));
+		assertEquals(0, bridgeFinder.getBridgeSlots(Quoridor.VERTICAL));
+	}
+
+	@Test
+	public void bridgesCutThePawnOff() {
+		// A row of walls between rows 2 and 3, open only in column 9
+		Bitboard board = new Bitboard();
+		board.setPlayerSquare(1, Bitboard.square(5, 1));
+		for (int x = 1; x <= 7; x += 2) {
+			board.placeWall(Quoridor.HORIZONTAL, Bitboard.horizontalSlot(x, 3));
+		}
+		BridgeFinder bridgeFinder = new BridgeFinder();
+		assertTrue(bridgeFinder.compute(board, 1));
+
+		assertEquals(1L << Bitboard.horizontalSlot(8, 3), bridgeFinder.getBridgeSlots(Quoridor.HORIZONTAL));
+		assertEquals(0, bridgeFinder.getBridgeSlots(Quoridor.VERTICAL));
+
+		PathFinder pathFinder = new PathFinder();
+		for (int wallType = Quoridor.HORIZONTAL; wallType <= Quoridor.VERTICAL; wallType++) {
+			for (long mask = bridgeFinder.getBridgeSlots(wallType); mask != 0; mask &= mask - 1) {
+				Bitboard cut = new Bitboard(board);
+				cut.placeWall(wallType, Long.numberOfTrailingZeros(mask));
+				assertEquals(PathFinder.NO_PATH, pathFinder.search(cut, 1));
+			}
+		}
+		// The steps towards column 9 are on the path but on cycles below the row of walls
+		assertNotEquals(0, bridgeFinder.getPathSlots(Quoridor.VERTICAL));
+	}
+}
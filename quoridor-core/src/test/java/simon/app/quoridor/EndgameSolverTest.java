@@ -0,0 +1,52 @@
+package simon.app.quoridor;
+
+import org.junit.Test;
+
+import simon.app.quoridor.Core.AlphaBetaEngine;
+import simon.app.quoridor.Core.Bitboard;
+import simon.app.quoridor.Core.EndgameSolver;
+import simon.app.quoridor.Core.Move;
+import simon.app.quoridor.Core.Position;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the endgame solver
+ */
+public class EndgameSolverTest {
+
+	@Test
+	public void sideJumpWins() {
+		// Player 2 blocks the goal square in front of player 1, who jumps to its side
+		Bitboard board = new Bitboard();
+		board.setPlayerSquare(1, Bitboard.square(5, 8));
+		board.setPlayerSquare(2, Bitboard.square(5, 9));
+		Position position = new Position();
+		position.set(board, 0, 0);
+		assertTrue(EndgameSolver.isApplicable(position));
+
+		EndgameSolver solver = new EndgameSolver();
+		assertEquals(EndgameSolver.WIN, solver.solve(position, 1));
+		assertEquals(1, solver.getDistance());
+		assertEquals(9, Move.getY(solver.getBestMove()));
+		assertTrue(position.isMoveLegal(1, solver.getBestMove()));
+	}
+
+	@Test
+	public void openRaceIsWonBySecondPlayer() {
+		// Without walls, the first pawn to come face to face gets jumped over
+		Position position = new Position();
+		position.setInitial();
+		position.setWallsLeft(1, 0);
+		position.setWallsLeft(2, 0);
+
+		EndgameSolver solver = new EndgameSolver();
+		assertEquals(EndgameSolver.LOSS, solver.solve(position, 1));
+		assertEquals(16, solver.getDistance());
+		assertTrue(solver.isSolved(position.getBoard()));
+
+		AlphaBetaEngine engine = new AlphaBetaEngine(AlphaBetaEngine.NO_TIME_LIMIT);
+		assertEquals(solver.getBestMove(), engine.findBestMove(position, 1));
+		assertEquals(-(AlphaBetaEngine.WIN_SCORE - 16), engine.getLastScore());
+	}
+}
@@ -0,0 +1,79 @@
+package simon.app.quoridor;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+import simon.app.quoridor.Core.GameStateCodec;
+import simon.app.quoridor.Core.Quoridor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the streaming JSON game state
+ */
+public class GameStateCodecTest {
+
+	@Test
+	public void stateSurvivesRoundTrip() throws ParseException {
+		Quoridor quoridor = new Quoridor();
+		quoridor.mPlayerOneName = "Zo\u00e9 \"1\"";
+		quoridor.mPlayerTwoName = "robot";
+		quoridor.movePlayer(1, 5, 1);
+		quoridor.movePlayer(2, 5, 9);
+		quoridor.placeWall(1, Quoridor.VERTICAL, 5, 1);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 3, 4);
+
+		GameStateCodec codec = new GameStateCodec();
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		codec.write(quoridor, buffer);
+		String text = new String(buffer.array(), 0, buffer.position());
+
+		Quoridor copy = new Quoridor();
+		codec.read(text, copy);
+		assertEquals(quoridor.getKey(), copy.getKey());
+		assertEquals("Zo\u00e9 \"1\"", copy.mPlayerOneName);
+		assertEquals(9, copy.mPlayerTwoWallsLeft);
+		assertEquals(1, copy.mVerticalWalls.size());
+		assertEquals(text, codec.write(copy).toString());
+	}
+
+	@Test
+	public void responseSkipsUnknownKeys() throws ParseException {
+		String response = "{\"id\": \"abc\", \"gagnant\": null, \"\u00e9tat\": {\"joueurs\": ["
+				+ "{\"nom\": \"a\", \"murs\": 10, \"pos\": [5, 2], \"extra\": [1.5e3, true, {}]},"
+				+ "{\"nom\": \"b\\u00e9\", \"murs\": 9, \"pos\": [5, 9]}],"
+				+ " \"murs\": {\"horizontaux\": [[4, 4]], \"verticaux\": []}}}";
+		Quoridor quoridor = new Quoridor();
+		assertEquals("abc", new GameStateCodec().readResponse(response, quoridor));
+		assertEquals("b\u00e9", quoridor.mPlayerTwoName);
+		assertArrayEquals(new int[]{5, 2}, quoridor.mPlayerOnePosition);
+		assertEquals(1, quoridor.mHorizontalWalls.size());
+		assertFalse(quoridor.isWallLegal(Quoridor.HORIZONTAL, 4, 4));
+	}
+
+	@Test
+	public void malformedStateLeavesGameUnchanged() {
+		Quoridor quoridor = new Quoridor();
+		quoridor.movePlayer(1, 5, 1);
+		quoridor.movePlayer(2, 5, 9);
+		long key = quoridor.getKey();
+		String[] states = {
+				"{\"joueurs\": [], \"murs\": {}}",
+				"{\"joueurs\": [{\"nom\": \"a\", \"murs\": 10, \"pos\": [5, 2]},"
+						+ "{\"nom\": \"b\", \"murs\": 10, \"pos\": [5, 8]}], \"murs\": {\"horizontaux\": []}}",
+				"{\"joueurs\": [{\"nom\": \"a\", \"murs\": 1.5, \"pos\": [5, 2]}]}",
+				"{\"murs\": {\"horizontaux\": [], \"verticaux\": []}} trailing",
+		};
+		GameStateCodec codec = new GameStateCodec();
+		for (String state : states) {
+			try {
+				codec.read(state, quoridor);
+				fail("Expected ParseException for " + state);
+			} catch (ParseException e) {
+				assertEquals(key, quoridor.getKey());
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package simon.app.quoridor;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+import simon.app.quoridor.Core.AlphaBetaEngine;
+import simon.app.quoridor.Core.Bitboard;
+import simon.app.quoridor.Core.GameStateCodec;
+import simon.app.quoridor.Core.LocalGameServer;
+import simon.app.quoridor.Core.Move;
+import simon.app.quoridor.Core.OpeningBook;
+import simon.app.quoridor.Core.OpeningBookBuilder;
+import simon.app.quoridor.Core.Position;
+import simon.app.quoridor.Core.Quoridor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the opening book and its builder
+ */
+public class OpeningBookTest {
+
+	private static final int UP = Move.pawn(Bitboard.square(5, 2));
+	private static final int LEFT = Move.pawn(Bitboard.square(4, 1));
+	private static final int DOWN = Move.pawn(Bitboard.square(5, 8));
+
+	@Test
+	public void bestMoveIsStored() throws IOException {
+		OpeningBookBuilder builder = new OpeningBookBuilder(2);
+		builder.addGame(new int[]{LEFT, DOWN}, 2, 2);
+		builder.addGame(new int[]{UP, DOWN}, 2, 1);
+		builder.addGame(new int[]{UP, DOWN}, 2, 1);
+		assertEquals(3, builder.getPositionCount());
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		builder.write(outputStream);
+		OpeningBook book = new OpeningBook(ByteBuffer.wrap(outputStream.toByteArray()));
+		assertEquals(3, book.getEntryCount());
+
+		Position position = new Position();
+		position.setInitial();
+		assertEquals(UP, book.getMove(position, 1));
+		int entry = book.find(position.getKey());
+		assertEquals(2, book.getGameCount(entry));
+		assertEquals(4, book.getHalfPoints(entry));
+
+		// Same position, other player to move
+		assertEquals(Move.NONE, book.getMove(position, 2));
+		position.playMove(1, UP);
+		assertEquals(DOWN, book.getMove(position, 2));
+	}
+
+	@Test
+	public void serverPlaysFromBook() throws IOException, ParseException {
+		// A reply no search would choose, far from both paths
+		int wall = Move.wall(Quoridor.HORIZONTAL, Bitboard.horizontalSlot(1, 5));
+		OpeningBookBuilder builder = new OpeningBookBuilder(2);
+		builder.addGame(new int[]{UP, wall}, 2, 2);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		builder.write(outputStream);
+
+		LocalGameServer server = new LocalGameServer(new OpeningBook(ByteBuffer.wrap(outputStream.toByteArray())));
+		try {
+			String gameID = new GameStateCodec().readResponse(server.beginGame("simar86"), new Quoridor());
+			server.makeMove(gameID, "D", "(5, 2)");
+
+			Position expected = new Position();
+			expected.setInitial();
+			expected.playMove(1, UP);
+			expected.playMove(2, wall);
+			assertEquals(expected.getKey(), server.getGame(gameID).getKey());
+		} finally {
+			server.shutdown();
+		}
+	}
+
+	@Test
+	public void selfPlayBookIsMapped() throws IOException {
+		OpeningBookBuilder builder = new OpeningBookBuilder(4);
+		builder.playSelfPlayGames(2, 1, 50, 7);
+		File file = File.createTempFile("book", ".bin");
+		file.deleteOnExit();
+		builder.write(file);
+
+		OpeningBook book = OpeningBook.open(file);
+		assertEquals(builder.getPositionCount(), book.getEntryCount());
+		Position position = new Position();
+		position.setInitial();
+		int move = book.getMove(position, 1);
+		assertTrue(position.isMoveLegal(1, move));
+
+		AlphaBetaEngine engine = new AlphaBetaEngine(AlphaBetaEngine.NO_TIME_LIMIT);
+		engine.setOpeningBook(book);
+		assertEquals(move, engine.findBestMove(position, 1));
+		assertEquals(0, engine.getNodeCount());
+	}
+}
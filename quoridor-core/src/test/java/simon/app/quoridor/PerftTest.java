@@ -0,0 +1,89 @@
+package simon.app.quoridor;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import simon.app.quoridor.Core.Perft;
+import simon.app.quoridor.Core.Position;
+import simon.app.quoridor.Core.Quoridor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the move counter
+ */
+public class PerftTest {
+
+	@Test
+	public void startingPositionCounts() {
+		Position position = new Position();
+		position.setInitial();
+		Perft perft = new Perft(position);
+
+		// 3 pawn moves and 64 walls of each type
+		assertEquals(131, perft.perft(1, 1));
+		List<Perft.MoveCount> divide = perft.divide(1, 2);
+		assertEquals(131, divide.size());
+		long total = 0;
+		for (Perft.MoveCount moveCount : divide) {
+			total += moveCount.mCount;
+		}
+		assertEquals(perft.perft(1, 2), total);
+	}
+
+	@Test
+	public void matchesSlowMoveGeneration() {
+		Quoridor quoridor = new Quoridor();
+		quoridor.movePlayer(1, 5, 4);
+		quoridor.movePlayer(2, 5, 5);
+		quoridor.placeWall(1, Quoridor.HORIZONTAL, 4, 4);
+		quoridor.placeWall(2, Quoridor.VERTICAL, 6, 5);
+		quoridor.placeWall(1, Quoridor.HORIZONTAL, 2, 7);
+		quoridor.placeWall(2, Quoridor.VERTICAL, 3, 2);
+
+		assertEquals(slowPerft(quoridor, 1, 2), new Perft(quoridor.getPosition()).perft(1, 2));
+	}
+
+	@Test
+	public void parallelMatchesSequential() {
+		Position position = new Position();
+		position.setInitial();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertEquals(new Perft(position).perft(1, 3), Perft.parallelPerft(position, 1, 3, pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Counts through the list-based methods of Quoridor, one copy per move
+	 */
+	private static long slowPerft(Quoridor quoridor, int playerNumber, int depth) {
+		if (depth == 0) return 1;
+		if (quoridor.getWinnerPlayerNumberOrZero() != 0) return 0;
+
+		long total = 0;
+		for (int[] coordinates : quoridor.getPossibleNextCoordinates(playerNumber, false, null)) {
+			Quoridor child = new Quoridor(quoridor);
+			child.movePlayer(playerNumber, coordinates[0], coordinates[1]);
+			total += slowPerft(child, 3 - playerNumber, depth - 1);
+		}
+
+		int wallsLeft = playerNumber == 1 ? quoridor.mPlayerOneWallsLeft : quoridor.mPlayerTwoWallsLeft;
+		if (wallsLeft == 0) return total;
+		for (int x = 1; x <= 9; x++) {
+			for (int y = 1; y <= 9; y++) {
+				for (int wallType = Quoridor.HORIZONTAL; wallType <= Quoridor.VERTICAL; wallType++) {
+					if (!quoridor.isWallLegal(wallType, x, y)) continue;
+					Quoridor child = new Quoridor(quoridor);
+					child.placeWall(playerNumber, wallType, x, y);
+					total += slowPerft(child, 3 - playerNumber, depth - 1);
+				}
+			}
+		}
+		return total;
+	}
+}
@@ -0,0 +1,135 @@
+package simon.app.quoridor;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import simon.app.quoridor.Core.Position;
+import simon.app.quoridor.Core.PositionFile;
+import simon.app.quoridor.Core.Quoridor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the binary position format
+ */
+public class PositionFileTest {
+
+	@Test
+	public void gameSurvivesBinaryRoundTrip() {
+		Quoridor quoridor = new Quoridor();
+		quoridor.movePlayer(1, 5, 1);
+		quoridor.movePlayer(2, 4, 8);
+		quoridor.placeWall(1, Quoridor.VERTICAL, 5, 1);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 3, 4);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 7, 9);
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(2 * Position.BINARY_SIZE);
+		buffer.position(Position.BINARY_SIZE);
+		quoridor.writeTo(buffer);
+		assertEquals(2 * Position.BINARY_SIZE, buffer.position());
+
+		buffer.position(Position.BINARY_SIZE);
+		Quoridor copy = new Quoridor();
+		copy.readFrom(buffer);
+		assertEquals(quoridor.getKey(), copy.getKey());
+		assertArrayEquals(new int[]{4, 8}, copy.mPlayerTwoPosition);
+		assertEquals(8, copy.mPlayerTwoWallsLeft);
+		assertEquals(2, copy.mHorizontalWalls.size());
+		assertEquals(quoridor.getShortestPathLength(1), copy.getShortestPathLength(1));
+	}
+
+	@Test
+	public void invalidSquareLeavesPositionUnchanged() {
+		Position position = new Position();
+		position.setInitial();
+		long key = position.getKey();
+		ByteBuffer buffer = ByteBuffer.allocate(Position.BINARY_SIZE);
+		buffer.put(16, (byte) 81);
+		try {
+			position.readFrom(buffer);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			assertEquals(key, position.getKey());
+			assertEquals(0, buffer.position());
+		}
+	}
+
+	@Test
+	public void invalidWallsAreRejected() {
+		Position position = new Position();
+		position.setInitial();
+		long key = position.getKey();
+		ByteBuffer buffer = ByteBuffer.allocate(Position.BINARY_SIZE);
+		position.writeTo(buffer, 0);
+
+		// Horizontal walls side by side on the same slot columns
+		buffer.putLong(0, 0x3L);
+		assertInvalid(position, buffer, key);
+		// Crossing walls
+		buffer.putLong(0, 0x1L);
+		buffer.putLong(8, 0x1L);
+		assertInvalid(position, buffer, key);
+		// Vertical walls one above the other
+		buffer.putLong(0, 0);
+		buffer.putLong(8, 0x101L);
+		assertInvalid(position, buffer, key);
+
+		// Walls at both ends of two rows do not touch
+		buffer.putLong(0, 0x180L);
+		buffer.putLong(8, 0);
+		buffer.put(18, (byte) 8);
+		position.readFrom(buffer, 0);
+		assertEquals(8, position.getWallsLeft(1));
+
+		position.setInitial();
+		buffer.put(18, (byte) (Position.INITIAL_WALLS + 1));
+		assertInvalid(position, buffer, key);
+	}
+
+	@Test
+	public void newPositionsAreStartingPositions() {
+		Position initial = new Position();
+		initial.setInitial();
+		PositionFile positions = PositionFile.allocateDirect(2);
+		Position position = new Position();
+		positions.get(1, position);
+		assertEquals(initial.getKey(), position.getKey());
+		assertEquals(Position.INITIAL_WALLS, position.getWallsLeft(2));
+	}
+
+	@Test
+	public void positionsSurviveMappedFile() throws IOException {
+		Position position = new Position();
+		position.setInitial();
+		File file = File.createTempFile("positions", ".bin");
+		try {
+			PositionFile written = PositionFile.create(file, 3);
+			written.set(2, position);
+			position.playMove(1, 13);
+			written.set(0, position);
+
+			PositionFile read = PositionFile.open(file);
+			assertEquals(3, read.getPositionCount());
+			Position copy = new Position();
+			read.get(0, copy);
+			assertEquals(position.getKey(), copy.getKey());
+			read.get(2, copy);
+			position.setInitial();
+			assertEquals(position.getKey(), copy.getKey());
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void assertInvalid(Position position, ByteBuffer buffer, long key) {
+		try {
+			position.readFrom(buffer, 0);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			assertEquals(key, position.getKey());
+		}
+	}
+}
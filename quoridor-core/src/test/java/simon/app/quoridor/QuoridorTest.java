@@ -0,0 +1,435 @@
+package simon.app.quoridor;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+import simon.app.quoridor.Core.AlphaBetaEngine;
+import simon.app.quoridor.Core.Bitboard;
+import simon.app.quoridor.Core.GameStateCodec;
+import simon.app.quoridor.Core.LocalGameServer;
+import simon.app.quoridor.Core.MctsEngine;
+import simon.app.quoridor.Core.Move;
+import simon.app.quoridor.Core.ParallelAlphaBetaEngine;
+import simon.app.quoridor.Core.PathFinder;
+import simon.app.quoridor.Core.Quoridor;
+import simon.app.quoridor.Core.QuoridorException;
+import simon.app.quoridor.Core.QuoridorState;
+import simon.app.quoridor.Core.ReplyPrefetcher;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the rules implemented in Quoridor
+ */
+public class QuoridorTest {
+
+	/**
+	 * @return A game with both pawns on their starting squares and no walls
+	 */
+	private static Quoridor newGame() {
+		Quoridor quoridor = new Quoridor();
+		quoridor.movePlayer(1, 5, 1);
+		quoridor.movePlayer(2, 5, 9);
+		return quoridor;
+	}
+
+	@Test
+	public void openingMoves() {
+		Quoridor quoridor = newGame();
+		List<int[]> moves = quoridor.getPossibleNextCoordinates(1, false, null);
+
+		assertEquals(3, moves.size());
+		assertTrue(Quoridor.positionIncluded(new int[]{5, 2}, moves));
+		assertTrue(Quoridor.positionIncluded(new int[]{4, 1}, moves));
+		assertTrue(Quoridor.positionIncluded(new int[]{6, 1}, moves));
+	}
+
+	@Test
+	public void wallsBlockMoves() {
+		Quoridor quoridor = newGame();
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 4, 2);
+		quoridor.placeWall(2, Quoridor.VERTICAL, 5, 1);
+		List<int[]> moves = quoridor.getPossibleNextCoordinates(1, false, null);
+
+		assertEquals(1, moves.size());
+		assertTrue(Quoridor.positionIncluded(new int[]{6, 1}, moves));
+		assertEquals(8, quoridor.mPlayerTwoWallsLeft);
+	}
+
+	@Test
+	public void jumpOverOtherPlayer() {
+		Quoridor quoridor = newGame();
+		quoridor.movePlayer(1, 5, 5);
+		quoridor.movePlayer(2, 5, 6);
+		List<int[]> moves = quoridor.getPossibleNextCoordinates(1, false, null);
+
+		assertEquals(4, moves.size());
+		assertTrue(Quoridor.positionIncluded(new int[]{5, 7}, moves));
+		assertFalse(Quoridor.positionIncluded(new int[]{5, 6}, moves));
+	}
+
+	@Test
+	public void diagonalJumpWhenBlocked() {
+		Quoridor quoridor = newGame();
+		quoridor.movePlayer(1, 5, 5);
+		quoridor.movePlayer(2, 5, 6);
+		quoridor.placeWall(1, Quoridor.HORIZONTAL, 5, 7);
+		List<int[]> moves = quoridor.getPossibleNextCoordinates(1, false, null);
+
+		assertEquals(5, moves.size());
+		assertTrue(Quoridor.positionIncluded(new int[]{4, 6}, moves));
+		assertTrue(Quoridor.positionIncluded(new int[]{6, 6}, moves));
+		assertFalse(Quoridor.positionIncluded(new int[]{5, 7}, moves));
+	}
+
+	@Test
+	public void packedSquaresMatchCoordinates() {
+		Quoridor quoridor = newGame();
+		quoridor.movePlayer(1, 5, 5);
+		quoridor.movePlayer(2, 5, 6);
+		quoridor.placeWall(1, Quoridor.HORIZONTAL, 5, 7);
+
+		List<int[]> moves = quoridor.getPossibleNextCoordinates(1, false, null);
+		int[] squares = new int[Bitboard.MAX_PAWN_MOVES];
+		int count = quoridor.getPossibleNextSquares(1, Bitboard.NONE, squares);
+
+		assertEquals(moves.size(), count);
+		for (int i = 0; i < count; i++) {
+			assertEquals(Bitboard.square(moves.get(i)[0], moves.get(i)[1]), squares[i]);
+		}
+	}
+
+	@Test
+	public void bufferSquaresMatchArraySquares() {
+		Quoridor quoridor = newGame();
+		quoridor.movePlayer(1, 5, 5);
+		quoridor.movePlayer(2, 5, 6);
+		quoridor.placeWall(1, Quoridor.HORIZONTAL, 5, 7);
+
+		int[] squares = new int[Bitboard.MAX_PAWN_MOVES];
+		int count = quoridor.getPossibleNextSquares(1, Bitboard.NONE, squares);
+
+		// A heap buffer backed by an array with an offset, and a direct buffer
+		IntBuffer array = IntBuffer.allocate(Bitboard.MAX_PAWN_MOVES + 5);
+		array.position(2);
+		IntBuffer[] buffers = {
+				array.slice(),
+				ByteBuffer.allocateDirect(4 * (Bitboard.MAX_PAWN_MOVES + 3)).asIntBuffer()
+		};
+		for (IntBuffer buffer : buffers) {
+			buffer.put(-7);
+			assertEquals(count, quoridor.getPossibleNextSquares(1, Bitboard.NONE, buffer));
+			assertEquals(1 + count, buffer.position());
+			assertEquals(-7, buffer.get(0));
+			for (int i = 0; i < count; i++) {
+				assertEquals(squares[i], buffer.get(1 + i));
+			}
+		}
+	}
+
+	@Test
+	public void shortestPathAroundWall() {
+		Quoridor quoridor = newGame();
+		assertEquals(8, quoridor.getShortestPathLength(1));
+
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 4, 2);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 6, 2);
+		List<int[]> path = quoridor.getShortestPathToVictory(1);
+
+		assertNotNull(path);
+		assertEquals(quoridor.getShortestPathLength(1) + 1, path.size());
+		assertArrayEquals(new int[]{5, 1}, path.get(0));
+		assertEquals(9, path.get(path.size() - 1)[1]);
+		assertEquals(11, path.size());
+	}
+
+	@Test
+	public void noPathWhenEnclosed() {
+		Quoridor quoridor = newGame();
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 1, 2);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 3, 2);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 5, 2);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 7, 2);
+		quoridor.placeWall(2, Quoridor.VERTICAL, 9, 1);
+
+		assertNull(quoridor.getShortestPathToVictory(1));
+		assertNotNull(quoridor.getShortestPathToVictory(2));
+	}
+
+	@Test
+	public void distanceFieldsFollowWallPlacement() {
+		Quoridor quoridor = newGame();
+		assertEquals(8, quoridor.getDistanceToVictory(1));
+		assertEquals(8, quoridor.getDistanceToVictory(2));
+
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 4, 2);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 6, 2);
+		assertEquals(quoridor.getShortestPathLength(1), quoridor.getDistanceToVictory(1));
+
+		int[] nextStep = quoridor.getNextStepToVictory(1);
+		assertNotNull(nextStep);
+		assertEquals(1, nextStep[1]);
+
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 1, 2);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 8, 2);
+		quoridor.placeWall(2, Quoridor.VERTICAL, 4, 1);
+		assertFalse(quoridor.isPathToVictoryPossible(1));
+		assertTrue(quoridor.isPathToVictoryPossible(2));
+		assertNull(quoridor.getNextStepToVictory(1));
+	}
+
+	@Test
+	public void wallLegality() {
+		Quoridor quoridor = newGame();
+		quoridor.placeWall(1, Quoridor.HORIZONTAL, 4, 5);
+
+		// Overlapping and crossing walls
+		assertFalse(quoridor.isWallLegal(Quoridor.HORIZONTAL, 3, 5));
+		assertFalse(quoridor.isWallLegal(Quoridor.HORIZONTAL, 4, 5));
+		assertFalse(quoridor.isWallLegal(Quoridor.HORIZONTAL, 5, 5));
+		assertFalse(quoridor.isWallLegal(Quoridor.VERTICAL, 5, 4));
+		assertTrue(quoridor.isWallLegal(Quoridor.HORIZONTAL, 6, 5));
+		assertTrue(quoridor.isWallLegal(Quoridor.VERTICAL, 5, 5));
+
+		// Off the board
+		assertFalse(quoridor.isWallLegal(Quoridor.HORIZONTAL, 9, 5));
+		assertFalse(quoridor.isWallLegal(Quoridor.VERTICAL, 1, 5));
+
+		// Last wall enclosing player 1
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 1, 2);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 3, 2);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 5, 2);
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 7, 2);
+		int playerOneDistance = quoridor.getDistanceToVictory(1);
+		int playerTwoDistance = quoridor.getDistanceToVictory(2);
+		long key = quoridor.getKey();
+		assertFalse(quoridor.isWallLegal(Quoridor.VERTICAL, 9, 1));
+		assertTrue(quoridor.isPathToVictoryPossible(1));
+
+		// The tentative walls are taken back, the distance fields repaired
+		assertTrue(quoridor.isWallLegal(Quoridor.HORIZONTAL, 5, 9));
+		assertEquals(playerOneDistance, quoridor.getDistanceToVictory(1));
+		assertEquals(playerTwoDistance, quoridor.getDistanceToVictory(2));
+		assertEquals(key, quoridor.getKey());
+
+		long[] masks = new long[2];
+		quoridor.getLegalWallMasks(masks);
+		assertEquals(0, masks[1] & (1L << Bitboard.verticalSlot(9, 1)));
+		assertEquals(1L << Bitboard.horizontalSlot(6, 5), masks[0] & (1L << Bitboard.horizontalSlot(6, 5)));
+	}
+
+	@Test
+	public void copyIsIndependent() {
+		Quoridor quoridor = newGame();
+		quoridor.placeWall(1, Quoridor.VERTICAL, 5, 1);
+		Quoridor copy = new Quoridor(quoridor);
+		copy.movePlayer(1, 4, 1);
+
+		assertEquals(5, quoridor.mPlayerOnePosition[0]);
+		assertEquals(quoridor.getKey(), new Quoridor(quoridor).getKey());
+		assertNotEquals(quoridor.getKey(), copy.getKey());
+	}
+
+	@Test
+	public void forkSharesWallsUntilModified() {
+		Quoridor quoridor = newGame();
+		quoridor.placeWall(1, Quoridor.VERTICAL, 5, 1);
+		Quoridor fork = quoridor.fork();
+		assertSame(quoridor.mVerticalWalls, fork.mVerticalWalls);
+
+		fork.placeWall(2, Quoridor.VERTICAL, 3, 3);
+		quoridor.placeWall(1, Quoridor.HORIZONTAL, 2, 2);
+		assertEquals(1, quoridor.mVerticalWalls.size());
+		assertEquals(2, fork.mVerticalWalls.size());
+		assertEquals(0, fork.mHorizontalWalls.size());
+		assertSame(quoridor.mVerticalWalls.get(0), fork.mVerticalWalls.get(0));
+	}
+
+	@Test
+	public void unmakeMoveRestoresState() {
+		Quoridor quoridor = newGame();
+		quoridor.placeWall(1, Quoridor.HORIZONTAL, 3, 4);
+		long key = quoridor.getKey();
+		String lastMoveCoordinates = quoridor.mLastMoveCoordinates;
+
+		quoridor.makeMove(1, Move.pawn(Bitboard.square(5, 2)));
+		quoridor.makeMove(2, Move.wall(Quoridor.VERTICAL, Bitboard.verticalSlot(5, 1)));
+		quoridor.makeMove(1, Move.wall(Quoridor.HORIZONTAL, Bitboard.horizontalSlot(7, 7)));
+		assertEquals(3, quoridor.getUndoCount());
+		assertEquals(8, quoridor.mPlayerOneWallsLeft);
+		assertFalse(quoridor.isWallLegal(Quoridor.VERTICAL, 5, 1));
+
+		while (quoridor.getUndoCount() > 0) {
+			quoridor.unmakeMove();
+		}
+		assertEquals(key, quoridor.getKey());
+		assertArrayEquals(new int[]{5, 1}, quoridor.mPlayerOnePosition);
+		assertEquals(9, quoridor.mPlayerOneWallsLeft);
+		assertEquals(10, quoridor.mPlayerTwoWallsLeft);
+		assertEquals(1, quoridor.mHorizontalWalls.size());
+		assertEquals(0, quoridor.mVerticalWalls.size());
+		assertEquals(lastMoveCoordinates, quoridor.mLastMoveCoordinates);
+		assertTrue(quoridor.isWallLegal(Quoridor.VERTICAL, 5, 1));
+	}
+
+	@Test
+	public void stateIsUnchangedByLaterMoves() {
+		Quoridor quoridor = newGame();
+		quoridor.placeWall(1, Quoridor.HORIZONTAL, 3, 4);
+		QuoridorState state = quoridor.getState();
+
+		quoridor.placeWall(2, Quoridor.HORIZONTAL, 7, 7);
+		quoridor.movePlayer(1, 5, 2);
+		assertEquals(1, state.getWalls(Quoridor.HORIZONTAL).size());
+		assertEquals(1L << Bitboard.horizontalSlot(3, 4), state.getWallMask(Quoridor.HORIZONTAL));
+		assertEquals(5, state.getPlayerX(1));
+		assertEquals(1, state.getPlayerY(1));
+		assertEquals(10, state.getWallsLeft(2));
+		assertEquals(2, quoridor.mHorizontalWalls.size());
+		assertEquals(2, quoridor.getState().getWalls(Quoridor.HORIZONTAL).size());
+	}
+
+	@Test
+	public void requestInvalidMovementThrows() {
+		Quoridor quoridor = newGame();
+		try {
+			quoridor.requestPlayerMovement(1, 5, 3);
+			fail("Expected QuoridorException");
+		} catch (QuoridorException e) {
+			assertEquals(1, quoridor.mPlayerOnePosition[1]);
+		}
+	}
+
+	@Test
+	public void keyIgnoresMoveOrder() {
+		Quoridor first = newGame();
+		first.placeWall(1, Quoridor.HORIZONTAL, 3, 4);
+		first.movePlayer(2, 5, 8);
+		first.placeWall(1, Quoridor.VERTICAL, 7, 2);
+
+		Quoridor second = newGame();
+		second.movePlayer(2, 4, 9);
+		second.placeWall(1, Quoridor.VERTICAL, 7, 2);
+		second.movePlayer(2, 5, 8);
+		assertNotEquals(first.getKey(), second.getKey());
+		second.placeWall(1, Quoridor.HORIZONTAL, 3, 4);
+		assertEquals(first.getKey(), second.getKey());
+
+		// Same walls, but placed by the other player
+		Quoridor third = new Quoridor(first);
+		third.placeWall(2, Quoridor.HORIZONTAL, 1, 6);
+		first.placeWall(1, Quoridor.HORIZONTAL, 1, 6);
+		assertNotEquals(first.getKey(), third.getKey());
+		assertEquals(new Quoridor(first).getKey(), first.getKey());
+	}
+
+	@Test
+	public void engineTakesWinAndBlocksLoss() {
+		AlphaBetaEngine engine = new AlphaBetaEngine(200);
+
+		Quoridor quoridor = newGame();
+		quoridor.movePlayer(2, 5, 2);
+		quoridor.movePlayer(1, 1, 5);
+		assertEquals(Move.pawn(Bitboard.square(5, 1)), engine.findBestMove(quoridor, 2));
+
+		// Player 1 wins next move unless player 2 places a wall
+		quoridor = newGame();
+		quoridor.movePlayer(1, 5, 8);
+		quoridor.movePlayer(2, 1, 9);
+		int move = engine.findBestMove(quoridor, 2);
+		assertTrue(Move.isWall(move));
+		quoridor.playMove(2, move);
+		assertTrue(quoridor.getDistanceToVictory(1) > 1);
+		assertEquals(9, quoridor.mPlayerTwoWallsLeft);
+	}
+
+	@Test
+	public void singleThreadSearchIsDeterministic() {
+		Quoridor quoridor = newGame();
+		quoridor.placeWall(1, Quoridor.HORIZONTAL, 4, 5);
+		quoridor.movePlayer(2, 5, 8);
+
+		int[] moves = new int[2];
+		long[] nodeCounts = new long[2];
+		for (int i = 0; i < 2; i++) {
+			ParallelAlphaBetaEngine engine = new ParallelAlphaBetaEngine(AlphaBetaEngine.NO_TIME_LIMIT, 1);
+			engine.setMaxDepth(3);
+			moves[i] = engine.findBestMove(quoridor, 2);
+			nodeCounts[i] = engine.getNodeCount();
+			engine.shutdown();
+		}
+		assertEquals(moves[0], moves[1]);
+		assertEquals(nodeCounts[0], nodeCounts[1]);
+		assertNotEquals(Move.NONE, moves[0]);
+	}
+
+	@Test
+	public void mctsTakesWinAndReusesTree() {
+		MctsEngine engine = new MctsEngine(AlphaBetaEngine.NO_TIME_LIMIT, MctsEngine.PUCT, 1, 2, 1 << 18);
+		engine.setMaxIterations(200);
+
+		Quoridor quoridor = newGame();
+		quoridor.movePlayer(2, 5, 2);
+		quoridor.movePlayer(1, 1, 5);
+		assertEquals(Move.pawn(Bitboard.square(5, 1)), engine.findBestMove(quoridor, 2));
+
+		// The answer to the engine's move was searched, so its statistics are kept
+		quoridor = newGame();
+		int move = engine.findBestMove(quoridor, 1);
+		quoridor.playMove(1, move);
+		quoridor.movePlayer(2, 5, 8);
+		engine.findBestMove(quoridor, 1);
+		assertTrue(engine.getRootVisits() > 200 * 2);
+		engine.shutdown();
+	}
+
+	@Test
+	public void prefetchedFrameMatchesReplyOfServer() throws Exception {
+		AlphaBetaEngine guessEngine = new AlphaBetaEngine(AlphaBetaEngine.NO_TIME_LIMIT);
+		guessEngine.setMaxDepth(2);
+		ReplyPrefetcher prefetcher = new ReplyPrefetcher(guessEngine, 4);
+
+		Quoridor client = LocalGameServer.newGame("simar86");
+		client.requestPlayerMovement(1, 5, 2);
+		ReplyPrefetcher.Frame[] frames = prefetcher.computeFrames(client);
+		assertTrue(frames.length >= 3);
+		assertEquals(Bitboard.square(5, 2), client.getPosition().getBoard().getPlayerSquare(1));
+
+		// The server plays like the engine guessing, and the client reads its state from the response
+		AlphaBetaEngine serverEngine = new AlphaBetaEngine(AlphaBetaEngine.NO_TIME_LIMIT);
+		serverEngine.setMaxDepth(2);
+		int reply = serverEngine.findBestMove(client, 2);
+		ReplyPrefetcher.Frame guess = null;
+		for (ReplyPrefetcher.Frame frame : frames) {
+			if (frame.getReply() == reply) guess = frame;
+		}
+		assertNotNull(guess);
+		Quoridor server = client.fork();
+		server.playMove(2, guess.getReply());
+		GameStateCodec codec = new GameStateCodec();
+		codec.readResponse(codec.writeResponse(null, server).toString(), client);
+
+		assertSame(guess, prefetcher.take(client.getKey()));
+		assertNull(prefetcher.take(client.getKey()));
+		assertEquals(client.getState().getPlayerSquare(2), guess.getState().getPlayerSquare(2));
+		List<int[]> hoverCells = client.getPossibleNextCoordinates(1, false, null);
+		assertEquals(hoverCells.size(), guess.getHoverCells().size());
+		for (int i = 0; i < hoverCells.size(); i++) {
+			assertArrayEquals(hoverCells.get(i), guess.getHoverCells().get(i));
+		}
+		// The path is the one the board would search for the state
+		Bitboard board = new Bitboard();
+		client.getState().copyTo(board);
+		PathFinder pathFinder = new PathFinder();
+		pathFinder.search(board, 1);
+		int[] expectedPath = new int[Bitboard.SQUARE_COUNT];
+		int[] path = new int[Bitboard.SQUARE_COUNT];
+		assertEquals(pathFinder.getPath(expectedPath), guess.getPath(path));
+		assertArrayEquals(expectedPath, path);
+		assertEquals(Bitboard.square(5, 2), path[0]);
+		prefetcher.shutdown();
+	}
+}
@@ -0,0 +1,48 @@
+package simon.app.quoridor;
+
+import org.junit.Test;
+
+import simon.app.quoridor.Core.Move;
+import simon.app.quoridor.Core.Quoridor;
+import simon.app.quoridor.Core.TranspositionTable;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the transposition table
+ */
+public class TranspositionTableTest {
+
+	@Test
+	public void storedEntryIsFound() {
+		TranspositionTable table = new TranspositionTable(1);
+		long key = 0x123456789ABCDEFL;
+		assertEquals(TranspositionTable.NO_ENTRY, table.probe(key));
+
+		table.store(key, 7, TranspositionTable.LOWER_BOUND, -1234, Move.wall(Quoridor.VERTICAL, 63));
+		long entry = table.probe(key);
+		assertEquals(7, TranspositionTable.getDepth(entry));
+		assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.getBound(entry));
+		assertEquals(-1234, TranspositionTable.getScore(entry));
+		assertEquals(Move.wall(Quoridor.VERTICAL, 63), TranspositionTable.getMove(entry));
+
+		// Same index, other key
+		assertEquals(TranspositionTable.NO_ENTRY, table.probe(key ^ ((long) table.getCapacity() << 32)));
+	}
+
+	@Test
+	public void deeperEntryIsKeptWithinASearch() {
+		TranspositionTable table = new TranspositionTable(1);
+		long key = 42;
+		long otherKey = key + ((long) table.getCapacity() << 32);
+		table.store(key, 5, TranspositionTable.EXACT, 10, Move.NONE);
+		table.store(otherKey, 2, TranspositionTable.EXACT, 20, Move.NONE);
+		assertNotEquals(TranspositionTable.NO_ENTRY, table.probe(key));
+		assertEquals(Move.NONE, TranspositionTable.getMove(table.probe(key)));
+
+		table.newSearch();
+		table.store(otherKey, 2, TranspositionTable.EXACT, 20, Move.NONE);
+		assertEquals(TranspositionTable.NO_ENTRY, table.probe(key));
+		assertEquals(20, TranspositionTable.getScore(table.probe(otherKey)));
+	}
+}
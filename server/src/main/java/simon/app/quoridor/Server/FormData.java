@@ -0,0 +1,106 @@
+package simon.app.quoridor.Server;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parser of the form fields of a request body, sent as multipart/form-data (by OkHttp and
+ * requests) or application/x-www-form-urlencoded (by curl -d)
+ */
+public final class FormData {
+
+	private FormData() {
+
+	}
+
+	/**
+	 * @param request A request
+	 * @return The fields of its form, by name
+	 * @throws ParseException if the body is malformed or not a form
+	 */
+	public static Map<String, String> parse(HttpRequest request) throws ParseException {
+		String contentType = request.getHeader("Content-Type");
+		if (contentType == null) throw new ParseException("No Content-Type", 0);
+		String mediaType = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+		// Bytes as characters one to one, to find the delimiters without decoding the values
+		String body = new String(request.getBody(), StandardCharsets.ISO_8859_1);
+		switch (mediaType) {
+			case "multipart/form-data":
+				return parseMultipart(body, getBoundary(contentType));
+			case "application/x-www-form-urlencoded":
+				return parseUrlEncoded(body);
+			default:
+				throw new ParseException("Unsupported Content-Type " + contentType, 0);
+		}
+	}
+
+	private static String getBoundary(String contentType) throws ParseException {
+		for (String parameter : contentType.split(";")) {
+			String trimmed = parameter.trim();
+			if (trimmed.toLowerCase(Locale.ROOT).startsWith("boundary=")) {
+				String boundary = trimmed.substring("boundary=".length());
+				if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\""))
+					boundary = boundary.substring(1, boundary.length() - 1);
+				if (!boundary.isEmpty()) return boundary;
+			}
+		}
+		throw new ParseException("No multipart boundary", 0);
+	}
+
+	private static Map<String, String> parseMultipart(String body, String boundary) throws ParseException {
+		Map<String, String> fields = new HashMap<>();
+		String delimiter = "--" + boundary;
+		int index = body.indexOf(delimiter);
+		if (index < 0) throw new ParseException("No multipart delimiter", 0);
+		while (true) {
+			index += delimiter.length();
+			if (body.startsWith("--", index)) return fields;
+			int headersEnd = body.indexOf("\r\n\r\n", index);
+			int next = body.indexOf("\r\n" + delimiter, index);
+			if (headersEnd < 0 || next < 0 || next < headersEnd) throw new ParseException("Malformed multipart body", index);
+
+			String name = null;
+			for (String header : body.substring(index, headersEnd).split("\r\n")) {
+				if (header.toLowerCase(Locale.ROOT).startsWith("content-disposition:")) name = getPartName(header);
+			}
+			if (name != null) {
+				String value = body.substring(headersEnd + 4, next);
+				fields.put(name, new String(value.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8));
+			}
+			index = next + 2;
+		}
+	}
+
+	private static String getPartName(String contentDisposition) {
+		for (String parameter : contentDisposition.split(";")) {
+			String trimmed = parameter.trim();
+			if (trimmed.startsWith("name=")) {
+				String name = trimmed.substring("name=".length());
+				if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\""))
+					name = name.substring(1, name.length() - 1);
+				return new String(name.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+			}
+		}
+		return null;
+	}
+
+	private static Map<String, String> parseUrlEncoded(String body) throws ParseException {
+		Map<String, String> fields = new HashMap<>();
+		try {
+			for (String field : body.split("&")) {
+				if (field.isEmpty()) continue;
+				int equals = field.indexOf('=');
+				if (equals < 0) fields.put(URLDecoder.decode(field, "UTF-8"), "");
+				else fields.put(URLDecoder.decode(field.substring(0, equals), "UTF-8"), URLDecoder.decode(field.substring(equals + 1), "UTF-8"));
+			}
+		} catch (IllegalArgumentException | UnsupportedEncodingException e) {
+			throw new ParseException("Malformed form " + body, 0);
+		}
+		return fields;
+	}
+}
@@ -0,0 +1,82 @@
+package simon.app.quoridor.Server;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import simon.app.quoridor.Core.Quoridor;
+
+/**
+ * A game as an actor: only the messages of its mailbox touch its Quoridor, one at a time and in
+ * the order they were sent, so no lock guards the game. The mailbox is drained by a task on the
+ * executor, scheduled when a message arrives and no drain is running; an idle game costs no
+ * thread.
+ */
+class GameActor {
+	/**
+	 * A message of the mailbox, run with the game of the actor
+	 * @param <T> The type of the reply
+	 */
+	interface Message<T> {
+		T run(Quoridor quoridor) throws Exception;
+	}
+
+	private final Quoridor mQuoridor;
+	private final Executor mExecutor;
+	private final Queue<Runnable> mMailbox = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean mDraining = new AtomicBoolean();
+	private volatile long mLastMessageMillis = System.currentTimeMillis();
+
+	private final Runnable mDrain = new Runnable() {
+		@Override
+		public void run() {
+			do {
+				Runnable message;
+				while ((message = mMailbox.poll()) != null) {
+					message.run();
+				}
+				mDraining.set(false);
+				// A message sent after the last poll but before the flag was cleared must not wait
+			} while (!mMailbox.isEmpty() && mDraining.compareAndSet(false, true));
+		}
+	};
+
+	/**
+	 * @param quoridor The game, owned by the actor from now on
+	 * @param executor Runs the drains of the mailbox
+	 */
+	GameActor(Quoridor quoridor, Executor executor) {
+		mQuoridor = quoridor;
+		mExecutor = executor;
+	}
+
+	/**
+	 * Sends a message to the actor
+	 * @param message The message
+	 * @param <T> The type of the reply
+	 * @return The reply, once the message is run
+	 */
+	<T> Future<T> ask(final Message<T> message) {
+		FutureTask<T> task = new FutureTask<>(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return message.run(mQuoridor);
+			}
+		});
+		mLastMessageMillis = System.currentTimeMillis();
+		mMailbox.add(task);
+		if (mDraining.compareAndSet(false, true)) mExecutor.execute(mDrain);
+		return task;
+	}
+
+	/**
+	 * @return When the last message was sent, in milliseconds since the epoch
+	 */
+	long getLastMessageMillis() {
+		return mLastMessageMillis;
+	}
+}
@@ -0,0 +1,15 @@
+package simon.app.quoridor.Server;
+
+/**
+ * Answers the requests of an NioHttpServer
+ */
+public interface HttpHandler {
+
+	/**
+	 * Answers a request. Called on a worker thread of the server, possibly for several requests
+	 * at once
+	 * @param request The request
+	 * @return The response
+	 */
+	HttpResponse handle(HttpRequest request);
+}
@@ -0,0 +1,139 @@
+package simon.app.quoridor.Server;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An HTTP/1.1 request, parsed from the bytes received on a connection. Only bodies with a
+ * Content-Length are supported, which is what the clients of the API send
+ */
+public class HttpRequest {
+	private final String mMethod;
+	private final String mPath;
+	private final boolean mKeepAlive;
+	private final Map<String, String> mHeaders;
+	private final byte[] mBody;
+
+	HttpRequest(String method, String path, boolean keepAlive, Map<String, String> headers, byte[] body) {
+		mMethod = method;
+		mPath = path;
+		mKeepAlive = keepAlive;
+		mHeaders = headers;
+		mBody = body;
+	}
+
+	/**
+	 * @return The method, for instance "POST"
+	 */
+	public String getMethod() {
+		return mMethod;
+	}
+
+	/**
+	 * @return The path of the request target, percent-decoded, without its query
+	 */
+	public String getPath() {
+		return mPath;
+	}
+
+	/**
+	 * @return True if the connection stays open for other requests after the response
+	 */
+	public boolean isKeepAlive() {
+		return mKeepAlive;
+	}
+
+	/**
+	 * @param name The name of a header, in any case
+	 * @return Its value, or null if the request has no such header
+	 */
+	public String getHeader(String name) {
+		return mHeaders.get(name.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * @return The body, empty if there is none
+	 */
+	public byte[] getBody() {
+		return mBody;
+	}
+
+	/**
+	 * Parses the first request of the bytes received on a connection
+	 * @param buffer The bytes received, from 0 to the position of the buffer. On success, the
+	 *               request is removed and the bytes after it are moved to the start of the buffer
+	 * @return The request, or null if its bytes are not all received yet
+	 * @throws ParseException if the request is malformed or unsupported
+	 */
+	static HttpRequest parse(ByteBuffer buffer) throws ParseException {
+		int end = buffer.position();
+		int headerEnd = -1;
+		for (int i = 3; i < end; i++) {
+			if (buffer.get(i) == '\n' && buffer.get(i - 1) == '\r' && buffer.get(i - 2) == '\n' && buffer.get(i - 3) == '\r') {
+				headerEnd = i + 1;
+				break;
+			}
+		}
+		if (headerEnd < 0) return null;
+
+		byte[] headerBytes = new byte[headerEnd - 4];
+		for (int i = 0; i < headerBytes.length; i++) {
+			headerBytes[i] = buffer.get(i);
+		}
+		String[] lines = new String(headerBytes, StandardCharsets.ISO_8859_1).split("\r\n");
+		String[] requestLine = lines[0].split(" ");
+		if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1."))
+			throw new ParseException("Malformed request line " + lines[0], 0);
+
+		Map<String, String> headers = new HashMap<>();
+		for (int i = 1; i < lines.length; i++) {
+			int colon = lines[i].indexOf(':');
+			if (colon <= 0) throw new ParseException("Malformed header " + lines[i], i);
+			headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT), lines[i].substring(colon + 1).trim());
+		}
+		if (headers.containsKey("transfer-encoding")) throw new ParseException("Only Content-Length bodies are supported", 0);
+
+		int bodyLength = 0;
+		String contentLength = headers.get("content-length");
+		if (contentLength != null) {
+			try {
+				bodyLength = Integer.parseInt(contentLength);
+			} catch (NumberFormatException e) {
+				bodyLength = -1;
+			}
+			if (bodyLength < 0) throw new ParseException("Invalid Content-Length " + contentLength, 0);
+		}
+		if (end - headerEnd < bodyLength) return null;
+
+		byte[] body = new byte[bodyLength];
+		for (int i = 0; i < bodyLength; i++) {
+			body[i] = buffer.get(headerEnd + i);
+		}
+		buffer.flip();
+		buffer.position(headerEnd + bodyLength);
+		buffer.compact();
+
+		String connection = headers.get("connection");
+		boolean keepAlive = requestLine[2].equals("HTTP/1.1")
+				? !"close".equalsIgnoreCase(connection)
+				: "keep-alive".equalsIgnoreCase(connection);
+		return new HttpRequest(requestLine[0], decodePath(requestLine[1]), keepAlive, headers, body);
+	}
+
+	private static String decodePath(String target) throws ParseException {
+		int query = target.indexOf('?');
+		String path = query < 0 ? target : target.substring(0, query);
+		try {
+			// Keeps a plus sign in a path, which URLDecoder would decode as a space
+			return URLDecoder.decode(path.replace("+", "%2B"), "UTF-8");
+		} catch (IllegalArgumentException | UnsupportedEncodingException e) {
+			throw new ParseException("Malformed path " + target, 0);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package simon.app.quoridor.Server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An HTTP response with a JSON body
+ */
+public class HttpResponse {
+	public static final int OK = 200;
+	public static final int BAD_REQUEST = 400;
+	public static final int NOT_FOUND = 404;
+	public static final int METHOD_NOT_ALLOWED = 405;
+	public static final int PAYLOAD_TOO_LARGE = 413;
+	public static final int INTERNAL_SERVER_ERROR = 500;
+
+	private final int mStatus;
+	private final String mBody;
+
+	/**
+	 * @param status The status code
+	 * @param body The JSON body. Must be ASCII, as written by GameStateCodec
+	 */
+	public HttpResponse(int status, CharSequence body) {
+		mStatus = status;
+		mBody = body.toString();
+	}
+
+	/**
+	 * @return The status code
+	 */
+	public int getStatus() {
+		return mStatus;
+	}
+
+	/**
+	 * @return The JSON body
+	 */
+	public String getBody() {
+		return mBody;
+	}
+
+	/**
+	 * @param keepAlive True if the connection stays open after the response
+	 * @return The bytes to send, status line and headers included
+	 */
+	ByteBuffer encode(boolean keepAlive) {
+		String head = "HTTP/1.1 " + mStatus + " " + getReasonPhrase(mStatus) + "\r\n"
+				+ "Content-Type: application/json\r\n"
+				+ "Content-Length: " + mBody.length() + "\r\n"
+				+ "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n\r\n";
+		ByteBuffer bytes = ByteBuffer.allocate(head.length() + mBody.length());
+		bytes.put(head.getBytes(StandardCharsets.ISO_8859_1));
+		bytes.put(mBody.getBytes(StandardCharsets.ISO_8859_1));
+		bytes.flip();
+		return bytes;
+	}
+
+	private static String getReasonPhrase(int status) {
+		switch (status) {
+			case OK:
+				return "OK";
+			case BAD_REQUEST:
+				return "Bad Request";
+			case NOT_FOUND:
+				return "Not Found";
+			case METHOD_NOT_ALLOWED:
+				return "Method Not Allowed";
+			case PAYLOAD_TOO_LARGE:
+				return "Payload Too Large";
+			default:
+				return "Internal Server Error";
+		}
+	}
+}
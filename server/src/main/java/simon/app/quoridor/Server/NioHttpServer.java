@@ -0,0 +1,303 @@
+package simon.app.quoridor.Server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal HTTP/1.1 server on non-blocking I/O. A single selector thread accepts the connections
+ * and reads and writes their bytes; the requests are answered by a handler on a worker executor,
+ * so an idle or slow connection costs a few kilobytes of buffer rather than a thread.
+ *
+ * Connections are kept alive between requests, and closed once they have waited for a request
+ * longer than the idle timeout. A connection has at most one request being answered at a time: the
+ * requests it pipelines wait in its input buffer.
+ */
+public class NioHttpServer {
+	/**
+	 * Size of the input buffer of a new connection, which grows up to MAX_REQUEST_SIZE
+	 */
+	private static final int INITIAL_BUFFER_SIZE = 2048;
+	private static final int MAX_REQUEST_SIZE = 64 * 1024;
+
+	/**
+	 * Time a connection may wait for its next request, in milliseconds
+	 */
+	public static final long DEFAULT_IDLE_TIMEOUT = 30000;
+
+	/**
+	 * Longest time between two sweeps of the idle connections, in milliseconds
+	 */
+	private static final long MAX_SWEEP_INTERVAL = 1000;
+
+	private final HttpHandler mHandler;
+	private final ExecutorService mWorkers;
+	private final Selector mSelector;
+	private final ServerSocketChannel mServerChannel;
+	private final SelectionKey mAcceptKey;
+	private final long mIdleTimeoutNanos;
+	private final long mSweepIntervalMillis;
+	private long mLastSweep = System.nanoTime();
+
+	/**
+	 * Responses answered by the workers, waiting for the selector thread to send them
+	 */
+	private final Queue<Connection> mAnswered = new ConcurrentLinkedQueue<>();
+
+	private volatile boolean mRunning = true;
+
+	/**
+	 * State of a client connection, only used on the selector thread except for mResponse
+	 */
+	private static class Connection {
+		final SocketChannel mChannel;
+		SelectionKey mKey;
+		ByteBuffer mInput = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+		ByteBuffer mOutput;
+		boolean mKeepAlive;
+		// Time of the last bytes read or written, from System.nanoTime
+		long mLastActive = System.nanoTime();
+		volatile HttpResponse mResponse;
+
+		Connection(SocketChannel channel) {
+			mChannel = channel;
+		}
+	}
+
+	/**
+	 * Binds the server, closing the connections idle for DEFAULT_IDLE_TIMEOUT. Connections are
+	 * accepted once run is called
+	 * @param address The address to listen on. Port 0 picks a free port
+	 * @param handler Answers the requests
+	 * @param workers Runs the handler. Not shut down with the server
+	 * @throws IOException if the address cannot be bound
+	 */
+	public NioHttpServer(InetSocketAddress address, HttpHandler handler, ExecutorService workers) throws IOException {
+		this(address, handler, workers, DEFAULT_IDLE_TIMEOUT);
+	}
+
+	/**
+	 * Binds the server. Connections are accepted once run is called
+	 * @param address The address to listen on. Port 0 picks a free port
+	 * @param handler Answers the requests
+	 * @param workers Runs the handler. Not shut down with the server
+	 * @param idleTimeout The time a connection may wait for its next request, in milliseconds
+	 * @throws IOException if the address cannot be bound
+	 */
+	public NioHttpServer(InetSocketAddress address, HttpHandler handler, ExecutorService workers, long idleTimeout) throws IOException {
+		if (idleTimeout < 1) throw new IllegalArgumentException("Invalid idle timeout " + idleTimeout);
+		mHandler = handler;
+		mWorkers = workers;
+		mIdleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+		mSweepIntervalMillis = Math.min(MAX_SWEEP_INTERVAL, idleTimeout);
+		mSelector = Selector.open();
+		mServerChannel = ServerSocketChannel.open();
+		mServerChannel.bind(address, 1024);
+		mServerChannel.configureBlocking(false);
+		mAcceptKey = mServerChannel.register(mSelector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * @return The port the server listens on
+	 */
+	public int getPort() {
+		return mServerChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Serves connections on the calling thread until stop is called
+	 * @throws IOException if the selector fails
+	 */
+	public void run() throws IOException {
+		try {
+			while (mRunning) {
+				mSelector.select(mSweepIntervalMillis);
+				sendAnswered();
+				sweep();
+				Iterator<SelectionKey> keys = mSelector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) continue;
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					Connection connection = (Connection) key.attachment();
+					try {
+						if (key.isReadable()) read(connection);
+						else if (key.isWritable()) write(connection);
+					} catch (IOException e) {
+						close(connection);
+					}
+				}
+			}
+		} finally {
+			for (SelectionKey key : mSelector.keys()) {
+				key.channel().close();
+			}
+			mSelector.close();
+		}
+	}
+
+	/**
+	 * Stops run, closing every connection. Can be called from any thread
+	 */
+	public void stop() {
+		mRunning = false;
+		mSelector.wakeup();
+	}
+
+	//==============================================================================================
+	// Selector thread
+	//==============================================================================================
+
+	/**
+	 * Accepts the waiting connections. A failure only loses the connection it happened on; if no
+	 * connection can be accepted at all, for instance out of file descriptors, accepting pauses
+	 * until the next sweep rather than spinning
+	 */
+	private void accept() {
+		while (true) {
+			SocketChannel channel;
+			try {
+				channel = mServerChannel.accept();
+			} catch (IOException e) {
+				e.printStackTrace();
+				mAcceptKey.interestOps(0);
+				return;
+			}
+			if (channel == null) return;
+			try {
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				Connection connection = new Connection(channel);
+				connection.mKey = channel.register(mSelector, SelectionKey.OP_READ, connection);
+			} catch (IOException e) {
+				e.printStackTrace();
+				try {
+					channel.close();
+				} catch (IOException closeFailure) {
+					// Nothing left to do with it
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes the connections that waited for a request longer than the idle timeout, and resumes
+	 * accepting. Runs at most every mSweepIntervalMillis
+	 */
+	private void sweep() {
+		long now = System.nanoTime();
+		if (now - mLastSweep < TimeUnit.MILLISECONDS.toNanos(mSweepIntervalMillis)) return;
+		mLastSweep = now;
+		for (SelectionKey key : mSelector.keys()) {
+			Connection connection = (Connection) key.attachment();
+			// Connections being answered or written to are not idle
+			if (connection == null || !key.isValid() || key.interestOps() != SelectionKey.OP_READ) continue;
+			if (now - connection.mLastActive > mIdleTimeoutNanos) close(connection);
+		}
+		if (mAcceptKey.isValid()) mAcceptKey.interestOps(SelectionKey.OP_ACCEPT);
+	}
+
+	private void read(Connection connection) throws IOException {
+		if (!connection.mInput.hasRemaining()) {
+			if (connection.mInput.capacity() >= MAX_REQUEST_SIZE) {
+				respondAndClose(connection, new HttpResponse(HttpResponse.PAYLOAD_TOO_LARGE, "{}"));
+				return;
+			}
+			ByteBuffer input = ByteBuffer.allocate(Math.min(MAX_REQUEST_SIZE, 2 * connection.mInput.capacity()));
+			connection.mInput.flip();
+			input.put(connection.mInput);
+			connection.mInput = input;
+		}
+		if (connection.mChannel.read(connection.mInput) < 0) {
+			close(connection);
+			return;
+		}
+		connection.mLastActive = System.nanoTime();
+		dispatch(connection);
+	}
+
+	/**
+	 * Hands the next request of a connection to the workers, if it is fully received
+	 */
+	private void dispatch(final Connection connection) {
+		final HttpRequest request;
+		try {
+			request = HttpRequest.parse(connection.mInput);
+		} catch (ParseException e) {
+			respondAndClose(connection, new HttpResponse(HttpResponse.BAD_REQUEST, "{}"));
+			return;
+		}
+		if (request == null) return;
+
+		connection.mKeepAlive = request.isKeepAlive();
+		connection.mKey.interestOps(0);
+		mWorkers.execute(new Runnable() {
+			@Override
+			public void run() {
+				HttpResponse response;
+				try {
+					response = mHandler.handle(request);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+					response = new HttpResponse(HttpResponse.INTERNAL_SERVER_ERROR, "{}");
+				}
+				connection.mResponse = response;
+				mAnswered.add(connection);
+				mSelector.wakeup();
+			}
+		});
+	}
+
+	private void sendAnswered() {
+		Connection connection;
+		while ((connection = mAnswered.poll()) != null) {
+			if (!connection.mKey.isValid()) continue;
+			connection.mOutput = connection.mResponse.encode(connection.mKeepAlive);
+			connection.mResponse = null;
+			connection.mKey.interestOps(SelectionKey.OP_WRITE);
+		}
+	}
+
+	private void write(Connection connection) throws IOException {
+		connection.mChannel.write(connection.mOutput);
+		connection.mLastActive = System.nanoTime();
+		if (connection.mOutput.hasRemaining()) return;
+		connection.mOutput = null;
+		if (!connection.mKeepAlive) {
+			close(connection);
+			return;
+		}
+		connection.mKey.interestOps(SelectionKey.OP_READ);
+		// A request may already be waiting in the input buffer
+		dispatch(connection);
+	}
+
+	private void respondAndClose(Connection connection, HttpResponse response) {
+		connection.mKeepAlive = false;
+		connection.mOutput = response.encode(false);
+		connection.mKey.interestOps(SelectionKey.OP_WRITE);
+	}
+
+	private void close(Connection connection) {
+		connection.mKey.cancel();
+		try {
+			connection.mChannel.close();
+		} catch (IOException e) {
+			// Nothing left to do with it
+		}
+	}
+}
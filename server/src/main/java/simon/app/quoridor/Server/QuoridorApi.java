@@ -0,0 +1,227 @@
+package simon.app.quoridor.Server;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import simon.app.quoridor.Core.AlphaBetaEngine;
+import simon.app.quoridor.Core.Engine;
+import simon.app.quoridor.Core.GameStateCodec;
+import simon.app.quoridor.Core.LocalGameServer;
+import simon.app.quoridor.Core.OpeningBook;
+import simon.app.quoridor.Core.Quoridor;
+
+/**
+ * The endpoints of the Quoridor API, with the JSON the app reads:
+ *
+ * POST .../d&eacute;buter/ with the form field idul begins a game and answers its "id" and state;
+ * POST .../jouer/ with id, type and pos plays a move of the user, then one of the engine, and
+ * answers the state. Refused requests are answered {"message": ...} with a 400 or 404 status.
+ *
+ * Games are kept in memory, about 5 KB each, until they are idle for too long. Every game is a
+ * GameActor owning its Quoridor, so requests on different games run in parallel and those on the
+ * same game in order, without locks. The handler waits for the reply of the actor, which costs
+ * nothing on the virtual threads of VirtualThreads.
+ *
+ * Searches are CPU-bound, so they run on a fixed pool of platform threads, one per engine, about
+ * one per processor: on a virtual thread a search would hold its carrier thread for its whole time
+ * budget, and the cheap requests would wait behind it. The actor plays the move of the user and
+ * waits for the reply of the search. The codecs are pooled without a bound.
+ */
+public class QuoridorApi implements HttpHandler {
+	/**
+	 * Ends of the paths of the endpoints, so that the API can be served under any base URL
+	 */
+	static final String BEGIN_GAME_PATH = "/d\u00e9buter/";
+	static final String MAKE_MOVE_PATH = "/jouer/";
+
+	private final Map<String, GameActor> mGames = new ConcurrentHashMap<>();
+	private final Executor mActorExecutor;
+	private final BlockingQueue<Engine> mEngines;
+	private final ExecutorService mSearchExecutor;
+	private final Queue<GameStateCodec> mCodecs = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param timeBudgetMillis The time, in milliseconds, the engine thinks for each move
+	 * @param engineCount The number of moves the server can search at once
+	 * @param actorExecutor Runs the mailboxes of the games
+	 */
+	public QuoridorApi(long timeBudgetMillis, int engineCount, Executor actorExecutor) {
+		this(timeBudgetMillis, engineCount, actorExecutor, null);
+	}
+
+	/**
+	 * @param timeBudgetMillis The time, in milliseconds, the engine thinks for each move
+	 * @param engineCount The number of moves the server can search at once, each on a thread of its
+	 *                    own
+	 * @param actorExecutor Runs the mailboxes of the games
+	 * @param openingBook The book the engines play the first plies from, or null. Shared by them
+	 */
+	public QuoridorApi(long timeBudgetMillis, int engineCount, Executor actorExecutor, OpeningBook openingBook) {
+		mActorExecutor = actorExecutor;
+		mEngines = new ArrayBlockingQueue<>(engineCount);
+		for (int i = 0; i < engineCount; i++) {
+			Engine engine = new AlphaBetaEngine(timeBudgetMillis);
+			engine.setOpeningBook(openingBook);
+			mEngines.add(engine);
+		}
+		mSearchExecutor = Executors.newFixedThreadPool(engineCount, new ThreadFactory() {
+			private final AtomicInteger mThreadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "quoridor-search-" + mThreadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Stops the threads of the searches and the engines. The API must not be used afterwards
+	 */
+	public void shutdown() {
+		mSearchExecutor.shutdownNow();
+		for (Engine engine : mEngines) {
+			engine.shutdown();
+		}
+	}
+
+	@Override
+	public HttpResponse handle(HttpRequest request) {
+		String path = request.getPath();
+		boolean beginGame = path.endsWith(BEGIN_GAME_PATH);
+		if (!beginGame && !path.endsWith(MAKE_MOVE_PATH))
+			return error(HttpResponse.NOT_FOUND, "No endpoint " + path);
+		if (!request.getMethod().equals("POST"))
+			return error(HttpResponse.METHOD_NOT_ALLOWED, "Only POST is supported");
+
+		Map<String, String> form;
+		try {
+			form = FormData.parse(request);
+		} catch (ParseException e) {
+			return error(HttpResponse.BAD_REQUEST, e.getMessage());
+		}
+		return beginGame ? beginGame(form) : makeMove(form);
+	}
+
+	private HttpResponse beginGame(Map<String, String> form) {
+		String idul = form.get("idul");
+		if (idul == null || idul.isEmpty()) return error(HttpResponse.BAD_REQUEST, "No idul");
+
+		// The actor is not running yet: the game can be written before it is published
+		Quoridor quoridor = LocalGameServer.newGame(idul);
+		HttpResponse response = new HttpResponse(HttpResponse.OK, write(quoridor.mGameID, quoridor));
+		mGames.put(quoridor.mGameID, new GameActor(quoridor, mActorExecutor));
+		return response;
+	}
+
+	private HttpResponse makeMove(Map<String, String> form) {
+		String gameID = form.get("id");
+		GameActor game = gameID == null ? null : mGames.get(gameID);
+		if (game == null) return error(HttpResponse.NOT_FOUND, "Unknown game " + gameID);
+
+		final String moveType = form.get("type");
+		final String position = form.get("pos");
+		try {
+			return game.ask(new GameActor.Message<HttpResponse>() {
+				@Override
+				public HttpResponse run(Quoridor quoridor) throws InterruptedException, ExecutionException {
+					return playTurn(quoridor, moveType, position);
+				}
+			}).get();
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+			return error(HttpResponse.INTERNAL_SERVER_ERROR, "Could not play " + moveType + " " + position);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return error(HttpResponse.INTERNAL_SERVER_ERROR, "Interrupted");
+		}
+	}
+
+	/**
+	 * Plays a turn on the thread of the actor of the game, the reply of the server being searched
+	 * on a thread of mSearchExecutor. The actor owns the game again once the search is over
+	 */
+	private HttpResponse playTurn(final Quoridor quoridor, String moveType, String position) throws InterruptedException, ExecutionException {
+		try {
+			LocalGameServer.playUserMove(quoridor, moveType, position);
+		} catch (IOException e) {
+			return error(HttpResponse.BAD_REQUEST, e.getMessage());
+		}
+		mSearchExecutor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws InterruptedException {
+				// Never waits: there are as many engines as threads
+				Engine engine = mEngines.take();
+				try {
+					LocalGameServer.playServerMove(quoridor, engine);
+				} finally {
+					mEngines.add(engine);
+				}
+				return null;
+			}
+		}).get();
+		return new HttpResponse(HttpResponse.OK, write(null, quoridor));
+	}
+
+	private String write(String gameID, Quoridor quoridor) {
+		GameStateCodec codec = borrowCodec();
+		try {
+			return codec.writeResponse(gameID, quoridor).toString();
+		} finally {
+			mCodecs.add(codec);
+		}
+	}
+
+	private HttpResponse error(int status, String message) {
+		GameStateCodec codec = borrowCodec();
+		try {
+			return new HttpResponse(status, codec.writeError(message));
+		} finally {
+			mCodecs.add(codec);
+		}
+	}
+
+	private GameStateCodec borrowCodec() {
+		GameStateCodec codec = mCodecs.poll();
+		return codec != null ? codec : new GameStateCodec();
+	}
+
+	/**
+	 * @return The number of games in memory
+	 */
+	public int getGameCount() {
+		return mGames.size();
+	}
+
+	/**
+	 * Forgets the games not played for a while
+	 * @param maxIdleMillis How long, in milliseconds, a game is kept after its last move
+	 * @return The number of games forgotten
+	 */
+	public int removeIdleGames(long maxIdleMillis) {
+		long oldest = System.currentTimeMillis() - maxIdleMillis;
+		int count = 0;
+		for (Iterator<GameActor> games = mGames.values().iterator(); games.hasNext(); ) {
+			if (games.next().getLastMessageMillis() < oldest) {
+				games.remove();
+				count++;
+			}
+		}
+		return count;
+	}
+}
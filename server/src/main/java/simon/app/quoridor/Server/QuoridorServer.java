@@ -0,0 +1,92 @@
+package simon.app.quoridor.Server;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import simon.app.quoridor.Core.OpeningBook;
+
+/**
+ * Command line entry point of the self-hosted game server, run on the JVM:
+ *
+ * QuoridorServer [--port N] [--threads N] [--time ms] [--idle minutes] [--book file]
+ *
+ * Serves the Quoridor API on the port (8080 by default), answering the moves with engines
+ * thinking the given time per move, as many searching at once as the given number of threads (one
+ * per processor by default). Requests and games run on virtual threads when the JVM has them.
+ * Games not played for the idle time (60 minutes by default) are forgotten. With a book written by
+ * OpeningBookRunner, the engines answer the first plies from it without searching. The app plays
+ * against it with an OkHttpGameServer whose base URL is http://host:port/quoridor/api/.
+ */
+public class QuoridorServer {
+	private static final int DEFAULT_PORT = 8080;
+	private static final long DEFAULT_TIME_BUDGET = 500;
+	private static final long DEFAULT_IDLE_MINUTES = 60;
+
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		long timeBudget = DEFAULT_TIME_BUDGET;
+		long idleMinutes = DEFAULT_IDLE_MINUTES;
+		File bookFile = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--port":
+						port = Integer.parseInt(args[++i]);
+						break;
+					case "--threads":
+						threadCount = Integer.parseInt(args[++i]);
+						break;
+					case "--time":
+						timeBudget = Long.parseLong(args[++i]);
+						break;
+					case "--idle":
+						idleMinutes = Long.parseLong(args[++i]);
+						break;
+					case "--book":
+						bookFile = new File(args[++i]);
+						break;
+					default:
+						throw new IllegalArgumentException("Unexpected argument " + args[i]);
+				}
+			}
+			if (threadCount < 1) throw new IllegalArgumentException("Invalid thread count " + threadCount);
+			if (timeBudget < 1) throw new IllegalArgumentException("Invalid time " + timeBudget);
+			if (idleMinutes < 1) throw new IllegalArgumentException("Invalid idle time " + idleMinutes);
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: QuoridorServer [--port N] [--threads N] [--time ms] [--idle minutes] [--book file]");
+			System.exit(2);
+			return;
+		}
+
+		OpeningBook openingBook = bookFile != null ? OpeningBook.open(bookFile) : null;
+		ExecutorService workers = VirtualThreads.newThreadPerTaskExecutor("quoridor-worker");
+		final QuoridorApi api = new QuoridorApi(timeBudget, threadCount, workers, openingBook);
+		final long maxIdleMillis = TimeUnit.MINUTES.toMillis(idleMinutes);
+		ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor();
+		sweeper.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				api.removeIdleGames(maxIdleMillis);
+			}
+		}, 1, 1, TimeUnit.MINUTES);
+
+		NioHttpServer server = new NioHttpServer(new InetSocketAddress(port), api, workers);
+		System.out.println("Quoridor server listening on port " + server.getPort()
+				+ (VirtualThreads.isAvailable() ? ", on virtual threads" : ", on platform threads"));
+		try {
+			server.run();
+		} finally {
+			sweeper.shutdownNow();
+			workers.shutdownNow();
+			api.shutdown();
+		}
+	}
+}
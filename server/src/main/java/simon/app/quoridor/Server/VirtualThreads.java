@@ -0,0 +1,61 @@
+package simon.app.quoridor.Server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors running every task on a new virtual thread when the JVM has them (Java 21 and later),
+ * so that tasks waiting on a game or an engine cost no platform thread. The server is built for
+ * Java 8, so they are looked up by reflection; older JVMs get a cached pool of platform threads
+ * instead, which behaves the same with a thread per running task.
+ */
+public final class VirtualThreads {
+
+	private VirtualThreads() {
+
+	}
+
+	/**
+	 * @return True if the JVM has virtual threads
+	 */
+	public static boolean isAvailable() {
+		return getVirtualThreadFactory() != null;
+	}
+
+	/**
+	 * @param name The name of the threads of the fallback pool
+	 * @return An executor running each task on a new virtual thread, or on a cached pool of daemon
+	 * platform threads if the JVM has no virtual threads
+	 */
+	public static ExecutorService newThreadPerTaskExecutor(final String name) {
+		Method factory = getVirtualThreadFactory();
+		if (factory != null) {
+			try {
+				return (ExecutorService) factory.invoke(null);
+			} catch (ReflectiveOperationException e) {
+				// Use the fallback
+			}
+		}
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger mCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + "-" + mCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private static Method getVirtualThreadFactory() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package simon.app.quoridor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import simon.app.quoridor.Core.GameStateCodec;
+import simon.app.quoridor.Core.Quoridor;
+import simon.app.quoridor.Server.NioHttpServer;
+import simon.app.quoridor.Server.QuoridorApi;
+import simon.app.quoridor.Server.VirtualThreads;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the self-hosted game server, over real connections
+ */
+public class QuoridorServerTest {
+	private static final String BEGIN_GAME_PATH = "/quoridor/api/d%C3%A9buter/";
+	private static final String MAKE_MOVE_PATH = "/quoridor/api/jouer/";
+	private static final String BOUNDARY = "c0ffee";
+
+	private ExecutorService mWorkers;
+	private NioHttpServer mServer;
+	private Thread mServerThread;
+
+	@Before
+	public void startServer() throws IOException {
+		mWorkers = VirtualThreads.newThreadPerTaskExecutor("test-worker");
+		mServer = new NioHttpServer(new InetSocketAddress("127.0.0.1", 0), new QuoridorApi(20, 2, mWorkers), mWorkers);
+		mServerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					mServer.run();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		mServerThread.start();
+	}
+
+	@After
+	public void stopServer() throws InterruptedException {
+		mServer.stop();
+		mServerThread.join();
+		mWorkers.shutdownNow();
+	}
+
+	@Test
+	public void beginsGameAndPlaysMove() throws Exception {
+		GameStateCodec codec = new GameStateCodec();
+		Quoridor quoridor = new Quoridor();
+		String gameID = codec.readResponse(post(BEGIN_GAME_PATH, "application/x-www-form-urlencoded", "idul=simar86", 200), quoridor);
+		assertNotNull(gameID);
+		assertEquals("simar86", quoridor.mPlayerOneName);
+		assertArrayEquals(new int[]{5, 9}, quoridor.mPlayerTwoPosition);
+
+		String response = post(MAKE_MOVE_PATH, "multipart/form-data; boundary=" + BOUNDARY,
+				multipart("id", gameID, "type", "D", "pos", "(5, 2)"), 200);
+		codec.readResponse(response, quoridor);
+		assertArrayEquals(new int[]{5, 2}, quoridor.mPlayerOnePosition);
+		// The server answered with a move of its own
+		assertTrue(quoridor.mPlayerTwoWallsLeft == 9 || quoridor.mPlayerTwoPosition[1] != 9
+				|| quoridor.mPlayerTwoPosition[0] != 5);
+	}
+
+	@Test
+	public void refusesInvalidRequests() throws Exception {
+		Quoridor quoridor = new Quoridor();
+		String gameID = new GameStateCodec().readResponse(
+				post(BEGIN_GAME_PATH, "application/x-www-form-urlencoded", "idul=simar86", 200), quoridor);
+
+		assertTrue(post(MAKE_MOVE_PATH, "application/x-www-form-urlencoded",
+				"id=" + gameID + "&type=D&pos=(5,%203)", 400).contains("message"));
+		post(MAKE_MOVE_PATH, "application/x-www-form-urlencoded", "id=unknown&type=D&pos=(5,%202)", 404);
+		post("/quoridor/api/abandonner/", "application/x-www-form-urlencoded", "id=" + gameID, 404);
+		post(BEGIN_GAME_PATH, "text/plain", "simar86", 400);
+	}
+
+	@Test
+	public void playsGamesConcurrently() throws Exception {
+		final int gameCount = 16;
+		final List<String> gameIDs = new ArrayList<>();
+		Quoridor quoridor = new Quoridor();
+		for (int i = 0; i < gameCount; i++) {
+			gameIDs.add(new GameStateCodec().readResponse(
+					post(BEGIN_GAME_PATH, "application/x-www-form-urlencoded", "idul=simar86", 200), quoridor));
+		}
+
+		// Every game gets two moves at once: the actor plays the first and refuses the second
+		final AtomicInteger played = new AtomicInteger();
+		final AtomicInteger refused = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> clients = new ArrayList<>();
+		for (int i = 0; i < 2 * gameCount; i++) {
+			final String gameID = gameIDs.get(i / 2);
+			Thread client = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						int status = postStatus(MAKE_MOVE_PATH, "application/x-www-form-urlencoded",
+								"id=" + gameID + "&type=MH&pos=(3,%203)");
+						if (status == 200) played.incrementAndGet();
+						else if (status == 400) refused.incrementAndGet();
+					} catch (IOException | InterruptedException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+			client.start();
+			clients.add(client);
+		}
+		start.countDown();
+		for (Thread client : clients) {
+			client.join();
+		}
+		assertEquals(gameCount, played.get());
+		assertEquals(gameCount, refused.get());
+	}
+
+	@Test
+	public void answersPipelinedRequestsInOrder() throws IOException {
+		String body = "idul=simar86";
+		String request = "POST " + BEGIN_GAME_PATH + " HTTP/1.1\r\nHost: localhost\r\n"
+				+ "Content-Type: application/x-www-form-urlencoded\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+		String closingRequest = request.replace("Host: localhost\r\n", "Host: localhost\r\nConnection: close\r\n");
+		try (Socket socket = new Socket("127.0.0.1", mServer.getPort())) {
+			OutputStream out = socket.getOutputStream();
+			out.write((request + closingRequest).getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			String responses = readAll(socket.getInputStream());
+			assertEquals(2, responses.split("HTTP/1.1 200 OK", -1).length - 1);
+			assertTrue(responses.contains("Connection: keep-alive"));
+			assertTrue(responses.endsWith("}"));
+		}
+	}
+
+	@Test
+	public void closesIdleConnections() throws Exception {
+		final NioHttpServer server = new NioHttpServer(new InetSocketAddress("127.0.0.1", 0), new QuoridorApi(20, 1, mWorkers), mWorkers, 100);
+		Thread serverThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					server.run();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		serverThread.start();
+		try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+			socket.setSoTimeout(10000);
+			// Nothing is sent: the server hangs up without a response
+			assertEquals(-1, socket.getInputStream().read());
+		} finally {
+			server.stop();
+			serverThread.join();
+		}
+	}
+
+	private String post(String path, String contentType, String body, int expectedStatus) throws IOException {
+		HttpURLConnection connection = open(path, contentType, body);
+		assertEquals(expectedStatus, connection.getResponseCode());
+		InputStream in = expectedStatus == 200 ? connection.getInputStream() : connection.getErrorStream();
+		return readAll(in);
+	}
+
+	private int postStatus(String path, String contentType, String body) throws IOException {
+		HttpURLConnection connection = open(path, contentType, body);
+		int status = connection.getResponseCode();
+		readAll(status == 200 ? connection.getInputStream() : connection.getErrorStream());
+		return status;
+	}
+
+	private HttpURLConnection open(String path, String contentType, String body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + mServer.getPort() + path).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", contentType);
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		return connection;
+	}
+
+	private static String multipart(String... fields) {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < fields.length; i += 2) {
+			body.append("--").append(BOUNDARY).append("\r\n")
+					.append("Content-Disposition: form-data; name=\"").append(fields[i]).append("\"\r\n")
+					.append("Content-Length: ").append(fields[i + 1].length()).append("\r\n\r\n")
+					.append(fields[i + 1]).append("\r\n");
+		}
+		return body.append("--").append(BOUNDARY).append("--\r\n").toString();
+	}
+
+	private static String readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int count;
+		try {
+			while ((count = in.read(buffer)) >= 0) {
+				bytes.write(buffer, 0, count);
+			}
+		} finally {
+			in.close();
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
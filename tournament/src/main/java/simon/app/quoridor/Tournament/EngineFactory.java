@@ -0,0 +1,15 @@
+package simon.app.quoridor.Tournament;
+
+import simon.app.quoridor.Core.Engine;
+
+/**
+ * Creates the engine of a tournament participant. Each game gets new engines, so that games
+ * running in parallel share nothing and a game does not depend on the previous ones
+ */
+public interface EngineFactory {
+
+	/**
+	 * @return A new engine. Its time budget is set before each move
+	 */
+	Engine createEngine();
+}
@@ -0,0 +1,72 @@
+package simon.app.quoridor.Tournament;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import simon.app.quoridor.Core.OpeningBookBuilder;
+
+/**
+ * Command line entry point of OpeningBookBuilder, run on the JVM:
+ *
+ * OpeningBookRunner [--plies N] [--games N] [--depth N] [--random percent] [--seed N] file
+ *
+ * Plays self-play games of an engine searching to the given depth (3 by default), with a random
+ * pawn move at the given chance (20% by default) during the book plies (10 by default) to vary
+ * them, and writes the book of those plies to the file. The server and the tournament read it
+ * with their --book option.
+ */
+public class OpeningBookRunner {
+
+	public static void main(String[] args) throws IOException {
+		int maxPly = 10;
+		int gameCount = 1000;
+		int maxDepth = 3;
+		int randomMovePercent = 20;
+		long seed = 1;
+		File file = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--plies":
+						maxPly = Integer.parseInt(args[++i]);
+						break;
+					case "--games":
+						gameCount = Integer.parseInt(args[++i]);
+						break;
+					case "--depth":
+						maxDepth = Integer.parseInt(args[++i]);
+						break;
+					case "--random":
+						randomMovePercent = Integer.parseInt(args[++i]);
+						break;
+					case "--seed":
+						seed = Long.parseLong(args[++i]);
+						break;
+					default:
+						if (file != null) throw new IllegalArgumentException("Unexpected argument " + args[i]);
+						file = new File(args[i]);
+				}
+			}
+			if (file == null) throw new IllegalArgumentException("A book file is needed");
+			if (maxPly < 1 || gameCount < 1 || maxDepth < 1)
+				throw new IllegalArgumentException("Plies, games and depth must be at least 1");
+			if (randomMovePercent < 0 || randomMovePercent > 100)
+				throw new IllegalArgumentException("Invalid random move chance " + randomMovePercent);
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: OpeningBookRunner [--plies N] [--games N] [--depth N] [--random percent]"
+					+ " [--seed N] file");
+			System.exit(2);
+			return;
+		}
+
+		long start = System.currentTimeMillis();
+		OpeningBookBuilder builder = new OpeningBookBuilder(maxPly);
+		builder.playSelfPlayGames(gameCount, maxDepth, randomMovePercent, seed);
+		builder.write(file);
+		System.out.println(String.format(Locale.ROOT, "%d positions of the first %d plies from %d games written to %s in %.1f s",
+				builder.getPositionCount(), maxPly, gameCount, file, (System.currentTimeMillis() - start) / 1000.0));
+	}
+}
@@ -0,0 +1,69 @@
+package simon.app.quoridor.Tournament;
+
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import simon.app.quoridor.Core.Perft;
+import simon.app.quoridor.Core.Position;
+
+/**
+ * Command line entry point of Perft, run on the JVM:
+ *
+ * PerftRunner [--divide] [--threads N] depth
+ *
+ * Counts the move sequences from the starting position, player 1 to move, and prints the count of
+ * every depth up to the one given with its speed in nodes per second. With --divide, also prints
+ * the count of each first move at the last depth. More than one thread uses the parallel mode.
+ */
+public class PerftRunner {
+
+	public static void main(String[] args) {
+		boolean divide = false;
+		int threadCount = 1;
+		int depth = -1;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--divide":
+						divide = true;
+						break;
+					case "--threads":
+						threadCount = Integer.parseInt(args[++i]);
+						break;
+					default:
+						if (depth != -1) throw new IllegalArgumentException("Unexpected argument " + args[i]);
+						depth = Integer.parseInt(args[i]);
+				}
+			}
+			if (depth < 1) throw new IllegalArgumentException("A depth of at least 1 is needed");
+			if (threadCount < 1) throw new IllegalArgumentException("Invalid thread count " + threadCount);
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: PerftRunner [--divide] [--threads N] depth");
+			System.exit(2);
+			return;
+		}
+
+		Position position = new Position();
+		position.setInitial();
+		ForkJoinPool pool = threadCount > 1 ? new ForkJoinPool(threadCount) : null;
+		try {
+			for (int d = 1; d <= depth; d++) {
+				long start = System.nanoTime();
+				long count = pool != null ? Perft.parallelPerft(position, 1, d, pool) : new Perft(position).perft(1, d);
+				long elapsed = Math.max(1, System.nanoTime() - start);
+				System.out.println(String.format(Locale.ROOT, "perft(%d) = %d in %.3f s, %.0f nodes/s",
+						d, count, elapsed / 1e9, count * 1e9 / elapsed));
+			}
+		} finally {
+			if (pool != null) pool.shutdown();
+		}
+
+		if (divide) {
+			for (Perft.MoveCount moveCount : new Perft(position).divide(1, depth)) {
+				System.out.println(moveCount);
+			}
+		}
+	}
+}
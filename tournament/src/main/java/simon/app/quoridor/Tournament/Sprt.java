@@ -0,0 +1,75 @@
+package simon.app.quoridor.Tournament;
+
+import java.util.Locale;
+
+/**
+ * Sequential probability ratio test deciding between two Elo differences, so that a match can stop
+ * as soon as it has shown whether a change is an improvement, typically after far fewer games than
+ * a fixed-length match with the same error rates
+ */
+public class Sprt {
+	/**
+	 * Test outcomes
+	 */
+	public static final int CONTINUE = 0;
+	public static final int ACCEPT_H0 = 1;
+	public static final int ACCEPT_H1 = 2;
+
+	private final double mElo0;
+	private final double mElo1;
+	private final double mLowerBound;
+	private final double mUpperBound;
+
+	/**
+	 * @param elo0 The Elo difference of the null hypothesis, typically 0
+	 * @param elo1 The Elo difference of the alternative hypothesis, greater than elo0
+	 * @param alpha The probability of accepting H1 when H0 is true
+	 * @param beta The probability of accepting H0 when H1 is true
+	 */
+	public Sprt(double elo0, double elo1, double alpha, double beta) {
+		if (elo1 <= elo0 || alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1)
+			throw new IllegalArgumentException("Invalid SPRT parameters");
+		mElo0 = elo0;
+		mElo1 = elo1;
+		mLowerBound = Math.log(beta / (1 - alpha));
+		mUpperBound = Math.log((1 - beta) / alpha);
+	}
+
+	public double getLowerBound() {
+		return mLowerBound;
+	}
+
+	public double getUpperBound() {
+		return mUpperBound;
+	}
+
+	/**
+	 * @param stats The results so far
+	 * @return The log-likelihood ratio of the results
+	 */
+	public double getLogLikelihoodRatio(TournamentStats stats) {
+		return stats.getLogLikelihoodRatio(mElo0, mElo1);
+	}
+
+	/**
+	 * @param stats The results so far
+	 * @return CONTINUE, ACCEPT_H0 or ACCEPT_H1
+	 */
+	public int getStatus(TournamentStats stats) {
+		double logLikelihoodRatio = getLogLikelihoodRatio(stats);
+		if (logLikelihoodRatio >= mUpperBound) return ACCEPT_H1;
+		if (logLikelihoodRatio <= mLowerBound) return ACCEPT_H0;
+		return CONTINUE;
+	}
+
+	/**
+	 * @param stats The results so far
+	 * @return A summary of the test
+	 */
+	public String toString(TournamentStats stats) {
+		int status = getStatus(stats);
+		return String.format(Locale.ROOT, "SPRT [%.1f, %.1f]: LLR %.2f (%.2f, %.2f), %s",
+				mElo0, mElo1, getLogLikelihoodRatio(stats), mLowerBound, mUpperBound,
+				status == ACCEPT_H1 ? "H1 accepted" : status == ACCEPT_H0 ? "H0 accepted" : "inconclusive");
+	}
+}
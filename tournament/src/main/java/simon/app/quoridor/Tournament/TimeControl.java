@@ -0,0 +1,72 @@
+package simon.app.quoridor.Tournament;
+
+/**
+ * Clock of each player in a tournament game: a base time for the whole game plus an increment
+ * added after each move. A player whose clock runs out loses the game.
+ */
+public class TimeControl {
+	/**
+	 * Number of moves the remaining time is assumed to be spread over
+	 */
+	public static final int MOVES_TO_GO = 25;
+
+	private final long mBaseMillis;
+	private final long mIncrementMillis;
+
+	/**
+	 * @param baseMillis The time of each player for the whole game, in milliseconds
+	 * @param incrementMillis The time added to a player's clock after each of their moves
+	 */
+	public TimeControl(long baseMillis, long incrementMillis) {
+		if (baseMillis <= 0 || incrementMillis < 0)
+			throw new IllegalArgumentException("Invalid time control " + baseMillis + "+" + incrementMillis);
+		mBaseMillis = baseMillis;
+		mIncrementMillis = incrementMillis;
+	}
+
+	/**
+	 * @param text The time control in seconds, as "base+increment" or "base", for instance "10+0.1"
+	 * @return The time control
+	 * @throws IllegalArgumentException if the text is malformed
+	 */
+	public static TimeControl parse(String text) {
+		String[] parts = text.split("\\+");
+		if (parts.length > 2) throw new IllegalArgumentException("Invalid time control " + text);
+		try {
+			long baseMillis = Math.round(Double.parseDouble(parts[0]) * 1000);
+			long incrementMillis = parts.length == 2 ? Math.round(Double.parseDouble(parts[1]) * 1000) : 0;
+			return new TimeControl(baseMillis, incrementMillis);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid time control " + text, e);
+		}
+	}
+
+	/**
+	 * @return The time of each player for the whole game, in milliseconds
+	 */
+	public long getBaseMillis() {
+		return mBaseMillis;
+	}
+
+	/**
+	 * @return The time added to a player's clock after each of their moves, in milliseconds
+	 */
+	public long getIncrementMillis() {
+		return mIncrementMillis;
+	}
+
+	/**
+	 * @param clockMillis The time left on the clock of the player to move
+	 * @return The time budget of the move, leaving time for the rest of the game and for the
+	 * engine to notice the budget is spent
+	 */
+	public long getMoveBudget(long clockMillis) {
+		long budget = clockMillis / MOVES_TO_GO + mIncrementMillis * 3 / 4;
+		return Math.max(1, Math.min(budget, clockMillis / 2));
+	}
+
+	@Override
+	public String toString() {
+		return mBaseMillis / 1000.0 + "+" + mIncrementMillis / 1000.0;
+	}
+}
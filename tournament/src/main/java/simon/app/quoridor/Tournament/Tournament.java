@@ -0,0 +1,192 @@
+package simon.app.quoridor.Tournament;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import simon.app.quoridor.Core.Bitboard;
+import simon.app.quoridor.Core.Engine;
+import simon.app.quoridor.Core.Move;
+import simon.app.quoridor.Core.OpeningBookBuilder;
+import simon.app.quoridor.Core.Position;
+
+/**
+ * Headless match between two engines, played on the rules of Position without Android.
+ *
+ * Games are spread over a fork-join pool, each game running in one worker thread with its own
+ * engines and clocks. Games go by pairs: both games of a pair start with the same random opening
+ * plies, each engine playing first in one of them, which cancels most of the first-move advantage
+ * and opening luck. A game ends on a win, on a forfeit (clock run out, illegal move or no move) or
+ * as a draw after OpeningBookBuilder.MAX_GAME_PLIES plies.
+ *
+ * When an Sprt is set, the games not started yet are skipped once it is conclusive.
+ */
+public class Tournament {
+	private final EngineFactory mFirstEngineFactory;
+	private final EngineFactory mSecondEngineFactory;
+	private final TimeControl mTimeControl;
+	private int mThreadCount = Runtime.getRuntime().availableProcessors();
+	private int mOpeningPlies = 4;
+	private long mSeed = 1;
+	private Sprt mSprt;
+	private Listener mListener;
+
+	/**
+	 * Notified after each game, from the thread that played it
+	 */
+	public interface Listener {
+		void onGameFinished(int gameIndex, TournamentStats stats);
+	}
+
+	/**
+	 * @param firstEngineFactory Creates the engine the statistics are about
+	 * @param secondEngineFactory Creates its opponent
+	 * @param timeControl The clocks of each game
+	 */
+	public Tournament(EngineFactory firstEngineFactory, EngineFactory secondEngineFactory, TimeControl timeControl) {
+		mFirstEngineFactory = firstEngineFactory;
+		mSecondEngineFactory = secondEngineFactory;
+		mTimeControl = timeControl;
+	}
+
+	/**
+	 * @param threadCount The number of games played at the same time
+	 */
+	public void setThreadCount(int threadCount) {
+		mThreadCount = Math.max(1, threadCount);
+	}
+
+	/**
+	 * @param openingPlies The number of random pawn moves starting each pair of games
+	 */
+	public void setOpeningPlies(int openingPlies) {
+		mOpeningPlies = Math.max(0, openingPlies);
+	}
+
+	/**
+	 * @param seed The seed of the random openings
+	 */
+	public void setSeed(long seed) {
+		mSeed = seed;
+	}
+
+	/**
+	 * @param sprt The test stopping the match when conclusive, or null to play every game
+	 */
+	public void setSprt(Sprt sprt) {
+		mSprt = sprt;
+	}
+
+	/**
+	 * @param listener Notified after each game, or null
+	 */
+	public void setListener(Listener listener) {
+		mListener = listener;
+	}
+
+	/**
+	 * Plays the match. Blocks until every game is played or the SPRT is conclusive
+	 * @param gameCount The number of games. An odd last game has no pair
+	 * @return The results, from the point of view of the first engine
+	 */
+	public TournamentStats play(int gameCount) {
+		TournamentStats stats = new TournamentStats();
+		ForkJoinPool pool = new ForkJoinPool(mThreadCount);
+		try {
+			pool.invoke(new GameRange(0, gameCount, stats, new AtomicBoolean()));
+		} finally {
+			pool.shutdown();
+		}
+		return stats;
+	}
+
+	/**
+	 * Splits a range of games in halves until single games remain
+	 */
+	private class GameRange extends RecursiveAction {
+		private final int mStart;
+		private final int mEnd;
+		private final TournamentStats mStats;
+		private final AtomicBoolean mStopped;
+
+		GameRange(int start, int end, TournamentStats stats, AtomicBoolean stopped) {
+			mStart = start;
+			mEnd = end;
+			mStats = stats;
+			mStopped = stopped;
+		}
+
+		@Override
+		protected void compute() {
+			if (mEnd - mStart > 1) {
+				int middle = (mStart + mEnd) >>> 1;
+				invokeAll(new GameRange(mStart, middle, mStats, mStopped),
+						new GameRange(middle, mEnd, mStats, mStopped));
+				return;
+			}
+			if (mStart == mEnd || mStopped.get()) return;
+
+			playGame(mStart, mStats);
+			if (mListener != null) mListener.onGameFinished(mStart, mStats);
+			if (mSprt != null && mSprt.getStatus(mStats) != Sprt.CONTINUE) mStopped.set(true);
+		}
+	}
+
+	/**
+	 * Plays one game and records it
+	 * @param gameIndex The index of the game. The first engine plays first in even games
+	 */
+	private void playGame(int gameIndex, TournamentStats stats) {
+		int firstEnginePlayer = gameIndex % 2 == 0 ? 1 : 2;
+		Engine[] engines = new Engine[3];
+		engines[firstEnginePlayer] = mFirstEngineFactory.createEngine();
+		engines[3 - firstEnginePlayer] = mSecondEngineFactory.createEngine();
+		long[] clocks = {0, mTimeControl.getBaseMillis(), mTimeControl.getBaseMillis()};
+
+		// Both games of a pair get the same opening
+		Random random = new Random(mSeed * 31 + gameIndex / 2);
+		int[] pawnMoves = new int[Bitboard.MAX_PAWN_MOVES];
+		Position position = new Position();
+		position.setInitial();
+
+		int player = 1;
+		int ply = 0;
+		int winner = 0;
+		boolean forfeit = false;
+		try {
+			while (ply < OpeningBookBuilder.MAX_GAME_PLIES) {
+				int move;
+				if (ply < mOpeningPlies) {
+					int count = position.generatePawnMoves(player, pawnMoves, 0);
+					move = count == 0 ? Move.NONE : Move.pawn(pawnMoves[random.nextInt(count)]);
+				} else {
+					Engine engine = engines[player];
+					engine.setTimeBudget(mTimeControl.getMoveBudget(clocks[player]));
+					long start = System.nanoTime();
+					move = engine.findBestMove(position, player);
+					clocks[player] -= (System.nanoTime() - start) / 1000000;
+					if (clocks[player] < 0) move = Move.NONE;
+					clocks[player] += mTimeControl.getIncrementMillis();
+				}
+
+				if (move == Move.NONE || !position.isMoveLegal(player, move)) {
+					winner = 3 - player;
+					forfeit = true;
+					break;
+				}
+				position.playMove(player, move);
+				ply++;
+				winner = position.getWinner();
+				if (winner != 0) break;
+				player = 3 - player;
+			}
+		} finally {
+			engines[1].shutdown();
+			engines[2].shutdown();
+		}
+
+		int halfPoints = winner == 0 ? 1 : winner == firstEnginePlayer ? 2 : 0;
+		stats.addGame(halfPoints, ply, forfeit);
+	}
+}
@@ -0,0 +1,171 @@
+package simon.app.quoridor.Tournament;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import simon.app.quoridor.Core.AlphaBetaEngine;
+import simon.app.quoridor.Core.Engine;
+import simon.app.quoridor.Core.MctsEngine;
+import simon.app.quoridor.Core.OpeningBook;
+import simon.app.quoridor.Core.ParallelAlphaBetaEngine;
+
+/**
+ * Command line entry point of Tournament, run on the JVM:
+ *
+ * TournamentRunner [--games N] [--threads N] [--tc base+increment] [--openings plies] [--seed N]
+ *                  [--sprt elo0,elo1[,alpha,beta]] [--book file] engine1 engine2
+ *
+ * Engines are "alphabeta", "alphabeta:depth" (limited to that depth), "mcts" (PUCT) or "mcts-uct",
+ * all single-threaded since the games themselves run in parallel, or "parallel:threads", the
+ * lazy SMP search on that many threads (every processor if omitted). Matches with a parallel
+ * engine are best run with --threads 1, so that each search gets the processors it asks for.
+ * Times are in seconds. With --book, both engines play from the opening book written by
+ * OpeningBookRunner while the positions are in it.
+ */
+public class TournamentRunner {
+	private static final double DEFAULT_SPRT_ERROR = 0.05;
+
+	public static void main(String[] args) throws IOException {
+		int gameCount = 1000;
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		TimeControl timeControl = TimeControl.parse("10+0.1");
+		int openingPlies = 4;
+		long seed = 1;
+		Sprt sprt = null;
+		File bookFile = null;
+		String[] engineNames = new String[2];
+		int engineCount = 0;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--games":
+						gameCount = Integer.parseInt(args[++i]);
+						break;
+					case "--threads":
+						threadCount = Integer.parseInt(args[++i]);
+						break;
+					case "--tc":
+						timeControl = TimeControl.parse(args[++i]);
+						break;
+					case "--openings":
+						openingPlies = Integer.parseInt(args[++i]);
+						break;
+					case "--seed":
+						seed = Long.parseLong(args[++i]);
+						break;
+					case "--sprt":
+						sprt = parseSprt(args[++i]);
+						break;
+					case "--book":
+						bookFile = new File(args[++i]);
+						break;
+					default:
+						if (engineCount == 2) throw new IllegalArgumentException("Unexpected argument " + args[i]);
+						engineNames[engineCount++] = args[i];
+						createEngineFactory(args[i]);
+				}
+			}
+			if (engineCount != 2) throw new IllegalArgumentException("Two engines are needed");
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: TournamentRunner [--games N] [--threads N] [--tc base+increment]"
+					+ " [--openings plies] [--seed N] [--sprt elo0,elo1[,alpha,beta]] [--book file] engine1 engine2");
+			System.exit(2);
+			return;
+		}
+
+		OpeningBook openingBook = bookFile != null ? OpeningBook.open(bookFile) : null;
+		Tournament tournament = new Tournament(withOpeningBook(createEngineFactory(engineNames[0]), openingBook),
+				withOpeningBook(createEngineFactory(engineNames[1]), openingBook), timeControl);
+		tournament.setThreadCount(threadCount);
+		tournament.setOpeningPlies(openingPlies);
+		tournament.setSeed(seed);
+		tournament.setSprt(sprt);
+		final int reportInterval = Math.max(1, Math.min(100, gameCount / 20));
+		tournament.setListener(new Tournament.Listener() {
+			@Override
+			public void onGameFinished(int gameIndex, TournamentStats stats) {
+				if (stats.getGameCount() % reportInterval == 0) System.out.println(stats);
+			}
+		});
+
+		System.out.println(String.format(Locale.ROOT, "%s vs %s, %d games at %s on %d threads",
+				engineNames[0], engineNames[1], gameCount, timeControl, threadCount));
+		long start = System.currentTimeMillis();
+		TournamentStats stats = tournament.play(gameCount);
+		System.out.println(stats);
+		if (sprt != null) System.out.println(sprt.toString(stats));
+		System.out.println(String.format(Locale.ROOT, "Played in %.1f s",
+				(System.currentTimeMillis() - start) / 1000.0));
+	}
+
+	/**
+	 * @param name The name of an engine, see the class documentation
+	 * @return A factory of that engine
+	 * @throws IllegalArgumentException if the name is unknown
+	 */
+	static EngineFactory createEngineFactory(String name) {
+		String[] parts = name.split(":");
+		switch (parts[0]) {
+			case "alphabeta":
+				final int maxDepth = parts.length > 1 ? Integer.parseInt(parts[1]) : AlphaBetaEngine.MAX_DEPTH;
+				return new EngineFactory() {
+					@Override
+					public Engine createEngine() {
+						AlphaBetaEngine engine = new AlphaBetaEngine();
+						engine.setMaxDepth(maxDepth);
+						return engine;
+					}
+				};
+			case "parallel":
+				final int searchThreads = parts.length > 1 ? Integer.parseInt(parts[1])
+						: Runtime.getRuntime().availableProcessors();
+				if (searchThreads < 1) throw new IllegalArgumentException("Invalid thread count in " + name);
+				return new EngineFactory() {
+					@Override
+					public Engine createEngine() {
+						return new ParallelAlphaBetaEngine(AlphaBetaEngine.DEFAULT_TIME_BUDGET_MILLIS, searchThreads);
+					}
+				};
+			case "mcts":
+			case "mcts-uct":
+				final int selection = parts[0].equals("mcts") ? MctsEngine.PUCT : MctsEngine.UCT;
+				return new EngineFactory() {
+					@Override
+					public Engine createEngine() {
+						return new MctsEngine(AlphaBetaEngine.DEFAULT_TIME_BUDGET_MILLIS, selection, 1,
+								MctsEngine.DEFAULT_BATCH_SIZE, MctsEngine.DEFAULT_NODE_CAPACITY);
+					}
+				};
+			default:
+				throw new IllegalArgumentException("Unknown engine " + name);
+		}
+	}
+
+	/**
+	 * @param engineFactory A factory of engines
+	 * @param openingBook The book the engines play from, shared by all of them, or null
+	 * @return A factory of the same engines, playing from the book
+	 */
+	static EngineFactory withOpeningBook(final EngineFactory engineFactory, final OpeningBook openingBook) {
+		if (openingBook == null) return engineFactory;
+		return new EngineFactory() {
+			@Override
+			public Engine createEngine() {
+				Engine engine = engineFactory.createEngine();
+				engine.setOpeningBook(openingBook);
+				return engine;
+			}
+		};
+	}
+
+	private static Sprt parseSprt(String text) {
+		String[] parts = text.split(",");
+		if (parts.length != 2 && parts.length != 4) throw new IllegalArgumentException("Invalid SPRT " + text);
+		double alpha = parts.length == 4 ? Double.parseDouble(parts[2]) : DEFAULT_SPRT_ERROR;
+		double beta = parts.length == 4 ? Double.parseDouble(parts[3]) : DEFAULT_SPRT_ERROR;
+		return new Sprt(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), alpha, beta);
+	}
+}
@@ -0,0 +1,148 @@
+package simon.app.quoridor.Tournament;
+
+import java.util.Locale;
+
+/**
+ * Results of a match between two engines, from the point of view of the first one, with the Elo
+ * difference they imply and the log-likelihood ratio used by Sprt.
+ *
+ * The Elo error margin and the likelihood ratio use the normal approximation of the mean score,
+ * with the variance measured on the games played, so draws are accounted for. Thread safe.
+ */
+public class TournamentStats {
+	/**
+	 * Quantile of the normal distribution for a 95% confidence interval
+	 */
+	private static final double CONFIDENCE_95 = 1.959964;
+
+	private int mWins;
+	private int mDraws;
+	private int mLosses;
+	private int mForfeits;
+	private long mPlies;
+
+	/**
+	 * Records a game
+	 * @param halfPoints The half points scored by the first engine: 2 for a win, 1 for a draw
+	 * @param plies The length of the game
+	 * @param forfeit Whether the game was lost on time or by an illegal move
+	 */
+	public synchronized void addGame(int halfPoints, int plies, boolean forfeit) {
+		if (halfPoints == 2)
+			mWins++;
+		else if (halfPoints == 1)
+			mDraws++;
+		else
+			mLosses++;
+		if (forfeit) mForfeits++;
+		mPlies += plies;
+	}
+
+	public synchronized int getWins() {
+		return mWins;
+	}
+
+	public synchronized int getDraws() {
+		return mDraws;
+	}
+
+	public synchronized int getLosses() {
+		return mLosses;
+	}
+
+	/**
+	 * @return The number of games lost on time or by an illegal move, by either engine
+	 */
+	public synchronized int getForfeits() {
+		return mForfeits;
+	}
+
+	public synchronized int getGameCount() {
+		return mWins + mDraws + mLosses;
+	}
+
+	/**
+	 * @return The mean length of the games, in plies
+	 */
+	public synchronized double getMeanPlies() {
+		int gameCount = getGameCount();
+		return gameCount == 0 ? 0 : (double) mPlies / gameCount;
+	}
+
+	/**
+	 * @return The mean score of the first engine, between 0 and 1
+	 */
+	public synchronized double getScore() {
+		int gameCount = getGameCount();
+		return gameCount == 0 ? 0.5 : (mWins + 0.5 * mDraws) / gameCount;
+	}
+
+	/**
+	 * @return The Elo difference between the first engine and the second, infinite if one of them
+	 * scored every point
+	 */
+	public synchronized double getEloDifference() {
+		return toElo(getScore());
+	}
+
+	/**
+	 * @return Half the width of the 95% confidence interval of the Elo difference
+	 */
+	public synchronized double getEloMargin() {
+		int gameCount = getGameCount();
+		if (gameCount == 0) return Double.POSITIVE_INFINITY;
+		double score = getScore();
+		double deviation = CONFIDENCE_95 * Math.sqrt(getVariance() / gameCount);
+		return (toElo(Math.min(score + deviation, 1)) - toElo(Math.max(score - deviation, 0))) / 2;
+	}
+
+	/**
+	 * @param elo0 The Elo difference of the null hypothesis
+	 * @param elo1 The Elo difference of the alternative hypothesis
+	 * @return The log-likelihood ratio of the alternative hypothesis against the null one
+	 */
+	public synchronized double getLogLikelihoodRatio(double elo0, double elo1) {
+		double variance = getVariance();
+		if (variance == 0) return 0;
+		double score0 = toScore(elo0);
+		double score1 = toScore(elo1);
+		return getGameCount() * (score1 - score0) * (2 * getScore() - score0 - score1) / (2 * variance);
+	}
+
+	/**
+	 * @param score A mean score, between 0 and 1
+	 * @return The Elo difference giving that expected score
+	 */
+	public static double toElo(double score) {
+		if (score <= 0) return Double.NEGATIVE_INFINITY;
+		if (score >= 1) return Double.POSITIVE_INFINITY;
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	/**
+	 * @param elo An Elo difference
+	 * @return The expected score of the stronger player
+	 */
+	public static double toScore(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+
+	/**
+	 * @return The variance of the score of one game
+	 */
+	private double getVariance() {
+		int gameCount = getGameCount();
+		if (gameCount == 0) return 0;
+		double score = getScore();
+		return (mWins * (1 - score) * (1 - score)
+				+ mDraws * (0.5 - score) * (0.5 - score)
+				+ mLosses * score * score) / gameCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format(Locale.ROOT, "Games: %d, +%d =%d -%d (forfeits: %d), score: %.1f%%, Elo: %.1f +/- %.1f, mean length: %.1f plies",
+				getGameCount(), mWins, mDraws, mLosses, mForfeits, 100 * getScore(),
+				getEloDifference(), getEloMargin(), getMeanPlies());
+	}
+}
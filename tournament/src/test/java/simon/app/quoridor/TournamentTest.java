@@ -0,0 +1,60 @@
+package simon.app.quoridor;
+
+import org.junit.Test;
+
+import simon.app.quoridor.Core.AlphaBetaEngine;
+import simon.app.quoridor.Core.Engine;
+import simon.app.quoridor.Tournament.EngineFactory;
+import simon.app.quoridor.Tournament.Sprt;
+import simon.app.quoridor.Tournament.TimeControl;
+import simon.app.quoridor.Tournament.Tournament;
+import simon.app.quoridor.Tournament.TournamentStats;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the headless tournament
+ */
+public class TournamentTest {
+
+	@Test
+	public void statsGiveEloAndSprt() {
+		TournamentStats stats = new TournamentStats();
+		for (int i = 0; i < 240; i++) stats.addGame(2, 40, false);
+		for (int i = 0; i < 120; i++) stats.addGame(1, 40, false);
+		for (int i = 0; i < 120; i++) stats.addGame(0, 40, i == 0);
+
+		assertEquals(480, stats.getGameCount());
+		assertEquals(1, stats.getForfeits());
+		assertEquals(0.625, stats.getScore(), 1e-9);
+		assertEquals(88.7, stats.getEloDifference(), 0.1);
+		assertTrue(stats.getEloMargin() > 0 && stats.getEloMargin() < 88.7);
+		assertEquals(Double.POSITIVE_INFINITY, TournamentStats.toElo(1), 0);
+
+		Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+		assertEquals(Math.log(19), sprt.getUpperBound(), 1e-9);
+		assertEquals(Sprt.ACCEPT_H1, sprt.getStatus(stats));
+		assertEquals(Sprt.ACCEPT_H0, new Sprt(150, 200, 0.05, 0.05).getStatus(stats));
+	}
+
+	@Test
+	public void gamesArePlayedInParallel() {
+		EngineFactory engineFactory = new EngineFactory() {
+			@Override
+			public Engine createEngine() {
+				AlphaBetaEngine engine = new AlphaBetaEngine();
+				engine.setMaxDepth(1);
+				return engine;
+			}
+		};
+		Tournament tournament = new Tournament(engineFactory, engineFactory, TimeControl.parse("60"));
+		tournament.setThreadCount(2);
+		TournamentStats stats = tournament.play(4);
+
+		assertEquals(4, stats.getGameCount());
+		assertEquals(0, stats.getForfeits());
+		// Same engines and same openings by pair: each engine wins its game of the pair
+		assertEquals(stats.getWins(), stats.getLosses());
+		assertTrue(stats.getMeanPlies() > 4);
+	}
+}